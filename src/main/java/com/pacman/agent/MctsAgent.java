@@ -0,0 +1,433 @@
+package com.pacman.agent;
+
+import com.pacman.core.Game;
+import com.pacman.core.GameSnapshot;
+import com.pacman.core.PelletTracker;
+import com.pacman.core.TileMap;
+import com.pacman.entity.PacMan;
+import com.pacman.util.PacManInput;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Monte Carlo tree search bot that plays PacMan.
+ *
+ * <p>
+ * At every grid position, {@link #think(Game)} saves the game into a
+ * {@link GameSnapshot} and searches until its time budget (or rollout cap)
+ * is spent. Each iteration restores the snapshot into a private lookahead
+ * {@link Game} built from the same level and plays real ticks: the ghosts
+ * run their own strategies and random streams, so what the search sees is
+ * what the game will do. Tree edges are macro actions (a direction, then
+ * the corridor up to the next junction). An iteration follows the tree,
+ * expands one node, finishes with a short random rollout and backs up the
+ * score gained, minus a large penalty for dying and a small one per tile
+ * left to the nearest pellet. The most visited first move is then held,
+ * like a key, until the next decision.
+ * </p>
+ *
+ * <p>
+ * Tree storage is preallocated and the lookahead game is reused, so
+ * iterations only allocate when they eat a pellet (the lookahead's pellet
+ * words are copied on write, under half a kilobyte).
+ * </p>
+ */
+public class MctsAgent implements PacManInput {
+
+    /** Default thinking time per decision */
+    public static final long DEFAULT_BUDGET_MILLIS = 8;
+
+    /** Directions, same numbering as sprite directions (0=right, 1=left, 2=up, 3=down) */
+    private static final int RIGHT = 0;
+    private static final int LEFT = 1;
+    private static final int UP = 2;
+    private static final int DOWN = 3;
+    private static final int NONE = -1;
+
+    private static final int[] DX = { 1, -1, 0, 0 };
+    private static final int[] DY = { 0, 0, -1, 1 };
+    private static final int[] REVERSE = { LEFT, RIGHT, DOWN, UP };
+
+    private static final int MAX_NODES = 1 << 15;
+    private static final int MAX_DEPTH = 64;
+    private static final int ROLLOUT_MACROS = 3;
+    /** Ticks after which a macro action ends even away from a junction */
+    private static final int MACRO_TICKS = 48;
+    private static final double EXPLORATION = 0.7;
+    private static final double VALUE_SCALE = 500.0;
+    private static final double DEATH_PENALTY = 4.0;
+    private static final double CLEAR_BONUS = 4.0;
+    /** Leaf penalty per tile to the nearest pellet, so far pellets still attract */
+    private static final double PELLET_DISTANCE_WEIGHT = 0.03;
+
+    private final long budgetNanos;
+    private final int maxRollouts;
+    private final SplittableRandom random;
+
+    // Tree (node 0 is the root; child index 0 means "not expanded")
+    private final int[] children = new int[MAX_NODES * 4];
+    private final int[] visits = new int[MAX_NODES];
+    private final double[] values = new double[MAX_NODES];
+    private int nodeCount = 0;
+    private final int[] path = new int[MAX_DEPTH];
+
+    /** Steps to the nearest pellet from each tile, for the root position */
+    private int[] pelletDistance;
+    private int[] bfsQueue;
+
+    /** Game the search plays in, and the root state it restarts from */
+    private Game lookahead;
+    /** Game and maze version the lookahead was built for */
+    private Game builtFor;
+    private int builtForVersion;
+    private final GameSnapshot root = new GameSnapshot();
+    private final HeldInput held = new HeldInput();
+    private int rootScore;
+    private int rootLives;
+    private int rootLevel;
+
+    /** Where a 32px box fits, per tile of the lookahead's maze */
+    private boolean[] walkable;
+    private int columns;
+    private int rows;
+
+    /** Direction currently held, NONE before the first decision */
+    private int direction = NONE;
+
+    // Metrics
+    private long decisions = 0;
+    private long rollouts = 0;
+    private long thinkNanos = 0;
+
+    /** Direction held in the lookahead game */
+    private static class HeldInput implements PacManInput {
+        int direction = NONE;
+
+        @Override public boolean isRightPressed() { return direction == RIGHT; }
+        @Override public boolean isLeftPressed() { return direction == LEFT; }
+        @Override public boolean isUpPressed() { return direction == UP; }
+        @Override public boolean isDownPressed() { return direction == DOWN; }
+    }
+
+    /**
+     * @param budgetMillis thinking time per decision, or 0 for the rollout cap only
+     * @param maxRollouts rollout cap per decision, or 0 for the time budget only
+     * @param seed random seed of the search
+     */
+    public MctsAgent(long budgetMillis, int maxRollouts, long seed) {
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.maxRollouts = maxRollouts;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Chooses PacMan's direction for this tick. Call before passing the agent
+     * to {@link Game#input}; it only searches when PacMan can turn.
+     */
+    public void think(Game game) {
+        PacMan pacman = game.getPacman();
+        if (pacman == null || game.isGameOver() || game.isLevelStarting())
+            return;
+        if (!pacman.onTheGrid() || !pacman.onGameplayWindow())
+            return;
+
+        long t0 = System.nanoTime();
+        if (lookahead == null || builtFor != game || builtForVersion != game.getMazeVersion())
+            buildLookahead(game);
+        game.saveSnapshot(root);
+        rootScore = root.getScore();
+        rootLives = root.getLives();
+        rootLevel = root.getLevel();
+        pelletDistances(game.getPellets());
+
+        int best = search(t0);
+        if (best != NONE)
+            direction = best;
+        decisions++;
+        thinkNanos += System.nanoTime() - t0;
+    }
+
+    /** Builds the lookahead game and the walkable grid of its maze */
+    private void buildLookahead(Game game) {
+        lookahead = new Game(game.getSeed());
+        builtFor = game;
+        builtForVersion = game.getMazeVersion();
+        TileMap map = lookahead.getTileMap();
+        columns = map.getColumns();
+        rows = map.getRows();
+        walkable = new boolean[columns * rows];
+        for (int ty = 0; ty < rows; ty++) {
+            for (int tx = 0; tx < columns; tx++) {
+                walkable[ty * columns + tx] = !map.intersectsWall(tx * Game.CELL_SIZE, ty * Game.CELL_SIZE, 32, 32, false);
+            }
+        }
+        pelletDistance = new int[columns * rows];
+        bfsQueue = new int[columns * rows];
+    }
+
+    private int search(long t0) {
+        nodeCount = 1;
+        resetNode(0);
+        long deadline = t0 + budgetNanos;
+        int n = 0;
+        do {
+            iterate();
+            n++;
+        } while ((maxRollouts <= 0 || n < maxRollouts) && (budgetNanos <= 0 || System.nanoTime() < deadline));
+        rollouts += n;
+
+        int best = NONE;
+        for (int a = 0; a < 4; a++) {
+            int c = children[a];
+            if (c != 0 && (best == NONE || visits[c] > visits[children[best]]))
+                best = a;
+        }
+        return best;
+    }
+
+    /** One selection / expansion / rollout / backup pass */
+    private void iterate() {
+        lookahead.restoreSnapshot(root);
+        int node = 0;
+        int depth = 0;
+        path[depth++] = 0;
+
+        while (!isDead() && !isCleared() && depth < MAX_DEPTH) {
+            int untried = 0;
+            for (int a = 0; a < 4; a++) {
+                if (children[node * 4 + a] == 0 && canMove(a))
+                    untried++;
+            }
+            if (untried > 0 && nodeCount < MAX_NODES) {
+                int pick = random.nextInt(untried);
+                for (int a = 0; a < 4; a++) {
+                    if (children[node * 4 + a] == 0 && canMove(a) && pick-- == 0) {
+                        int child = nodeCount++;
+                        resetNode(child);
+                        children[node * 4 + a] = child;
+                        applyMacro(a);
+                        path[depth++] = child;
+                        break;
+                    }
+                }
+                break;
+            }
+
+            // Fully expanded: UCT
+            int bestAction = NONE;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            double logParent = Math.log(Math.max(1, visits[node]));
+            for (int a = 0; a < 4; a++) {
+                int c = children[node * 4 + a];
+                if (c == 0 || !canMove(a))
+                    continue;
+                double uct = values[c] / visits[c] + EXPLORATION * Math.sqrt(logParent / visits[c]);
+                if (uct > bestScore) {
+                    bestScore = uct;
+                    bestAction = a;
+                }
+            }
+            if (bestAction == NONE)
+                break;
+            node = children[node * 4 + bestAction];
+            applyMacro(bestAction);
+            path[depth++] = node;
+        }
+
+        rollout();
+
+        double value = (lookahead.getScoreboard().getScore() - rootScore) / VALUE_SCALE;
+        if (isDead()) {
+            value -= DEATH_PENALTY;
+        } else if (isCleared()) {
+            value += CLEAR_BONUS;
+        } else {
+            int t = pacmanTile();
+            int d = t >= 0 ? pelletDistance[t] : -1;
+            if (d > 0)
+                value -= d * PELLET_DISTANCE_WEIGHT;
+        }
+        for (int i = 0; i < depth; i++) {
+            visits[path[i]]++;
+            values[path[i]] += value;
+        }
+    }
+
+    /** Random macro actions, avoiding U-turns when there is another way */
+    private void rollout() {
+        for (int r = 0; r < ROLLOUT_MACROS && !isDead() && !isCleared(); r++) {
+            int current = movingDirection(lookahead.getPacman());
+            int reverse = current == NONE ? NONE : REVERSE[current];
+            int options = 0;
+            for (int a = 0; a < 4; a++) {
+                if (a != reverse && canMove(a))
+                    options++;
+            }
+            int action = reverse;
+            if (options > 0) {
+                int pick = random.nextInt(options);
+                for (int a = 0; a < 4; a++) {
+                    if (a != reverse && canMove(a) && pick-- == 0) {
+                        action = a;
+                        break;
+                    }
+                }
+            }
+            if (action == NONE)
+                return;
+            applyMacro(action);
+        }
+    }
+
+    // ==================== Lookahead ====================
+
+    /**
+     * Holds a direction in the lookahead game, then follows the corridor
+     * until PacMan reaches a junction or a dead end, stops, dies or clears
+     * the level, or {@value #MACRO_TICKS} ticks pass.
+     */
+    private void applyMacro(int dir) {
+        PacMan pacman = lookahead.getPacman();
+        held.direction = dir;
+        for (int t = 0; t < MACRO_TICKS; t++) {
+            int x = pacman.getxPos();
+            int y = pacman.getyPos();
+            lookahead.input(held);
+            lookahead.update();
+            if (isDead() || isCleared())
+                return;
+            if (pacman.getxPos() == x && pacman.getyPos() == y)
+                return;
+            if (!pacman.onTheGrid() || !pacman.onGameplayWindow())
+                continue;
+            int moving = movingDirection(pacman);
+            int next = NONE;
+            int exits = 0;
+            for (int d = 0; d < 4; d++) {
+                if (d != REVERSE[moving] && canMove(d)) {
+                    next = d;
+                    exits++;
+                }
+            }
+            if (exits != 1)
+                return;
+            held.direction = next;
+        }
+    }
+
+    private boolean isDead() {
+        return lookahead.isGameOver() || lookahead.getScoreboard().getLives() < rootLives;
+    }
+
+    private boolean isCleared() {
+        return lookahead.getLevelConfig().getCurrentLevel() != rootLevel;
+    }
+
+    /** Returns true if the lookahead PacMan can move one tile in a direction */
+    private boolean canMove(int dir) {
+        PacMan pacman = lookahead.getPacman();
+        return isWalkable(Math.floorDiv(pacman.getxPos(), Game.CELL_SIZE) + DX[dir],
+                Math.floorDiv(pacman.getyPos(), Game.CELL_SIZE) + DY[dir]);
+    }
+
+    /** Index of the lookahead PacMan's tile, or -1 outside the maze */
+    private int pacmanTile() {
+        PacMan pacman = lookahead.getPacman();
+        int tx = Math.floorDiv(pacman.getxPos(), Game.CELL_SIZE);
+        int ty = Math.floorDiv(pacman.getyPos(), Game.CELL_SIZE);
+        if (tx < 0 || ty < 0 || tx >= columns || ty >= rows)
+            return -1;
+        return ty * columns + tx;
+    }
+
+    private boolean isWalkable(int tx, int ty) {
+        if (tx < 0 || ty < 0 || tx >= columns || ty >= rows)
+            return false;
+        return walkable[ty * columns + tx];
+    }
+
+    private static int movingDirection(PacMan pacman) {
+        if (pacman.getxSpd() > 0) return RIGHT;
+        if (pacman.getxSpd() < 0) return LEFT;
+        if (pacman.getySpd() < 0) return UP;
+        if (pacman.getySpd() > 0) return DOWN;
+        return NONE;
+    }
+
+    /**
+     * Computes, for every tile, the number of steps PacMan needs from there to
+     * eat the nearest remaining pellet (-1 if none is reachable).
+     */
+    private void pelletDistances(PelletTracker pellets) {
+        int[] dist = pelletDistance;
+        int[] queue = bfsQueue;
+        Arrays.fill(dist, -1);
+        int tail = 0;
+        for (int w = 0; w < pellets.getWordCount(); w++) {
+            long bits = pellets.getWord(w);
+            while (bits != 0) {
+                int t = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                // PacMan eats the pellet of cell (cx, cy) from tile (cx - 1, cy - 1)
+                int sx = t % columns - 1;
+                int sy = t / columns - 1;
+                if (isWalkable(sx, sy) && dist[sy * columns + sx] < 0) {
+                    dist[sy * columns + sx] = 0;
+                    queue[tail++] = sy * columns + sx;
+                }
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int t = queue[head];
+            int tx = t % columns;
+            int ty = t / columns;
+            for (int d = 0; d < 4; d++) {
+                int nx = tx + DX[d];
+                int ny = ty + DY[d];
+                if (isWalkable(nx, ny) && dist[ny * columns + nx] < 0) {
+                    dist[ny * columns + nx] = dist[t] + 1;
+                    queue[tail++] = ny * columns + nx;
+                }
+            }
+        }
+    }
+
+    private void resetNode(int node) {
+        visits[node] = 0;
+        values[node] = 0;
+        children[node * 4] = 0;
+        children[node * 4 + 1] = 0;
+        children[node * 4 + 2] = 0;
+        children[node * 4 + 3] = 0;
+    }
+
+    // ==================== PacManInput ====================
+
+    @Override
+    public boolean isLeftPressed() { return direction == LEFT; }
+
+    @Override
+    public boolean isRightPressed() { return direction == RIGHT; }
+
+    @Override
+    public boolean isUpPressed() { return direction == UP; }
+
+    @Override
+    public boolean isDownPressed() { return direction == DOWN; }
+
+    // ==================== Metrics ====================
+
+    public long getDecisions() { return decisions; }
+    public long getRollouts() { return rollouts; }
+
+    /** Rollouts per second of thinking time */
+    public double getRolloutsPerSecond() {
+        return thinkNanos == 0 ? 0 : rollouts * 1e9 / thinkNanos;
+    }
+
+    /** Average rollouts per decision */
+    public double getRolloutsPerDecision() {
+        return decisions == 0 ? 0 : (double) rollouts / decisions;
+    }
+}
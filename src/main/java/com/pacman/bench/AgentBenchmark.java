@@ -0,0 +1,63 @@
+package com.pacman.bench;
+
+import com.pacman.agent.MctsAgent;
+import com.pacman.core.Game;
+import com.pacman.core.LevelConfig;
+import com.pacman.core.Scoreboard;
+
+/**
+ * Plays full games with the {@link MctsAgent} over a fixed set of seeds and
+ * reports score, level reached and search speed. Run from the project root:
+ *
+ * <pre>
+ * java -Djava.awt.headless=true -cp build/classes com.pacman.bench.AgentBenchmark [rollouts] [maxTicks] [budgetMs]
+ * </pre>
+ *
+ * <p>
+ * Each seed fixes both the game and the agent's random choices, and the
+ * search stops after a fixed number of rollouts, so every run gives the same
+ * scores. A time budget instead ({@code rollouts} 0, {@code budgetMs} > 0)
+ * plays like the game does, and scores then vary with machine speed.
+ * </p>
+ */
+public class AgentBenchmark {
+
+    private static final long[] SEEDS = { 1, 2, 3, 4, 5 };
+
+    /** Rollouts per decision by default */
+    private static final int DEFAULT_ROLLOUTS = 64;
+
+    public static void main(String[] args) {
+        int maxRollouts = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROLLOUTS;
+        int maxTicks = args.length > 1 ? Integer.parseInt(args[1]) : 60 * 60 * 3;
+        long budgetMillis = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+        System.out.println("seed | score | level | lives | ticks  | decisions | rollouts/decision | rollouts/s");
+        System.out.println("-----|-------|-------|-------|--------|-----------|-------------------|-----------");
+        long totalScore = 0;
+        long totalRollouts = 0;
+        double totalRate = 0;
+        for (long seed : SEEDS) {
+            Game game = new Game(seed);
+            MctsAgent agent = new MctsAgent(budgetMillis, maxRollouts, seed);
+
+            int ticks = 0;
+            while (!game.isGameOver() && ticks < maxTicks) {
+                agent.think(game);
+                game.input(agent);
+                game.update();
+                if (!game.isLevelStarting())
+                    ticks++;
+            }
+            Scoreboard board = game.getScoreboard();
+            System.out.printf("%4d | %5d | %5d | %5d | %6d | %9d | %17.0f | %10.0f%n",
+                    seed, board.getScore(), game.getLevelConfig().getCurrentLevel(), board.getLives(), ticks,
+                    agent.getDecisions(), agent.getRolloutsPerDecision(), agent.getRolloutsPerSecond());
+            totalScore += board.getScore();
+            totalRollouts += agent.getRollouts();
+            totalRate += agent.getRolloutsPerSecond();
+        }
+        System.out.printf("average score %.0f, %.0f rollouts/s, %d rollouts in total (cap %d, budget %d ms)%n",
+                (double) totalScore / SEEDS.length, totalRate / SEEDS.length, totalRollouts, maxRollouts, budgetMillis);
+    }
+}
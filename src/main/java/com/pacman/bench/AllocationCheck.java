@@ -0,0 +1,151 @@
+package com.pacman.bench;
+
+import com.pacman.core.Game;
+import com.pacman.util.PacManInput;
+import com.pacman.util.RandomStream;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Fails if a steady-state simulation tick allocates.
+ *
+ * <p>
+ * Seeded headless games are played with random input. The first games
+ * only warm up (the JIT has to compile the tick before escape analysis
+ * removes its temporary objects). In the measured games, after a short
+ * warm-up that lets per-game buffers take their size, every tick is
+ * bracketed with {@code ThreadMXBean.getThreadAllocatedBytes}. The JIT
+ * itself allocates now and then (a deoptimized method rebuilds the objects
+ * escape analysis had removed), so an allocating tick is replayed on a new
+ * game of the same seed: the game is deterministic, an allocation of its
+ * own comes back at the same tick every time. Such a tick is printed and
+ * the run exits with status 1. Run from the project root:
+ * </p>
+ *
+ * <pre>
+ * java -Djava.awt.headless=true -cp build/classes com.pacman.bench.AllocationCheck [ticks] [seeds]
+ * </pre>
+ */
+public class AllocationCheck {
+
+    /** Unmeasured games played first, for the JIT */
+    private static final int WARMUP_GAMES = 5;
+
+    /** Unmeasured ticks at the start of each game (buffers sized on first use) */
+    private static final int WARMUP_TICKS = 120;
+
+    /** Replays of an allocating tick that must all allocate again to fail the check */
+    private static final int REPLAYS = 3;
+
+    /** Allocating ticks kept for replay */
+    private static final int MAX_SUSPECTS = 100;
+
+    private static com.sun.management.ThreadMXBean threads;
+    private static long self;
+
+    /** Holds a random direction for 10 to 60 ticks, then picks another */
+    private static class RandomInput implements PacManInput {
+        private final RandomStream random;
+        private int direction;
+        private int hold;
+
+        RandomInput(long seed) {
+            random = new RandomStream(seed);
+        }
+
+        void next() {
+            if (--hold <= 0) {
+                direction = random.nextInt(4);
+                hold = random.nextInt(10, 60);
+            }
+        }
+
+        @Override public boolean isRightPressed() { return direction == 0; }
+        @Override public boolean isLeftPressed() { return direction == 1; }
+        @Override public boolean isUpPressed() { return direction == 2; }
+        @Override public boolean isDownPressed() { return direction == 3; }
+    }
+
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        int seeds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        self = Thread.currentThread().getId();
+
+        for (int seed = 1; seed <= WARMUP_GAMES; seed++) {
+            play(-seed, ticks, -1, null);
+        }
+
+        long[] totals = new long[2]; // ticks, bytes
+        long[] suspects = new long[MAX_SUSPECTS * 2]; // seed, tick
+        int count = 0;
+        for (int seed = 1; seed <= seeds; seed++) {
+            count = play(seed, ticks, -1, totals, suspects, count);
+        }
+
+        int confirmed = 0;
+        for (int i = 0; i < Math.min(count, MAX_SUSPECTS); i++) {
+            long seed = suspects[2 * i];
+            long tick = suspects[2 * i + 1];
+            long least = Long.MAX_VALUE;
+            for (int r = 0; r < REPLAYS && least > 0; r++) {
+                long[] replayed = new long[2];
+                play(seed, ticks, tick, replayed);
+                least = Math.min(least, replayed[1]);
+            }
+            if (least > 0) {
+                confirmed++;
+                System.out.printf("  seed %d, tick %d: %d bytes allocated, every replay%n", seed, tick, least);
+            }
+        }
+        System.out.printf("%d ticks measured over %d seeds: %d allocating ticks (%d bytes), %d of them repeatable%n",
+                totals[0], seeds, count, totals[1], confirmed);
+        if (confirmed > 0) {
+            System.out.println("CHECK FAILED: the tick allocates");
+            System.exit(1);
+        }
+        System.out.println("No tick allocated");
+    }
+
+    private static void play(long seed, int ticks, long onlyTick, long[] totals) {
+        play(seed, ticks, onlyTick, totals, null, 0);
+    }
+
+    /**
+     * Plays one game: {@link #WARMUP_TICKS} ticks, then up to {@code ticks}
+     * more. With {@code totals}, these are measured (only tick
+     * {@code onlyTick} when it is not -1): {ticks, bytes} are added to
+     * {@code totals} and allocating ticks to {@code suspects}.
+     * @return the number of suspects
+     */
+    private static int play(long seed, int ticks, long onlyTick, long[] totals, long[] suspects, int count) {
+        Game game = new Game(seed);
+        RandomInput input = new RandomInput(seed * 31L);
+        for (int t = 0; t < WARMUP_TICKS + ticks && !game.isGameOver(); t++) {
+            input.next();
+            boolean measured = totals != null && t >= WARMUP_TICKS
+                    && (onlyTick == -1 || game.getTick() + 1 == onlyTick);
+            if (!measured) {
+                game.input(input);
+                game.update();
+                continue;
+            }
+            long a0 = threads.getThreadAllocatedBytes(self);
+            game.input(input);
+            game.update();
+            long bytes = threads.getThreadAllocatedBytes(self) - a0;
+            totals[0]++;
+            totals[1] += bytes;
+            if (bytes > 0 && suspects != null) {
+                if (count < MAX_SUSPECTS) {
+                    suspects[2 * count] = seed;
+                    suspects[2 * count + 1] = game.getTick();
+                }
+                count++;
+            }
+            if (onlyTick != -1)
+                break;
+        }
+        return count;
+    }
+}
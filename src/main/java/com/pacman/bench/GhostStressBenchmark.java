@@ -0,0 +1,83 @@
+package com.pacman.bench;
+
+import com.pacman.core.Game;
+import com.pacman.entity.Entity;
+import com.pacman.ghost.Ghost;
+import com.pacman.ghost.path.FlowFieldCache;
+import com.pacman.ghost.state.DecisionCache;
+
+/**
+ * Measures the simulation tick with many ghosts.
+ *
+ * <p>
+ * Runs the game headless (no window, no UI panel) with 4, 64, 256 and 1024
+ * ghosts, once with per-ghost greedy pathfinding and once with shared flow
+ * fields, and prints the average tick time. Run from the project root so the
+ * level and sprites are found:
+ * </p>
+ *
+ * <pre>
+ * java -Djava.awt.headless=true -cp build/classes com.pacman.bench.GhostStressBenchmark [ticks]
+ * </pre>
+ */
+public class GhostStressBenchmark {
+
+    private static final int[] GHOST_COUNTS = { 4, 64, 256, 1024 };
+    private static final int WARMUP_TICKS = 600;
+
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+
+        System.out.println("ghosts | greedy us/tick | decision hit % | flow field us/tick | BFS/tick");
+        System.out.println("-------|----------------|----------------|--------------------|---------");
+        for (int count : GHOST_COUNTS) {
+            double[] greedy = run(count, false, ticks);
+            double[] flow = run(count, true, ticks);
+            System.out.printf("%6d | %14.1f | %14.1f | %18.1f | %8.2f%n",
+                    count, greedy[0], greedy[2] * 100, flow[0], flow[1]);
+        }
+    }
+
+    /**
+     * @return {average microseconds per tick, average flow fields computed per tick,
+     *         decision cache hit rate}
+     */
+    private static double[] run(int ghostCount, boolean flowFields, int ticks) {
+        System.setProperty("pacman.stressGhosts", String.valueOf(ghostCount));
+        System.setProperty("pacman.flowFields", String.valueOf(flowFields));
+        // PacMan stands still: without this the ghosts would catch it and reset
+        System.setProperty("pacman.invincible", "true");
+        Game game = new Game();
+        game.setFirstInput(true);
+
+        // Release every ghost at once instead of waiting for the release timer
+        for (Entity e : game.getEntities()) {
+            if (e instanceof Ghost)
+                ((Ghost) e).getState().outsideHouse();
+        }
+
+        for (int i = 0; i < WARMUP_TICKS; i++) {
+            game.update();
+        }
+        FlowFieldCache cache = game.getFlowFields();
+        long computedBefore = cache != null ? cache.getComputedCount() : 0;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ticks; i++) {
+            game.update();
+        }
+        long elapsed = System.nanoTime() - t0;
+        long computed = cache != null ? cache.getComputedCount() - computedBefore : 0;
+
+        long hits = 0;
+        long lookups = 0;
+        for (Entity e : game.getEntities()) {
+            if (e instanceof Ghost) {
+                DecisionCache decisions = ((Ghost) e).getDecisionCache();
+                hits += decisions.getHits();
+                lookups += decisions.getHits() + decisions.getMisses();
+            }
+        }
+        double hitRate = lookups == 0 ? 0 : (double) hits / lookups;
+        return new double[] { elapsed / 1000.0 / ticks, (double) computed / ticks, hitRate };
+    }
+}
@@ -0,0 +1,136 @@
+package com.pacman.bench;
+
+import com.pacman.core.Game;
+import com.pacman.ghost.strategy.ClydeStrategy;
+import com.pacman.ghost.strategy.InkyStrategy;
+import com.pacman.ghost.strategy.PinkyStrategy;
+import com.pacman.util.Utils;
+
+import java.util.Random;
+
+/**
+ * Checks that the ghost chase targets are the ones the original
+ * floating-point formulas gave, for Blinky, Pinky, Inky and Clyde.
+ *
+ * <p>
+ * Each strategy's target is computed for random positions of PacMan (any
+ * direction, unknown ones included) and of the other ghost, on and around a
+ * maze of the default size, plus every axis-aligned case near PacMan. The
+ * original formula (polar offsets with cos/sin and atan2, sqrt distances)
+ * is run on the same input. Target pixels and tiles must be identical; any
+ * difference is printed and fails the run. Run from the project root:
+ * </p>
+ *
+ * <pre>
+ * java -cp build/classes com.pacman.bench.GhostTargetCheck [samples]
+ * </pre>
+ */
+public class GhostTargetCheck {
+
+    private static final int MARGIN = 128;
+    private static final int WIDTH = 448;
+    private static final int HEIGHT = 496;
+
+    private static long checked = 0;
+    private static long differences = 0;
+
+    public static void main(String[] args) {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Random random = new Random(34);
+        int[] expected = new int[2];
+        int[] actual = new int[2];
+
+        long t0 = System.nanoTime();
+        for (int i = 0; i < samples; i++) {
+            int px = between(random, -MARGIN, WIDTH + MARGIN);
+            int py = between(random, -MARGIN, HEIGHT + MARGIN);
+            int dir = between(random, -1, 4);
+            int gx = between(random, -MARGIN, WIDTH + MARGIN);
+            int gy = between(random, -MARGIN, HEIGHT + MARGIN);
+            // Every tenth sample puts the other ghost on an axis through the facing point
+            if (i % 10 == 0) {
+                if (random.nextBoolean())
+                    gx = px + Utils.directionDx(dir) * 32;
+                else
+                    gy = py + Utils.directionDy(dir) * 32;
+            }
+            checkAll(px, py, dir, gx, gy, expected, actual);
+        }
+        // Every axis-aligned vector within 64 pixels of the facing point
+        for (int dir = -1; dir <= 4; dir++) {
+            for (int d = -64; d <= 64; d++) {
+                int fx = 200 + Utils.directionDx(dir) * 32;
+                int fy = 240 + Utils.directionDy(dir) * 32;
+                checkAll(200, 240, dir, fx + d, fy, expected, actual);
+                checkAll(200, 240, dir, fx, fy + d, expected, actual);
+            }
+        }
+        double seconds = (System.nanoTime() - t0) / 1e9;
+
+        System.out.printf("%d targets checked in %.2f s, %d differences%n", checked, seconds, differences);
+        if (differences > 0) {
+            System.out.println("CHECK FAILED: targets differ from the original formulas");
+            System.exit(1);
+        }
+        System.out.println("All targets identical");
+    }
+
+    /** Returns a random int in [min, max) */
+    private static int between(Random random, int min, int max) {
+        return min + random.nextInt(max - min);
+    }
+
+    private static void checkAll(int px, int py, int dir, int gx, int gy, int[] expected, int[] actual) {
+        // Blinky: PacMan himself
+        expected[0] = px;
+        expected[1] = py;
+        actual[0] = px;
+        actual[1] = py;
+        compare("Blinky", px, py, dir, gx, gy, expected, actual);
+
+        originalPinky(px, py, dir, expected);
+        PinkyStrategy.aheadOf(px, py, dir, actual);
+        compare("Pinky", px, py, dir, gx, gy, expected, actual);
+
+        originalInky(px, py, dir, gx, gy, expected);
+        InkyStrategy.flank(px, py, dir, gx, gy, actual);
+        compare("Inky", px, py, dir, gx, gy, expected, actual);
+
+        // Clyde: the ghost's own position decides between chase and scatter
+        boolean expectedChase = Utils.getDistance(gx, gy, px, py) >= 256;
+        boolean actualChase = ClydeStrategy.chases(gx, gy, px, py);
+        checked++;
+        if (expectedChase != actualChase) {
+            report("Clyde", px, py, dir, gx, gy, "chase " + expectedChase, "chase " + actualChase);
+        }
+    }
+
+    private static void compare(String ghost, int px, int py, int dir, int gx, int gy, int[] expected, int[] actual) {
+        checked++;
+        boolean sameTile = Math.floorDiv(expected[0], Game.CELL_SIZE) == Math.floorDiv(actual[0], Game.CELL_SIZE)
+                && Math.floorDiv(expected[1], Game.CELL_SIZE) == Math.floorDiv(actual[1], Game.CELL_SIZE);
+        if (expected[0] != actual[0] || expected[1] != actual[1] || !sameTile) {
+            report(ghost, px, py, dir, gx, gy, expected[0] + "," + expected[1], actual[0] + "," + actual[1]);
+        }
+    }
+
+    private static void report(String ghost, int px, int py, int dir, int gx, int gy, String expected, String actual) {
+        if (differences++ < 10) {
+            System.out.printf("  %s: pacman %d,%d dir %d, other ghost %d,%d: expected %s, got %s%n",
+                    ghost, px, py, dir, gx, gy, expected, actual);
+        }
+    }
+
+    // ==================== Original Formulas ====================
+
+    private static void originalPinky(int px, int py, int dir, int[] out) {
+        Utils.getPointDistanceDirection(px, py, 64, Utils.directionConverter(dir), out);
+    }
+
+    private static void originalInky(int px, int py, int dir, int gx, int gy, int[] out) {
+        int[] facing = Utils.getPointDistanceDirection(px, py, 32d, Utils.directionConverter(dir), new int[2]);
+        double distance = Utils.getDistance(facing[0], facing[1], gx, gy);
+        double direction = Utils.getDirection(gx, gy, facing[0], facing[1]);
+        Utils.getPointDistanceDirection(facing[0], facing[1], distance, direction, out);
+    }
+}
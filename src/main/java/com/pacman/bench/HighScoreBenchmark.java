@@ -0,0 +1,187 @@
+package com.pacman.bench;
+
+import com.pacman.score.HighScoreStore;
+import com.pacman.score.ScoreEntry;
+import com.pacman.util.RandomStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Fills a {@link HighScoreStore} with random games and measures what the
+ * game thread pays to submit one, how fast the writer keeps up, compaction
+ * time, top-N and rank query time, and reopening.
+ *
+ * <p>
+ * Then checks recovery: a torn record appended to the log must be cut on
+ * open, and a deleted index rebuilt, with every query answering as before.
+ * Only the newest index generation may be left in the directory.
+ * Ranks are checked against the scores submitted. Run from the project root:
+ * </p>
+ *
+ * <pre>
+ * java -cp build/classes com.pacman.bench.HighScoreBenchmark [games] [directory]
+ * </pre>
+ *
+ * <p>
+ * Without a directory the store goes to a temporary one, deleted at the end.
+ * </p>
+ */
+public class HighScoreBenchmark {
+
+    private static final int MAX_SCORE = 100_000;
+    private static final int QUERIES = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        boolean temporary = args.length < 2;
+        Path dir = temporary ? Files.createTempDirectory("pacman-scores") : Path.of(args[1]);
+        boolean ok = true;
+
+        // Scores by value, to check ranks against
+        long[] histogram = new long[MAX_SCORE + 1];
+        RandomStream random = new RandomStream(7);
+        try (HighScoreStore store = HighScoreStore.open(dir)) {
+            long before = store.size();
+            long maxSubmit = 0;
+            long submitNanos = 0;
+            long retries = 0;
+            long t0 = System.nanoTime();
+            for (int i = 0; i < games; i++) {
+                int score = random.nextInt(MAX_SCORE + 1);
+                ScoreEntry e = new ScoreEntry(score, 1 + score / 20_000, random.nextInt(600, 20_000),
+                        System.currentTimeMillis(), i % 100 == 0 ? "replays/bench-" + i + ".pmr" : null);
+                while (true) {
+                    long s0 = System.nanoTime();
+                    boolean queued = store.submit(e);
+                    long nanos = System.nanoTime() - s0;
+                    submitNanos += nanos;
+                    maxSubmit = Math.max(maxSubmit, nanos);
+                    if (queued)
+                        break;
+                    retries++;
+                    Thread.yield();
+                }
+                histogram[score]++;
+            }
+            store.flush(60_000);
+            double seconds = (System.nanoTime() - t0) / 1e9;
+            System.out.printf("Wrote %d games in %.2f s (%.0f games/s, %d batches), submit avg %.2f us max %.0f us "
+                            + "(%d full-queue retries)%n",
+                    games, seconds, games / seconds, store.getBatches(), submitNanos / 1e3 / (games + retries),
+                    maxSubmit / 1e3, retries);
+            System.out.printf("%d compactions, last %.1f ms, max %.1f ms; %d games in the index and %d in the tail%n",
+                    store.getCompactions(), store.getLastCompactNanos() / 1e6, store.getMaxCompactNanos() / 1e6,
+                    store.size() - store.getTailSize(), store.getTailSize());
+            if (before > 0) {
+                System.out.println("Directory already held " + before + " games: rank checks skipped");
+                histogram = null;
+            }
+            ok &= check(store, histogram, before + games, "after writing");
+        }
+        int indexFiles = indexFiles(dir).size();
+        System.out.println(indexFiles + " index file(s) left after compacting" + (indexFiles == 1 ? "" : " (EXPECTED 1)"));
+        ok &= indexFiles == 1;
+
+        // Reopen as is
+        long t0 = System.nanoTime();
+        try (HighScoreStore store = HighScoreStore.open(dir)) {
+            System.out.printf("Reopened in %.1f ms%n", (System.nanoTime() - t0) / 1e6);
+            ok &= check(store, histogram, -1, "after reopening");
+        }
+
+        // A crash in the middle of an append: half a record at the end of the log
+        Path log = dir.resolve(HighScoreStore.LOG_FILE);
+        long logSize = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 0, 0, 1}));
+        }
+        try (HighScoreStore store = HighScoreStore.open(dir)) {
+            boolean cut = Files.size(log) == logSize;
+            System.out.println("Torn record " + (cut ? "cut" : "NOT CUT") + " on open");
+            ok &= cut && check(store, histogram, -1, "after a torn write");
+        }
+
+        // Lost index: rebuilt from the log
+        for (Path file : indexFiles(dir)) {
+            Files.delete(file);
+        }
+        t0 = System.nanoTime();
+        try (HighScoreStore store = HighScoreStore.open(dir)) {
+            System.out.printf("Reopened without index in %.1f ms (%d games to re-sort)%n",
+                    (System.nanoTime() - t0) / 1e6, store.getTailSize());
+            ok &= check(store, histogram, -1, "after rebuilding the index");
+            store.flush(60_000);
+        }
+
+        if (temporary) {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+        System.out.println(ok ? "All checks passed" : "CHECKS FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static List<Path> indexFiles(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, HighScoreStore.INDEX_GLOB)) {
+            stream.forEach(files::add);
+        }
+        return files;
+    }
+
+    /**
+     * Times and checks top-10 and rank queries.
+     * @param histogram games by score, or null to skip the rank check
+     * @param expectedSize games expected, or -1 for any
+     */
+    private static boolean check(HighScoreStore store, long[] histogram, long expectedSize, String when)
+            throws IOException {
+        boolean ok = expectedSize < 0 || store.size() == expectedSize;
+        if (!ok)
+            System.out.println("Size " + store.size() + ", expected " + expectedSize);
+
+        long t0 = System.nanoTime();
+        List<ScoreEntry> top = null;
+        for (int i = 0; i < 1000; i++) {
+            top = store.top(10);
+        }
+        double topMicros = (System.nanoTime() - t0) / 1e3 / 1000;
+        for (int i = 1; i < top.size(); i++) {
+            ok &= top.get(i - 1).getScore() >= top.get(i).getScore();
+        }
+
+        RandomStream random = new RandomStream(11);
+        long[] above = null;
+        if (histogram != null) {
+            above = new long[MAX_SCORE + 2];
+            for (int s = MAX_SCORE; s >= 0; s--) {
+                above[s] = above[s + 1] + histogram[s];
+            }
+            ok &= top.isEmpty() || above[top.get(0).getScore() + 1] == 0;
+        }
+        long wrong = 0;
+        t0 = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            int score = random.nextInt(MAX_SCORE + 1);
+            long rank = store.rank(score);
+            if (above != null && rank != 1 + above[score + 1])
+                wrong++;
+        }
+        double rankNanos = (System.nanoTime() - t0) / (double) QUERIES;
+        ok &= wrong == 0;
+        System.out.printf("  %s: %d games, top 10 in %.1f us, rank in %.0f ns, best %s, %d wrong ranks -> %s%n",
+                when, store.size(), topMicros, rankNanos, top.isEmpty() ? "-" : top.get(0), wrong, ok ? "ok" : "FAILED");
+        return ok;
+    }
+}
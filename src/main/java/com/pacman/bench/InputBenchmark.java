@@ -0,0 +1,186 @@
+package com.pacman.bench;
+
+import com.pacman.core.Game;
+import com.pacman.core.UIPanel;
+import com.pacman.entity.MovingEntity;
+import com.pacman.ui.GamePanel;
+import com.pacman.util.KeyEventQueue;
+import com.pacman.util.KeyHandler;
+import com.pacman.util.PacManInput;
+import com.pacman.util.RandomStream;
+
+import java.awt.event.KeyEvent;
+
+/**
+ * Checks the keyboard path: the {@link KeyEventQueue} between threads, and
+ * how many quick taps actually turn PacMan.
+ *
+ * <p>
+ * First a producer thread offers numbered events as fast as it can while a
+ * consumer drains them, once as often as it can and once every millisecond
+ * (the queue overflows either way on one core). Every event must arrive
+ * once and in order, or be counted as dropped. Then headless games are
+ * played with scripted taps of a random direction, held 0 to 5 ticks, every
+ * 10 to 40 ticks. Each script is played through {@link KeyHandler} (queued,
+ * with turn buffering) and with the keys sampled as held at each tick (as
+ * before). A tap counts if PacMan moves that way within
+ * {@link #TURN_WINDOW} ticks. Run from the project root:
+ * </p>
+ *
+ * <pre>
+ * java -Djava.awt.headless=true -cp build/classes com.pacman.bench.InputBenchmark [events] [seeds]
+ * </pre>
+ */
+public class InputBenchmark {
+
+    private static final int TICKS_PER_GAME = 3600;
+    private static final int TURN_WINDOW = 30;
+    private static final int[] CODES = {KeyEvent.VK_RIGHT, KeyEvent.VK_LEFT, KeyEvent.VK_UP, KeyEvent.VK_DOWN};
+
+    /** Directions held as sampled at the tick (the old keyboard behavior) */
+    private static class HeldInput implements PacManInput {
+        int held = -1;
+
+        @Override public boolean isRightPressed() { return held == 0; }
+        @Override public boolean isLeftPressed() { return held == 1; }
+        @Override public boolean isUpPressed() { return held == 2; }
+        @Override public boolean isDownPressed() { return held == 3; }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int seeds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        boolean ok = true;
+
+        ok &= runQueue(events, 0);
+        ok &= runQueue(events, 1);
+
+        GamePanel panel = new GamePanel(new UIPanel(448, 40));
+        long[] buffered = new long[2];
+        long[] sampled = new long[2];
+        for (int seed = 1; seed <= seeds; seed++) {
+            playTaps(seed, new KeyHandler(panel), panel, buffered);
+            playTaps(seed, null, panel, sampled);
+        }
+        System.out.printf("Taps that turned PacMan (%d seeds): %d of %d (%.0f%%) with KeyHandler, "
+                        + "%d of %d (%.0f%%) sampled at the tick%n",
+                seeds, buffered[1], buffered[0], 100.0 * buffered[1] / buffered[0],
+                sampled[1], sampled[0], 100.0 * sampled[1] / sampled[0]);
+        ok &= buffered[1] * sampled[0] > sampled[1] * buffered[0];
+
+        System.out.println(ok ? "All checks passed" : "CHECKS FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+
+    /**
+     * Offers {@code events} numbered events from a second thread and drains
+     * them here, sleeping {@code sleepMillis} between drains.
+     */
+    private static boolean runQueue(int events, long sleepMillis) throws InterruptedException {
+        KeyEventQueue queue = new KeyEventQueue(256);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < events; i++) {
+                queue.offer(i, (i & 1) == 0, System.nanoTime());
+            }
+        }, "KeyProducer");
+        long[] state = {-1, 0, 0}; // last code, received, out of order
+        KeyEventQueue.Handler handler = (code, pressed, nanos) -> {
+            if (code <= state[0] || pressed != ((code & 1) == 0))
+                state[2]++;
+            state[0] = code;
+            state[1]++;
+            return true;
+        };
+        long t0 = System.nanoTime();
+        producer.start();
+        int drains = 0;
+        while (producer.isAlive() || queue.size() > 0) {
+            queue.drain(handler);
+            drains++;
+            if (sleepMillis > 0)
+                Thread.sleep(sleepMillis);
+            else
+                Thread.yield();
+        }
+        producer.join();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        boolean ok = state[2] == 0 && state[1] + queue.getDropped() == events;
+        System.out.printf("Queue, %s: %d events in %.2f s (%.1f M/s), %d drains, %d received, %d dropped, "
+                        + "%d out of order -> %s%n",
+                sleepMillis == 0 ? "busy consumer" : "drained every " + sleepMillis + " ms",
+                events, seconds, events / seconds / 1e6, drains, state[1], queue.getDropped(), state[2],
+                ok ? "ok" : "FAILED");
+        return ok;
+    }
+
+    /**
+     * Plays the tap script of a seed, through a key handler or, with null,
+     * sampling held keys at each tick.
+     * @param result adds {taps toward a new direction, taps that turned PacMan}
+     */
+    private static void playTaps(int seed, KeyHandler keys, GamePanel panel, long[] result) {
+        Game game = new Game(seed);
+        HeldInput held = new HeldInput();
+        RandomStream script = new RandomStream(seed * 17L);
+        int wait = script.nextInt(10, 40);
+        int direction = -1;
+        int release = -1;
+        long pressTick = -1;
+        for (int t = 0; t < TICKS_PER_GAME && !game.isGameOver(); t++) {
+            MovingEntity pacman = game.getPacman();
+            if (pressTick >= 0 && movingToward(pacman, direction)) {
+                result[1]++;
+                pressTick = -1;
+            } else if (pressTick >= 0 && t - pressTick > TURN_WINDOW) {
+                pressTick = -1;
+            }
+            if (--wait == 0) {
+                direction = script.nextInt(4);
+                int hold = script.nextInt(0, 5);
+                release = t + hold;
+                wait = hold + script.nextInt(10, 40);
+                if (!movingToward(pacman, direction)) {
+                    result[0]++;
+                    pressTick = t;
+                }
+                press(keys, panel, held, direction, true);
+            }
+            if (t == release)
+                press(keys, panel, held, direction, false);
+
+            if (keys != null) {
+                keys.poll(pacman);
+                game.input(keys);
+            } else {
+                game.input(held);
+            }
+            game.update();
+        }
+    }
+
+    private static void press(KeyHandler keys, GamePanel panel, HeldInput held, int direction, boolean pressed) {
+        if (keys == null) {
+            held.held = pressed ? direction : -1;
+            return;
+        }
+        KeyEvent e = new KeyEvent(panel, pressed ? KeyEvent.KEY_PRESSED : KeyEvent.KEY_RELEASED,
+                System.currentTimeMillis(), 0, CODES[direction], KeyEvent.CHAR_UNDEFINED);
+        if (pressed)
+            keys.keyPressed(e);
+        else
+            keys.keyReleased(e);
+    }
+
+    private static boolean movingToward(MovingEntity m, int direction) {
+        switch (direction) {
+            case 0:
+                return m.getxSpd() > 0;
+            case 1:
+                return m.getxSpd() < 0;
+            case 2:
+                return m.getySpd() < 0;
+            default:
+                return m.getySpd() > 0;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.pacman.bench;
+
+import com.pacman.core.Game;
+import com.pacman.core.GameSnapshot;
+import com.pacman.replay.Replay;
+import com.pacman.replay.ReplayInput;
+import com.pacman.replay.ReplayPlayer;
+import com.pacman.replay.ReplayRecorder;
+import com.pacman.util.PacManInput;
+import com.pacman.util.RandomStream;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Measures seeking in a replay through its keyframes, and checks that a
+ * seek ends in the same state as playing the replay from the start.
+ *
+ * <p>
+ * Uses the given replay file, or records one with a fixed input script and
+ * round-trips it through a file. Run from the project root:
+ * </p>
+ *
+ * <pre>
+ * java -Djava.awt.headless=true -cp build/classes com.pacman.bench.ReplaySeekBenchmark [replay.pmr | ticks]
+ * </pre>
+ */
+public class ReplaySeekBenchmark {
+
+    private static final int SEEKS = 200;
+    private static final int CHECKED_SEEKS = 20;
+
+    /** Turns every second or so: right, up, left, down, ... */
+    private static class ScriptedInput implements PacManInput {
+        private Game game;
+
+        private int direction() { return (int) (game.getTick() / 70 % 4); }
+
+        @Override public boolean isRightPressed() { return direction() == 0; }
+        @Override public boolean isUpPressed() { return direction() == 1; }
+        @Override public boolean isLeftPressed() { return direction() == 2; }
+        @Override public boolean isDownPressed() { return direction() == 3; }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Replay replay;
+        if (args.length > 0 && !args[0].matches("\\d+")) {
+            replay = Replay.read(Paths.get(args[0]));
+        } else {
+            replay = record(args.length > 0 ? Integer.parseInt(args[0]) : 60 * 60 * 5);
+        }
+        System.out.println(replay);
+        if (replay.getKeyframes().isEmpty()) {
+            System.out.println("Replay has no keyframes");
+            return;
+        }
+
+        Game game = ReplayPlayer.newGame(replay);
+        String warning = ReplayPlayer.checkCompatible(replay, game);
+        if (warning != null)
+            System.out.println("Warning: " + warning);
+
+        // Linear playback, remembering the state hash at the checked ticks
+        RandomStream random = new RandomStream(42);
+        long[] checkTicks = new long[CHECKED_SEEKS];
+        for (int i = 0; i < checkTicks.length; i++) {
+            checkTicks[i] = random.nextInt((int) replay.getTickCount() + 1);
+        }
+        Arrays.sort(checkTicks);
+        long[] linearHashes = new long[CHECKED_SEEKS];
+        GameSnapshot snap = new GameSnapshot();
+        ReplayInput input = new ReplayInput(replay);
+        long t0 = System.nanoTime();
+        int c = 0;
+        for (long t = 0; t <= replay.getTickCount(); t++) {
+            while (c < checkTicks.length && checkTicks[c] == t) {
+                game.saveSnapshot(snap);
+                linearHashes[c++] = snap.stateHash();
+            }
+            if (t == replay.getTickCount())
+                break;
+            input.next();
+            game.input(input);
+            game.update();
+        }
+        double linearMs = (System.nanoTime() - t0) / 1e6;
+        System.out.printf("Linear playback: %.0f ms for %d ticks%n", linearMs, replay.getTickCount());
+
+        // Seeks to the same ticks, in random order, must match
+        int mismatches = 0;
+        for (int n = 0; n < CHECKED_SEEKS; n++) {
+            int i = random.nextInt(CHECKED_SEEKS);
+            ReplayPlayer.seek(replay, game, checkTicks[i]);
+            game.saveSnapshot(snap);
+            if (snap.stateHash() != linearHashes[i]) {
+                System.out.printf("Seek to tick %d: %016x, linear %016x%n", checkTicks[i], snap.stateHash(), linearHashes[i]);
+                mismatches++;
+            }
+        }
+        System.out.println("Seek vs linear: " + (mismatches == 0 ? "identical" : mismatches + " MISMATCHES"));
+
+        // Timing
+        for (int round = 0; round < 3; round++) {
+            long worst = 0;
+            t0 = System.nanoTime();
+            for (int n = 0; n < SEEKS; n++) {
+                long s0 = System.nanoTime();
+                ReplayPlayer.seek(replay, game, random.nextInt((int) replay.getTickCount() + 1));
+                worst = Math.max(worst, System.nanoTime() - s0);
+            }
+            System.out.printf("Round %d: %.2f ms per seek, worst %.2f ms (keyframe every %d ticks)%n", round,
+                    (System.nanoTime() - t0) / 1e6 / SEEKS, worst / 1e6, replay.getKeyframeInterval());
+        }
+        if (mismatches > 0)
+            System.exit(1);
+    }
+
+    /** Records a scripted game and reads it back from a file */
+    private static Replay record(int ticks) throws IOException {
+        Game game = new Game(1234);
+        ScriptedInput script = new ScriptedInput();
+        script.game = game;
+        ReplayRecorder recorder = new ReplayRecorder(game);
+        game.setRecorder(recorder);
+        for (int t = 0; t < ticks; t++) {
+            game.input(script);
+            game.update();
+        }
+        Path file = Files.createTempFile("seek", ".pmr");
+        try {
+            recorder.finish(game).write(file);
+            System.out.println("Recorded " + ticks + " ticks, " + Files.size(file) + " bytes");
+            return Replay.read(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.pacman.bench;
+
+import com.pacman.core.GameSnapshot;
+import com.pacman.core.StateCodec;
+import com.pacman.net.Room;
+import com.pacman.net.RoomServer;
+import com.pacman.net.SpectatorServer;
+import com.pacman.util.Histograms;
+import com.pacman.util.MaskInput;
+import com.pacman.util.RandomStream;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Load generator for the {@link RoomServer}: adds bot players step by step
+ * and reports, at each step, whether every room still holds 60 ticks per
+ * second.
+ *
+ * <p>
+ * The server runs in this process, on loopback. All bots share one selector
+ * thread: each holds a random direction for a while, then turns (asking for a
+ * restart with every turn, which the room honours once its game is over),
+ * and reads its state stream. One bot decodes its stream and checks every
+ * frame's state hash; the others only count bytes, so the bots cost little
+ * next to the server. Their CPU time is reported apart from the server's.
+ * </p>
+ *
+ * <p>
+ * A step holds 60 Hz if rooms averaged at least 59 ticks per second, under
+ * 1% of ticks finished after the next one was due, and no tick was skipped.
+ * Run from the project root:
+ * </p>
+ *
+ * <pre>
+ * java -Djava.awt.headless=true -cp build/classes com.pacman.bench.RoomLoadBenchmark [maxRooms] [step] [secondsPerStep]
+ * </pre>
+ *
+ * <p>
+ * {@code -Dpacman.roomWorkers} and {@code -Dpacman.roomReaders} set the
+ * server's thread counts (one worker per core by default).
+ * </p>
+ */
+public class RoomLoadBenchmark {
+
+    private static final long WARMUP_MILLIS = 2000;
+    private static final double HELD_TICK_RATE = 59.0;
+    private static final double HELD_LATE_PERCENT = 1.0;
+
+    public static void main(String[] args) throws Exception {
+        int maxRooms = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int step = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        RoomServer server = new RoomServer(0);
+        server.start();
+        Bots bots = new Bots();
+        Thread botThread = new Thread(bots, "Bots");
+        botThread.setDaemon(true);
+        botThread.start();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        System.out.println("rooms | ticks/s/room | late % | lateness p99 ms | skipped | avg tick us | "
+                + "workers busy % | server cores | bot cores | KB/s out");
+        System.out.println("------|--------------|--------|-----------------|---------|-------------|"
+                + "----------------|--------------|-----------|---------");
+        int held = 0;
+        double heldServerCores = 0;
+        for (int rooms = step; rooms <= maxRooms; rooms += step) {
+            for (int i = 0; i < step; i++) {
+                bots.add(server.getPort());
+            }
+            while (server.getRoomCount() < rooms)
+                Thread.sleep(10);
+            Thread.sleep(WARMUP_MILLIS);
+
+            long ticks0 = server.getTicks();
+            long late0 = server.getLateTicks();
+            long skipped0 = server.getSkippedTicks();
+            long busy0 = server.getBusyNanos();
+            long[] hist0 = server.getLatenessHistogram();
+            long serverCpu0 = serverCpuNanos(threads);
+            long botCpu0 = threads.getThreadCpuTime(botThread.getId());
+            long bytes0 = bots.bytes;
+            long t0 = System.nanoTime();
+            Thread.sleep(seconds * 1000L);
+            double wall = (System.nanoTime() - t0) / 1e9;
+
+            long ticks = server.getTicks() - ticks0;
+            long late = server.getLateTicks() - late0;
+            long skipped = server.getSkippedTicks() - skipped0;
+            long busy = server.getBusyNanos() - busy0;
+            long[] hist = server.getLatenessHistogram();
+            for (int i = 0; i < hist.length; i++) {
+                hist[i] -= hist0[i];
+            }
+            double serverCores = (serverCpuNanos(threads) - serverCpu0) / 1e9 / wall;
+            double botCores = (threads.getThreadCpuTime(botThread.getId()) - botCpu0) / 1e9 / wall;
+
+            double rate = ticks / wall / rooms;
+            double latePercent = ticks == 0 ? 100 : 100.0 * late / ticks;
+            System.out.printf("%5d | %12.1f | %6.2f | %15.1f | %7d | %11.1f | %14.0f | %12.2f | %9.2f | %8.0f%n",
+                    rooms, rate, latePercent, Histograms.percentile(hist, RoomServer.LATENESS_BUCKET_NANOS, 0.99) / 1e6, skipped,
+                    ticks == 0 ? 0.0 : busy / 1e3 / ticks, 100.0 * busy / (wall * 1e9 * server.getWorkerCount()),
+                    serverCores, botCores, (bots.bytes - bytes0) / 1024.0 / wall);
+
+            if (rate < HELD_TICK_RATE || latePercent >= HELD_LATE_PERCENT || skipped > 0)
+                break;
+            held = rooms;
+            heldServerCores = serverCores;
+        }
+
+        System.out.printf("Held 60 Hz up to %d rooms with %d worker(s) on %d core(s): %.0f rooms per core%n",
+                held, server.getWorkerCount(), cores, (double) held / cores);
+        if (held > 0 && heldServerCores > 0)
+            System.out.printf("At %d rooms the server used %.2f cores: about %.0f rooms per fully used core%n",
+                    held, heldServerCores, held / heldServerCores);
+        System.out.printf("Checked stream: %d frames, %d hash mismatches%n", bots.checkedFrames, bots.mismatches);
+        bots.close();
+        server.close();
+        if (bots.mismatches > 0)
+            System.exit(1);
+    }
+
+    /** Returns the CPU time of the server's threads (acceptor, readers and workers) */
+    private static long serverCpuNanos(ThreadMXBean threads) {
+        long total = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith("Room")) {
+                long cpu = threads.getThreadCpuTime(t.getId());
+                if (cpu > 0)
+                    total += cpu;
+            }
+        }
+        return total;
+    }
+
+    /** A bot player: holds a direction, turns now and then */
+    private static final class Bot {
+        final SocketChannel channel;
+        long nextTurn;
+        /** Set for the one bot whose stream is decoded and checked */
+        final boolean checked;
+
+        Bot(SocketChannel channel, long nextTurn, boolean checked) {
+            this.channel = channel;
+            this.nextTurn = nextTurn;
+            this.checked = checked;
+        }
+    }
+
+    /** Drives all bots from one selector thread */
+    private static final class Bots implements Runnable {
+        private static final int[] DIRECTIONS = { MaskInput.RIGHT, MaskInput.LEFT, MaskInput.UP, MaskInput.DOWN };
+
+        private final Selector selector;
+        private final Queue<SocketChannel> added = new ConcurrentLinkedQueue<>();
+        private final List<Bot> bots = new ArrayList<>();
+        private final RandomStream random = new RandomStream(7);
+        private final ByteBuffer scratch = ByteBuffer.allocate(64 * 1024);
+        private final ByteBuffer turn = ByteBuffer.allocate(1);
+        private volatile boolean running = true;
+
+        // Stream check of the first bot
+        private ByteBuffer stream = ByteBuffer.allocate(64 * 1024);
+        private final StateCodec codec = new StateCodec();
+        private final GameSnapshot state = new GameSnapshot();
+        private boolean haveState = false;
+
+        volatile long bytes = 0;
+        volatile long checkedFrames = 0;
+        volatile long mismatches = 0;
+
+        Bots() throws IOException {
+            selector = Selector.open();
+        }
+
+        /** Connects a new bot (blocking), then hands it to the bot thread */
+        void add(int port) throws IOException {
+            SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            channel.socket().setTcpNoDelay(true);
+            channel.configureBlocking(false);
+            added.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select(5);
+                    SocketChannel c;
+                    while ((c = added.poll()) != null) {
+                        Bot bot = new Bot(c, System.nanoTime(), bots.isEmpty());
+                        bots.add(bot);
+                        c.register(selector, SelectionKey.OP_READ, bot);
+                    }
+                    for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        if (key.isValid() && key.isReadable())
+                            read(key);
+                    }
+                    long now = System.nanoTime();
+                    for (Bot bot : bots) {
+                        if (now >= bot.nextTurn) {
+                            turn.clear();
+                            turn.put((byte) (DIRECTIONS[random.nextInt(4)] | Room.RESTART)).flip();
+                            bot.channel.write(turn);
+                            bot.nextTurn = now + (300 + random.nextInt(700)) * 1_000_000L;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                if (running)
+                    System.err.println("Bots stopped: " + e.getMessage());
+            }
+        }
+
+        private void read(SelectionKey key) throws IOException {
+            Bot bot = (Bot) key.attachment();
+            scratch.clear();
+            int n = bot.channel.read(scratch);
+            if (n < 0) {
+                key.cancel();
+                return;
+            }
+            bytes += n;
+            if (bot.checked) {
+                scratch.flip();
+                if (stream.remaining() < n) {
+                    ByteBuffer bigger = ByteBuffer.allocate(stream.capacity() * 2 + n);
+                    stream.flip();
+                    stream = bigger.put(stream);
+                }
+                stream.put(scratch);
+                checkFrames();
+            }
+        }
+
+        /** Decodes the complete frames received so far and checks their hashes */
+        private void checkFrames() {
+            stream.flip();
+            while (stream.remaining() >= 4 && stream.remaining() >= 4 + stream.getInt(stream.position())) {
+                int length = stream.getInt();
+                byte type = stream.get();
+                long hash = stream.getLong();
+                int size = length - (SpectatorServer.HEADER_BYTES - 4);
+                int end = stream.position() + size;
+                if (type == SpectatorServer.FRAME_FULL) {
+                    codec.decode(stream, state);
+                    haveState = true;
+                } else if (haveState) {
+                    codec.decode(stream, state);
+                }
+                stream.position(end);
+                if (haveState) {
+                    checkedFrames++;
+                    if (state.stateHash() != hash)
+                        mismatches++;
+                }
+            }
+            stream.compact();
+        }
+
+        void close() throws IOException {
+            running = false;
+            selector.wakeup();
+            for (Bot bot : bots) {
+                bot.channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.pacman.bench;
+
+import com.pacman.core.Game;
+import com.pacman.core.GameSnapshot;
+import com.pacman.core.RewindBuffer;
+import com.pacman.util.PacManInput;
+
+/**
+ * Measures {@link Game#saveSnapshot} and {@link Game#restoreSnapshot} on the
+ * default level, checks that a restored game replays identically, and
+ * measures what a {@link RewindBuffer} adds to the tick time.
+ *
+ * <p>
+ * PacMan follows a fixed input script derived from the game clock, so the
+ * run after a restore must end in the same state (same
+ * {@link GameSnapshot#stateHash()}) as the run before it. Run from the
+ * project root:
+ * </p>
+ *
+ * <pre>
+ * java -Djava.awt.headless=true -cp build/classes com.pacman.bench.SnapshotBenchmark [iterations]
+ * </pre>
+ */
+public class SnapshotBenchmark {
+
+    private static final int SETUP_TICKS = 900;
+    private static final int REPLAY_TICKS = 1200;
+
+    /** Turns every second or so: right, up, left, down, ... */
+    private static class ScriptedInput implements PacManInput {
+        private Game game;
+
+        private int direction() { return (int) (game.getTick() / 70 % 4); }
+
+        @Override public boolean isRightPressed() { return direction() == 0; }
+        @Override public boolean isUpPressed() { return direction() == 1; }
+        @Override public boolean isLeftPressed() { return direction() == 2; }
+        @Override public boolean isDownPressed() { return direction() == 3; }
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        Game game = new Game();
+        ScriptedInput input = new ScriptedInput();
+        input.game = game;
+        run(game, input, SETUP_TICKS);
+
+        GameSnapshot snap = new GameSnapshot();
+        GameSnapshot other = new GameSnapshot();
+        GameSnapshot start = new GameSnapshot();
+        game.saveSnapshot(snap);
+        start.copyFrom(snap);
+        System.out.println("Snapshot: " + snap);
+
+        // Determinism: the same ticks after a restore end in the same state
+        run(game, input, REPLAY_TICKS);
+        game.saveSnapshot(other);
+        long firstHash = other.stateHash();
+        game.restoreSnapshot(snap);
+        run(game, input, REPLAY_TICKS);
+        game.saveSnapshot(other);
+        long secondHash = other.stateHash();
+        System.out.printf("Replay after restore: %016x vs %016x (%s)%n", firstHash, secondHash,
+                firstHash == secondHash ? "identical" : "DIFFERENT");
+
+        // Timing: save, then restore alternating two snapshots so pellets differ
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                game.saveSnapshot(snap);
+            }
+            long saveNanos = System.nanoTime() - t0;
+
+            t0 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                game.restoreSnapshot((i & 1) == 0 ? snap : other);
+            }
+            long restoreNanos = System.nanoTime() - t0;
+
+            System.out.printf("round %d: save %.0f ns, restore %.0f ns (%d iterations)%n", round + 1,
+                    (double) saveNanos / iterations, (double) restoreNanos / iterations, iterations);
+        }
+
+        // Tick time with and without a 60 s rewind buffer: best of many
+        // alternating runs, as ticks are noisy
+        RewindBuffer rewind = new RewindBuffer(60 * 60, game.getGhosts().size());
+        double plain = Double.MAX_VALUE;
+        double recorded = Double.MAX_VALUE;
+        for (int run = 0; run < 400; run++) {
+            plain = Math.min(plain, tickNanos(game, input, start, null));
+            recorded = Math.min(recorded, tickNanos(game, input, start, rewind));
+        }
+        System.out.printf("tick %.0f ns, with rewind buffer %.0f ns (%+.1f%%)%n", plain, recorded,
+                (recorded / plain - 1) * 100);
+    }
+
+    /** Returns the mean tick time of a run from a snapshot, recording it if a buffer is given */
+    private static double tickNanos(Game game, PacManInput input, GameSnapshot from, RewindBuffer rewind) {
+        game.restoreSnapshot(from);
+        int ticks = 0;
+        long t0 = System.nanoTime();
+        for (; ticks < REPLAY_TICKS && !game.isGameOver(); ticks++) {
+            game.input(input);
+            game.update();
+            if (rewind != null)
+                rewind.record(game);
+        }
+        return (double) (System.nanoTime() - t0) / Math.max(1, ticks);
+    }
+
+    private static void run(Game game, PacManInput input, int ticks) {
+        for (int i = 0; i < ticks && !game.isGameOver(); i++) {
+            game.input(input);
+            game.update();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.pacman.bench;
+
+import com.pacman.core.Game;
+import com.pacman.core.GameSnapshot;
+import com.pacman.core.StateCodec;
+import com.pacman.util.PacManInput;
+import com.pacman.util.RandomStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Checks that {@link StateCodec} round-trips game states, and measures its
+ * message sizes and encode/decode times on the default level.
+ *
+ * <p>
+ * The check plays games from many seeds with random input. After every
+ * tick it encodes the state in full and as a delta against the previous
+ * tick, decodes both (the delta on top of the previously decoded state, as
+ * a client would) and compares them with the original using
+ * {@link StateCodec#sameEncodedState}. A copy of the previously decoded
+ * state must also still match its tick, since the decoder reuses its
+ * pellet words. Any mismatch is reported and fails the run.
+ * </p>
+ *
+ * <p>
+ * The timing part records one game tick by tick, then encodes and decodes
+ * the whole sequence of deltas in a loop. Run from the project root:
+ * </p>
+ *
+ * <pre>
+ * java -Djava.awt.headless=true -cp build/classes com.pacman.bench.StateCodecBenchmark [seeds] [ticksPerGame]
+ * </pre>
+ */
+public class StateCodecBenchmark {
+
+    private static final int ROUNDS = 10;
+
+    /** Holds a random direction for 10 to 60 ticks, then picks another */
+    private static class RandomInput implements PacManInput {
+        private final RandomStream random;
+        private int direction;
+        private int hold;
+
+        RandomInput(long seed) {
+            random = new RandomStream(seed);
+        }
+
+        void next() {
+            if (--hold <= 0) {
+                direction = random.nextInt(4);
+                hold = random.nextInt(10, 60);
+            }
+        }
+
+        @Override public boolean isRightPressed() { return direction == 0; }
+        @Override public boolean isLeftPressed() { return direction == 1; }
+        @Override public boolean isUpPressed() { return direction == 2; }
+        @Override public boolean isDownPressed() { return direction == 3; }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int ticksPerGame = args.length > 1 ? Integer.parseInt(args[1]) : 3600;
+
+        // Round trip on every tick of every game
+        long checked = 0;
+        long mismatches = 0;
+        long fullBytes = 0;
+        long deltaBytes = 0;
+        long streamBytes = 0;
+        int maxDeltaBytes = 0;
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        for (int seed = 1; seed <= seeds; seed++) {
+            Game game = new Game(seed);
+            StateCodec encoder = new StateCodec(game.getWorldWidth(), game.getWorldHeight());
+            StateCodec decoder = new StateCodec();
+            StateCodec fullDecoder = new StateCodec();
+            GameSnapshot current = new GameSnapshot();
+            GameSnapshot previous = new GameSnapshot();
+            GameSnapshot full = new GameSnapshot();
+            GameSnapshot client = new GameSnapshot();
+            GameSnapshot clientPrevious = new GameSnapshot();
+            RandomInput input = new RandomInput(seed * 31L);
+
+            game.saveSnapshot(previous);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(
+                    encoder.maxMessageBytes(previous.getGhostCount(), previous.getPelletWords()));
+            buffer.clear();
+            encoder.encode(previous, null, buffer);
+            buffer.flip();
+            decoder.decode(buffer, client);
+            for (int t = 0; t < ticksPerGame && !game.isGameOver() && !game.isGameWon(); t++) {
+                input.next();
+                game.input(input);
+                game.update();
+                game.saveSnapshot(current);
+
+                buffer.clear();
+                int size = encoder.encode(current, null, buffer);
+                buffer.flip();
+                fullDecoder.decode(buffer, full);
+                fullBytes += size;
+
+                clientPrevious.copyFrom(client);
+                buffer.clear();
+                size = encoder.encode(current, previous, buffer);
+                buffer.flip();
+                decoder.decode(buffer, client);
+                deltaBytes += size;
+                maxDeltaBytes = Math.max(maxDeltaBytes, size);
+
+                serialized.reset();
+                current.write(new DataOutputStream(serialized));
+                streamBytes += serialized.size();
+
+                checked++;
+                if (!StateCodec.sameEncodedState(current, full) || !StateCodec.sameEncodedState(current, client)
+                        || !StateCodec.sameEncodedState(previous, clientPrevious)) {
+                    if (mismatches++ < 5)
+                        System.out.println("MISMATCH seed " + seed + " tick " + current.getTick() + ": " + current);
+                }
+                previous.copyFrom(current);
+            }
+        }
+        System.out.printf("Round trip: %d states from %d seeds, %d mismatches%n", checked, seeds, mismatches);
+        System.out.printf("Bytes per tick: delta %.1f (max %d), full %.1f, DataOutput snapshot %.1f%n",
+                (double) deltaBytes / checked, maxDeltaBytes, (double) fullBytes / checked,
+                (double) streamBytes / checked);
+        System.out.printf("At 60 Hz: %.1f KB/s of deltas, plus one full message per second: %.1f KB/s%n",
+                deltaBytes * 60.0 / checked / 1024, (deltaBytes * 59.0 + fullBytes) / checked / 1024);
+
+        // Timing on one recorded game
+        Game game = new Game(1);
+        RandomInput input = new RandomInput(31);
+        GameSnapshot[] ticks = new GameSnapshot[ticksPerGame + 1];
+        int n = 0;
+        ticks[n] = new GameSnapshot();
+        game.saveSnapshot(ticks[n++]);
+        while (n < ticks.length && !game.isGameOver() && !game.isGameWon()) {
+            input.next();
+            game.input(input);
+            game.update();
+            ticks[n] = new GameSnapshot();
+            game.saveSnapshot(ticks[n++]);
+        }
+        StateCodec codec = new StateCodec(game.getWorldWidth(), game.getWorldHeight());
+        ByteBuffer buffer = ByteBuffer.allocateDirect(
+                codec.maxMessageBytes(ticks[0].getGhostCount(), ticks[0].getPelletWords()) * n);
+        GameSnapshot decoded = new GameSnapshot();
+        for (int round = 1; round <= ROUNDS; round++) {
+            buffer.clear();
+            long t0 = System.nanoTime();
+            codec.encode(ticks[0], null, buffer);
+            for (int i = 1; i < n; i++) {
+                codec.encode(ticks[i], ticks[i - 1], buffer);
+            }
+            long encodeNanos = System.nanoTime() - t0;
+            int bytes = buffer.position();
+
+            buffer.flip();
+            t0 = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                codec.decode(buffer, decoded);
+            }
+            long decodeNanos = System.nanoTime() - t0;
+            boolean same = StateCodec.sameEncodedState(decoded, ticks[n - 1]);
+
+            System.out.printf("round %d: %d ticks, %d bytes, encode %.0f ns, decode %.0f ns per message%s%n",
+                    round, n, bytes, (double) encodeNanos / n, (double) decodeNanos / n,
+                    same ? "" : " (FINAL STATE DIFFERS)");
+            if (!same)
+                mismatches++;
+        }
+        if (mismatches > 0)
+            System.exit(1);
+    }
+}
@@ -0,0 +1,183 @@
+package com.pacman.bench;
+
+import com.pacman.core.Game;
+import com.pacman.telemetry.Telemetry;
+import com.pacman.telemetry.TelemetryEvent;
+import com.pacman.telemetry.TelemetryRing;
+import com.pacman.util.PacManInput;
+import com.pacman.util.RandomStream;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Measures what telemetry costs the game thread.
+ *
+ * <p>
+ * First a burst: one thread records events as fast as it can, far faster
+ * than the writer can format them, so the ring fills and events are dropped.
+ * This stands in for a stalled disk. Reported: time per event, how many
+ * single calls were slow (the producer never waits, so those are the thread
+ * being preempted), and bytes allocated by the producer thread (none per
+ * event). Files are rotated at 1 MB, keeping 4. Then headless games with
+ * random input run with and without a ring attached, comparing tick time and
+ * allocation. Finally every line written is checked to be one JSON object.
+ * Run from the project root:
+ * </p>
+ *
+ * <pre>
+ * java -Djava.awt.headless=true -cp build/classes com.pacman.bench.TelemetryBenchmark [burstEvents] [seeds]
+ * </pre>
+ */
+public class TelemetryBenchmark {
+
+    private static final int TICKS_PER_GAME = 3600;
+
+    /** Holds a random direction for 10 to 60 ticks, then picks another */
+    private static class RandomInput implements PacManInput {
+        private final RandomStream random;
+        private int direction;
+        private int hold;
+
+        RandomInput(long seed) {
+            random = new RandomStream(seed);
+        }
+
+        void next() {
+            if (--hold <= 0) {
+                direction = random.nextInt(4);
+                hold = random.nextInt(10, 60);
+            }
+        }
+
+        @Override public boolean isRightPressed() { return direction == 0; }
+        @Override public boolean isLeftPressed() { return direction == 1; }
+        @Override public boolean isUpPressed() { return direction == 2; }
+        @Override public boolean isDownPressed() { return direction == 3; }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int burst = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int seeds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long self = Thread.currentThread().getId();
+        Path dir = Files.createTempDirectory("pacman-telemetry");
+        boolean ok = true;
+
+        Telemetry telemetry = new Telemetry(dir, 1 << 20, 4, false);
+        try (telemetry) {
+            // Burst: warm up, then time each call
+            TelemetryRing ring = telemetry.newRing("burst", Telemetry.DEFAULT_RING_CAPACITY);
+            for (int i = 0; i < 100_000; i++) {
+                ring.offer(TelemetryEvent.GHOST_EATEN, i, 200, 1, 0);
+            }
+            long droppedBefore = ring.getDropped();
+            long over1us = 0;
+            long over10us = 0;
+            long maxNanos = 0;
+            long alloc0 = threads.getThreadAllocatedBytes(self);
+            long t0 = System.nanoTime();
+            for (int i = 0; i < burst; i++) {
+                long s = System.nanoTime();
+                ring.offer(TelemetryEvent.GHOST_EATEN, i, 200 << (i & 3), (i & 3) + 1, 0);
+                long nanos = System.nanoTime() - s;
+                if (nanos > 1000) {
+                    over1us++;
+                    if (nanos > 10_000)
+                        over10us++;
+                    maxNanos = Math.max(maxNanos, nanos);
+                }
+            }
+            long elapsed = System.nanoTime() - t0;
+            long allocated = threads.getThreadAllocatedBytes(self) - alloc0;
+            long dropped = ring.getDropped() - droppedBefore;
+            // A few hundred bytes are allocated once, around entering the
+            // loop, whatever the burst size
+            ok &= allocated < 1024;
+            System.out.printf("Burst of %d events: %.0f ns per event (timer included), %d calls over 1 us, "
+                            + "%d over 10 us (longest %.1f ms: preempted), %d bytes allocated in all (%.5f per event), %d dropped (%.0f%%)%n",
+                    burst, (double) elapsed / burst, over1us, over10us, maxNanos / 1e6, allocated, (double) allocated / burst, dropped,
+                    100.0 * dropped / burst);
+            telemetry.removeRing(ring);
+
+            // Games with and without telemetry
+            TelemetryRing gameRing = telemetry.newRing("game", Telemetry.DEFAULT_RING_CAPACITY);
+            runGames(seeds, null, threads, self);
+            runGames(seeds, gameRing, threads, self);
+            long eventsBefore = telemetry.getWritten();
+            double[] off = runGames(seeds, null, threads, self);
+            double[] on = runGames(seeds, gameRing, threads, self);
+            System.out.printf("Games (%d seeds): %.1f us/tick and %.0f B/tick without telemetry, "
+                            + "%.1f us/tick and %.0f B/tick with it%n",
+                    seeds, off[0], off[1], on[0], on[1]);
+            long deadline = System.currentTimeMillis() + 2000;
+            while (gameRing.size() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            System.out.printf("%d game events, %d dropped%n", telemetry.getWritten() - eventsBefore,
+                    gameRing.getDropped());
+            ok &= gameRing.getDropped() == 0;
+        }
+        // The writer thread has stopped, so these counts are final
+        System.out.printf("Writer: %d events, %.1f MB, %d rotations, %d write errors%n",
+                telemetry.getWritten(), telemetry.getBytes() / 1e6, telemetry.getRotations(),
+                telemetry.getWriteErrors());
+
+        // Every kept line must be a whole JSON object
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.sorted().collect(Collectors.toList());
+        }
+        long lines = 0;
+        long bad = 0;
+        for (Path file : files) {
+            try (BufferedReader in = Files.newBufferedReader(file)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lines++;
+                    if (!line.startsWith("{\"time\":") || !line.endsWith("}"))
+                        bad++;
+                }
+            }
+        }
+        ok &= files.size() <= 4 && bad == 0;
+        System.out.printf("%d files kept, %d lines, %d malformed%n", files.size(), lines, bad);
+
+        try (Stream<Path> s = Files.walk(dir)) {
+            s.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+        System.out.println(ok ? "All checks passed" : "CHECKS FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+
+    /** @return {microseconds per tick, bytes allocated per tick} */
+    private static double[] runGames(int seeds, TelemetryRing ring, com.sun.management.ThreadMXBean threads, long self)
+            throws IOException {
+        long ticks = 0;
+        long nanos = 0;
+        long allocated = 0;
+        for (int seed = 1; seed <= seeds; seed++) {
+            Game game = new Game(seed);
+            game.setTelemetry(ring);
+            RandomInput input = new RandomInput(seed * 31L);
+            long a0 = threads.getThreadAllocatedBytes(self);
+            long t0 = System.nanoTime();
+            for (int t = 0; t < TICKS_PER_GAME && !game.isGameOver(); t++) {
+                input.next();
+                game.input(input);
+                game.update();
+                ticks++;
+            }
+            nanos += System.nanoTime() - t0;
+            allocated += threads.getThreadAllocatedBytes(self) - a0;
+        }
+        return new double[]{nanos / 1e3 / ticks, (double) allocated / ticks};
+    }
+}
@@ -0,0 +1,200 @@
+package com.pacman.bench;
+
+import com.pacman.core.Game;
+import com.pacman.core.GameSnapshot;
+import com.pacman.net.LatencyProxy;
+import com.pacman.net.VersusSession;
+import com.pacman.util.MaskInput;
+import com.pacman.util.RandomStream;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+
+/**
+ * Plays versus games between two bots over loopback through a
+ * {@link LatencyProxy}, at several round-trip times, and reports what the
+ * rollback netcode costs.
+ *
+ * <p>
+ * Each bot runs its own {@link VersusSession} on its own thread at 60 ticks
+ * per second, holding a random direction for a while, then turning. After
+ * the same number of ticks on both sides, the sessions exchange their last
+ * inputs and the two final states must hash the same. Reported per round
+ * trip: how often and how deep the sessions rolled back, the re-simulation
+ * time, the longest frame (receive, rollback and tick: it must stay well
+ * under 16.7 ms), frames spent waiting for the other side, and desyncs. Run from
+ * the project root:
+ * </p>
+ *
+ * <pre>
+ * java -Djava.awt.headless=true -cp build/classes com.pacman.bench.VersusBenchmark [seconds] [jitterMs] [lossPercent] [rttMs...]
+ * </pre>
+ *
+ * <p>
+ * The input delay and rollback limit come from {@code -Dpacman.versusInputDelay}
+ * and {@code -Dpacman.versusMaxRollback}, as in the game.
+ * </p>
+ */
+public class VersusBenchmark {
+
+    private static final long TICK_NANOS = 1_000_000_000L / 60;
+    private static final long SETTLE_MILLIS = 5000;
+    private static final int[] DIRECTIONS = {MaskInput.RIGHT, MaskInput.LEFT, MaskInput.UP, MaskInput.DOWN};
+
+    /** One side of a game: a bot driving a session at 60 Hz */
+    private static final class Player implements Runnable {
+        final VersusSession session;
+        final int ticks;
+        final long seed;
+        final long[] frameNanos;
+        volatile boolean done;
+        volatile Throwable error;
+        long finalHash;
+
+        Player(VersusSession session, int ticks, long seed) {
+            this.session = session;
+            this.ticks = ticks;
+            this.seed = seed;
+            this.frameNanos = new long[ticks * 2];
+        }
+
+        @Override
+        public void run() {
+            try {
+                Game game = session.connect(seed, 10_000);
+                RandomStream random = new RandomStream(seed ^ session.getSide().ordinal());
+                int mask = 0;
+                int hold = 0;
+                int frames = 0;
+                long next = System.nanoTime();
+                while (session.getTick() < ticks && frames < frameNanos.length) {
+                    if (--hold <= 0) {
+                        mask = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+                        hold = random.nextInt(10, 40);
+                    }
+                    long t0 = System.nanoTime();
+                    session.update(mask);
+                    frameNanos[frames++] = System.nanoTime() - t0;
+                    next += TICK_NANOS;
+                    sleepUntil(next);
+                }
+                // Keep exchanging inputs until both sides' are final
+                long end = System.currentTimeMillis() + SETTLE_MILLIS;
+                while (session.getConfirmedTicks() < session.getTick() && System.currentTimeMillis() < end) {
+                    session.poll();
+                    session.flush();
+                    Thread.sleep(5);
+                }
+                GameSnapshot snap = new GameSnapshot();
+                game.saveSnapshot(snap);
+                finalHash = snap.stateHash();
+                // The other side may still be missing our last inputs
+                end = System.currentTimeMillis() + 500;
+                while (System.currentTimeMillis() < end) {
+                    session.poll();
+                    session.flush();
+                    Thread.sleep(20);
+                }
+            } catch (Throwable t) {
+                error = t;
+            }
+            done = true;
+        }
+
+        long framePercentile(double p) {
+            int n = 0;
+            while (n < frameNanos.length && frameNanos[n] != 0) n++;
+            if (n == 0) return 0;
+            long[] sorted = Arrays.copyOf(frameNanos, n);
+            Arrays.sort(sorted);
+            return sorted[Math.min(n - 1, (int) (p * n))];
+        }
+    }
+
+    private static void sleepUntil(long deadline) throws InterruptedException {
+        long wait = deadline - System.nanoTime();
+        if (wait > 0)
+            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int jitter = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int loss = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int[] rtts = args.length > 3
+                ? Arrays.stream(args, 3, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[]{0, 50, 100, 150};
+        int delay = Integer.getInteger("pacman.versusInputDelay", VersusSession.DEFAULT_INPUT_DELAY);
+        int maxRollback = Integer.getInteger("pacman.versusMaxRollback", VersusSession.DEFAULT_MAX_ROLLBACK);
+
+        System.out.printf("%d s per game, input delay %d ticks, max rollback %d ticks, jitter +/-%d ms, %d%% loss%n%n",
+                seconds, delay, maxRollback, jitter, loss);
+        System.out.println("rtt ms | side   | measured rtt | rollbacks/s | avg depth | max depth | resim avg us | "
+                + "resim max us | frame p99 us | frame max us | wrong/predicted | stalls | sync waits | checks | desyncs | final state");
+        System.out.println("-------|--------|--------------|-------------|-----------|-----------|--------------|-"
+                + "-------------|--------------|--------------|-----------------|--------|------------|--------|---------|------------");
+        boolean ok = true;
+        for (int rtt : rtts) {
+            ok &= play(seconds, rtt, Math.min(jitter, rtt / 2), loss, delay, maxRollback);
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static boolean play(int seconds, int rtt, int jitter, int loss, int delay, int maxRollback)
+            throws IOException, InterruptedException {
+        int ticks = seconds * 60;
+        long seed = 42 + rtt;
+        try (VersusSession ghost = new VersusSession(VersusSession.Side.GHOST, 0, null, delay, maxRollback);
+             LatencyProxy proxy = new LatencyProxy(0, new InetSocketAddress("127.0.0.1", ghost.getPort()),
+                     rtt / 2, jitter, loss, seed);
+             VersusSession pacman = new VersusSession(VersusSession.Side.PACMAN, 0,
+                     new InetSocketAddress("127.0.0.1", proxy.getAddress().getPort()), delay, maxRollback)) {
+            Thread relay = new Thread(proxy, "LatencyProxy");
+            relay.setDaemon(true);
+            relay.start();
+            Player[] players = {new Player(pacman, ticks, seed), new Player(ghost, ticks, seed)};
+            Thread[] threads = new Thread[players.length];
+            for (int i = 0; i < players.length; i++) {
+                threads[i] = new Thread(players[i], "Versus-" + players[i].session.getSide());
+                threads[i].start();
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+
+            boolean same = players[0].finalHash == players[1].finalHash;
+            boolean ok = same;
+            for (Player p : players) {
+                VersusSession s = p.session;
+                if (p.error != null) {
+                    System.out.println(rtt + " ms " + s.getSide() + ": " + p.error);
+                    ok = false;
+                    continue;
+                }
+                ok &= s.getDesyncs() == 0;
+                System.out.printf("%6d | %-6s | %9.1f ms | %11.2f | %9.1f | %9d | %12.0f | %12.0f | %12.0f | "
+                                + "%12.0f | %7d/%-7d | %6d | %10d | %6d | %7d | %s%n",
+                        rtt, s.getSide(), s.getRttNanos() / 1e6, (double) s.getRollbacks() / seconds,
+                        s.getRollbacks() == 0 ? 0.0 : (double) s.getRolledBackTicks() / s.getRollbacks(),
+                        s.getMaxRollbackDepth(),
+                        s.getRollbacks() == 0 ? 0.0 : s.getResimNanos() / 1e3 / s.getRollbacks(),
+                        s.getMaxResimNanos() / 1e3, p.framePercentile(0.99) / 1e3, p.framePercentile(1.0) / 1e3,
+                        s.getMispredictions(), s.getPredictions(), s.getStalls(), s.getSyncWaits(), s.getChecks(), s.getDesyncs(),
+                        same ? "same" : "DIFFERENT");
+            }
+            long[] depths = new long[maxRollback + 2];
+            for (Player p : players) {
+                long[] h = p.session.getDepthHistogram();
+                for (int d = 0; d < h.length; d++) depths[d] += h[d];
+            }
+            StringBuilder histogram = new StringBuilder("       | depths:");
+            for (int d = 1; d < depths.length; d++) {
+                if (depths[d] > 0)
+                    histogram.append(' ').append(d == depths.length - 1 ? ">" + maxRollback : d).append('=').append(depths[d]);
+            }
+            System.out.println(histogram + " | proxy relayed " + proxy.getRelayed() + ", dropped " + proxy.getDropped());
+            return ok;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.pacman.core;
+
+import com.pacman.entity.Entity;
+import com.pacman.entity.PacGum;
+import com.pacman.entity.SuperPacGum;
+import com.pacman.ghost.Ghost;
+
+import java.util.Arrays;
+
+/**
+ * Typed, batched gameplay events of one game.
+ *
+ * <p>
+ * The game applies a collision itself, then publishes what happened. Events
+ * are queued in preallocated parallel arrays during the tick and delivered
+ * in one batch when the tick ends, in the order they happened. Each event
+ * type has its own array of subscribers, so an event no one subscribed to is
+ * not even queued, and a listener only sees the types it asked for.
+ * Publishing and dispatching allocate nothing (the queue only grows the
+ * first time a tick has more events than it holds).
+ * </p>
+ *
+ * <pre>
+ * Game.resolveCollisions --publish--> queue --dispatch (end of tick)--> GameListener(s)
+ *                                                                       └── TelemetryListener
+ * </pre>
+ *
+ * <p>
+ * Subscribing may happen on any thread; it replaces the subscriber arrays,
+ * and the next dispatch sees the change. Games that re-simulate ticks
+ * (rollback, rewind) deliver the re-simulated ticks' events again, so
+ * listeners that count things should be unsubscribed there.
+ * </p>
+ */
+public final class EventBus {
+
+    /** Event types: subject and values as in the matching {@link GameListener} method */
+    public static final int PELLET_EATEN = 0;
+    public static final int POWER_PELLET_EATEN = 1;
+    public static final int GHOST_EATEN = 2;
+    public static final int LIFE_LOST = 3;
+    public static final int GAME_OVER = 4;
+    public static final int LEVEL_CLEARED = 5;
+    public static final int LEVEL_ADVANCED = 6;
+    public static final int LEVEL_RELOADED = 7;
+    public static final int TYPES = 8;
+
+    private static final GameListener[] NONE = new GameListener[0];
+
+    /** Listeners by event type; replaced as a whole on every change */
+    private volatile GameListener[][] subscribers = new GameListener[TYPES][];
+
+    // Queue of the current tick (game thread only)
+    private int count = 0;
+    private int[] types = new int[16];
+    private Entity[] subjects = new Entity[16];
+    private int[] valuesA = new int[16];
+    private int[] valuesB = new int[16];
+
+    public EventBus() {
+        Arrays.fill(subscribers, NONE);
+    }
+
+    /**
+     * Delivers the given event types to a listener, after those it already
+     * receives. Subscribing twice to a type delivers it once.
+     */
+    public synchronized void subscribe(GameListener listener, int... eventTypes) {
+        GameListener[][] next = subscribers.clone();
+        for (int type : eventTypes) {
+            if (type < 0 || type >= TYPES)
+                throw new IllegalArgumentException("Unknown event type: " + type);
+            GameListener[] current = next[type];
+            if (Arrays.asList(current).contains(listener))
+                continue;
+            GameListener[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = listener;
+            next[type] = grown;
+        }
+        subscribers = next;
+    }
+
+    /** Stops delivering every event type to a listener */
+    public synchronized void unsubscribe(GameListener listener) {
+        GameListener[][] next = subscribers.clone();
+        for (int type = 0; type < TYPES; type++) {
+            GameListener[] current = next[type];
+            int i = Arrays.asList(current).indexOf(listener);
+            if (i < 0)
+                continue;
+            GameListener[] shrunk = new GameListener[current.length - 1];
+            System.arraycopy(current, 0, shrunk, 0, i);
+            System.arraycopy(current, i + 1, shrunk, i, shrunk.length - i);
+            next[type] = shrunk.length == 0 ? NONE : shrunk;
+        }
+        subscribers = next;
+    }
+
+    /** Returns true if anyone receives this event type */
+    public boolean hasSubscribers(int type) {
+        return subscribers[type].length > 0;
+    }
+
+    // ==================== Game Side ====================
+
+    /**
+     * Queues an event for the end of the tick, if anyone receives its type.
+     * @param subject pellet or ghost involved, or null
+     */
+    void publish(int type, Entity subject, int a, int b) {
+        if (subscribers[type].length == 0)
+            return;
+        if (count == types.length) {
+            types = Arrays.copyOf(types, count * 2);
+            subjects = Arrays.copyOf(subjects, count * 2);
+            valuesA = Arrays.copyOf(valuesA, count * 2);
+            valuesB = Arrays.copyOf(valuesB, count * 2);
+        }
+        types[count] = type;
+        subjects[count] = subject;
+        valuesA[count] = a;
+        valuesB[count] = b;
+        count++;
+    }
+
+    /** Delivers the queued events in order and empties the queue */
+    void dispatch() {
+        if (count == 0)
+            return;
+        GameListener[][] subs = subscribers;
+        for (int i = 0; i < count; i++) {
+            GameListener[] listeners = subs[types[i]];
+            for (GameListener listener : listeners) {
+                deliver(listener, types[i], subjects[i], valuesA[i], valuesB[i]);
+            }
+            subjects[i] = null;
+        }
+        count = 0;
+    }
+
+    private static void deliver(GameListener listener, int type, Entity subject, int a, int b) {
+        switch (type) {
+            case PELLET_EATEN:
+                listener.pelletEaten((PacGum) subject, a);
+                break;
+            case POWER_PELLET_EATEN:
+                listener.powerPelletEaten((SuperPacGum) subject, a);
+                break;
+            case GHOST_EATEN:
+                listener.ghostEaten((Ghost) subject, a, b);
+                break;
+            case LIFE_LOST:
+                listener.lifeLost(a);
+                break;
+            case GAME_OVER:
+                listener.gameOver(a, b);
+                break;
+            case LEVEL_CLEARED:
+                listener.levelCleared(a, b);
+                break;
+            case LEVEL_ADVANCED:
+                listener.levelAdvanced(a);
+                break;
+            case LEVEL_RELOADED:
+                listener.levelReloaded(a);
+                break;
+        }
+    }
+}
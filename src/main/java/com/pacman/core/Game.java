@@ -4,11 +4,19 @@ import com.pacman.entity.*;
 import com.pacman.ghost.Blinky;
 import com.pacman.ghost.Ghost;
 import com.pacman.ghost.factory.*;
+import com.pacman.ghost.path.FlowFieldCache;
 import com.pacman.ghost.state.EatenMode;
 import com.pacman.ghost.state.FrightenedMode;
+import com.pacman.replay.ReplayRecorder;
+import com.pacman.telemetry.TelemetryListener;
+import com.pacman.telemetry.TelemetryRing;
+import com.pacman.util.CollisionBatch;
 import com.pacman.util.CollisionDetector;
 import com.pacman.util.CsvReader;
-import com.pacman.util.KeyHandler;
+import com.pacman.util.MaskInput;
+import com.pacman.util.PacManInput;
+import com.pacman.util.RandomStream;
+import com.pacman.util.StartupTimer;
 
 import java.awt.*;
 import java.io.File;
@@ -19,18 +27,21 @@ import java.util.List;
  * Main game controller managing all entities and game logic.
  * 
  * <p>
- * <b>Design Pattern:</b> Observer Pattern (as Observer)
- * </p>
- * 
- * <p>
  * This class is the central hub that:
  * </p>
  * <ul>
  * <li>Loads the level from CSV file</li>
  * <li>Creates and manages all game entities</li>
  * <li>Handles game loop updates and rendering</li>
- * <li>Responds to collision events (pellets eaten, ghost collisions)</li>
+ * <li>Applies collisions (pellets eaten, ghost collisions) and publishes them
+ * on its {@link EventBus}</li>
  * </ul>
+ *
+ * <p>
+ * All game state lives in the instance (entities reach it through the game
+ * they were created with), so several games can run side by side in one
+ * process, e.g. the rooms of a {@code RoomServer}.
+ * </p>
  * 
  * <p>
  * <b>CSV Level Format:</b>
@@ -51,19 +62,31 @@ import java.util.List;
  * </pre>
  * 
  * <p>
- * <b>Observer Callbacks:</b>
+ * <b>Collisions:</b>
  * </p>
  * <ul>
- * <li>{@link #updatePacGumEaten(PacGum)} - Destroys the eaten pellet</li>
- * <li>{@link #updateSuperPacGumEaten(SuperPacGum)} - Destroys pellet, triggers
- * ghost Frightened mode</li>
- * <li>{@link #updateGhostCollision(Ghost)} - Game over or ghost eaten</li>
+ * <li>{@link #eatPellet(PacGum)} - Scores and destroys the eaten pellet</li>
+ * <li>{@link #eatPowerPellet(SuperPacGum)} - Scores and destroys the pellet,
+ * triggers ghost Frightened mode</li>
+ * <li>{@link #touchGhost(Ghost)} - Ghost eaten, life lost or game over</li>
  * </ul>
  * 
- * @see Observer The interface this class implements
- * @see UIPanel Score display that also observes events
+ * @see EventBus Events published to listeners at the end of each tick
+ * @see Scoreboard Score and lives, shown by {@link UIPanel}
  */
-public class Game implements Observer {
+public class Game {
+
+    /** Level file, overridable with -Dpacman.level (e.g. level_backup.csv) */
+    public static final String LEVEL_FILE = System.getProperty("pacman.level", "level.csv");
+
+    /** Size of one level cell in pixels */
+    public static final int CELL_SIZE = 8;
+
+    /** Ghosts released together per release step, as a fraction of all ghosts */
+    private static final int GHOST_RELEASE_WAVES = 4;
+
+    /** Ticks between ghost release steps (3 seconds at 60 ticks per second) */
+    private static final int GHOST_RELEASE_TICKS = 3 * 60;
 
     /** All game entities (walls, pellets, ghosts, pacman) */
     private List<Entity> objects = new ArrayList<>();
@@ -71,79 +94,164 @@ public class Game implements Observer {
     /** Quick reference to all ghosts for mode switching */
     private List<Ghost> ghosts = new ArrayList<>();
 
-    /** Quick reference to walls for collision detection */
-    private static List<Wall> walls = new ArrayList<>();
+    /** Maze layout (walls and doors) for collision detection */
+    private TileMap tileMap = new TileMap(0, 0, CELL_SIZE);
+
+    /** State of all entities in primitive arrays; the entity objects read and write it */
+    private EntityStore store = new EntityStore(16);
+
+    /** Shared ghost pathfinding, only in stress mode (null otherwise) */
+    private FlowFieldCache flowFields;
+
+    /** World state at the start of the tick, read by the ghost decision phase */
+    private final WorldSnapshot worldSnapshot = new WorldSnapshot();
+
+    /** Ghost prepare/decide phases of the tick */
+    private GhostDecisionPhase ghostPhase;
 
     /** Player character instance */
-    private static PacMan pacman;
+    private PacMan pacman;
 
     /** Reference to Blinky (used by Inky's strategy) */
-    private static Blinky blinky;
+    private Blinky blinky;
 
     /** Flag indicating if player has made first input */
-    private static boolean firstInput = false;
+    private boolean firstInput = false;
+
+    /** Score and lives of this game */
+    private final Scoreboard scoreboard = new Scoreboard();
+    /**
+     * Ghosts never cost a life with -Dpacman.invincible=true (used by the
+     * ghost stress benchmark, whose PacMan stands still)
+     */
+    private final boolean invincible = Boolean.getBoolean("pacman.invincible");
+
+    /** Collision phase: one pass per tick into a reusable event batch */
+    private CollisionDetector collisionDetector;
+    private final CollisionBatch collisions = new CollisionBatch(8);
 
-    /** UI panel for score display */
-    private UIPanel uiPanel;
+    /** Set when positions are reset (life lost, level cleared) while applying a collision batch */
+    private boolean positionsReset = false;
 
     /** Spawn positions for reset */
     private int pacmanSpawnX, pacmanSpawnY;
-    private int[] ghostSpawnX, ghostSpawnY;
+    private List<Point> ghostSpawns = new ArrayList<>();
+
+    /** Level symbol each ghost was spawned from, parallel to {@link #ghosts} */
+    private List<String> ghostSymbols = new ArrayList<>();
+
+    /** Currently loaded level grid and the static entity created for each cell */
+    private List<List<String>> levelData;
+    private StaticEntity[][] tileEntities;
+
+    /** Remaining pellets by tile, for O(1) win detection and level reset */
+    private PelletTracker pellets;
+
+    /** Hot reload version already applied to this game */
+    private int levelVersion = 0;
+
+    /** Incremented whenever the maze layout changes (used to invalidate derived data) */
+    private int mazeVersion = 0;
 
     /** Game over flag */
-    private static boolean gameOver = false;
+    private boolean gameOver = false;
 
     /** Game won flag */
-    private static boolean gameWon = false;
+    private boolean gameWon = false;
 
     /** Grace period in frames after game restart to prevent immediate collisions */
-    private static int graceFrames = 0;
+    private int graceFrames = 0;
 
     /**
      * Tracks consecutive ghosts eaten during one power pellet for escalating bonus
      */
     private int ghostsEatenThisPower = 0;
 
-    /** Ghost release timing */
-    private long lastGhostReleaseTime = 0;
+    /** Game clock: ticks since the game was created, including level cards */
+    private long tick = 0;
+
+    /** Seed of all random streams of this game */
+    private final long seed;
+
+    /** Root random stream; split once per subsystem (ghosts), then per ghost */
+    private final RandomStream random;
+
+    /** Input given since the last tick, as a {@link MaskInput} mask */
+    private int inputMask = 0;
+    private int lastInputMask = 0;
+
+    /** Records each tick's input for a replay (null when not recording) */
+    private ReplayRecorder recorder;
+
+    /** Gameplay events, delivered to listeners at the end of each tick */
+    private final EventBus events = new EventBus();
+
+    /** Records events into a telemetry ring (null: not reported) */
+    private TelemetryListener telemetry;
+
+    /** Ghost release timing: ticks since the last release step, -1 before the first input */
+    private int ghostReleaseTimer = -1;
     private int ghostReleaseIndex = 0;
     private boolean ghostsReleasedAtStart = false;
 
     /** Level transition state */
-    private static boolean levelStarting = false;
-    private static long levelStartTime = 0;
-    private static final long LEVEL_CARD_DURATION = 2500; // 2.5 seconds
-    private static int levelStartScore = 0;
+    private boolean levelStarting = false;
+    private int levelCardTicks = 0;
+    private static final int LEVEL_CARD_TICKS = 150; // 2.5 seconds
+    private int levelStartScore = 0;
+
+    /** Level number, speeds and point values of this game */
+    private final LevelConfig levelConfig = new LevelConfig();
 
-    public Game(UIPanel uiPanel) {
-        this.uiPanel = uiPanel;
+    /** Power pellet blink clock, advanced once per tick */
+    private int blinkClock = 0;
+
+    /** Creates a game seeded from -Dpacman.seed, or from the clock if unset */
+    public Game() {
+        this(Long.getLong("pacman.seed", System.nanoTime()));
+    }
+
+    /**
+     * Creates a game whose random streams all derive from {@code seed}, so the
+     * same seed and inputs give the same game.
+     */
+    public Game(long seed) {
+        this.seed = seed;
+        this.random = new RandomStream(seed);
         graceFrames = 2; // Set grace period to prevent immediate collisions
-        ghostSpawnX = new int[4];
-        ghostSpawnY = new int[4];
-        int ghostIndex = 0;
 
         // Load level from CSV
+        long t0 = StartupTimer.start();
         List<List<String>> data = null;
         try {
-            File csvFile = new File("level.csv");
+            File csvFile = new File(LEVEL_FILE);
             data = new CsvReader().parseCsv(csvFile.toURI());
         } catch (Exception e) {
             e.printStackTrace();
         }
+        StartupTimer.end(StartupTimer.Phase.LEVEL_PARSE, t0);
 
         if (data == null || data.isEmpty()) {
-            System.err.println("Failed to load level.csv");
+            System.err.println("Failed to load " + LEVEL_FILE);
             return;
         }
 
         int cellsPerRow = data.get(0).size();
         int cellsPerColumn = data.size();
-        int cellSize = 8;
-
-        CollisionDetector collisionDetector = new CollisionDetector(this);
-        AbstractGhostFactory abstractGhostFactory = null;
-
-        // Parse CSV and create entities
+        levelData = data;
+        levelVersion = LevelWatcher.getVersion();
+        tileEntities = new StaticEntity[cellsPerColumn][cellsPerRow];
+        tileMap = new TileMap(cellsPerRow, cellsPerColumn, CELL_SIZE);
+        pellets = new PelletTracker(cellsPerRow, cellsPerColumn);
+
+        t0 = StartupTimer.start();
+        collisionDetector = new CollisionDetector(this);
+        int stressGhosts = Integer.getInteger("pacman.stressGhosts", 0);
+        store = new EntityStore(countEntities(data) + stressGhosts);
+        boolean hasPacman = false;
+
+        // Parse CSV and create the tile entities; PacMan and ghosts are created
+        // after them, so they come last in the store (and in update order)
         for (int xx = 0; xx < cellsPerRow; xx++) {
             for (int yy = 0; yy < cellsPerColumn; yy++) {
                 if (yy >= data.size() || xx >= data.get(yy).size())
@@ -151,75 +259,295 @@ public class Game implements Observer {
 
                 String dataChar = data.get(yy).get(xx);
 
-                if (dataChar.equals("x")) {
-                    objects.add(new Wall(xx * cellSize, yy * cellSize));
-                } else if (dataChar.equals("P")) {
-                    pacmanSpawnX = xx * cellSize;
-                    pacmanSpawnY = yy * cellSize;
-                    pacman = new PacMan(pacmanSpawnX, pacmanSpawnY);
-                    pacman.setCollisionDetector(collisionDetector);
-                    if (uiPanel != null)
-                        pacman.registerObserver(uiPanel);
-                    pacman.registerObserver(this);
-                } else if (dataChar.equals("b") || dataChar.equals("p") || dataChar.equals("i")
-                        || dataChar.equals("c")) {
-                    if (ghostIndex < 4) {
-                        ghostSpawnX[ghostIndex] = xx * cellSize;
-                        ghostSpawnY[ghostIndex] = yy * cellSize;
-                    }
-                    switch (dataChar) {
-                        case "b":
-                            abstractGhostFactory = new BlinkyFactory();
-                            break;
-                        case "p":
-                            abstractGhostFactory = new PinkyFactory();
-                            break;
-                        case "i":
-                            abstractGhostFactory = new InkyFactory();
-                            break;
-                        case "c":
-                            abstractGhostFactory = new ClydeFactory();
-                            break;
-                    }
-                    Ghost ghost = abstractGhostFactory.makeGhost(xx * cellSize, yy * cellSize);
-                    ghosts.add(ghost);
-                    ghostIndex++;
-                    if (dataChar.equals("b")) {
-                        blinky = (Blinky) ghost;
+                if (dataChar.equals("P")) {
+                    pacmanSpawnX = xx * CELL_SIZE;
+                    pacmanSpawnY = yy * CELL_SIZE;
+                    hasPacman = true;
+                } else if (isGhostSymbol(dataChar)) {
+                    ghostSpawns.add(new Point(xx * CELL_SIZE, yy * CELL_SIZE));
+                    ghostSymbols.add(dataChar);
+                } else {
+                    StaticEntity tile = createTileEntity(dataChar, xx, yy);
+                    if (tile != null) {
+                        addTileEntity(tile, xx, yy);
+                        objects.add(tile);
                     }
-                } else if (dataChar.equals(".")) {
-                    objects.add(new PacGum(xx * cellSize, yy * cellSize));
-                } else if (dataChar.equals("o")) {
-                    objects.add(new SuperPacGum(xx * cellSize, yy * cellSize));
-                } else if (dataChar.equals("-")) {
-                    objects.add(new GhostHouse(xx * cellSize, yy * cellSize));
                 }
             }
         }
 
+        if (hasPacman)
+            pacman = new PacMan(this, pacmanSpawnX, pacmanSpawnY);
+        for (int i = 0; i < ghostSymbols.size(); i++) {
+            String symbol = ghostSymbols.get(i);
+            Point spawn = ghostSpawns.get(i);
+            Ghost ghost = ghostFactory(symbol).makeGhost(this, spawn.x, spawn.y);
+            ghosts.add(ghost);
+            if (symbol.equals("b")) {
+                blinky = (Blinky) ghost;
+            }
+        }
+
+        // Stress mode: fill up to N ghosts, cycling ghost types and level spawns
+        if (stressGhosts > 0) {
+            spawnStressGhosts(stressGhosts);
+            // -Dpacman.flowFields=false keeps per-ghost greedy search (for comparison)
+            if (Boolean.parseBoolean(System.getProperty("pacman.flowFields", "true")))
+                flowFields = new FlowFieldCache(tileMap, CELL_SIZE, 32);
+        }
+
+        // One stream per ghost, in spawn order, from the ghosts' subsystem stream
+        RandomStream ghostRandom = random.split();
+        for (Ghost ghost : ghosts) {
+            ghost.setRandom(ghostRandom.split());
+        }
+
         if (pacman != null)
             objects.add(pacman);
         objects.addAll(ghosts);
+        ghostPhase = new GhostDecisionPhase(ghosts);
+        StartupTimer.end(StartupTimer.Phase.ENTITY_BUILD, t0);
+    }
+
+    /** Counts the entities a level creates (tiles, PacMan and ghosts), to size the store */
+    private static int countEntities(List<List<String>> data) {
+        int n = 0;
+        for (int yy = 0; yy < data.size(); yy++) {
+            List<String> row = data.get(yy);
+            for (int xx = 0; xx < row.size(); xx++) {
+                String c = row.get(xx);
+                if (c.equals("x") || c.equals(".") || c.equals("o") || c.equals("-") || c.equals("P") || isGhostSymbol(c))
+                    n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Creates the static entity for a level cell.
+     *
+     * @return the wall, door or pellet for this symbol, or null for other symbols
+     */
+    private StaticEntity createTileEntity(String dataChar, int xx, int yy) {
+        switch (dataChar) {
+            case "x":
+                return new Wall(store, xx * CELL_SIZE, yy * CELL_SIZE);
+            case ".":
+                return new PacGum(store, xx * CELL_SIZE, yy * CELL_SIZE);
+            case "o":
+                return new SuperPacGum(this, xx * CELL_SIZE, yy * CELL_SIZE);
+            case "-":
+                return new GhostHouse(store, xx * CELL_SIZE, yy * CELL_SIZE);
+            default:
+                return null;
+        }
+    }
+
+    /** Registers a static entity for its level cell (and its pellet, if any) */
+    private void addTileEntity(StaticEntity tile, int xx, int yy) {
+        tile.setTile(pellets.tileIndex(xx, yy));
+        tileEntities[yy][xx] = tile;
+        if (tile instanceof GhostHouse) {
+            tileMap.set(xx, yy, TileMap.DOOR);
+        } else if (tile instanceof Wall) {
+            tileMap.set(xx, yy, TileMap.WALL);
+        } else if (tile instanceof PacGum || tile instanceof SuperPacGum) {
+            pellets.addPellet(tile.getTile());
+        }
+    }
+
+    /** Returns the factory for a ghost symbol */
+    private static AbstractGhostFactory ghostFactory(String dataChar) {
+        switch (dataChar) {
+            case "b":
+                return new BlinkyFactory();
+            case "p":
+                return new PinkyFactory();
+            case "i":
+                return new InkyFactory();
+            default:
+                return new ClydeFactory();
+        }
+    }
+
+    /**
+     * Adds ghosts until there are {@code total}, cycling through the ghost
+     * types and the spawn points of the level's own ghosts.
+     */
+    private void spawnStressGhosts(int total) {
+        if (ghostSpawns.isEmpty())
+            return;
+        String[] types = { "b", "p", "i", "c" };
+        for (int i = ghosts.size(); i < total; i++) {
+            String symbol = types[i % types.length];
+            Point spawn = ghostSpawns.get(i % ghostSpawns.size());
+            Ghost ghost = ghostFactory(symbol).makeGhost(this, spawn.x, spawn.y);
+            ghosts.add(ghost);
+            ghostSpawns.add(new Point(spawn));
+            ghostSymbols.add(symbol);
+        }
+    }
+
+    private static boolean isGhostSymbol(String dataChar) {
+        return dataChar.equals("b") || dataChar.equals("p") || dataChar.equals("i") || dataChar.equals("c");
+    }
+
+    /** Returns the maze layout of the current game */
+    public TileMap getTileMap() {
+        return tileMap;
+    }
+
+    /** Returns the maze width in pixels */
+    public int getWorldWidth() {
+        return tileMap.getWidth();
+    }
+
+    /** Returns the maze height in pixels */
+    public int getWorldHeight() {
+        return tileMap.getHeight();
+    }
+
+    /** Returns the wall, door or pellet created for a level cell, or null */
+    public StaticEntity getTileEntity(int xx, int yy) {
+        if (tileEntities == null || yy < 0 || yy >= tileEntities.length || xx < 0 || xx >= tileEntities[yy].length)
+            return null;
+        return tileEntities[yy][xx];
+    }
+
+    /** Returns the entity store of the current game */
+    public EntityStore getStore() {
+        return store;
+    }
+
+    /** Returns the world state captured at the start of the current tick */
+    public WorldSnapshot getWorldSnapshot() {
+        return worldSnapshot;
+    }
+
+    /** Returns the shared ghost flow fields, or null outside stress mode */
+    public FlowFieldCache getFlowFields() {
+        return flowFields;
+    }
+
+    /** Returns the maze layout version, incremented on every hot reload */
+    public int getMazeVersion() {
+        return mazeVersion;
+    }
+
+    // ==================== Hot Reload ====================
+
+    /**
+     * Applies a reloaded level grid, if the watcher published one.
+     * Only cells whose symbol changed are rebuilt: their old wall, door or
+     * pellet is removed and the new one is created. Spawn symbols move the
+     * matching spawn point, which takes effect on the next reset.
+     */
+    private void applyLevelReload() {
+        LevelWatcher.Grid grid = LevelWatcher.pollGrid(levelVersion);
+        if (grid == null || levelData == null)
+            return;
+        levelVersion = grid.getVersion();
+        List<List<String>> data = grid.getCells();
+
+        int rows = Math.min(data.size(), tileEntities.length);
+        int changed = 0;
+        for (int yy = 0; yy < rows; yy++) {
+            int cols = tileEntities[yy].length;
+            for (int xx = 0; xx < cols; xx++) {
+                String oldChar = cellAt(levelData, xx, yy);
+                String newChar = cellAt(data, xx, yy);
+                if (oldChar.equals(newChar))
+                    continue;
+                replaceCell(xx, yy, newChar);
+                changed++;
+            }
+        }
+        levelData = data;
+
+        if (changed > 0) {
+            mazeVersion++;
+            checkWinCondition();
+        }
+        events.publish(EventBus.LEVEL_RELOADED, null, changed, 0);
+    }
 
-        for (Entity o : objects) {
-            if (o instanceof Wall) {
-                walls.add((Wall) o);
+    /** Rebuilds a single level cell for a new symbol */
+    private void replaceCell(int xx, int yy, String newChar) {
+        StaticEntity old = tileEntities[yy][xx];
+        if (old != null) {
+            objects.remove(old);
+            store.remove(old.getId());
+            if (old instanceof Wall)
+                tileMap.set(xx, yy, TileMap.EMPTY);
+            else
+                pellets.removePellet(old.getTile());
+            tileEntities[yy][xx] = null;
+        }
+
+        if (newChar.equals("P")) {
+            pacmanSpawnX = xx * CELL_SIZE;
+            pacmanSpawnY = yy * CELL_SIZE;
+        } else if (isGhostSymbol(newChar)) {
+            int i = ghostSymbols.indexOf(newChar);
+            if (i >= 0) {
+                ghostSpawns.get(i).setLocation(xx * CELL_SIZE, yy * CELL_SIZE);
+            }
+        } else {
+            StaticEntity tile = createTileEntity(newChar, xx, yy);
+            if (tile != null) {
+                addTileEntity(tile, xx, yy);
+                // Static entities stay ahead of moving ones so they render underneath
+                objects.add(0, tile);
             }
         }
     }
 
-    public static List<Wall> getWalls() {
-        return walls;
+    /** Returns the symbol of a cell, or a blank cell when out of range */
+    private static String cellAt(List<List<String>> data, int xx, int yy) {
+        if (yy >= data.size() || xx >= data.get(yy).size())
+            return " ";
+        return data.get(yy).get(xx);
     }
 
     public List<Entity> getEntities() {
         return objects;
     }
 
+    /** Returns the ghosts of this game, in spawn order */
+    public List<Ghost> getGhosts() {
+        return ghosts;
+    }
+
+    /** Returns the remaining-pellet tracker of this game */
+    public PelletTracker getPellets() {
+        return pellets;
+    }
+
+    /**
+     * Advances the game by one tick, delivers the tick's events, then hands
+     * the tick's input to the recorder, if any.
+     */
     public void update() {
+        step();
+        events.dispatch();
+        int mask = inputMask;
+        inputMask = 0;
+        lastInputMask = mask;
+        if (recorder != null)
+            recorder.record(mask);
+    }
+
+    private void step() {
+        // Apply pending level file changes between ticks (dev mode only)
+        if (LevelWatcher.isRunning()) {
+            applyLevelReload();
+        }
+
+        tick++;
+
         // Pause during level transition card
         if (levelStarting) {
-            if (System.currentTimeMillis() - levelStartTime > LEVEL_CARD_DURATION) {
+            if (--levelCardTicks <= 0) {
                 levelStarting = false;
             }
             return; // Freeze game during level card
@@ -231,19 +559,20 @@ public class Game implements Observer {
         }
 
         // Release ghosts sequentially after first input with 3-second delay
+        // (one ghost per step normally, a quarter of them per step in stress mode)
         if (!ghostsReleasedAtStart && getFirstInput()) {
-            long currentTime = System.currentTimeMillis();
-
             // Initialize release timer on first input
-            if (ghostReleaseIndex == 0 && lastGhostReleaseTime == 0) {
-                lastGhostReleaseTime = currentTime;
+            if (ghostReleaseTimer < 0) {
+                ghostReleaseTimer = 0;
             }
             // Release ghosts every 3 seconds (including first ghost)
-            else if (ghostReleaseIndex < ghosts.size() && (currentTime - lastGhostReleaseTime) >= 3000) {
-                Ghost ghost = ghosts.get(ghostReleaseIndex);
-                ghost.getState().outsideHouse();
-                ghostReleaseIndex++;
-                lastGhostReleaseTime = currentTime;
+            else if (ghostReleaseIndex < ghosts.size() && ++ghostReleaseTimer >= GHOST_RELEASE_TICKS) {
+                int batch = Math.max(1, (ghosts.size() + GHOST_RELEASE_WAVES - 1) / GHOST_RELEASE_WAVES);
+                for (int i = 0; i < batch && ghostReleaseIndex < ghosts.size(); i++) {
+                    ghosts.get(ghostReleaseIndex).getState().outsideHouse();
+                    ghostReleaseIndex++;
+                }
+                ghostReleaseTimer = 0;
             }
 
             // Mark release sequence complete when all ghosts released
@@ -252,119 +581,366 @@ public class Game implements Observer {
             }
         }
 
-        for (Entity o : objects) {
-            if (!o.isDestroyed())
-                o.update();
+        blinkClock++;
+        EntityStore s = store;
+
+        // Ghosts decide against the world as it was at the end of the last tick
+        worldSnapshot.capture(this, s, pacman);
+        if (flowFields != null)
+            flowFields.beginTick();
+        if (ghostPhase != null)
+            ghostPhase.run();
+
+        // Movement: only entities with per-tick logic are visited; walls and pellets are skipped
+        for (int i = 0; i < s.getActiveCount(); i++) {
+            int id = s.getActiveId(i);
+            if (s.isActive(id)) {
+                Entity e = s.get(id);
+                if (e instanceof Ghost)
+                    ((Ghost) e).move();
+                else
+                    e.update();
+            }
         }
+
+        resolveCollisions();
     }
 
-    /** Passes keyboard input to PacMan */
-    public void input(KeyHandler k) {
+    /**
+     * Collision phase, run once per tick after movement.
+     * Finds every PacMan contact in one pass, then applies them in batch order
+     * (pellets, power pellets, ghosts). Once a ghost costs a life, positions
+     * are reset and the remaining ghost contacts of the batch are stale.
+     * Listeners hear about the contacts when the tick ends.
+     */
+    private void resolveCollisions() {
+        if (pacman == null || collisionDetector == null)
+            return;
+        collisionDetector.collect(pacman, !isInGracePeriod(), collisions);
+        positionsReset = false;
+        for (int i = 0; i < collisions.size() && !positionsReset; i++) {
+            Entity e = collisions.getEntity(i);
+            switch (collisions.getKind(i)) {
+                case CollisionBatch.PAC_GUM:
+                    eatPellet((PacGum) e);
+                    break;
+                case CollisionBatch.SUPER_PAC_GUM:
+                    eatPowerPellet((SuperPacGum) e);
+                    break;
+                case CollisionBatch.GHOST:
+                    touchGhost((Ghost) e);
+                    break;
+            }
+        }
+        collisions.clear();
+    }
+
+    /** Passes keyboard or agent input to PacMan */
+    public void input(PacManInput k) {
+        inputMask = MaskInput.maskOf(k);
         if (pacman != null)
             pacman.input(k);
     }
 
-    /** Renders all non-destroyed entities */
+    /** Returns this game's events, to subscribe listeners to */
+    public EventBus getEvents() {
+        return events;
+    }
+
+    /**
+     * Sends this game's events (ghost eaten, life lost, level changes, game
+     * over) to a telemetry ring, or stops with null. Recording an event
+     * neither blocks nor allocates. Leave it off for games that re-simulate
+     * ticks (rollback, lookahead): they would report events twice.
+     */
+    public void setTelemetry(TelemetryRing ring) {
+        if (telemetry != null && telemetry.getRing() == ring)
+            return;
+        if (telemetry != null)
+            events.unsubscribe(telemetry);
+        telemetry = ring != null ? new TelemetryListener(this, ring) : null;
+        if (telemetry != null)
+            events.subscribe(telemetry, TelemetryListener.EVENTS);
+    }
+
+    /**
+     * Starts or stops recording this game's input.
+     * @param recorder recorder to feed every tick, or null to stop
+     */
+    public void setRecorder(ReplayRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /** Returns the input mask the last tick was played with (see {@link MaskInput}) */
+    public int getLastInputMask() {
+        return lastInputMask;
+    }
+
+    /** Renders all non-destroyed entities (walls are part of the background) */
     public void render(Graphics2D g) {
-        for (Entity o : objects) {
-            if (!o.isDestroyed())
-                o.render(g);
+        render(g, 0, 0, getWorldWidth(), getWorldHeight());
+    }
+
+    /**
+     * Renders the entities inside a view rectangle (world pixels).
+     * Pellets are found by walking the level cells under the view, so the cost
+     * follows the visible area rather than the maze size; moving entities are
+     * culled against the view.
+     */
+    public void render(Graphics2D g, int viewX, int viewY, int viewW, int viewH) {
+        EntityStore s = store;
+        if (tileEntities != null) {
+            // Pellets are drawn up to 16px right/below of their cell
+            int tx0 = Math.max(0, Math.floorDiv(viewX, CELL_SIZE) - 2);
+            int ty0 = Math.max(0, Math.floorDiv(viewY, CELL_SIZE) - 2);
+            int tx1 = Math.min(tileMap.getColumns() - 1, Math.floorDiv(viewX + viewW, CELL_SIZE));
+            int ty1 = Math.min(tileMap.getRows() - 1, Math.floorDiv(viewY + viewH, CELL_SIZE));
+            for (int yy = ty0; yy <= ty1; yy++) {
+                for (int xx = tx0; xx <= tx1; xx++) {
+                    StaticEntity e = tileEntities[yy][xx];
+                    if (e != null && s.isVisible(e.getId()))
+                        e.render(g);
+                }
+            }
+        }
+        for (int i = 0; i < s.getActiveCount(); i++) {
+            int id = s.getActiveId(i);
+            byte type = s.getType(id);
+            if ((type != EntityStore.PACMAN && type != EntityStore.GHOST) || !s.isVisible(id))
+                continue;
+            int x = s.getX(id);
+            int y = s.getY(id);
+            int size = s.getSize(id);
+            if (x + size > viewX && y + size > viewY && x < viewX + viewW && y < viewY + viewH)
+                s.get(id).render(g);
+        }
+    }
+
+    // ==================== Snapshots ====================
+
+    /**
+     * Saves the mutable game state into a snapshot, reusing its arrays.
+     * Pellets are shared with the game until the next one is eaten.
+     */
+    public void saveSnapshot(GameSnapshot snap) {
+        snap.ensureCapacity(ghosts.size());
+        snap.tick = tick;
+        snap.graceFrames = graceFrames;
+        snap.levelCardTicks = levelCardTicks;
+        snap.ghostReleaseTimer = ghostReleaseTimer;
+        snap.ghostReleaseIndex = ghostReleaseIndex;
+        snap.blinkClock = blinkClock;
+        snap.firstInput = firstInput;
+        snap.gameOver = gameOver;
+        snap.gameWon = gameWon;
+        snap.levelStarting = levelStarting;
+        snap.ghostsReleasedAtStart = ghostsReleasedAtStart;
+
+        snap.score = scoreboard.getScore();
+        snap.lives = scoreboard.getLives();
+        snap.level = levelConfig.getCurrentLevel();
+        snap.levelStartScore = levelStartScore;
+        snap.ghostsEatenThisPower = ghostsEatenThisPower;
+
+        snap.randomState = random.getState();
+        snap.pellets = pellets.shareLive();
+        snap.pelletsRemaining = pellets.getRemaining();
+
+        saveMoving(snap, 0, pacman);
+        for (int i = 0; i < ghosts.size(); i++) {
+            Ghost ghost = ghosts.get(i);
+            saveMoving(snap, i + 1, ghost);
+            snap.ghostState[i] = ghost.getStateId();
+            snap.modeTimer[i] = ghost.getModeTimer();
+            snap.frightenedTimer[i] = ghost.getFrightenedTimer();
+            snap.chasing[i] = ghost.isChasing();
+            snap.ghostRandom[i] = ghost.getRandom().getState();
+        }
+    }
+
+    /**
+     * Restores a snapshot taken from this game (or one built from the same
+     * level). Only pellets that differ from the current state are touched.
+     */
+    public void restoreSnapshot(GameSnapshot snap) {
+        if (snap.movingCount != ghosts.size() + 1 || snap.pellets == null
+                || snap.pellets.length != pellets.getWordCount())
+            throw new IllegalArgumentException("Snapshot does not match this game: " + snap);
+
+        tick = snap.tick;
+        graceFrames = snap.graceFrames;
+        levelCardTicks = snap.levelCardTicks;
+        ghostReleaseTimer = snap.ghostReleaseTimer;
+        ghostReleaseIndex = snap.ghostReleaseIndex;
+        blinkClock = snap.blinkClock;
+        firstInput = snap.firstInput;
+        gameOver = snap.gameOver;
+        gameWon = snap.gameWon;
+        levelStarting = snap.levelStarting;
+        ghostsReleasedAtStart = snap.ghostsReleasedAtStart;
+
+        scoreboard.restore(snap.score, snap.lives);
+        if (levelConfig.getCurrentLevel() != snap.level)
+            levelConfig.setCurrentLevel(snap.level);
+        levelStartScore = snap.levelStartScore;
+        ghostsEatenThisPower = snap.ghostsEatenThisPower;
+        random.setState(snap.randomState);
+
+        // Pellet entities: only the tiles whose bit differs
+        int columns = pellets.getColumns();
+        for (int w = 0; w < snap.pellets.length; w++) {
+            long diff = pellets.getWord(w) ^ snap.pellets[w];
+            while (diff != 0) {
+                int t = (w << 6) + Long.numberOfTrailingZeros(diff);
+                diff &= diff - 1;
+                StaticEntity e = tileEntities[t / columns][t % columns];
+                if (e == null)
+                    continue;
+                if ((snap.pellets[w] & (1L << t)) != 0) {
+                    e.setDestroyed(false);
+                    e.setxPos(e.getSpawnX());
+                    e.setyPos(e.getSpawnY());
+                } else {
+                    e.destroy();
+                }
+            }
+        }
+        pellets.restoreLive(snap.pellets, snap.pelletsRemaining);
+
+        restoreMoving(snap, 0, pacman);
+        for (int i = 0; i < ghosts.size(); i++) {
+            Ghost ghost = ghosts.get(i);
+            restoreMoving(snap, i + 1, ghost);
+            ghost.restoreState(snap.ghostState[i], snap.modeTimer[i], snap.frightenedTimer[i], snap.chasing[i]);
+            ghost.getRandom().setState(snap.ghostRandom[i]);
         }
     }
 
-    // ==================== Static Getters ====================
+    private static void saveMoving(GameSnapshot snap, int i, MovingEntity m) {
+        snap.x[i] = m.getxPos();
+        snap.y[i] = m.getyPos();
+        snap.xSpd[i] = m.getxSpd();
+        snap.ySpd[i] = m.getySpd();
+        snap.spd[i] = m.getSpd();
+        snap.direction[i] = m.getDirection();
+        snap.subimage[i] = m.getSubimage();
+    }
+
+    private static void restoreMoving(GameSnapshot snap, int i, MovingEntity m) {
+        m.setxPos(snap.x[i]);
+        m.setyPos(snap.y[i]);
+        m.setxSpd(snap.xSpd[i]);
+        m.setySpd(snap.ySpd[i]);
+        m.setSpd(snap.spd[i]);
+        m.setDirection(snap.direction[i]);
+        m.setSubimage(snap.subimage[i]);
+    }
+
+    /** Returns the seed of this game's random streams */
+    public long getSeed() {
+        return seed;
+    }
+
+    /** Returns the game clock: ticks since the game was created */
+    public long getTick() {
+        return tick;
+    }
+
+    /** Returns the level number, speeds and point values of this game */
+    public LevelConfig getLevelConfig() {
+        return levelConfig;
+    }
+
+    /** Returns the power pellet blink clock, in ticks */
+    public int getBlinkClock() {
+        return blinkClock;
+    }
+
+    // ==================== Getters ====================
 
     /** Returns PacMan instance (used by ghost strategies) */
-    public static PacMan getPacman() {
+    public PacMan getPacman() {
         return pacman;
     }
 
     /** Returns Blinky instance (used by Inky's strategy) */
-    public static Blinky getBlinky() {
+    public Blinky getBlinky() {
         return blinky;
     }
 
     /** Returns true if game is in grace period (no ghost collisions allowed) */
-    public static boolean isInGracePeriod() {
+    public boolean isInGracePeriod() {
         return graceFrames > 0;
     }
 
-    // ==================== Observer Callbacks ====================
+    // ==================== Collisions ====================
 
-    /**
-     * Called when PacMan eats a regular pellet.
-     * Destroys the pellet (score update handled by UIPanel).
-     */
-    @Override
-    public void updatePacGumEaten(PacGum pg) {
+    /** PacMan ate a regular pellet: scores it and destroys it */
+    private void eatPellet(PacGum pg) {
+        int points = levelConfig.getPacGumPoints();
+        scoreboard.addScore(points);
         pg.destroy();
+        pellets.eat(pg.getTile());
+        events.publish(EventBus.PELLET_EATEN, pg, points, 0);
         checkWinCondition();
     }
 
     /**
-     * Called when PacMan eats a power pellet.
-     * Destroys the pellet and triggers Frightened mode for all ghosts.
-     * Resets the escalating ghost bonus counter.
+     * PacMan ate a power pellet: scores and destroys it, and triggers
+     * Frightened mode for all ghosts. Resets the escalating ghost bonus counter.
      */
-    @Override
-    public void updateSuperPacGumEaten(SuperPacGum spg) {
+    private void eatPowerPellet(SuperPacGum spg) {
+        int points = levelConfig.getSuperPacGumPoints();
+        scoreboard.addScore(points);
         spg.destroy();
+        pellets.eat(spg.getTile());
+        events.publish(EventBus.POWER_PELLET_EATEN, spg, points, 0);
         checkWinCondition();
         // Reset escalating bonus counter
         ghostsEatenThisPower = 0;
         // Trigger frightened mode for all ghosts
-        for (Ghost gh : ghosts) {
-            gh.getState().superPacGumEaten();
+        for (int i = 0; i < ghosts.size(); i++) {
+            ghosts.get(i).getState().superPacGumEaten();
         }
     }
 
-    /** Checks if player has won: all pellets eaten */
+    /** Checks if player has won: all pellets eaten (O(1) via the pellet counter) */
     private void checkWinCondition() {
-        boolean allPelletsEaten = true;
-        // Check for remaining PacGum or SuperPacGum
-        for (Entity e : objects) {
-            if (!e.isDestroyed() && (e instanceof PacGum || e instanceof SuperPacGum)) {
-                allPelletsEaten = false;
-                break;
-            }
-        }
-        if (allPelletsEaten) {
+        if (pellets.isCleared()) {
             gameWon = true;
-            if (uiPanel != null)
-                uiPanel.repaint();
-            System.out.println("You win! All pellets cleared.");
+            events.publish(EventBus.LEVEL_CLEARED, null, scoreboard.getScore(),
+                    levelConfig.getCurrentLevel());
             advanceToNextLevel();
         }
     }
 
     /**
-     * Called when PacMan collides with a ghost.
+     * PacMan collided with a ghost.
      * If ghost is frightened, ghost gets eaten with escalating bonus
      * (200→400→800→1600).
      * If ghost is normal/chasing, lose a life or game over.
      */
-    @Override
-    public void updateGhostCollision(Ghost gh) {
+    private void touchGhost(Ghost gh) {
         if (gh.getState() instanceof FrightenedMode) {
             // Ghost is vulnerable - eat it with escalating bonus
             ghostsEatenThisPower++;
             int bonus = 200 * (int) Math.pow(2, ghostsEatenThisPower - 1);
             gh.getState().eaten();
-            if (uiPanel != null) {
-                uiPanel.updateScore(bonus);
-            }
-            System.out.println("Ghost eaten! Bonus: " + bonus + " (" + ghostsEatenThisPower + " ghosts this power)");
+            scoreboard.addScore(bonus);
+            events.publish(EventBus.GHOST_EATEN, gh, bonus, ghostsEatenThisPower);
             checkWinCondition();
         } else if (!(gh.getState() instanceof EatenMode)) {
             // Ghost is not eaten (eyes) - lose a life
-            if (uiPanel != null) {
-                uiPanel.loseLife();
-                if (uiPanel.isGameOver()) {
+            if (!invincible) {
+                scoreboard.loseLife();
+                if (scoreboard.isGameOver()) {
                     gameOver = true;
-                    System.out.println("Game over!\nScore: " + uiPanel.getScore());
+                    events.publish(EventBus.GAME_OVER, null, scoreboard.getScore(), levelConfig.getCurrentLevel());
                 } else {
+                    events.publish(EventBus.LIFE_LOST, null, scoreboard.getLives(), 0);
                     // Reset positions
                     resetPositions();
+                    positionsReset = true;
                 }
             }
         }
@@ -382,17 +958,17 @@ public class Game implements Observer {
         }
 
         // Reset ghosts
-        for (int i = 0; i < ghosts.size() && i < 4; i++) {
+        for (int i = 0; i < ghosts.size(); i++) {
             Ghost ghost = ghosts.get(i);
-            ghost.setxPos(ghostSpawnX[i]);
-            ghost.setyPos(ghostSpawnY[i]);
+            ghost.setxPos(ghostSpawns.get(i).x);
+            ghost.setyPos(ghostSpawns.get(i).y);
             ghost.setxSpd(0);
             ghost.setySpd(0);
             ghost.switchHouseMode();
         }
 
         // Reset ghost release timing
-        lastGhostReleaseTime = 0;
+        ghostReleaseTimer = -1;
         ghostReleaseIndex = 0;
         ghostsReleasedAtStart = false;
         // Reset first input flag so ghosts wait again
@@ -402,50 +978,48 @@ public class Game implements Observer {
     // ==================== First Input Flag ====================
 
     /** Sets the first input flag (ghosts start moving after first input) */
-    public static void setFirstInput(boolean b) {
+    public void setFirstInput(boolean b) {
         firstInput = b;
     }
 
     /** Returns true if player has made first input */
-    public static boolean getFirstInput() {
+    public boolean getFirstInput() {
         return firstInput;
     }
 
     /** Returns true if game is over */
-    public static boolean isGameOver() {
+    public boolean isGameOver() {
         return gameOver;
     }
 
     /** Returns true if player won */
-    public static boolean isGameWon() {
+    public boolean isGameWon() {
         return gameWon;
     }
 
     /** Returns true if level transition card is showing */
-    public static boolean isLevelStarting() {
+    public boolean isLevelStarting() {
         return levelStarting;
     }
 
-    /** Returns the score when level transition started */
-    public static int getLevelStartScore() {
-        return levelStartScore;
+    /** Returns the score and lives of this game */
+    public Scoreboard getScoreboard() {
+        return scoreboard;
     }
 
-    /** Resets the game over flag for restarting */
-    public static void resetGameOver() {
-        gameOver = false;
-        gameWon = false;
-        firstInput = false;
-        walls.clear();
+    /** Returns the score when level transition started */
+    public int getLevelStartScore() {
+        return levelStartScore;
     }
 
     /** Advances to next level: increases speeds and resets game state */
     private void advanceToNextLevel() {
         // Store score for level card display
-        levelStartScore = (uiPanel != null) ? uiPanel.getScore() : 0;
+        levelStartScore = scoreboard.getScore();
 
         // Advance level in configuration (increases multipliers and point values)
-        LevelConfig.nextLevel();
+        levelConfig.nextLevel();
+        events.publish(EventBus.LEVEL_ADVANCED, null, levelConfig.getCurrentLevel(), 0);
 
         // Update PacMan speed for new level
         if (pacman != null) {
@@ -453,25 +1027,26 @@ public class Game implements Observer {
         }
 
         // Update speed for all ghosts
-        for (Ghost gh : ghosts) {
-            gh.updateSpeedForLevel();
+        for (int i = 0; i < ghosts.size(); i++) {
+            ghosts.get(i).updateSpeedForLevel();
         }
 
         // Reset pellets, ghosts, and PacMan
         resetLevelEntities();
+        positionsReset = true;
         gameWon = false;
-        if (uiPanel != null)
-            uiPanel.resetForNextLevel();
 
         // Start level transition card
         levelStarting = true;
-        levelStartTime = System.currentTimeMillis();
+        levelCardTicks = LEVEL_CARD_TICKS;
     }
 
     /** Resets pellets, ghosts, and PacMan for new level */
     private void resetLevelEntities() {
         // Restore all pellets
-        for (Entity e : objects) {
+        pellets.reset();
+        for (int i = 0; i < objects.size(); i++) {
+            Entity e = objects.get(i);
             if (e instanceof PacGum || e instanceof SuperPacGum) {
                 e.setDestroyed(false);
                 e.setxPos(e.getSpawnX());
@@ -487,17 +1062,17 @@ public class Game implements Observer {
             pacman.setySpd(0);
         }
         // Restore all ghosts
-        for (int i = 0; i < ghosts.size() && i < 4; i++) {
+        for (int i = 0; i < ghosts.size(); i++) {
             Ghost ghost = ghosts.get(i);
-            ghost.setxPos(ghostSpawnX[i]);
-            ghost.setyPos(ghostSpawnY[i]);
+            ghost.setxPos(ghostSpawns.get(i).x);
+            ghost.setyPos(ghostSpawns.get(i).y);
             ghost.setxSpd(0);
             ghost.setySpd(0);
             ghost.switchHouseMode();
             ghost.setDestroyed(false);
         }
         // Reset ghost release timing
-        lastGhostReleaseTime = 0;
+        ghostReleaseTimer = -1;
         ghostReleaseIndex = 0;
         ghostsReleasedAtStart = false;
         // Reset first input flag so ghosts wait again
@@ -0,0 +1,68 @@
+package com.pacman.core;
+
+import com.pacman.entity.PacGum;
+import com.pacman.entity.SuperPacGum;
+import com.pacman.ghost.Ghost;
+
+/**
+ * Receives the gameplay events of a game through its {@link EventBus}.
+ *
+ * <p>
+ * Every method does nothing by default; a listener overrides the events it
+ * subscribed to. Events are delivered on the game thread at the end of the
+ * tick they happened in, after the game has applied them: the pellet is
+ * already gone and the score already counted. Listeners observe the game and
+ * must not change it.
+ * </p>
+ *
+ * <p><b>Implementations:</b> {@link com.pacman.telemetry.TelemetryListener}</p>
+ *
+ * @see EventBus
+ */
+public interface GameListener {
+
+    /**
+     * PacMan ate a regular pellet.
+     * @param points points scored
+     */
+    default void pelletEaten(PacGum pellet, int points) {
+    }
+
+    /**
+     * PacMan ate a power pellet; the ghosts are frightened.
+     * @param points points scored
+     */
+    default void powerPelletEaten(SuperPacGum pellet, int points) {
+    }
+
+    /**
+     * PacMan ate a frightened ghost.
+     * @param bonus  points scored (200, 400, 800, 1600...)
+     * @param streak ghosts eaten during this power pellet, this one included
+     */
+    default void ghostEaten(Ghost ghost, int bonus, int streak) {
+    }
+
+    /**
+     * A ghost caught PacMan, who has lives left; positions were reset.
+     * @param livesLeft lives remaining
+     */
+    default void lifeLost(int livesLeft) {
+    }
+
+    /** A ghost caught PacMan on the last life */
+    default void gameOver(int score, int level) {
+    }
+
+    /** The last pellet of a level was eaten */
+    default void levelCleared(int score, int level) {
+    }
+
+    /** The next level started; speeds are in {@link Game#getLevelConfig()} */
+    default void levelAdvanced(int level) {
+    }
+
+    /** The level file was hot-reloaded (development mode) */
+    default void levelReloaded(int cellsChanged) {
+    }
+}
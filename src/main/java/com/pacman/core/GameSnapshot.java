@@ -0,0 +1,324 @@
+package com.pacman.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Compact copy of the mutable state of a {@link Game}, for lookahead and
+ * rollback.
+ *
+ * <p>
+ * Filled by {@link Game#saveSnapshot} and applied by
+ * {@link Game#restoreSnapshot}. Everything lives in primitive arrays that are
+ * allocated once and reused, so saving and restoring are a handful of array
+ * copies. The pellet bitset is shared copy-on-write with the game's
+ * {@link PelletTracker}: snapshots taken between two pellets being eaten
+ * point to the same words.
+ * </p>
+ *
+ * <p>
+ * {@link #write} serializes a snapshot in full (replay keyframes);
+ * {@link StateCodec} bit-packs it, in full or as a delta against a
+ * baseline, for the network streams.
+ * </p>
+ *
+ * <pre>
+ * Part          | Contents
+ * --------------|-------------------------------------------------------
+ * Clock         | tick, grace frames, level card and ghost release timers
+ * Flags         | first input, game over, game won, level starting
+ * Score         | score, lives, level, level start score, ghost bonus
+ * Pellets       | live bitset (shared) and remaining count
+ * Moving [i]    | x, y, xSpd, ySpd, spd, direction, animation frame
+ *               | (index 0 is PacMan, then ghosts in spawn order)
+ * Ghosts [i]    | state id, mode timer, frightened timer, chasing flag,
+ *               | random stream position
+ * Random        | position of the game's root stream
+ * </pre>
+ *
+ * <p>
+ * Static data is not copied: the maze, the entity objects and the level
+ * file stay with the game. A snapshot can only be restored into the game it
+ * was taken from, or one built from the same level.
+ * </p>
+ */
+public class GameSnapshot {
+
+    // ==================== Clock and Flags ====================
+    long tick;
+    int graceFrames;
+    int levelCardTicks;
+    int ghostReleaseTimer;
+    int ghostReleaseIndex;
+    int blinkClock;
+    boolean firstInput;
+    boolean gameOver;
+    boolean gameWon;
+    boolean levelStarting;
+    boolean ghostsReleasedAtStart;
+
+    // ==================== Score ====================
+    int score;
+    int lives;
+    int level;
+    int levelStartScore;
+    int ghostsEatenThisPower;
+
+    // ==================== Random Streams ====================
+    long randomState;
+
+    // ==================== Pellets (shared, never modified) ====================
+    long[] pellets;
+    int pelletsRemaining;
+
+    // ==================== Moving Entities ====================
+    int movingCount;
+    int[] x = new int[0];
+    int[] y = new int[0];
+    int[] xSpd = new int[0];
+    int[] ySpd = new int[0];
+    int[] spd = new int[0];
+    int[] direction = new int[0];
+    float[] subimage = new float[0];
+
+    // ==================== Ghosts ====================
+    byte[] ghostState = new byte[0];
+    int[] modeTimer = new int[0];
+    int[] frightenedTimer = new int[0];
+    boolean[] chasing = new boolean[0];
+    long[] ghostRandom = new long[0];
+
+    /** Grows the arrays for a game with PacMan and {@code ghostCount} ghosts */
+    void ensureCapacity(int ghostCount) {
+        int moving = ghostCount + 1;
+        movingCount = moving;
+        if (x.length < moving) {
+            x = new int[moving];
+            y = new int[moving];
+            xSpd = new int[moving];
+            ySpd = new int[moving];
+            spd = new int[moving];
+            direction = new int[moving];
+            subimage = new float[moving];
+        }
+        if (ghostState.length < ghostCount) {
+            ghostState = new byte[ghostCount];
+            modeTimer = new int[ghostCount];
+            frightenedTimer = new int[ghostCount];
+            chasing = new boolean[ghostCount];
+            ghostRandom = new long[ghostCount];
+        }
+    }
+
+    /** Copies another snapshot into this one (pellets stay shared) */
+    public void copyFrom(GameSnapshot o) {
+        tick = o.tick;
+        graceFrames = o.graceFrames;
+        levelCardTicks = o.levelCardTicks;
+        ghostReleaseTimer = o.ghostReleaseTimer;
+        ghostReleaseIndex = o.ghostReleaseIndex;
+        blinkClock = o.blinkClock;
+        firstInput = o.firstInput;
+        gameOver = o.gameOver;
+        gameWon = o.gameWon;
+        levelStarting = o.levelStarting;
+        ghostsReleasedAtStart = o.ghostsReleasedAtStart;
+        score = o.score;
+        lives = o.lives;
+        level = o.level;
+        levelStartScore = o.levelStartScore;
+        ghostsEatenThisPower = o.ghostsEatenThisPower;
+        randomState = o.randomState;
+        pellets = o.pellets;
+        pelletsRemaining = o.pelletsRemaining;
+
+        int ghostCount = o.movingCount - 1;
+        ensureCapacity(ghostCount);
+        int n = o.movingCount;
+        System.arraycopy(o.x, 0, x, 0, n);
+        System.arraycopy(o.y, 0, y, 0, n);
+        System.arraycopy(o.xSpd, 0, xSpd, 0, n);
+        System.arraycopy(o.ySpd, 0, ySpd, 0, n);
+        System.arraycopy(o.spd, 0, spd, 0, n);
+        System.arraycopy(o.direction, 0, direction, 0, n);
+        System.arraycopy(o.subimage, 0, subimage, 0, n);
+        System.arraycopy(o.ghostState, 0, ghostState, 0, ghostCount);
+        System.arraycopy(o.modeTimer, 0, modeTimer, 0, ghostCount);
+        System.arraycopy(o.frightenedTimer, 0, frightenedTimer, 0, ghostCount);
+        System.arraycopy(o.chasing, 0, chasing, 0, ghostCount);
+        System.arraycopy(o.ghostRandom, 0, ghostRandom, 0, ghostCount);
+    }
+
+    // ==================== Serialization ====================
+
+    /** Writes the snapshot (e.g. as a replay keyframe); pellets are copied out */
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(tick);
+        out.writeInt(graceFrames);
+        out.writeInt(levelCardTicks);
+        out.writeInt(ghostReleaseTimer);
+        out.writeInt(ghostReleaseIndex);
+        out.writeInt(blinkClock);
+        out.writeByte(flags());
+        out.writeInt(score);
+        out.writeInt(lives);
+        out.writeInt(level);
+        out.writeInt(levelStartScore);
+        out.writeInt(ghostsEatenThisPower);
+        out.writeLong(randomState);
+
+        out.writeInt(pelletsRemaining);
+        out.writeInt(pellets.length);
+        for (long w : pellets) {
+            out.writeLong(w);
+        }
+
+        out.writeInt(movingCount - 1);
+        for (int i = 0; i < movingCount; i++) {
+            out.writeInt(x[i]);
+            out.writeInt(y[i]);
+            out.writeInt(xSpd[i]);
+            out.writeInt(ySpd[i]);
+            out.writeInt(spd[i]);
+            out.writeInt(direction[i]);
+            out.writeFloat(subimage[i]);
+        }
+        for (int i = 0; i < movingCount - 1; i++) {
+            out.writeByte(ghostState[i]);
+            out.writeInt(modeTimer[i]);
+            out.writeInt(frightenedTimer[i]);
+            out.writeBoolean(chasing[i]);
+            out.writeLong(ghostRandom[i]);
+        }
+    }
+
+    /** Reads a snapshot written by {@link #write} into this one */
+    public void read(DataInput in) throws IOException {
+        tick = in.readLong();
+        graceFrames = in.readInt();
+        levelCardTicks = in.readInt();
+        ghostReleaseTimer = in.readInt();
+        ghostReleaseIndex = in.readInt();
+        blinkClock = in.readInt();
+        setFlags(in.readByte());
+        score = in.readInt();
+        lives = in.readInt();
+        level = in.readInt();
+        levelStartScore = in.readInt();
+        ghostsEatenThisPower = in.readInt();
+        randomState = in.readLong();
+
+        pelletsRemaining = in.readInt();
+        pellets = new long[in.readInt()];
+        for (int w = 0; w < pellets.length; w++) {
+            pellets[w] = in.readLong();
+        }
+
+        int ghostCount = in.readInt();
+        ensureCapacity(ghostCount);
+        for (int i = 0; i < movingCount; i++) {
+            x[i] = in.readInt();
+            y[i] = in.readInt();
+            xSpd[i] = in.readInt();
+            ySpd[i] = in.readInt();
+            spd[i] = in.readInt();
+            direction[i] = in.readInt();
+            subimage[i] = in.readFloat();
+        }
+        for (int i = 0; i < ghostCount; i++) {
+            ghostState[i] = in.readByte();
+            modeTimer[i] = in.readInt();
+            frightenedTimer[i] = in.readInt();
+            chasing[i] = in.readBoolean();
+            ghostRandom[i] = in.readLong();
+        }
+    }
+
+    /** Packs the flags into 5 bits (serialization and hashing) */
+    int flags() {
+        return (firstInput ? 1 : 0) | (gameOver ? 2 : 0) | (gameWon ? 4 : 0)
+                | (levelStarting ? 8 : 0) | (ghostsReleasedAtStart ? 16 : 0);
+    }
+
+    void setFlags(int flags) {
+        firstInput = (flags & 1) != 0;
+        gameOver = (flags & 2) != 0;
+        gameWon = (flags & 4) != 0;
+        levelStarting = (flags & 8) != 0;
+        ghostsReleasedAtStart = (flags & 16) != 0;
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of the gameplay state (everything except
+     * the animation frames and the blink clock). Equal states hash equally
+     * across runs and machines.
+     */
+    public long stateHash() {
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, tick);
+        h = mix(h, graceFrames);
+        h = mix(h, levelCardTicks);
+        h = mix(h, ghostReleaseTimer);
+        h = mix(h, ghostReleaseIndex);
+        h = mix(h, flags());
+        h = mix(h, score);
+        h = mix(h, lives);
+        h = mix(h, level);
+        h = mix(h, levelStartScore);
+        h = mix(h, ghostsEatenThisPower);
+        h = mix(h, randomState);
+        h = mix(h, pelletsRemaining);
+        if (pellets != null) {
+            for (long w : pellets) {
+                h = mix(h, w);
+            }
+        }
+        for (int i = 0; i < movingCount; i++) {
+            h = mix(h, x[i]);
+            h = mix(h, y[i]);
+            h = mix(h, xSpd[i]);
+            h = mix(h, ySpd[i]);
+            h = mix(h, spd[i]);
+            h = mix(h, direction[i]);
+        }
+        for (int i = 0; i < movingCount - 1; i++) {
+            h = mix(h, ghostState[i]);
+            h = mix(h, modeTimer[i]);
+            h = mix(h, frightenedTimer[i]);
+            h = mix(h, chasing[i] ? 1 : 0);
+            h = mix(h, ghostRandom[i]);
+        }
+        return h;
+    }
+
+    private static long mix(long h, long v) {
+        for (int i = 0; i < 8; i++) {
+            h ^= (v >>> (i * 8)) & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // ==================== Accessors ====================
+
+    public long getTick() { return tick; }
+    public int getScore() { return score; }
+    public int getLives() { return lives; }
+    public int getLevel() { return level; }
+    public int getPelletsRemaining() { return pelletsRemaining; }
+    /** Number of 64-bit words in the pellet bitset */
+    public int getPelletWords() { return pellets == null ? 0 : pellets.length; }
+    public boolean isGameOver() { return gameOver; }
+    /** Number of ghosts in the snapshot */
+    public int getGhostCount() { return movingCount - 1; }
+    /** PacMan is index 0, ghost {@code i} is index {@code i + 1} */
+    public int getX(int i) { return x[i]; }
+    public int getY(int i) { return y[i]; }
+
+    @Override
+    public String toString() {
+        return "GameSnapshot[tick=" + tick + ", score=" + score + ", lives=" + lives + ", level=" + level
+                + ", pellets=" + pelletsRemaining + ", ghosts=" + getGhostCount() + "]";
+    }
+}
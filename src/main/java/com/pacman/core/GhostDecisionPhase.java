@@ -0,0 +1,99 @@
+package com.pacman.core;
+
+import com.pacman.ghost.Ghost;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Ghost half of the two-phase tick.
+ *
+ * <pre>
+ * 1. prepare (sequential) - timers, mode switches, targets, shared flow fields
+ * 2. decide  (parallel)   - next direction of every ghost, from the
+ *                           {@link WorldSnapshot} and the ghost's own state
+ * 3. move    (sequential) - done by {@link Game#update()} afterwards
+ * </pre>
+ *
+ * <p>
+ * Deciding only touches the deciding ghost (its speed, target buffers and
+ * decision cache) and read-only data (snapshot, tile map, prepared flow
+ * fields), so ghosts can decide on any thread in any order with the same
+ * result. Below {@link #PARALLEL_THRESHOLD} ghosts the phase runs on the
+ * calling thread, where the fork/join overhead would dominate.
+ * {@code -Dpacman.parallelGhosts=false} always runs it sequentially.
+ * </p>
+ */
+public class GhostDecisionPhase {
+
+    /** Minimum ghost count before decisions are spread over the common pool */
+    public static final int PARALLEL_THRESHOLD = 64;
+
+    private static final boolean PARALLEL = Boolean.parseBoolean(System.getProperty("pacman.parallelGhosts", "true"));
+
+    private final Ghost[] ghosts;
+    private final DecideTask[] tasks;
+
+    public GhostDecisionPhase(List<Ghost> ghosts) {
+        this.ghosts = ghosts.toArray(new Ghost[0]);
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (PARALLEL && parallelism > 1 && this.ghosts.length >= PARALLEL_THRESHOLD) {
+            // A few chunks per worker so uneven chunks still balance out
+            int chunks = Math.min(this.ghosts.length, parallelism * 4);
+            tasks = new DecideTask[chunks];
+            for (int i = 0; i < chunks; i++) {
+                tasks[i] = new DecideTask(this.ghosts.length * i / chunks, this.ghosts.length * (i + 1) / chunks);
+            }
+        } else {
+            tasks = null;
+        }
+    }
+
+    /** Runs the prepare and decide steps for every live ghost */
+    public void run() {
+        for (Ghost ghost : ghosts) {
+            if (!ghost.isDestroyed())
+                ghost.prepareTick();
+        }
+        if (tasks != null) {
+            for (DecideTask task : tasks) {
+                task.reinitialize();
+            }
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            decide(0, ghosts.length);
+        }
+    }
+
+    /** Returns true if decisions are spread over several threads */
+    public boolean isParallel() {
+        return tasks != null;
+    }
+
+    private void decide(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!ghosts[i].isDestroyed())
+                ghosts[i].decide();
+        }
+    }
+
+    /** Decides a fixed range of ghosts; reused every tick */
+    private class DecideTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        DecideTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            decide(from, to);
+        }
+    }
+}
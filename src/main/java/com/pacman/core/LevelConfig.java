@@ -19,17 +19,21 @@ package com.pacman.core;
  * <p>
  * Points scale using moderate formula: Base Points + (Level - 1) * Increment
  * </p>
+ * <p>
+ * Each {@link Game} owns one, starting at Level 1, so games running side by
+ * side (e.g. server rooms) progress independently.
+ * </p>
  */
 public class LevelConfig {
 
     /** Current game level */
-    private static int currentLevel = 1;
+    private int currentLevel = 1;
 
     /** Speed multiplier for ghosts (increases 10% per level) */
-    private static float ghostSpeedMultiplier = 1.0f;
+    private float ghostSpeedMultiplier = 1.0f;
 
     /** Speed multiplier for PacMan (increases 5% per level) */
-    private static float pacmanSpeedMultiplier = 1.0f;
+    private float pacmanSpeedMultiplier = 1.0f;
 
     /** Base points for regular pellet */
     private static final int BASE_PACGUM_POINTS = 10;
@@ -51,27 +55,38 @@ public class LevelConfig {
 
     /**
      * Advances to the next level.
-     * Updates speed multipliers and point values.
+     * Updates speed multipliers and point values. The game reports the new
+     * level through its telemetry.
      */
-    public static void nextLevel() {
+    public void nextLevel() {
         currentLevel++;
+        updateMultipliers();
+    }
+
+    /**
+     * Sets the current level directly (e.g. when a snapshot is restored).
+     * Updates speed multipliers like {@link #nextLevel()}.
+     *
+     * @param level level number (1-indexed)
+     */
+    public void setCurrentLevel(int level) {
+        currentLevel = level;
+        updateMultipliers();
+    }
 
+    private void updateMultipliers() {
         // Ghost speed increases by 10% per level
         ghostSpeedMultiplier = 1.0f + (currentLevel - 1) * 0.1f;
 
         // PacMan speed increases by 5% per level
         pacmanSpeedMultiplier = 1.0f + (currentLevel - 1) * 0.05f;
-
-        System.out.println("Advanced to Level " + currentLevel +
-                " - Ghost Speed: " + String.format("%.2f", ghostSpeedMultiplier) +
-                "x, PacMan Speed: " + String.format("%.2f", pacmanSpeedMultiplier) + "x");
     }
 
     /**
      * Resets configuration to Level 1.
      * Called when player restarts the game.
      */
-    public static void resetToLevel1() {
+    public void resetToLevel1() {
         currentLevel = 1;
         ghostSpeedMultiplier = 1.0f;
         pacmanSpeedMultiplier = 1.0f;
@@ -82,7 +97,7 @@ public class LevelConfig {
      * 
      * @return current level (1-indexed)
      */
-    public static int getCurrentLevel() {
+    public int getCurrentLevel() {
         return currentLevel;
     }
 
@@ -91,7 +106,7 @@ public class LevelConfig {
      * 
      * @return speed multiplier (e.g., 1.1 for 10% faster)
      */
-    public static float getGhostSpeedMultiplier() {
+    public float getGhostSpeedMultiplier() {
         return ghostSpeedMultiplier;
     }
 
@@ -100,7 +115,7 @@ public class LevelConfig {
      * 
      * @return speed multiplier (e.g., 1.05 for 5% faster)
      */
-    public static float getPacmanSpeedMultiplier() {
+    public float getPacmanSpeedMultiplier() {
         return pacmanSpeedMultiplier;
     }
 
@@ -110,7 +125,7 @@ public class LevelConfig {
      * 
      * @return points for eating a regular pellet
      */
-    public static int getPacGumPoints() {
+    public int getPacGumPoints() {
         return BASE_PACGUM_POINTS + (currentLevel - 1) * PACGUM_INCREMENT;
     }
 
@@ -120,7 +135,7 @@ public class LevelConfig {
      * 
      * @return points for eating a power pellet
      */
-    public static int getSuperPacGumPoints() {
+    public int getSuperPacGumPoints() {
         return BASE_SUPER_PACGUM_POINTS + (currentLevel - 1) * SUPER_PACGUM_INCREMENT;
     }
 
@@ -130,7 +145,7 @@ public class LevelConfig {
      * 
      * @return points for eating a frightened ghost
      */
-    public static int getGhostPoints() {
+    public int getGhostPoints() {
         return BASE_GHOST_POINTS + (currentLevel - 1) * GHOST_INCREMENT;
     }
 
@@ -139,7 +154,7 @@ public class LevelConfig {
      * 
      * @return formatted string showing difficulty multiplier
      */
-    public static String getDifficultyDescription() {
+    public String getDifficultyDescription() {
         float avgMultiplier = (ghostSpeedMultiplier + pacmanSpeedMultiplier) / 2;
         return String.format("Level: %d (%.1fx)", currentLevel, avgMultiplier);
     }
@@ -0,0 +1,147 @@
+package com.pacman.core;
+
+import com.pacman.util.CsvReader;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Development-mode watcher that hot reloads the level file.
+ *
+ * <p>
+ * Enabled with {@code -Dpacman.dev=true}. A daemon thread watches the
+ * directory holding the level file with a {@link WatchService}. When the file
+ * changes, the new grid is parsed on the watcher thread and published here,
+ * together with its version, as one immutable {@link Grid}. The game thread
+ * picks it up between ticks through {@link #pollGrid(int)} and applies only
+ * the cells that differ (see {@code Game.applyLevelReload}).
+ * </p>
+ *
+ * <p>
+ * The watcher is process-wide: it survives game restarts, and each new
+ * {@link Game} parses the level file itself on construction.
+ * </p>
+ */
+public class LevelWatcher implements Runnable {
+
+    /** True when the game runs in development mode */
+    public static final boolean DEV_MODE = Boolean.getBoolean("pacman.dev");
+
+    /** Delay before re-reading, so editors can finish writing the file */
+    private static final long SETTLE_DELAY_MS = 50;
+
+    private static volatile LevelWatcher instance;
+
+    /** Latest parsed grid and its version, replaced as a whole on every reload */
+    private volatile Grid latest = new Grid(0, null);
+
+    /**
+     * A parsed level grid and its version (incremented on every reload).
+     * Immutable, so a reader that got it from {@link #pollGrid(int)} sees a
+     * version and the cells that go with it.
+     */
+    public static final class Grid {
+        private final int version;
+        private final List<List<String>> cells;
+
+        private Grid(int version, List<List<String>> cells) {
+            this.version = version;
+            this.cells = cells;
+        }
+
+        public int getVersion() { return version; }
+
+        /** Rows of cell symbols (unmodifiable) */
+        public List<List<String>> getCells() { return cells; }
+    }
+
+    private final Path levelFile;
+
+    private LevelWatcher(Path levelFile) {
+        this.levelFile = levelFile.toAbsolutePath();
+    }
+
+    /**
+     * Starts watching the given level file. Does nothing if already started.
+     *
+     * @param fileName level file, relative to the working directory
+     */
+    public static synchronized void start(String fileName) {
+        if (instance != null)
+            return;
+        instance = new LevelWatcher(Paths.get(fileName));
+        Thread t = new Thread(instance, "LevelWatcher");
+        t.setDaemon(true);
+        t.start();
+        System.out.println("Hot reload enabled for " + fileName);
+    }
+
+    /** Returns true if a watcher is running */
+    public static boolean isRunning() {
+        return instance != null;
+    }
+
+    /**
+     * Returns the latest grid if it is newer than the given version.
+     *
+     * @param knownVersion version already applied by the caller
+     * @return the new grid and its version, or null if nothing changed
+     */
+    public static Grid pollGrid(int knownVersion) {
+        LevelWatcher w = instance;
+        if (w == null)
+            return null;
+        Grid g = w.latest;
+        return g.version == knownVersion ? null : g;
+    }
+
+    /** Returns the version of the latest published grid */
+    public static int getVersion() {
+        LevelWatcher w = instance;
+        return w == null ? 0 : w.latest.version;
+    }
+
+    @Override
+    public void run() {
+        Path dir = levelFile.getParent();
+        try (WatchService ws = FileSystems.getDefault().newWatchService()) {
+            dir.register(ws, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+            while (true) {
+                WatchKey key = ws.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object ctx = event.context();
+                    if (ctx instanceof Path && levelFile.getFileName().equals(ctx)) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    Thread.sleep(SETTLE_DELAY_MS);
+                    reload();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Level watcher stopped: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Parses the level file and publishes it if it is usable */
+    private void reload() {
+        List<List<String>> data = new CsvReader().parseCsv(levelFile.toString());
+        if (data.isEmpty()) {
+            System.err.println("Ignoring empty level file " + levelFile);
+            return;
+        }
+        List<List<String>> rows = new ArrayList<>(data.size());
+        for (List<String> row : data) {
+            rows.add(List.copyOf(row));
+        }
+        // Single writer (this thread), so reading the old version here is safe
+        latest = new Grid(latest.version + 1, List.copyOf(rows));
+    }
+}
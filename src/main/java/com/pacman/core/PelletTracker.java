@@ -0,0 +1,157 @@
+package com.pacman.core;
+
+import java.util.Arrays;
+
+/**
+ * Tracks remaining pellets as a bitset indexed by level tile.
+ *
+ * <p>
+ * Bit {@code yy * columns + xx} is set while the pellet (regular or power) on
+ * that tile is still uneaten. A remaining-pellet counter makes the win check
+ * O(1), and a template bitset holding the level's initial pellets makes the
+ * level reset a single array copy. The live bitset is also a compact form of
+ * the pellet state for save files and network sync.
+ * </p>
+ *
+ * <p>
+ * <b>Copy-on-write:</b> {@link #shareLive()} hands out the live words without
+ * copying them; the tracker copies its words before the next change instead.
+ * Snapshots taken between two pellets being eaten therefore share one array.
+ * </p>
+ */
+public class PelletTracker {
+
+    private final int columns;
+
+    /** Pellets present at level start */
+    private final long[] template;
+    private int templateCount = 0;
+
+    /** Pellets not eaten yet */
+    private long[] live;
+    private int remaining = 0;
+
+    /** True while {@link #live} is also referenced by a snapshot */
+    private boolean liveShared = false;
+
+    /**
+     * @param columns level width in tiles
+     * @param rows level height in tiles
+     */
+    public PelletTracker(int columns, int rows) {
+        this.columns = columns;
+        this.template = new long[(columns * rows + 63) >> 6];
+        this.live = new long[template.length];
+    }
+
+    /** Returns the tile index for a cell */
+    public int tileIndex(int xx, int yy) {
+        return yy * columns + xx;
+    }
+
+    /** Adds a pellet to the level (both to the template and the live set) */
+    public void addPellet(int tile) {
+        if (!get(template, tile)) {
+            template[tile >> 6] |= 1L << tile;
+            templateCount++;
+        }
+        if (!get(live, tile)) {
+            writableLive()[tile >> 6] |= 1L << tile;
+            remaining++;
+        }
+    }
+
+    /** Removes a pellet from the level, e.g. when the level file is edited */
+    public void removePellet(int tile) {
+        if (get(template, tile)) {
+            template[tile >> 6] &= ~(1L << tile);
+            templateCount--;
+        }
+        if (get(live, tile)) {
+            writableLive()[tile >> 6] &= ~(1L << tile);
+            remaining--;
+        }
+    }
+
+    /**
+     * Marks the pellet on a tile as eaten.
+     * @return true if the pellet was still there
+     */
+    public boolean eat(int tile) {
+        if (!get(live, tile))
+            return false;
+        writableLive()[tile >> 6] &= ~(1L << tile);
+        remaining--;
+        return true;
+    }
+
+    /** Restores every pellet of the level */
+    public void reset() {
+        System.arraycopy(template, 0, writableLive(), 0, template.length);
+        remaining = templateCount;
+    }
+
+    /** Returns true if the pellet on a tile is still uneaten */
+    public boolean isPresent(int tile) {
+        return get(live, tile);
+    }
+
+    /** Returns the number of uneaten pellets */
+    public int getRemaining() {
+        return remaining;
+    }
+
+    /** Returns true if every pellet has been eaten */
+    public boolean isCleared() {
+        return remaining == 0;
+    }
+
+    /** Returns the number of 64-bit words of the bitset */
+    public int getWordCount() {
+        return live.length;
+    }
+
+    /** Returns one 64-bit word of the live bitset (tiles {@code 64 * i} to {@code 64 * i + 63}) */
+    public long getWord(int i) {
+        return live[i];
+    }
+
+    /**
+     * Returns the live words without copying them. The array must not be
+     * modified; the tracker copies its own words before its next change.
+     */
+    public long[] shareLive() {
+        liveShared = true;
+        return live;
+    }
+
+    /**
+     * Makes a shared array (from {@link #shareLive()}) the live set again,
+     * without copying it.
+     * @param words live words of the same level
+     * @param remainingCount number of bits set in {@code words}
+     */
+    public void restoreLive(long[] words, int remainingCount) {
+        if (words.length != live.length)
+            throw new IllegalArgumentException("Pellet words for another level: " + words.length + " != " + live.length);
+        live = words;
+        liveShared = true;
+        remaining = remainingCount;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    private long[] writableLive() {
+        if (liveShared) {
+            live = Arrays.copyOf(live, live.length);
+            liveShared = false;
+        }
+        return live;
+    }
+
+    private static boolean get(long[] words, int tile) {
+        return (words[tile >> 6] & (1L << tile)) != 0;
+    }
+}
@@ -0,0 +1,147 @@
+package com.pacman.core;
+
+import com.pacman.util.MaskInput;
+
+/**
+ * Ring of the last N ticks of a game, for pausing and scrubbing back and
+ * forth through recent play one tick at a time.
+ *
+ * <p>
+ * Saving a full {@link GameSnapshot} every tick would cost about a tenth of a
+ * tick, so the buffer keeps a snapshot every {@link #KEYFRAME_TICKS} ticks
+ * and the input mask of every tick in between, as a replay does. Showing a
+ * tick restores the keyframe before it and simulates at most
+ * {@code KEYFRAME_TICKS - 1} ticks. All slots are allocated up front and
+ * overwritten in turn, so recording never allocates (apart from the
+ * copy-on-write pellet words of keyframes taken after a pellet is eaten).
+ * </p>
+ *
+ * <pre>
+ *  ticks     ... | k | . | . | . | . | . | . | . | k | . | . | ...
+ *  masks     ... | m | m | m | m | m | m | m | m | m | m | m | ...   every tick
+ *  snapshots     | S |                           | S |               every KEYFRAME_TICKS
+ * </pre>
+ *
+ * <p>
+ * {@link #record} continues from the shown tick and drops the ticks after it,
+ * and drops all ticks after a level hot reload. While scrubbing, the game
+ * must not have a replay recorder attached: the simulated ticks would be
+ * recorded again.
+ * </p>
+ */
+public class RewindBuffer {
+
+    /** Ticks between two saved snapshots (a power of two) */
+    public static final int KEYFRAME_TICKS = 32;
+
+    private final GameSnapshot[] keyframes;
+    private final byte[] masks;
+    private final MaskInput input = new MaskInput();
+
+    /** Index of the newest recorded tick since {@link #clear()} (-1 if none) */
+    private long newest = -1;
+    /** Index of the shown tick; equals {@link #newest} unless scrubbing */
+    private long shown = -1;
+    /**
+     * Oldest tick whose slots have not been overwritten. It never goes back,
+     * even when dropping ticks: their slots were taken from older ticks.
+     */
+    private long first = 0;
+    /** Slot of {@link #shown} in {@link #masks}, kept to avoid a division per tick */
+    private int shownSlot = -1;
+    /** Maze version of the held ticks: a hot reload changes the entities, so older ticks are dropped */
+    private int mazeVersion = 0;
+
+    /**
+     * @param capacity ticks to keep (60 per second of play)
+     * @param ghostCount ghosts of the recorded game, to size the snapshots
+     */
+    public RewindBuffer(int capacity, int ghostCount) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        masks = new byte[capacity];
+        keyframes = new GameSnapshot[capacity / KEYFRAME_TICKS + 2];
+        for (int i = 0; i < keyframes.length; i++) {
+            keyframes[i] = new GameSnapshot();
+            keyframes[i].ensureCapacity(ghostCount);
+        }
+    }
+
+    /**
+     * Records the game after a tick (and once before the first, after
+     * {@link #clear()}). If scrubbing, the ticks after the shown one are
+     * dropped first: play has continued from there.
+     */
+    public void record(Game game) {
+        if (mazeVersion != game.getMazeVersion()) {
+            clear();
+            mazeVersion = game.getMazeVersion();
+        }
+        long index = shown + 1;
+        int slot = shownSlot + 1 == masks.length ? 0 : shownSlot + 1;
+        masks[slot] = (byte) game.getLastInputMask();
+        if ((index & (KEYFRAME_TICKS - 1)) == 0)
+            game.saveSnapshot(keyframes[(int) (index / KEYFRAME_TICKS % keyframes.length)]);
+        newest = index;
+        shown = index;
+        shownSlot = slot;
+        if (index - first >= masks.length)
+            first = index - masks.length + 1;
+    }
+
+    /**
+     * Shows the tick before the shown one.
+     * @return false if the oldest tick is already shown
+     */
+    public boolean stepBack(Game game) {
+        if (shown <= oldest())
+            return false;
+        show(game, shown - 1);
+        return true;
+    }
+
+    /**
+     * Shows the tick after the shown one.
+     * @return false if the newest tick is already shown
+     */
+    public boolean stepForward(Game game) {
+        if (shown >= newest)
+            return false;
+        show(game, shown + 1);
+        return true;
+    }
+
+    /** Forgets all ticks (e.g. when a new game starts) */
+    public void clear() {
+        newest = -1;
+        shown = -1;
+        first = 0;
+        shownSlot = -1;
+    }
+
+    /** Restores the keyframe at or before a tick, then plays the recorded input up to it */
+    private void show(Game game, long index) {
+        long keyframe = index - index % KEYFRAME_TICKS;
+        game.restoreSnapshot(keyframes[(int) (keyframe / KEYFRAME_TICKS % keyframes.length)]);
+        for (long i = keyframe + 1; i <= index; i++) {
+            input.setMask(masks[(int) (i % masks.length)]);
+            game.input(input);
+            game.update();
+        }
+        shown = index;
+        shownSlot = (int) (index % masks.length);
+    }
+
+    /** Returns the oldest tick that can be shown: its keyframe and inputs are still held */
+    private long oldest() {
+        return (first + KEYFRAME_TICKS - 1) / KEYFRAME_TICKS * KEYFRAME_TICKS;
+    }
+
+    // ==================== Accessors ====================
+
+    /** Returns the ticks between the shown state and the newest recorded one */
+    public int getOffset() { return (int) (newest - shown); }
+    /** Returns the number of ticks that can be shown */
+    public int size() { return newest < 0 ? 0 : (int) (newest - oldest() + 1); }
+    public int capacity() { return masks.length; }
+}
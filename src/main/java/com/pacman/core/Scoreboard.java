@@ -0,0 +1,45 @@
+package com.pacman.core;
+
+/**
+ * Score and lives of one game.
+ *
+ * <p>
+ * Each {@link Game} owns one and updates it from its collisions, so games
+ * without a window (server rooms, replays, agent lookahead) keep score the
+ * same way as the played game. {@link UIPanel} only displays it.
+ * </p>
+ */
+public class Scoreboard {
+
+    /** Lives at the start of a game */
+    public static final int START_LIVES = 3;
+
+    private int score = 0;
+    private int lives = START_LIVES;
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLives() {
+        return lives;
+    }
+
+    public void addScore(int points) {
+        score += points;
+    }
+
+    public void loseLife() {
+        lives--;
+    }
+
+    public boolean isGameOver() {
+        return lives <= 0;
+    }
+
+    /** Sets score and lives directly (e.g. when a snapshot is restored) */
+    public void restore(int score, int lives) {
+        this.score = score;
+        this.lives = lives;
+    }
+}
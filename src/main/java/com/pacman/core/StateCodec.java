@@ -0,0 +1,723 @@
+package com.pacman.core;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Bit-packed wire encoding of {@link GameSnapshot}s, in full or as a delta
+ * against a baseline snapshot.
+ *
+ * <p>
+ * Fields take only the bits they need: positions are a tile index plus a
+ * 3-bit offset within the tile, directions 2 bits, ghost states 3 bits,
+ * flags one bit each. Other numbers are variable-length (4 bits per group
+ * plus a continuation bit, signed values zigzag-encoded), so small values
+ * and small changes stay small. A delta only carries the groups, entities
+ * and fields that changed; counters are sent as differences, the game's
+ * random stream as the number of draws since the baseline, and pellets as
+ * the indices of the bits that flipped. On {@code level.csv} a delta
+ * averages about 20 bytes and a full message about 290.
+ * </p>
+ *
+ * <pre>
+ * Message (LSB-first bits, padded to a byte)
+ * -------------------------------------------------------------------------
+ * kind      | 1 bit  | 1 = full, 0 = delta
+ * Full      | column and row bits (5 + 5), then every field below
+ * Delta     | tick and blink clock differences, 5 group bits, then the
+ *           | changed groups, one changed bit per moving entity and ghost
+ *           | followed by a field mask and the changed fields
+ * Clock     | grace frames, level card and ghost release timers
+ * Flags     | first input, game over, game won, level starting, released
+ * Score     | score, lives, level, level start score, ghost bonus
+ * Random    | full: 64 bits; delta: draws since the baseline
+ * Pellets   | full: remaining, word count, pellet set; delta: remaining
+ *           | difference, then flipped bit indices or the pellet set
+ *           | (gaps between live pellets, or raw words if smaller)
+ * Moving[i] | x, y (tile + offset), speed, direction, animation frame
+ * Ghosts[i] | state id, mode and frightened timers, chasing, random stream
+ * </pre>
+ *
+ * <p>
+ * Everything the {@link GameSnapshot#stateHash() state hash} covers is
+ * encoded exactly, as is the blink clock. Animation frames are sent as the
+ * sprite frame shown ({@code (int) subimage}); the fraction towards the
+ * next frame is dropped.
+ * </p>
+ *
+ * <p>
+ * Messages are written into and read from caller-supplied buffers (direct
+ * ones for sockets) at their position, without allocating. The pellet
+ * words of a snapshot are shared and never modified in place, so a decoder
+ * writes changed pellets into the other of two word arrays it owns: the
+ * previous state's words stay intact for one more message, and decoding
+ * only allocates when the word count changes. Decoded words belong to the
+ * codec; copy them out (e.g. {@link GameSnapshot#write}) to keep a decoded
+ * state longer. An instance is not thread-safe, and decodes one stream: use
+ * one per encoding thread and one per decoded snapshot.
+ * </p>
+ */
+public final class StateCodec {
+
+    /** Positions are offset by the largest sprite size, since wrap-around moves sprites partly off the world */
+    private static final int MARGIN = 32;
+    private static final int OFFSET_BITS = 3;
+
+    /** Gamma of {@link com.pacman.util.RandomStream}s built from a seed, and its inverse mod 2^64 */
+    private static final long ROOT_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final long ROOT_GAMMA_INVERSE = inverse(ROOT_GAMMA);
+
+    // Delta groups
+    private static final int GROUP_CLOCK = 1;
+    private static final int GROUP_FLAGS = 2;
+    private static final int GROUP_SCORE = 4;
+    private static final int GROUP_RANDOM = 8;
+    private static final int GROUP_PELLETS = 16;
+
+    // Moving entity fields
+    private static final int MOVE_X = 1;
+    private static final int MOVE_Y = 2;
+    private static final int MOVE_SPEED = 4;
+    private static final int MOVE_DIRECTION = 8;
+    private static final int MOVE_FRAME = 16;
+
+    // Ghost fields
+    private static final int GHOST_STATE = 1;
+    private static final int GHOST_TIMERS = 2;
+    private static final int GHOST_CHASING = 4;
+    private static final int GHOST_RANDOM = 8;
+
+    // Velocity component codes, relative to the speed
+    private static final int VELOCITY_ZERO = 0;
+    private static final int VELOCITY_PLUS = 1;
+    private static final int VELOCITY_MINUS = 2;
+    private static final int VELOCITY_OTHER = 3;
+
+    private int columnBits;
+    private int rowBits;
+
+    private final BitWriter writer = new BitWriter();
+    private final BitReader reader = new BitReader();
+
+    /** Pellet words decoded into, alternately */
+    private final long[][] pelletWords = new long[2][];
+
+    /** Creates a codec that learns the world size from the first full message it decodes */
+    public StateCodec() {
+        this.columnBits = 0;
+        this.rowBits = 0;
+    }
+
+    /** Creates a codec for a world of the given size in pixels */
+    public StateCodec(int worldWidth, int worldHeight) {
+        this.columnBits = bitsFor((worldWidth + 2 * MARGIN - 1) >> OFFSET_BITS);
+        this.rowBits = bitsFor((worldHeight + 2 * MARGIN - 1) >> OFFSET_BITS);
+    }
+
+    /**
+     * Returns an upper bound on the size of a message for a game with
+     * {@code ghostCount} ghosts and {@code pelletWords} pellet words.
+     */
+    public int maxMessageBytes(int ghostCount, int pelletWords) {
+        int var = 80; // 64-bit value in 4-bit groups
+        long bits = 1 + 10 + 13L * var + 5 + 64
+                + 3L * var + 2 + pelletWords * 64L
+                + var
+                + (ghostCount + 1L) * (1 + 5 + 2 * (Math.max(columnBits, rowBits) + OFFSET_BITS) + 3 * var + 2 * 2 + 2 + 4)
+                + ghostCount * (1 + 4 + 3 + 2L * var + 1 + 64);
+        return (int) ((bits + 7) / 8);
+    }
+
+    // ==================== Encoding ====================
+
+    /**
+     * Writes a snapshot at the buffer's position: as a delta against
+     * {@code base}, or in full if {@code base} is null or from a game with
+     * other entities or pellets. Decoding a delta needs the baseline on the
+     * receiving side.
+     * @return the number of bytes written
+     * @throws IllegalArgumentException if a field does not fit its encoding
+     *         (e.g. a position outside the world this codec was built for)
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     *         (see {@link #maxMessageBytes})
+     */
+    public int encode(GameSnapshot s, GameSnapshot base, ByteBuffer out) {
+        if (columnBits == 0)
+            throw new IllegalStateException("World size unknown: build the codec with it, or decode a full message first");
+        int start = out.position();
+        writer.start(out);
+        if (base == null || base.movingCount != s.movingCount || base.pellets == null
+                || base.pellets.length != s.pellets.length) {
+            writer.write(1, 1);
+            writeFull(s);
+        } else {
+            writer.write(0, 1);
+            writeDelta(s, base);
+        }
+        writer.finish();
+        return out.position() - start;
+    }
+
+    private void writeFull(GameSnapshot s) {
+        BitWriter w = writer;
+        w.write(columnBits, 5);
+        w.write(rowBits, 5);
+        w.writeSigned(s.tick);
+        w.writeSigned(s.blinkClock);
+        w.writeSigned(s.graceFrames);
+        w.writeSigned(s.levelCardTicks);
+        w.writeSigned(s.ghostReleaseTimer);
+        w.writeSigned(s.ghostReleaseIndex);
+        w.write(s.flags(), 5);
+        w.writeSigned(s.score);
+        w.writeSigned(s.lives);
+        w.writeSigned(s.level);
+        w.writeSigned(s.levelStartScore);
+        w.writeSigned(s.ghostsEatenThisPower);
+        w.writeLong(s.randomState);
+
+        w.writeVar(s.pelletsRemaining);
+        w.writeVar(s.pellets.length);
+        writePellets(s.pellets);
+
+        int ghostCount = s.movingCount - 1;
+        w.writeVar(ghostCount);
+        for (int i = 0; i < s.movingCount; i++) {
+            writeMoving(s, i, MOVE_X | MOVE_Y | MOVE_SPEED | MOVE_DIRECTION | MOVE_FRAME);
+        }
+        for (int i = 0; i < ghostCount; i++) {
+            w.write(ghostStateId(s, i), 3);
+            w.writeSigned(s.modeTimer[i]);
+            w.writeSigned(s.frightenedTimer[i]);
+            w.write(s.chasing[i] ? 1 : 0, 1);
+            w.writeLong(s.ghostRandom[i]);
+        }
+    }
+
+    private void writeDelta(GameSnapshot s, GameSnapshot base) {
+        BitWriter w = writer;
+        w.writeSigned(s.tick - base.tick);
+        w.writeSigned(s.blinkClock - base.blinkClock);
+
+        int groups = 0;
+        if (s.graceFrames != base.graceFrames || s.levelCardTicks != base.levelCardTicks
+                || s.ghostReleaseTimer != base.ghostReleaseTimer || s.ghostReleaseIndex != base.ghostReleaseIndex)
+            groups |= GROUP_CLOCK;
+        if (s.flags() != base.flags())
+            groups |= GROUP_FLAGS;
+        if (s.score != base.score || s.lives != base.lives || s.level != base.level
+                || s.levelStartScore != base.levelStartScore || s.ghostsEatenThisPower != base.ghostsEatenThisPower)
+            groups |= GROUP_SCORE;
+        if (s.randomState != base.randomState)
+            groups |= GROUP_RANDOM;
+        if (s.pellets != base.pellets || s.pelletsRemaining != base.pelletsRemaining)
+            groups |= GROUP_PELLETS;
+        w.write(groups, 5);
+
+        if ((groups & GROUP_CLOCK) != 0) {
+            w.writeSigned(s.graceFrames - base.graceFrames);
+            w.writeSigned(s.levelCardTicks - base.levelCardTicks);
+            w.writeSigned(s.ghostReleaseTimer - base.ghostReleaseTimer);
+            w.writeSigned(s.ghostReleaseIndex - base.ghostReleaseIndex);
+        }
+        if ((groups & GROUP_FLAGS) != 0)
+            w.write(s.flags(), 5);
+        if ((groups & GROUP_SCORE) != 0) {
+            w.writeSigned(s.score - base.score);
+            w.writeSigned(s.lives - base.lives);
+            w.writeSigned(s.level - base.level);
+            w.writeSigned(s.levelStartScore - base.levelStartScore);
+            w.writeSigned(s.ghostsEatenThisPower - base.ghostsEatenThisPower);
+        }
+        if ((groups & GROUP_RANDOM) != 0)
+            w.writeVar((s.randomState - base.randomState) * ROOT_GAMMA_INVERSE);
+        if ((groups & GROUP_PELLETS) != 0)
+            writePelletDelta(s, base);
+
+        for (int i = 0; i < s.movingCount; i++) {
+            int f = movedFields(s, base, i);
+            if (f == 0) {
+                w.write(0, 1);
+            } else {
+                w.write(1, 1);
+                w.write(f, 5);
+                writeMoving(s, i, f);
+            }
+        }
+        for (int i = 0; i < s.movingCount - 1; i++) {
+            int f = ghostFields(s, base, i);
+            if (f == 0) {
+                w.write(0, 1);
+                continue;
+            }
+            w.write(1, 1);
+            w.write(f, 4);
+            if ((f & GHOST_STATE) != 0)
+                w.write(ghostStateId(s, i), 3);
+            if ((f & GHOST_TIMERS) != 0) {
+                w.writeSigned(s.modeTimer[i] - base.modeTimer[i]);
+                w.writeSigned(s.frightenedTimer[i] - base.frightenedTimer[i]);
+            }
+            if ((f & GHOST_CHASING) != 0)
+                w.write(s.chasing[i] ? 1 : 0, 1);
+            if ((f & GHOST_RANDOM) != 0)
+                w.writeLong(s.ghostRandom[i]);
+        }
+    }
+
+    /** Flipped bit indices when they are few (eaten pellets), the whole set otherwise (new level) */
+    private void writePelletDelta(GameSnapshot s, GameSnapshot base) {
+        BitWriter w = writer;
+        w.writeSigned(s.pelletsRemaining - base.pelletsRemaining);
+        int flipped = 0;
+        if (s.pellets != base.pellets) {
+            for (int i = 0; i < s.pellets.length; i++) {
+                flipped += Long.bitCount(s.pellets[i] ^ base.pellets[i]);
+            }
+        }
+        int indexBits = bitsFor(s.pellets.length * 64 - 1);
+        if ((long) flipped * indexBits < s.pellets.length * 64L) {
+            w.write(0, 1);
+            w.writeVar(flipped);
+            for (int i = 0; i < s.pellets.length && flipped > 0; i++) {
+                long diff = s.pellets[i] ^ base.pellets[i];
+                while (diff != 0) {
+                    w.write((i << 6) + Long.numberOfTrailingZeros(diff), indexBits);
+                    diff &= diff - 1;
+                }
+            }
+        } else {
+            w.write(1, 1);
+            writePellets(s.pellets);
+        }
+    }
+
+    /** Writes a pellet set as the gaps between live pellets, or as raw words if that is smaller */
+    private void writePellets(long[] words) {
+        BitWriter w = writer;
+        int count = 0;
+        long gapBits = 0;
+        int last = -1;
+        for (int i = 0; i < words.length; i++) {
+            for (long bits = words[i]; bits != 0; bits &= bits - 1) {
+                int bit = (i << 6) + Long.numberOfTrailingZeros(bits);
+                gapBits += varBits(bit - last - 1);
+                last = bit;
+                count++;
+            }
+        }
+        if (varBits(count) + gapBits < words.length * 64L) {
+            w.write(0, 1);
+            w.writeVar(count);
+            last = -1;
+            for (int i = 0; i < words.length; i++) {
+                for (long bits = words[i]; bits != 0; bits &= bits - 1) {
+                    int bit = (i << 6) + Long.numberOfTrailingZeros(bits);
+                    w.writeVar(bit - last - 1);
+                    last = bit;
+                }
+            }
+        } else {
+            w.write(1, 1);
+            for (long word : words) {
+                w.writeLong(word);
+            }
+        }
+    }
+
+    private void writeMoving(GameSnapshot s, int i, int fields) {
+        BitWriter w = writer;
+        if ((fields & MOVE_X) != 0)
+            writePosition(s.x[i], columnBits);
+        if ((fields & MOVE_Y) != 0)
+            writePosition(s.y[i], rowBits);
+        if ((fields & MOVE_SPEED) != 0) {
+            int spd = s.spd[i];
+            w.writeSigned(spd);
+            writeVelocity(s.xSpd[i], spd);
+            writeVelocity(s.ySpd[i], spd);
+        }
+        if ((fields & MOVE_DIRECTION) != 0) {
+            int d = s.direction[i];
+            if ((d & ~3) != 0)
+                throw new IllegalArgumentException("Direction out of range: " + d);
+            w.write(d, 2);
+        }
+        if ((fields & MOVE_FRAME) != 0)
+            w.write(frame(s, i), 4);
+    }
+
+    private void writePosition(int p, int tileBits) {
+        int v = p + MARGIN;
+        if (v < 0 || (v >> OFFSET_BITS) >= 1 << tileBits)
+            throw new IllegalArgumentException("Position outside the world: " + p);
+        writer.write(v >> OFFSET_BITS, tileBits);
+        writer.write(v & ((1 << OFFSET_BITS) - 1), OFFSET_BITS);
+    }
+
+    private void writeVelocity(int v, int spd) {
+        if (v == 0) {
+            writer.write(VELOCITY_ZERO, 2);
+        } else if (v == spd) {
+            writer.write(VELOCITY_PLUS, 2);
+        } else if (v == -spd) {
+            writer.write(VELOCITY_MINUS, 2);
+        } else {
+            writer.write(VELOCITY_OTHER, 2);
+            writer.writeSigned(v);
+        }
+    }
+
+    // ==================== Decoding ====================
+
+    /**
+     * Reads a message at the buffer's position into {@code into}. A full
+     * message replaces its contents; a delta is applied to it, so it must
+     * hold the delta's baseline. The buffer is left after the message.
+     */
+    public void decode(ByteBuffer in, GameSnapshot into) {
+        reader.start(in);
+        if (reader.read(1) == 1) {
+            readFull(into);
+        } else {
+            if (columnBits == 0 || into.pellets == null)
+                throw new IllegalStateException("Delta without a baseline: decode a full message first");
+            readDelta(into);
+        }
+    }
+
+    private void readFull(GameSnapshot s) {
+        BitReader r = reader;
+        columnBits = (int) r.read(5);
+        rowBits = (int) r.read(5);
+        s.tick = r.readSigned();
+        s.blinkClock = (int) r.readSigned();
+        s.graceFrames = (int) r.readSigned();
+        s.levelCardTicks = (int) r.readSigned();
+        s.ghostReleaseTimer = (int) r.readSigned();
+        s.ghostReleaseIndex = (int) r.readSigned();
+        s.setFlags((int) r.read(5));
+        s.score = (int) r.readSigned();
+        s.lives = (int) r.readSigned();
+        s.level = (int) r.readSigned();
+        s.levelStartScore = (int) r.readSigned();
+        s.ghostsEatenThisPower = (int) r.readSigned();
+        s.randomState = r.readLong();
+
+        s.pelletsRemaining = (int) r.readVar();
+        long[] pellets = nextPelletWords(s.pellets, (int) r.readVar());
+        Arrays.fill(pellets, 0);
+        readPellets(pellets);
+        s.pellets = pellets;
+
+        int ghostCount = (int) r.readVar();
+        s.ensureCapacity(ghostCount);
+        for (int i = 0; i < s.movingCount; i++) {
+            readMoving(s, i, MOVE_X | MOVE_Y | MOVE_SPEED | MOVE_DIRECTION | MOVE_FRAME);
+        }
+        for (int i = 0; i < ghostCount; i++) {
+            s.ghostState[i] = (byte) r.read(3);
+            s.modeTimer[i] = (int) r.readSigned();
+            s.frightenedTimer[i] = (int) r.readSigned();
+            s.chasing[i] = r.read(1) == 1;
+            s.ghostRandom[i] = r.readLong();
+        }
+    }
+
+    private void readDelta(GameSnapshot s) {
+        BitReader r = reader;
+        s.tick += r.readSigned();
+        s.blinkClock += (int) r.readSigned();
+
+        int groups = (int) r.read(5);
+        if ((groups & GROUP_CLOCK) != 0) {
+            s.graceFrames += (int) r.readSigned();
+            s.levelCardTicks += (int) r.readSigned();
+            s.ghostReleaseTimer += (int) r.readSigned();
+            s.ghostReleaseIndex += (int) r.readSigned();
+        }
+        if ((groups & GROUP_FLAGS) != 0)
+            s.setFlags((int) r.read(5));
+        if ((groups & GROUP_SCORE) != 0) {
+            s.score += (int) r.readSigned();
+            s.lives += (int) r.readSigned();
+            s.level += (int) r.readSigned();
+            s.levelStartScore += (int) r.readSigned();
+            s.ghostsEatenThisPower += (int) r.readSigned();
+        }
+        if ((groups & GROUP_RANDOM) != 0)
+            s.randomState += r.readVar() * ROOT_GAMMA;
+        if ((groups & GROUP_PELLETS) != 0)
+            readPelletDelta(s);
+
+        for (int i = 0; i < s.movingCount; i++) {
+            if (r.read(1) == 1)
+                readMoving(s, i, (int) r.read(5));
+        }
+        for (int i = 0; i < s.movingCount - 1; i++) {
+            if (r.read(1) == 0)
+                continue;
+            int f = (int) r.read(4);
+            if ((f & GHOST_STATE) != 0)
+                s.ghostState[i] = (byte) r.read(3);
+            if ((f & GHOST_TIMERS) != 0) {
+                s.modeTimer[i] += (int) r.readSigned();
+                s.frightenedTimer[i] += (int) r.readSigned();
+            }
+            if ((f & GHOST_CHASING) != 0)
+                s.chasing[i] = r.read(1) == 1;
+            if ((f & GHOST_RANDOM) != 0)
+                s.ghostRandom[i] = r.readLong();
+        }
+    }
+
+    private void readPelletDelta(GameSnapshot s) {
+        BitReader r = reader;
+        s.pelletsRemaining += (int) r.readSigned();
+        long[] pellets;
+        if (r.read(1) == 0) {
+            int flipped = (int) r.readVar();
+            if (flipped == 0)
+                return;
+            int indexBits = bitsFor(s.pellets.length * 64 - 1);
+            pellets = nextPelletWords(s.pellets, s.pellets.length);
+            System.arraycopy(s.pellets, 0, pellets, 0, pellets.length);
+            for (int n = 0; n < flipped; n++) {
+                int bit = (int) r.read(indexBits);
+                pellets[bit >> 6] ^= 1L << bit;
+            }
+        } else {
+            pellets = nextPelletWords(s.pellets, s.pellets.length);
+            Arrays.fill(pellets, 0);
+            readPellets(pellets);
+        }
+        s.pellets = pellets;
+    }
+
+    /** Returns the pellet word array {@code current} is not, sized to {@code length} */
+    private long[] nextPelletWords(long[] current, int length) {
+        int i = current == pelletWords[0] ? 1 : 0;
+        long[] words = pelletWords[i];
+        if (words == null || words.length != length)
+            words = pelletWords[i] = new long[length];
+        return words;
+    }
+
+    /** Reads a pellet set written by {@link #writePellets} into cleared words */
+    private void readPellets(long[] words) {
+        BitReader r = reader;
+        if (r.read(1) == 0) {
+            int count = (int) r.readVar();
+            int bit = -1;
+            for (int n = 0; n < count; n++) {
+                bit += (int) r.readVar() + 1;
+                words[bit >> 6] |= 1L << bit;
+            }
+        } else {
+            for (int i = 0; i < words.length; i++) {
+                words[i] = r.readLong();
+            }
+        }
+    }
+
+    private void readMoving(GameSnapshot s, int i, int fields) {
+        BitReader r = reader;
+        if ((fields & MOVE_X) != 0)
+            s.x[i] = readPosition(columnBits);
+        if ((fields & MOVE_Y) != 0)
+            s.y[i] = readPosition(rowBits);
+        if ((fields & MOVE_SPEED) != 0) {
+            int spd = (int) r.readSigned();
+            s.spd[i] = spd;
+            s.xSpd[i] = readVelocity(spd);
+            s.ySpd[i] = readVelocity(spd);
+        }
+        if ((fields & MOVE_DIRECTION) != 0)
+            s.direction[i] = (int) r.read(2);
+        if ((fields & MOVE_FRAME) != 0)
+            s.subimage[i] = r.read(4);
+    }
+
+    private int readPosition(int tileBits) {
+        int tile = (int) reader.read(tileBits);
+        int offset = (int) reader.read(OFFSET_BITS);
+        return (tile << OFFSET_BITS) + offset - MARGIN;
+    }
+
+    private int readVelocity(int spd) {
+        switch ((int) reader.read(2)) {
+            case VELOCITY_ZERO: return 0;
+            case VELOCITY_PLUS: return spd;
+            case VELOCITY_MINUS: return -spd;
+            default: return (int) reader.readSigned();
+        }
+    }
+
+    // ==================== Comparison ====================
+
+    /**
+     * Returns true if two snapshots carry the same encoded state: equal
+     * state hashes, blink clocks and animation frames. A snapshot and its
+     * decoded copy always match.
+     */
+    public static boolean sameEncodedState(GameSnapshot a, GameSnapshot b) {
+        if (a.movingCount != b.movingCount || a.blinkClock != b.blinkClock || a.stateHash() != b.stateHash())
+            return false;
+        for (int i = 0; i < a.movingCount; i++) {
+            if (frame(a, i) != frame(b, i))
+                return false;
+        }
+        return true;
+    }
+
+    private static int movedFields(GameSnapshot s, GameSnapshot base, int i) {
+        int f = 0;
+        if (s.x[i] != base.x[i]) f |= MOVE_X;
+        if (s.y[i] != base.y[i]) f |= MOVE_Y;
+        if (s.xSpd[i] != base.xSpd[i] || s.ySpd[i] != base.ySpd[i] || s.spd[i] != base.spd[i]) f |= MOVE_SPEED;
+        if (s.direction[i] != base.direction[i]) f |= MOVE_DIRECTION;
+        if (frame(s, i) != frame(base, i)) f |= MOVE_FRAME;
+        return f;
+    }
+
+    private static int ghostFields(GameSnapshot s, GameSnapshot base, int i) {
+        int f = 0;
+        if (s.ghostState[i] != base.ghostState[i]) f |= GHOST_STATE;
+        if (s.modeTimer[i] != base.modeTimer[i] || s.frightenedTimer[i] != base.frightenedTimer[i]) f |= GHOST_TIMERS;
+        if (s.chasing[i] != base.chasing[i]) f |= GHOST_CHASING;
+        if (s.ghostRandom[i] != base.ghostRandom[i]) f |= GHOST_RANDOM;
+        return f;
+    }
+
+    private static int frame(GameSnapshot s, int i) {
+        int frame = (int) s.subimage[i];
+        if (frame < 0 || frame > 15)
+            throw new IllegalArgumentException("Animation frame out of range: " + s.subimage[i]);
+        return frame;
+    }
+
+    private static int ghostStateId(GameSnapshot s, int i) {
+        int id = s.ghostState[i];
+        if (id < 0 || id > 7)
+            throw new IllegalArgumentException("Ghost state id out of range: " + id);
+        return id;
+    }
+
+    /** Number of bits needed to hold values up to {@code max} (at least 1) */
+    private static int bitsFor(int max) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(max));
+    }
+
+    /** Size of {@link BitWriter#writeVar} for a non-negative value */
+    private static int varBits(long value) {
+        int groups = Math.max(1, (64 - Long.numberOfLeadingZeros(value) + 3) / 4);
+        return groups * 5;
+    }
+
+    /** Multiplicative inverse of an odd number mod 2^64 (Newton's iteration) */
+    private static long inverse(long odd) {
+        long x = odd;
+        for (int i = 0; i < 5; i++) {
+            x *= 2 - odd * x;
+        }
+        return x;
+    }
+
+    // ==================== Bit I/O ====================
+
+    /** Writes bits LSB-first into a byte buffer */
+    private static final class BitWriter {
+        private ByteBuffer out;
+        private long acc;
+        private int bits;
+
+        void start(ByteBuffer out) {
+            this.out = out;
+            acc = 0;
+            bits = 0;
+        }
+
+        /** Writes the low {@code n} bits of a value, n at most 56 */
+        void write(long value, int n) {
+            acc |= (value & ((1L << n) - 1)) << bits;
+            bits += n;
+            while (bits >= 8) {
+                out.put((byte) acc);
+                acc >>>= 8;
+                bits -= 8;
+            }
+        }
+
+        void writeLong(long value) {
+            write(value, 32);
+            write(value >>> 32, 32);
+        }
+
+        /** Unsigned variable-length value: 4 bits per group, each followed by a continuation bit */
+        void writeVar(long value) {
+            while ((value & ~15L) != 0) {
+                write((value & 15) | 16, 5);
+                value >>>= 4;
+            }
+            write(value, 5);
+        }
+
+        void writeSigned(long value) {
+            writeVar((value << 1) ^ (value >> 63));
+        }
+
+        /** Writes the last partial byte */
+        void finish() {
+            if (bits > 0)
+                out.put((byte) acc);
+            out = null;
+        }
+    }
+
+    /** Reads bits written by {@link BitWriter}, consuming bytes only as needed */
+    private static final class BitReader {
+        private ByteBuffer in;
+        private long acc;
+        private int bits;
+
+        void start(ByteBuffer in) {
+            this.in = in;
+            acc = 0;
+            bits = 0;
+        }
+
+        /** Reads {@code n} bits, n at most 56 */
+        long read(int n) {
+            while (bits < n) {
+                acc |= (in.get() & 0xffL) << bits;
+                bits += 8;
+            }
+            long value = acc & ((1L << n) - 1);
+            acc >>>= n;
+            bits -= n;
+            return value;
+        }
+
+        long readLong() {
+            long low = read(32);
+            return low | read(32) << 32;
+        }
+
+        long readVar() {
+            long value = 0;
+            int shift = 0;
+            long group;
+            do {
+                group = read(5);
+                value |= (group & 15) << shift;
+                shift += 4;
+            } while ((group & 16) != 0);
+            return value;
+        }
+
+        long readSigned() {
+            long v = readVar();
+            return (v >>> 1) ^ -(v & 1);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.pacman.core;
+
+import java.awt.*;
+
+/**
+ * Chunked tile storage for the maze layout.
+ *
+ * <p>
+ * The maze is split into square chunks of {@link #CHUNK_SIZE} x
+ * {@link #CHUNK_SIZE} tiles, one byte per tile. Chunks that contain no wall
+ * are never allocated, so open areas of large mazes cost nothing. Wall
+ * queries only look at the handful of tiles under the queried box, so their
+ * cost does not depend on the maze size.
+ * </p>
+ *
+ * <pre>
+ * Tile value | Meaning
+ * -----------|-----------------------------------
+ *   EMPTY    | Walkable (pellets are entities)
+ *   WALL     | Blocks everyone
+ *   DOOR     | Ghost house door (ghosts may pass)
+ * </pre>
+ */
+public class TileMap {
+
+    public static final byte EMPTY = 0;
+    public static final byte WALL = 1;
+    public static final byte DOOR = 2;
+
+    /** Tiles per chunk side (power of two) */
+    public static final int CHUNK_SHIFT = 4;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final Color WALL_COLOR = new Color(33, 33, 222);
+
+    private final int columns;
+    private final int rows;
+    private final int chunkColumns;
+    private final int cellSize;
+
+    /** Chunks in row-major order; null means all EMPTY */
+    private final byte[][] chunks;
+
+    /**
+     * @param columns maze width in tiles
+     * @param rows maze height in tiles
+     * @param cellSize tile size in pixels
+     */
+    public TileMap(int columns, int rows, int cellSize) {
+        this.columns = columns;
+        this.rows = rows;
+        this.cellSize = cellSize;
+        this.chunkColumns = (columns + CHUNK_MASK) >> CHUNK_SHIFT;
+        int chunkRows = (rows + CHUNK_MASK) >> CHUNK_SHIFT;
+        this.chunks = new byte[chunkColumns * chunkRows][];
+    }
+
+    /** Returns the tile value, EMPTY outside the maze */
+    public byte get(int tx, int ty) {
+        if (tx < 0 || ty < 0 || tx >= columns || ty >= rows)
+            return EMPTY;
+        byte[] chunk = chunks[(ty >> CHUNK_SHIFT) * chunkColumns + (tx >> CHUNK_SHIFT)];
+        if (chunk == null)
+            return EMPTY;
+        return chunk[((ty & CHUNK_MASK) << CHUNK_SHIFT) | (tx & CHUNK_MASK)];
+    }
+
+    /** Sets a tile value, allocating its chunk on first write */
+    public void set(int tx, int ty, byte value) {
+        if (tx < 0 || ty < 0 || tx >= columns || ty >= rows)
+            return;
+        int c = (ty >> CHUNK_SHIFT) * chunkColumns + (tx >> CHUNK_SHIFT);
+        if (chunks[c] == null) {
+            if (value == EMPTY)
+                return;
+            chunks[c] = new byte[CHUNK_SIZE * CHUNK_SIZE];
+        }
+        chunks[c][((ty & CHUNK_MASK) << CHUNK_SHIFT) | (tx & CHUNK_MASK)] = value;
+    }
+
+    /**
+     * Returns true if a pixel box overlaps a wall tile. Same result as testing
+     * {@code Rectangle.intersects} against every wall's 8x8 hitbox.
+     * @param ignoreDoors true to let the box pass through ghost house doors
+     */
+    public boolean intersectsWall(int x, int y, int w, int h, boolean ignoreDoors) {
+        int tx0 = Math.floorDiv(x, cellSize);
+        int ty0 = Math.floorDiv(y, cellSize);
+        int tx1 = Math.floorDiv(x + w - 1, cellSize);
+        int ty1 = Math.floorDiv(y + h - 1, cellSize);
+        for (int ty = ty0; ty <= ty1; ty++) {
+            for (int tx = tx0; tx <= tx1; tx++) {
+                byte t = get(tx, ty);
+                if (t == WALL || (t == DOOR && !ignoreDoors))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Draws the wall tiles inside a pixel rectangle, chunk by chunk.
+     * Used for mazes that have no pre-drawn background image.
+     */
+    public void render(Graphics2D g, int viewX, int viewY, int viewW, int viewH) {
+        int tx0 = Math.max(0, viewX / cellSize);
+        int ty0 = Math.max(0, viewY / cellSize);
+        int tx1 = Math.min(columns - 1, (viewX + viewW) / cellSize);
+        int ty1 = Math.min(rows - 1, (viewY + viewH) / cellSize);
+        g.setColor(WALL_COLOR);
+        for (int ty = ty0; ty <= ty1; ty++) {
+            for (int tx = tx0; tx <= tx1; tx++) {
+                if (chunks[(ty >> CHUNK_SHIFT) * chunkColumns + (tx >> CHUNK_SHIFT)] == null) {
+                    // Skip the rest of an empty chunk row
+                    tx |= CHUNK_MASK;
+                    continue;
+                }
+                byte t = get(tx, ty);
+                if (t == WALL) {
+                    g.fillRect(tx * cellSize, ty * cellSize, cellSize, cellSize);
+                } else if (t == DOOR) {
+                    g.fillRect(tx * cellSize, ty * cellSize + cellSize / 2 - 1, cellSize, 2);
+                }
+            }
+        }
+    }
+
+    public int getColumns() { return columns; }
+    public int getRows() { return rows; }
+    public int getWidth() { return columns * cellSize; }
+    public int getHeight() { return rows * cellSize; }
+}
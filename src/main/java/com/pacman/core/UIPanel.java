@@ -1,29 +1,32 @@
 package com.pacman.core;
 
-import com.pacman.entity.PacGum;
-import com.pacman.entity.SuperPacGum;
-import com.pacman.ghost.Ghost;
+import com.pacman.util.Utils;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 
 /**
  * UI toolbar panel displayed at the top of the game window.
  * Shows score, lives, and level in a single horizontal bar.
- * Implements Observer to receive game event notifications.
+ * The values come from the {@link Scoreboard} and level of the game shown;
+ * the panel keeps none of its own.
  */
-public class UIPanel extends JPanel implements Observer {
+public class UIPanel extends JPanel {
     public static int width;
     public static int height;
 
-    private int score = 0;
-    private int lives = 3;
     private BufferedImage livesIcon;
 
+    /** Game shown, or null before the first one starts */
+    private volatile Game game;
+
+    /** Values last painted, to repaint only when one changes */
+    private int shownScore = -1;
+    private int shownLives = -1;
+    private int shownLevel = -1;
+
     // Restart callback
     private Runnable restartCallback;
 
@@ -35,12 +38,33 @@ public class UIPanel extends JPanel implements Observer {
 
         // Load lives icon
         try {
-            livesIcon = ImageIO.read(new File("pacman.png"));
+            livesIcon = Utils.readSprite("pacman.png");
         } catch (IOException e) {
             System.err.println("Could not load pacman.png for lives display");
         }
     }
 
+    /** Shows the score, lives and level of a game */
+    public void setGame(Game game) {
+        this.game = game;
+        refresh();
+    }
+
+    /** Repaints if the score, lives or level shown changed; called once per frame */
+    public void refresh() {
+        Game g = game;
+        if (g == null)
+            return;
+        Scoreboard board = g.getScoreboard();
+        int level = g.getLevelConfig().getCurrentLevel();
+        if (board.getScore() != shownScore || board.getLives() != shownLives || level != shownLevel) {
+            shownScore = board.getScore();
+            shownLives = board.getLives();
+            shownLevel = level;
+            repaint();
+        }
+    }
+
     /** Sets the callback to run when restart is clicked */
     public void setRestartCallback(Runnable callback) {
         this.restartCallback = callback;
@@ -52,6 +76,11 @@ public class UIPanel extends JPanel implements Observer {
         Graphics2D g2 = (Graphics2D) g;
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
+        Game game = this.game;
+        if (game == null)
+            return;
+        int score = game.getScoreboard().getScore();
+        int lives = game.getScoreboard().getLives();
         int y = height / 2 + 5; // Vertical center for text
 
         // === LEFT: Score ===
@@ -78,57 +107,8 @@ public class UIPanel extends JPanel implements Observer {
         // === RIGHT: Level ===
         g.setColor(Color.CYAN);
         g.setFont(new Font("Arial", Font.BOLD, 16));
-        String levelText = "Lv " + LevelConfig.getCurrentLevel();
+        String levelText = "Lv " + game.getLevelConfig().getCurrentLevel();
         FontMetrics fm = g.getFontMetrics();
         g.drawString(levelText, width - fm.stringWidth(levelText) - 10, y);
     }
-
-    public void updateScore(int incrScore) {
-        this.score += incrScore;
-        repaint();
-    }
-
-    public int getScore() {
-        return score;
-    }
-
-    public int getLives() {
-        return lives;
-    }
-
-    public void loseLife() {
-        lives--;
-        repaint();
-    }
-
-    public boolean isGameOver() {
-        return lives <= 0;
-    }
-
-    /** Resets the UI panel for a new game */
-    public void reset() {
-        score = 0;
-        lives = 3;
-        repaint();
-    }
-
-    /** Resets for next level while preserving score and lives */
-    public void resetForNextLevel() {
-        repaint();
-    }
-
-    @Override
-    public void updatePacGumEaten(PacGum pg) {
-        updateScore(LevelConfig.getPacGumPoints());
-    }
-
-    @Override
-    public void updateSuperPacGumEaten(SuperPacGum spg) {
-        updateScore(LevelConfig.getSuperPacGumPoints());
-    }
-
-    @Override
-    public void updateGhostCollision(Ghost gh) {
-        // Ghost score handled by Game.java (escalating bonus: 200->400->800->1600)
-    }
 }
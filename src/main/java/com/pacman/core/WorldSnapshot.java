@@ -0,0 +1,61 @@
+package com.pacman.core;
+
+import com.pacman.entity.EntityStore;
+import com.pacman.entity.PacMan;
+
+import java.util.Arrays;
+
+/**
+ * Read-only view of the world as it was at the end of the previous tick.
+ *
+ * <p>
+ * Captured by {@link Game#update()} before any entity moves, and read by the
+ * ghost strategies during the decision phase. Every ghost therefore decides
+ * against the same PacMan and ghost positions, whatever its place in the
+ * entity list and whichever thread runs it. Arrays are reused between ticks.
+ * </p>
+ */
+public class WorldSnapshot {
+
+    private int pacmanX;
+    private int pacmanY;
+    private int pacmanDirection;
+    private int worldWidth;
+    private int worldHeight;
+
+    /** Positions of moving entities, indexed by entity id */
+    private int[] x = new int[0];
+    private int[] y = new int[0];
+
+    /** Copies the state the decision phase may read */
+    void capture(Game game, EntityStore store, PacMan pacman) {
+        if (x.length < store.getCount()) {
+            x = Arrays.copyOf(x, store.getCount());
+            y = Arrays.copyOf(y, store.getCount());
+        }
+        for (int i = 0; i < store.getActiveCount(); i++) {
+            int id = store.getActiveId(i);
+            x[id] = store.getX(id);
+            y[id] = store.getY(id);
+        }
+        if (pacman != null) {
+            pacmanX = pacman.getxPos();
+            pacmanY = pacman.getyPos();
+            pacmanDirection = pacman.getDirection();
+        }
+        worldWidth = game.getWorldWidth();
+        worldHeight = game.getWorldHeight();
+    }
+
+    public int getPacmanX() { return pacmanX; }
+    public int getPacmanY() { return pacmanY; }
+    public int getPacmanDirection() { return pacmanDirection; }
+    public int getWorldWidth() { return worldWidth; }
+    public int getWorldHeight() { return worldHeight; }
+
+    /** X position of a moving entity at the start of the tick */
+    public int getX(int id) { return x[id]; }
+
+    /** Y position of a moving entity at the start of the tick */
+    public int getY(int id) { return y[id]; }
+}
@@ -30,41 +30,41 @@ import java.awt.*;
  * <b>Coordinate System:</b> Position (xPos, yPos) is top-left corner.
  * Size is 8px for static entities, 32px for moving entities.
  * </p>
+ *
+ * <p>
+ * <b>State:</b> position, size and the destroyed flag live in the game's
+ * {@link EntityStore}, at this entity's id. The constructor adds the entity
+ * to the store; getters and setters read and write the store's arrays.
+ * </p>
  * 
  * @see StaticEntity For non-moving entities
  * @see MovingEntity For entities that can move
  */
 public abstract class Entity {
 
-    /** Entity size in pixels (8px for static, 32px for moving) */
-    protected int size;
-
-    /** X position (top-left corner) */
-    protected int xPos;
+    /** Store holding this entity's state */
+    protected final EntityStore store;
 
-    /** Y position (top-left corner) */
-    protected int yPos;
+    /** Index of this entity in {@link #store} */
+    protected final int id;
 
     /** Original spawn positions for level reset */
-    protected int spawnX;
-    protected int spawnY;
-
-    /** Whether this entity has been destroyed/collected */
-    protected boolean destroyed = false;
+    protected final int spawnX;
+    protected final int spawnY;
 
     /**
-     * Creates a new entity at the specified position.
+     * Creates a new entity at the specified position and adds it to a store.
      * 
+     * @param store Store of the game the entity belongs to
      * @param size Entity size in pixels
      * @param xPos X position (top-left corner)
      * @param yPos Y position (top-left corner)
      */
-    public Entity(int size, int xPos, int yPos) {
-        this.size = size;
-        this.xPos = xPos;
-        this.yPos = yPos;
+    public Entity(EntityStore store, int size, int xPos, int yPos) {
+        this.store = store;
         this.spawnX = xPos;
         this.spawnY = yPos;
+        this.id = store.add(this, size, xPos, yPos);
     }
 
     /**
@@ -85,31 +85,35 @@ public abstract class Entity {
      * Marks this entity as destroyed and moves it off-screen.
      */
     public void destroy() {
-        this.xPos = -32;
-        this.yPos = -32;
-        destroyed = true;
+        store.setX(id, -32);
+        store.setY(id, -32);
+        store.setDestroyed(id, true);
     }
 
     // ==================== Getters ====================
 
     public boolean isDestroyed() {
-        return destroyed;
+        return store.isDestroyed(id);
     }
 
     public void setDestroyed(boolean destroyed) {
-        this.destroyed = destroyed;
+        store.setDestroyed(id, destroyed);
+    }
+
+    public int getId() {
+        return id;
     }
 
     public int getSize() {
-        return size;
+        return store.getSize(id);
     }
 
     public int getxPos() {
-        return xPos;
+        return store.getX(id);
     }
 
     public int getyPos() {
-        return yPos;
+        return store.getY(id);
     }
 
     public int getSpawnX() {
@@ -121,11 +125,11 @@ public abstract class Entity {
     }
 
     public void setxPos(int xPos) {
-        this.xPos = xPos;
+        store.setX(id, xPos);
     }
 
     public void setyPos(int yPos) {
-        this.yPos = yPos;
+        store.setY(id, yPos);
     }
 
     /**
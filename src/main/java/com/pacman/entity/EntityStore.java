@@ -0,0 +1,223 @@
+package com.pacman.entity;
+
+import com.pacman.ghost.Ghost;
+
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays store for entity state.
+ *
+ * <p>
+ * Positions, sizes, speeds, directions and flags of every entity are kept in
+ * parallel primitive arrays indexed by entity id, and nowhere else: an
+ * {@link Entity} is created into its game's store and its getters and setters
+ * read and write these arrays. Hot loops (collision and wall queries, the
+ * update and render passes) walk the arrays instead of dereferencing one heap
+ * object per entity. The objects keep what is not per-tick state (sprites,
+ * ghost states, spawn points) and are reachable with {@link #get(int)}.
+ * </p>
+ *
+ * <pre>
+ * id | type   | x   | y   | size | xSpd | ySpd | spd | dir | flags
+ * ---|--------|-----|-----|------|------|------|-----|-----|------
+ *  0 | WALL   |   0 |   0 |    8 |    0 |    0 |   0 |   0 |
+ *  . | PACGUM |  24 |  24 |    4 |    0 |    0 |   0 |   0 | DESTROYED
+ *  . | PACMAN | 208 | 360 |   32 |   -2 |    0 |   2 |   1 | ACTIVE
+ * </pre>
+ */
+public class EntityStore {
+
+    // ==================== Entity Types ====================
+    public static final byte WALL = 0;
+    public static final byte GHOST_HOUSE = 1;
+    public static final byte PAC_GUM = 2;
+    public static final byte SUPER_PAC_GUM = 3;
+    public static final byte PACMAN = 4;
+    public static final byte GHOST = 5;
+    /** Slot of an entity removed from the game (hot reload) */
+    public static final byte REMOVED = 6;
+
+    /** Type mask helpers for queries */
+    public static final int MASK_WALLS = (1 << WALL) | (1 << GHOST_HOUSE);
+    public static final int MASK_SOLID_WALLS = 1 << WALL;
+    public static final int MASK_PELLETS = (1 << PAC_GUM) | (1 << SUPER_PAC_GUM);
+
+    // ==================== Flags ====================
+    private static final byte FLAG_DESTROYED = 1;
+    /** Entity has per-tick logic (PacMan, ghosts) */
+    private static final byte FLAG_ACTIVE = 2;
+    /** Entity draws something (walls are part of the background image) */
+    private static final byte FLAG_VISIBLE = 4;
+
+    private int count = 0;
+
+    private byte[] type;
+    private byte[] flags;
+    private int[] x;
+    private int[] y;
+    private int[] size;
+    private int[] xSpd;
+    private int[] ySpd;
+    private int[] spd;
+    private int[] dir;
+
+    /** Object view of each id */
+    private Entity[] entities;
+
+    /** Ids of entities with per-tick logic, so the tick skips walls and pellets */
+    private int[] activeIds;
+    private int activeCount = 0;
+
+    public EntityStore(int initialCapacity) {
+        int cap = Math.max(initialCapacity, 16);
+        type = new byte[cap];
+        flags = new byte[cap];
+        x = new int[cap];
+        y = new int[cap];
+        size = new int[cap];
+        xSpd = new int[cap];
+        ySpd = new int[cap];
+        spd = new int[cap];
+        dir = new int[cap];
+        entities = new Entity[cap];
+        activeIds = new int[16];
+    }
+
+    /**
+     * Adds an entity and assigns its id. Called by the {@link Entity}
+     * constructor, which stores its state here from then on.
+     * @param e entity to add
+     * @return the new entity id
+     */
+    int add(Entity e, int size, int xPos, int yPos) {
+        if (count == type.length)
+            grow();
+        int id = count++;
+        type[id] = typeOf(e);
+        entities[id] = e;
+        x[id] = xPos;
+        y[id] = yPos;
+        this.size[id] = size;
+
+        byte f = 0;
+        if (type[id] == PACMAN || type[id] == GHOST)
+            f |= FLAG_ACTIVE;
+        if (type[id] != WALL && type[id] != GHOST_HOUSE)
+            f |= FLAG_VISIBLE;
+        flags[id] = f;
+        if ((f & FLAG_ACTIVE) != 0) {
+            if (activeCount == activeIds.length)
+                activeIds = Arrays.copyOf(activeIds, activeCount * 2);
+            activeIds[activeCount++] = id;
+        }
+        return id;
+    }
+
+    /** Marks an entity slot as removed; its id is not reused */
+    public void remove(int id) {
+        if ((flags[id] & FLAG_ACTIVE) != 0) {
+            for (int i = 0; i < activeCount; i++) {
+                if (activeIds[i] == id) {
+                    System.arraycopy(activeIds, i + 1, activeIds, i, activeCount - i - 1);
+                    activeCount--;
+                    break;
+                }
+            }
+        }
+        type[id] = REMOVED;
+        flags[id] = FLAG_DESTROYED;
+        entities[id] = null;
+    }
+
+    // ==================== Queries ====================
+
+    /**
+     * Finds the first live entity of the given types whose box contains a point.
+     * Same test as {@code getHitbox().contains(px, py)}.
+     * @param typeMask bit mask of entity types ({@code 1 << type})
+     * @return entity id, or -1 if none
+     */
+    public int findContaining(int typeMask, int px, int py) {
+        for (int id = 0; id < count; id++) {
+            if ((typeMask & (1 << type[id])) == 0 || (flags[id] & FLAG_DESTROYED) != 0)
+                continue;
+            if (px >= x[id] && py >= y[id] && px < x[id] + size[id] && py < y[id] + size[id])
+                return id;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if any live entity of the given types overlaps a rectangle.
+     * Same test as {@code getHitbox().intersects(rect)}.
+     * @param typeMask bit mask of entity types ({@code 1 << type})
+     */
+    public boolean intersectsAny(int typeMask, int rx, int ry, int rw, int rh) {
+        for (int id = 0; id < count; id++) {
+            if ((typeMask & (1 << type[id])) == 0 || (flags[id] & FLAG_DESTROYED) != 0)
+                continue;
+            if (x[id] < rx + rw && rx < x[id] + size[id] && y[id] < ry + rh && ry < y[id] + size[id])
+                return true;
+        }
+        return false;
+    }
+
+    // ==================== Accessors ====================
+
+    public int getCount() { return count; }
+    /** Number of entities with per-tick logic */
+    public int getActiveCount() { return activeCount; }
+    /** Id of the i-th entity with per-tick logic, in insertion order */
+    public int getActiveId(int i) { return activeIds[i]; }
+    public Entity get(int id) { return entities[id]; }
+    public byte getType(int id) { return type[id]; }
+    public int getX(int id) { return x[id]; }
+    public int getY(int id) { return y[id]; }
+    public int getSize(int id) { return size[id]; }
+    public int getxSpd(int id) { return xSpd[id]; }
+    public int getySpd(int id) { return ySpd[id]; }
+    public int getSpd(int id) { return spd[id]; }
+    public int getDirection(int id) { return dir[id]; }
+    public boolean isDestroyed(int id) { return (flags[id] & FLAG_DESTROYED) != 0; }
+    public boolean isActive(int id) { return (flags[id] & (FLAG_ACTIVE | FLAG_DESTROYED)) == FLAG_ACTIVE; }
+    public boolean isVisible(int id) { return (flags[id] & (FLAG_VISIBLE | FLAG_DESTROYED)) == FLAG_VISIBLE; }
+
+    public void setX(int id, int value) { x[id] = value; }
+    public void setY(int id, int value) { y[id] = value; }
+    public void setxSpd(int id, int value) { xSpd[id] = value; }
+    public void setySpd(int id, int value) { ySpd[id] = value; }
+    public void setSpd(int id, int value) { spd[id] = value; }
+    public void setDirection(int id, int value) { dir[id] = value; }
+    public void setDestroyed(int id, boolean destroyed) {
+        if (destroyed)
+            flags[id] |= FLAG_DESTROYED;
+        else
+            flags[id] &= ~FLAG_DESTROYED;
+    }
+
+    // ==================== Internals ====================
+
+    private static byte typeOf(Entity e) {
+        if (e instanceof GhostHouse) return GHOST_HOUSE;
+        if (e instanceof Wall) return WALL;
+        if (e instanceof PacGum) return PAC_GUM;
+        if (e instanceof SuperPacGum) return SUPER_PAC_GUM;
+        if (e instanceof PacMan) return PACMAN;
+        if (e instanceof Ghost) return GHOST;
+        throw new IllegalArgumentException("Unknown entity type: " + e.getClass().getName());
+    }
+
+    private void grow() {
+        int cap = type.length * 2;
+        type = Arrays.copyOf(type, cap);
+        flags = Arrays.copyOf(flags, cap);
+        x = Arrays.copyOf(x, cap);
+        y = Arrays.copyOf(y, cap);
+        size = Arrays.copyOf(size, cap);
+        xSpd = Arrays.copyOf(xSpd, cap);
+        ySpd = Arrays.copyOf(ySpd, cap);
+        spd = Arrays.copyOf(spd, cap);
+        dir = Arrays.copyOf(dir, cap);
+        entities = Arrays.copyOf(entities, cap);
+    }
+}
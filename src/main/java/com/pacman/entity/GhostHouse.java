@@ -5,7 +5,7 @@ package com.pacman.entity;
  * Ghosts can pass through when exiting or entering the house.
  */
 public class GhostHouse extends Wall {
-    public GhostHouse(int xPos, int yPos) {
-        super(xPos, yPos);
+    public GhostHouse(EntityStore store, int xPos, int yPos) {
+        super(store, xPos, yPos);
     }
 }
@@ -1,10 +1,10 @@
 package com.pacman.entity;
 
-import com.pacman.ui.GamePanel;
-import javax.imageio.ImageIO;
+import com.pacman.core.Game;
+import com.pacman.util.Utils;
+
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 
 /**
@@ -16,8 +16,11 @@ import java.io.IOException;
  *   <li>Speed values for X and Y movement</li>
  *   <li>Direction tracking (0=right, 1=left, 2=up, 3=down)</li>
  *   <li>Sprite sheet animation with configurable frame count</li>
- *   <li>Screen wrap-around at maze boundaries</li>
+ *   <li>Wrap-around at the maze boundaries (tunnels)</li>
  * </ul>
+ *
+ * <p>Speeds and direction live in the game's {@link EntityStore} with the
+ * position; the object keeps the sprite and its animation.</p>
  * 
  * <p><b>Sprite Sheet Format:</b></p>
  * <pre>
@@ -36,15 +39,6 @@ import java.io.IOException;
  */
 public abstract class MovingEntity extends Entity {
     
-    /** Base movement speed (pixels per frame) */
-    protected int spd;
-    
-    /** Current X velocity */
-    protected int xSpd = 0;
-    
-    /** Current Y velocity */
-    protected int ySpd = 0;
-    
     /** Sprite sheet image */
     protected BufferedImage sprite;
     
@@ -54,14 +48,18 @@ public abstract class MovingEntity extends Entity {
     /** Number of animation frames per direction */
     protected int nbSubimagesPerCycle;
     
-    /** Current direction: 0=right, 1=left, 2=up, 3=down */
-    protected int direction = 0;
-    
     /** Animation speed (frames advanced per game tick) */
     protected float imageSpd = 0.2f;
 
+    /** Reusable hitbox returned by {@link #getHitbox()} */
+    private final Rectangle hitbox = new Rectangle();
+
+    /** Game this entity moves in (maze bounds, walls, level speeds) */
+    protected final Game game;
+
     /**
      * Creates a moving entity with sprite animation.
+     * @param game Game the entity belongs to
      * @param size Entity size in pixels (typically 32)
      * @param xPos Initial X position
      * @param yPos Initial Y position
@@ -70,11 +68,12 @@ public abstract class MovingEntity extends Entity {
      * @param nbSubimagesPerCycle Animation frames per direction
      * @param imageSpd Animation speed multiplier
      */
-    public MovingEntity(int size, int xPos, int yPos, int spd, String spriteName, int nbSubimagesPerCycle, float imageSpd) {
-        super(size, xPos, yPos);
-        this.spd = spd;
+    public MovingEntity(Game game, int size, int xPos, int yPos, int spd, String spriteName, int nbSubimagesPerCycle, float imageSpd) {
+        super(game.getStore(), size, xPos, yPos);
+        this.game = game;
+        store.setSpd(id, spd);
         try {
-            this.sprite = ImageIO.read(new File(spriteName));
+            this.sprite = Utils.readSprite(spriteName);
             this.nbSubimagesPerCycle = nbSubimagesPerCycle;
             this.imageSpd = imageSpd;
         } catch (IOException e) {
@@ -92,62 +91,85 @@ public abstract class MovingEntity extends Entity {
      * Also handles screen wrap-around at maze boundaries.
      */
     public void updatePosition() {
+        EntityStore s = store;
+        int xPos = s.getX(id);
+        int yPos = s.getY(id);
+        int xSpd = s.getxSpd(id);
+        int ySpd = s.getySpd(id);
         if (!(xSpd == 0 && ySpd == 0)) {
             xPos += xSpd;
             yPos += ySpd;
 
             // Update direction based on velocity
-            if (xSpd > 0) direction = 0;      // Right
-            else if (xSpd < 0) direction = 1; // Left
-            else if (ySpd < 0) direction = 2; // Up
-            else if (ySpd > 0) direction = 3; // Down
+            if (xSpd > 0) s.setDirection(id, 0);      // Right
+            else if (xSpd < 0) s.setDirection(id, 1); // Left
+            else if (ySpd < 0) s.setDirection(id, 2); // Up
+            else if (ySpd > 0) s.setDirection(id, 3); // Down
 
             // Advance animation frame
             subimage += imageSpd;
             if (subimage >= nbSubimagesPerCycle) subimage = 0;
         }
 
-        // Screen wrap-around (tunnel effect)
-        if (xPos > GamePanel.width) xPos = 0 - size + spd;
-        if (xPos < 0 - size + spd) xPos = GamePanel.width;
-        if (yPos > GamePanel.height) yPos = 0 - size + spd;
-        if (yPos < 0 - size + spd) yPos = GamePanel.height;
+        // Maze wrap-around (tunnel effect)
+        int worldWidth = game.getWorldWidth();
+        int worldHeight = game.getWorldHeight();
+        int size = s.getSize(id);
+        int spd = s.getSpd(id);
+        if (xPos > worldWidth) xPos = 0 - size + spd;
+        if (xPos < 0 - size + spd) xPos = worldWidth;
+        if (yPos > worldHeight) yPos = 0 - size + spd;
+        if (yPos < 0 - size + spd) yPos = worldHeight;
+        s.setX(id, xPos);
+        s.setY(id, yPos);
     }
 
     @Override
     public void render(Graphics2D g) {
+        int size = getSize();
+        int direction = getDirection();
         if (sprite != null && sprite.getWidth() >= (int)subimage * size + direction * size * nbSubimagesPerCycle + size) {
-            g.drawImage(sprite.getSubimage((int)subimage * size + direction * size * nbSubimagesPerCycle, 0, size, size), this.xPos, this.yPos, null);
+            g.drawImage(sprite.getSubimage((int)subimage * size + direction * size * nbSubimagesPerCycle, 0, size, size), getxPos(), getyPos(), null);
         }
     }
 
     // ==================== Grid & Bounds Checks ====================
     
     /** Returns true if entity is aligned to the 8px grid (required for turning) */
-    public boolean onTheGrid() { return (xPos % 8 == 0 && yPos % 8 == 0); }
+    public boolean onTheGrid() { return (getxPos() % 8 == 0 && getyPos() % 8 == 0); }
     
-    /** Returns true if entity is within the gameplay area */
-    public boolean onGameplayWindow() { return !(xPos <= 0 || xPos >= GamePanel.width || yPos <= 0 || yPos >= GamePanel.height); }
+    /** Returns true if entity is within the maze area */
+    public boolean onGameplayWindow() {
+        int xPos = getxPos();
+        int yPos = getyPos();
+        return !(xPos <= 0 || xPos >= game.getWorldWidth() || yPos <= 0 || yPos >= game.getWorldHeight());
+    }
     
     @Override
-    public Rectangle getHitbox() { return new Rectangle(xPos, yPos, size, size); }
+    public Rectangle getHitbox() {
+        int size = getSize();
+        hitbox.setBounds(getxPos(), getyPos(), size, size);
+        return hitbox;
+    }
 
     // ==================== Getters & Setters ====================
+    public Game getGame() { return game; }
     public BufferedImage getSprite() { return sprite; }
     public void setSprite(BufferedImage sprite) { this.sprite = sprite; }
     public void setSprite(String spriteName) {
-        try { this.sprite = ImageIO.read(new File(spriteName)); } 
+        try { this.sprite = Utils.readSprite(spriteName); } 
         catch (IOException e) { e.printStackTrace(); }
     }
     public float getSubimage() { return subimage; }
     public void setSubimage(float subimage) { this.subimage = subimage; }
     public int getNbSubimagesPerCycle() { return nbSubimagesPerCycle; }
     public void setNbSubimagesPerCycle(int n) { this.nbSubimagesPerCycle = n; }
-    public int getDirection() { return direction; }
-    public void setDirection(int direction) { this.direction = direction; }
-    public int getxSpd() { return xSpd; }
-    public void setxSpd(int xSpd) { this.xSpd = xSpd; }
-    public int getySpd() { return ySpd; }
-    public void setySpd(int ySpd) { this.ySpd = ySpd; }
-    public int getSpd() { return spd; }
+    public int getDirection() { return store.getDirection(id); }
+    public void setDirection(int direction) { store.setDirection(id, direction); }
+    public int getxSpd() { return store.getxSpd(id); }
+    public void setxSpd(int xSpd) { store.setxSpd(id, xSpd); }
+    public int getySpd() { return store.getySpd(id); }
+    public void setySpd(int ySpd) { store.setySpd(id, ySpd); }
+    public int getSpd() { return store.getSpd(id); }
+    public void setSpd(int spd) { store.setSpd(id, spd); }
 }
@@ -1,133 +1,78 @@
 package com.pacman.entity;
 
 import com.pacman.core.Game;
-import com.pacman.core.LevelConfig;
-import com.pacman.core.Observer;
-import com.pacman.core.Sujet;
-import com.pacman.ghost.Ghost;
-import com.pacman.util.CollisionDetector;
-import com.pacman.util.KeyHandler;
+import com.pacman.util.PacManInput;
 import com.pacman.util.WallCollisionDetector;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
- * The player character class implementing the Subject pattern.
- * Notifies observers when eating pellets or colliding with ghosts.
+ * The player character class.
+ * Contacts with pellets and ghosts are found and applied by the game's
+ * collision phase after all entities moved, which publishes them as events
+ * (see {@link com.pacman.core.EventBus}).
  */
-public class PacMan extends MovingEntity implements Sujet {
+public class PacMan extends MovingEntity {
     
     /** Base movement speed (pixels per frame) before level multiplier */
     private static final int BASE_SPEED = 2;
-    
-    private CollisionDetector collisionDetector;
-    private List<Observer> observerCollection;
 
-    public PacMan(int xPos, int yPos) {
-        super(32, xPos, yPos, (int)(BASE_SPEED * LevelConfig.getPacmanSpeedMultiplier()), "pacman.png", 4, 0.3f);
-        observerCollection = new ArrayList<>();
+    public PacMan(Game game, int xPos, int yPos) {
+        super(game, 32, xPos, yPos, (int)(BASE_SPEED * game.getLevelConfig().getPacmanSpeedMultiplier()), "pacman.png", 4, 0.3f);
     }
 
-    public void input(KeyHandler k) {
+    public void input(PacManInput k) {
         int new_xSpd = 0;
         int new_ySpd = 0;
 
         if (!onTheGrid()) return;
         if (!onGameplayWindow()) return;
 
-        if (k.k_left.isPressed && xSpd >= 0 && !WallCollisionDetector.checkWallCollision(this, -spd, 0)) {
+        int spd = getSpd();
+        int xSpd = getxSpd();
+        int ySpd = getySpd();
+
+        if (k.isLeftPressed() && xSpd >= 0 && !WallCollisionDetector.checkWallCollision(this, -spd, 0)) {
             new_xSpd = -spd;
         }
-        if (k.k_right.isPressed && xSpd <= 0 && !WallCollisionDetector.checkWallCollision(this, spd, 0)) {
+        if (k.isRightPressed() && xSpd <= 0 && !WallCollisionDetector.checkWallCollision(this, spd, 0)) {
             new_xSpd = spd;
         }
-        if (k.k_up.isPressed && ySpd >= 0 && !WallCollisionDetector.checkWallCollision(this, 0, -spd)) {
+        if (k.isUpPressed() && ySpd >= 0 && !WallCollisionDetector.checkWallCollision(this, 0, -spd)) {
             new_ySpd = -spd;
         }
-        if (k.k_down.isPressed && ySpd <= 0 && !WallCollisionDetector.checkWallCollision(this, 0, spd)) {
+        if (k.isDownPressed() && ySpd <= 0 && !WallCollisionDetector.checkWallCollision(this, 0, spd)) {
             new_ySpd = spd;
         }
 
         if (new_xSpd == 0 && new_ySpd == 0) return;
 
-        if (!Game.getFirstInput()) Game.setFirstInput(true);
+        if (!game.getFirstInput()) game.setFirstInput(true);
 
         if (Math.abs(new_xSpd) != Math.abs(new_ySpd)) {
-            xSpd = new_xSpd;
-            ySpd = new_ySpd;
+            setxSpd(new_xSpd);
+            setySpd(new_ySpd);
         } else {
             if (xSpd != 0) {
-                xSpd = 0;
-                ySpd = new_ySpd;
+                setxSpd(0);
+                setySpd(new_ySpd);
             } else {
-                xSpd = new_xSpd;
-                ySpd = 0;
+                setxSpd(new_xSpd);
+                setySpd(0);
             }
         }
     }
 
     @Override
     public void update() {
-        if (collisionDetector != null) {
-            PacGum pg = (PacGum) collisionDetector.checkCollision(this, PacGum.class);
-            if (pg != null) {
-                notifyObserverPacGumEaten(pg);
-            }
-
-            SuperPacGum spg = (SuperPacGum) collisionDetector.checkCollision(this, SuperPacGum.class);
-            if (spg != null) {
-                notifyObserverSuperPacGumEaten(spg);
-            }
-
-            // Only check ghost collisions if not in grace period
-            if (!Game.isInGracePeriod()) {
-                Ghost gh = (Ghost) collisionDetector.checkCollision(this, Ghost.class);
-                if (gh != null) {
-                    notifyObserverGhostCollision(gh);
-                }
-            }
-        }
-
-        if (!WallCollisionDetector.checkWallCollision(this, xSpd, ySpd)) {
+        if (!WallCollisionDetector.checkWallCollision(this, getxSpd(), getySpd())) {
             updatePosition();
         }
     }
 
-    public void setCollisionDetector(CollisionDetector collisionDetector) {
-        this.collisionDetector = collisionDetector;
-    }
-
     /**
      * Updates PacMan speed when advancing to a new level.
      * Called by Game when nextLevel() is triggered.
      */
     public void updateSpeedForLevel() {
-        spd = (int)(BASE_SPEED * LevelConfig.getPacmanSpeedMultiplier());
-    }
-
-    @Override
-    public void registerObserver(Observer observer) {
-        observerCollection.add(observer);
-    }
-
-    @Override
-    public void removeObserver(Observer observer) {
-        observerCollection.remove(observer);
-    }
-
-    @Override
-    public void notifyObserverPacGumEaten(PacGum pg) {
-        observerCollection.forEach(obs -> obs.updatePacGumEaten(pg));
-    }
-
-    @Override
-    public void notifyObserverSuperPacGumEaten(SuperPacGum spg) {
-        observerCollection.forEach(obs -> obs.updateSuperPacGumEaten(spg));
-    }
-
-    @Override
-    public void notifyObserverGhostCollision(Ghost gh) {
-        observerCollection.forEach(obs -> obs.updateGhostCollision(gh));
+        setSpd((int)(BASE_SPEED * game.getLevelConfig().getPacmanSpeedMultiplier()));
     }
 }
@@ -21,20 +21,32 @@ import java.awt.*;
  */
 public abstract class StaticEntity extends Entity {
     
-    /** Collision hitbox for this entity */
+    /**
+     * Collision hitbox, created on first request. Collision queries read the
+     * {@link EntityStore} arrays, so most static entities never allocate one.
+     */
     protected Rectangle hitbox;
 
+    /** Level tile index this entity was created from (-1 if not from a level cell) */
+    protected int tile = -1;
+
     /**
      * Creates a static entity at the specified position.
+     * @param store Store of the game the entity belongs to
      * @param size Entity size in pixels (typically 8)
      * @param xPos X position
      * @param yPos Y position
      */
-    public StaticEntity(int size, int xPos, int yPos) {
-        super(size, xPos, yPos);
-        this.hitbox = new Rectangle(xPos, yPos, size, size);
+    public StaticEntity(EntityStore store, int size, int xPos, int yPos) {
+        super(store, size, xPos, yPos);
     }
 
+    public int getTile() { return tile; }
+    public void setTile(int tile) { this.tile = tile; }
+
     @Override
-    public Rectangle getHitbox() { return hitbox; }
+    public Rectangle getHitbox() {
+        if (hitbox == null) hitbox = new Rectangle(spawnX, spawnY, getSize(), getSize());
+        return hitbox;
+    }
 }
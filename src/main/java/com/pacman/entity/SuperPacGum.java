@@ -1,5 +1,7 @@
 package com.pacman.entity;
 
+import com.pacman.core.Game;
+
 import java.awt.*;
 
 /**
@@ -8,22 +10,19 @@ import java.awt.*;
  * Blinks on and off for visibility.
  */
 public class SuperPacGum extends StaticEntity {
-    private int frameCount = 0;
+    /** Game whose blink clock all its power pellets share */
+    private final Game game;
 
-    public SuperPacGum(int xPos, int yPos) {
-        super(16, xPos, yPos);
+    public SuperPacGum(Game game, int xPos, int yPos) {
+        super(game.getStore(), 16, xPos, yPos);
+        this.game = game;
     }
 
     @Override
     public void render(Graphics2D g) {
-        if (frameCount % 60 < 30) {
+        if (game.getBlinkClock() % 60 < 30) {
             g.setColor(new Color(255, 183, 174));
-            g.fillOval(this.xPos, this.yPos, this.size, this.size);
+            g.fillOval(getxPos(), getyPos(), getSize(), getSize());
         }
     }
-
-    @Override
-    public void update() {
-        frameCount++;
-    }
 }
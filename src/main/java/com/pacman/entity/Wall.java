@@ -5,7 +5,7 @@ package com.pacman.entity;
  * Blocks movement for both PacMan and Ghosts.
  */
 public class Wall extends StaticEntity {
-    public Wall(int xPos, int yPos) {
-        super(8, xPos, yPos);
+    public Wall(EntityStore store, int xPos, int yPos) {
+        super(store, 8, xPos, yPos);
     }
 }
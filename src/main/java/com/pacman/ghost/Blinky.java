@@ -1,5 +1,6 @@
 package com.pacman.ghost;
 
+import com.pacman.core.Game;
 import com.pacman.ghost.strategy.BlinkyStrategy;
 
 /**
@@ -7,8 +8,8 @@ import com.pacman.ghost.strategy.BlinkyStrategy;
  * Directly pursues PacMan's current position.
  */
 public class Blinky extends Ghost {
-    public Blinky(int xPos, int yPos) {
-        super(xPos, yPos, "blinky.png");
-        setStrategy(new BlinkyStrategy());
+    public Blinky(Game game, int xPos, int yPos) {
+        super(game, xPos, yPos, "blinky.png");
+        setStrategy(new BlinkyStrategy(game));
     }
 }
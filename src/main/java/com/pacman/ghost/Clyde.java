@@ -1,5 +1,6 @@
 package com.pacman.ghost;
 
+import com.pacman.core.Game;
 import com.pacman.ghost.strategy.ClydeStrategy;
 
 /**
@@ -7,8 +8,8 @@ import com.pacman.ghost.strategy.ClydeStrategy;
  * Shy ghost that retreats when close to PacMan.
  */
 public class Clyde extends Ghost {
-    public Clyde(int xPos, int yPos) {
-        super(xPos, yPos, "clyde.png");
-        setStrategy(new ClydeStrategy(this));
+    public Clyde(Game game, int xPos, int yPos) {
+        super(game, xPos, yPos, "clyde.png");
+        setStrategy(new ClydeStrategy(game, this));
     }
 }
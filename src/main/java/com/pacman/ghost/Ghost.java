@@ -1,15 +1,14 @@
 package com.pacman.ghost;
 
 import com.pacman.core.Game;
-import com.pacman.core.LevelConfig;
 import com.pacman.entity.MovingEntity;
 import com.pacman.ghost.state.*;
 import com.pacman.ghost.strategy.IGhostStrategy;
+import com.pacman.util.RandomStream;
+import com.pacman.util.Utils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 
 /**
@@ -58,6 +57,13 @@ public abstract class Ghost extends MovingEntity {
     
     /** Base movement speed (pixels per frame) before level multiplier */
     private static final int BASE_SPEED = 1;
+
+    // ==================== State Ids (snapshots) ====================
+    public static final byte STATE_CHASE = 0;
+    public static final byte STATE_SCATTER = 1;
+    public static final byte STATE_FRIGHTENED = 2;
+    public static final byte STATE_EATEN = 3;
+    public static final byte STATE_HOUSE = 4;
     
     /** Current behavioral state */
     protected GhostState state;
@@ -86,14 +92,24 @@ public abstract class Ghost extends MovingEntity {
     /** Targeting strategy (Strategy Pattern) */
     protected IGhostStrategy strategy;
 
+    /** Set by {@link #prepareTick()}: false until the player's first input */
+    private boolean actingThisTick = false;
+
+    /** Memoized junction decisions, shared by all states of this ghost */
+    protected final DecisionCache decisionCache = new DecisionCache();
+
+    /** This ghost's random stream, split from the game's (see {@link #setRandom}) */
+    private RandomStream random = new RandomStream(0);
+
     /**
      * Creates a ghost at the specified position.
+     * @param game Game the ghost belongs to
      * @param xPos X spawn position
      * @param yPos Y spawn position
      * @param spriteName Sprite sheet filename (e.g., "blinky.png")
      */
-    public Ghost(int xPos, int yPos, String spriteName) {
-        super(32, xPos, yPos, (int)(BASE_SPEED * LevelConfig.getGhostSpeedMultiplier()), spriteName, 2, 0.1f);
+    public Ghost(Game game, int xPos, int yPos, String spriteName) {
+        super(game, 32, xPos, yPos, (int)(BASE_SPEED * game.getLevelConfig().getGhostSpeedMultiplier()), spriteName, 2, 0.1f);
 
         // Initialize all state objects (State Pattern)
         chaseMode = new ChaseMode(this);
@@ -106,12 +122,14 @@ public abstract class Ghost extends MovingEntity {
         state = houseMode;
 
         // Load shared sprites (only once for all ghosts)
-        try {
-            frightenedSprite1 = ImageIO.read(new File("ghost_frightened.png"));
-            frightenedSprite2 = ImageIO.read(new File("ghost_frightened_2.png"));
-            eatenSprite = ImageIO.read(new File("ghost_eaten.png"));
-        } catch (IOException e) {
-            System.err.println("Could not load ghost sprites");
+        if (eatenSprite == null) {
+            try {
+                frightenedSprite1 = Utils.readImage("ghost_frightened.png");
+                frightenedSprite2 = Utils.readImage("ghost_frightened_2.png");
+                eatenSprite = Utils.readImage("ghost_eaten.png");
+            } catch (IOException e) {
+                System.err.println("Could not load ghost sprites");
+            }
         }
     }
 
@@ -143,38 +161,89 @@ public abstract class Ghost extends MovingEntity {
     public IGhostStrategy getStrategy() { return this.strategy; }
     public void setStrategy(IGhostStrategy strategy) { this.strategy = strategy; }
     public GhostState getState() { return state; }
+    public DecisionCache getDecisionCache() { return decisionCache; }
+    public RandomStream getRandom() { return random; }
+    /** Gives the ghost its own stream; the game splits one per ghost from its seed */
+    public void setRandom(RandomStream random) { this.random = random; }
+
+    /** Returns the ticks left in Frightened mode (meaningful only in that mode) */
+    public int getFrightenedTicksLeft() { return Math.max(0, 60 * 7 - frightenedTimer); }
+
+    public int getModeTimer() { return modeTimer; }
+    public int getFrightenedTimer() { return frightenedTimer; }
+    public boolean isChasing() { return isChasing; }
+
+    /** Returns the current state as one of the {@code STATE_*} ids */
+    public byte getStateId() {
+        if (state == chaseMode) return STATE_CHASE;
+        if (state == scatterMode) return STATE_SCATTER;
+        if (state == frightenedMode) return STATE_FRIGHTENED;
+        if (state == eatenMode) return STATE_EATEN;
+        return STATE_HOUSE;
+    }
+
+    /**
+     * Restores the state and timers saved by a snapshot.
+     * @param stateId one of the {@code STATE_*} ids
+     */
+    public void restoreState(byte stateId, int modeTimer, int frightenedTimer, boolean chasing) {
+        switch (stateId) {
+            case STATE_CHASE: state = chaseMode; break;
+            case STATE_SCATTER: state = scatterMode; break;
+            case STATE_FRIGHTENED: state = frightenedMode; break;
+            case STATE_EATEN: state = eatenMode; break;
+            default: state = houseMode; break;
+        }
+        this.modeTimer = modeTimer;
+        this.frightenedTimer = frightenedTimer;
+        this.isChasing = chasing;
+    }
 
     /**
      * Updates ghost speed when advancing to a new level.
      * Called by Game when nextLevel() is triggered.
      */
     public void updateSpeedForLevel() {
-        spd = (int)(BASE_SPEED * LevelConfig.getGhostSpeedMultiplier());
+        setSpd((int)(BASE_SPEED * game.getLevelConfig().getGhostSpeedMultiplier()));
     }
 
     // ==================== Game Loop ====================
 
     /**
      * Updates ghost state, timers, and position each frame.
-     * Handles speed reduction for FrightenedMode using a temporary speed variable.
+     * Same as {@link #prepareTick()}, {@link #decide()} and {@link #move()} in a
+     * row; the game runs these as separate phases for all ghosts.
      */
     @Override
     public void update() {
+        prepareTick();
+        decide();
+        move();
+    }
+
+    /**
+     * Sequential part of the tick: timers, mode switches and house checks,
+     * then the state prepares its target for {@link #decide()}.
+     * Handles speed reduction for FrightenedMode using a temporary speed variable.
+     * @return true if the ghost acts this tick
+     */
+    public boolean prepareTick() {
         // Don't move until player makes first input
-        if (!Game.getFirstInput()) return;
+        actingThisTick = game.getFirstInput();
+        if (!actingThisTick) return false;
 
         // Save original speed
         int originalSpd = 2;
         if (state == frightenedMode) {
             // Reduce speed only in FrightenedMode
-            if (spd != 1) spd = 1;
+            if (getSpd() != 1) setSpd(1);
             frightenedTimer++;
             if (frightenedTimer >= (60 * 7)) { // 7 seconds
                 state.timerFrightenedModeOver();
             }
         } else {
             // Restore normal speed if not frightened
-            if (spd != originalSpd) spd = originalSpd;
+            if (getSpd() != originalSpd) setSpd(originalSpd);
         }
 
         // Chase/Scatter mode timer - alternate between modes
@@ -188,6 +257,8 @@ public abstract class Ghost extends MovingEntity {
         }
 
         // Check ghost house entry/exit positions
+        int xPos = getxPos();
+        int yPos = getyPos();
         if (xPos == 208 && yPos == 168) {
             state.outsideHouse(); // Just exited ghost house
         }
@@ -195,9 +266,24 @@ public abstract class Ghost extends MovingEntity {
             state.insideHouse(); // Just entered ghost house
         }
 
-        // Compute next direction and move
-        state.computeNextDir();
-        updatePosition();
+        state.prepareDecision();
+        return true;
+    }
+
+    /**
+     * Computes the next direction. Only reads this ghost, the world snapshot
+     * and data prepared in {@link #prepareTick()}, so ghosts may decide in
+     * parallel.
+     */
+    public void decide() {
+        if (actingThisTick)
+            state.computeNextDir();
+    }
+
+    /** Moves the ghost by its current speed */
+    public void move() {
+        if (actingThisTick)
+            updatePosition();
     }
 
     /**
@@ -212,21 +298,25 @@ public abstract class Ghost extends MovingEntity {
      */
     @Override
     public void render(Graphics2D g) {
+        int size = getSize();
+        int xPos = getxPos();
+        int yPos = getyPos();
+        int direction = getDirection();
         if (state == frightenedMode) {
             // Blue sprite, flashes white in last 2 seconds
             if (frightenedSprite1 != null && (frightenedTimer <= (60 * 5) || frightenedTimer % 20 > 10)) {
-                g.drawImage(frightenedSprite1.getSubimage((int)subimage * size, 0, size, size), this.xPos, this.yPos, null);
+                g.drawImage(frightenedSprite1.getSubimage((int)subimage * size, 0, size, size), xPos, yPos, null);
             } else if (frightenedSprite2 != null) {
-                g.drawImage(frightenedSprite2.getSubimage((int)subimage * size, 0, size, size), this.xPos, this.yPos, null);
+                g.drawImage(frightenedSprite2.getSubimage((int)subimage * size, 0, size, size), xPos, yPos, null);
             }
         } else if (state == eatenMode) {
             // Eyes only - directional sprite
             if (eatenSprite != null) {
-                g.drawImage(eatenSprite.getSubimage(direction * size, 0, size, size), this.xPos, this.yPos, null);
+                g.drawImage(eatenSprite.getSubimage(direction * size, 0, size, size), xPos, yPos, null);
             }
         } else {
             if (sprite != null) {
-                g.drawImage(sprite.getSubimage((int)subimage * size + direction * size * nbSubimagesPerCycle, 0, size, size), this.xPos, this.yPos, null);
+                g.drawImage(sprite.getSubimage((int)subimage * size + direction * size * nbSubimagesPerCycle, 0, size, size), xPos, yPos, null);
             }
         }
     }
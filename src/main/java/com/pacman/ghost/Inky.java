@@ -8,8 +8,8 @@ import com.pacman.ghost.strategy.InkyStrategy;
  * Uses Blinky's position to calculate flanking target.
  */
 public class Inky extends Ghost {
-    public Inky(int xPos, int yPos) {
-        super(xPos, yPos, "inky.png");
-        setStrategy(new InkyStrategy(Game.getBlinky()));
+    public Inky(Game game, int xPos, int yPos) {
+        super(game, xPos, yPos, "inky.png");
+        setStrategy(new InkyStrategy(game, game.getBlinky()));
     }
 }
@@ -1,5 +1,6 @@
 package com.pacman.ghost;
 
+import com.pacman.core.Game;
 import com.pacman.ghost.strategy.PinkyStrategy;
 
 /**
@@ -7,8 +8,8 @@ import com.pacman.ghost.strategy.PinkyStrategy;
  * Targets 4 tiles ahead of PacMan for ambush attacks.
  */
 public class Pinky extends Ghost {
-    public Pinky(int xPos, int yPos) {
-        super(xPos, yPos, "pinky.png");
-        setStrategy(new PinkyStrategy());
+    public Pinky(Game game, int xPos, int yPos) {
+        super(game, xPos, yPos, "pinky.png");
+        setStrategy(new PinkyStrategy(game));
     }
 }
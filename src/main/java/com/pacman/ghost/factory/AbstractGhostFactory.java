@@ -1,5 +1,6 @@
 package com.pacman.ghost.factory;
 
+import com.pacman.core.Game;
 import com.pacman.ghost.Ghost;
 
 /**
@@ -21,7 +22,7 @@ import com.pacman.ghost.Ghost;
  * <p><b>Usage in Game.java:</b></p>
  * <pre>
  * AbstractGhostFactory factory = new BlinkyFactory();
- * Ghost ghost = factory.makeGhost(x, y);
+ * Ghost ghost = factory.makeGhost(game, x, y);
  * </pre>
  * 
  * @see Ghost The product created by factories
@@ -31,9 +32,10 @@ public abstract class AbstractGhostFactory {
     
     /**
      * Creates a ghost at the specified position.
+     * @param game Game the ghost belongs to
      * @param xPos X spawn position
      * @param yPos Y spawn position
      * @return The created Ghost with its unique strategy
      */
-    public abstract Ghost makeGhost(int xPos, int yPos);
+    public abstract Ghost makeGhost(Game game, int xPos, int yPos);
 }
@@ -1,5 +1,6 @@
 package com.pacman.ghost.factory;
 
+import com.pacman.core.Game;
 import com.pacman.ghost.Blinky;
 import com.pacman.ghost.Ghost;
 
@@ -8,7 +9,7 @@ import com.pacman.ghost.Ghost;
  */
 public class BlinkyFactory extends AbstractGhostFactory {
     @Override
-    public Ghost makeGhost(int xPos, int yPos) {
-        return new Blinky(xPos, yPos);
+    public Ghost makeGhost(Game game, int xPos, int yPos) {
+        return new Blinky(game, xPos, yPos);
     }
 }
@@ -1,5 +1,6 @@
 package com.pacman.ghost.factory;
 
+import com.pacman.core.Game;
 import com.pacman.ghost.Ghost;
 import com.pacman.ghost.Inky;
 
@@ -8,7 +9,7 @@ import com.pacman.ghost.Inky;
  */
 public class InkyFactory extends AbstractGhostFactory {
     @Override
-    public Ghost makeGhost(int xPos, int yPos) {
-        return new Inky(xPos, yPos);
+    public Ghost makeGhost(Game game, int xPos, int yPos) {
+        return new Inky(game, xPos, yPos);
     }
 }
@@ -0,0 +1,61 @@
+package com.pacman.ghost.path;
+
+import java.util.Arrays;
+
+/**
+ * Breadth-first distance field towards one target tile.
+ *
+ * <p>
+ * {@code distance[tile]} is the number of tile steps from that tile to the
+ * target for a ghost-sized (32px) box, or -1 if unreachable. Any number of
+ * ghosts heading to the same target read their next direction from the same
+ * field: at a junction a ghost simply steps to the neighbour with the smallest
+ * distance. Arrays are reused between ticks; see {@link FlowFieldCache}.
+ * </p>
+ */
+public class FlowField {
+
+    private final int[] distance;
+    private final int[] queue;
+    private int targetTile = -1;
+
+    FlowField(int tileCount) {
+        distance = new int[tileCount];
+        queue = new int[tileCount];
+    }
+
+    /**
+     * Recomputes the field for a target tile.
+     * @param walkable walkability of each tile for a ghost-sized box
+     * @param columns maze width in tiles
+     * @param target target tile index (must be walkable)
+     */
+    void compute(boolean[] walkable, int columns, int target) {
+        targetTile = target;
+        Arrays.fill(distance, -1);
+        int rows = distance.length / columns;
+        int head = 0;
+        int tail = 0;
+        distance[target] = 0;
+        queue[tail++] = target;
+        while (head < tail) {
+            int t = queue[head++];
+            int tx = t % columns;
+            int ty = t / columns;
+            int d = distance[t] + 1;
+            if (tx > 0 && walkable[t - 1] && distance[t - 1] < 0) { distance[t - 1] = d; queue[tail++] = t - 1; }
+            if (tx < columns - 1 && walkable[t + 1] && distance[t + 1] < 0) { distance[t + 1] = d; queue[tail++] = t + 1; }
+            if (ty > 0 && walkable[t - columns] && distance[t - columns] < 0) { distance[t - columns] = d; queue[tail++] = t - columns; }
+            if (ty < rows - 1 && walkable[t + columns] && distance[t + columns] < 0) { distance[t + columns] = d; queue[tail++] = t + columns; }
+        }
+    }
+
+    /** Returns the step distance from a tile to the target, or -1 if unreachable */
+    public int getDistance(int tile) {
+        return distance[tile];
+    }
+
+    public int getTargetTile() {
+        return targetTile;
+    }
+}
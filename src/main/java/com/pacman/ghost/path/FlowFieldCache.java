@@ -0,0 +1,183 @@
+package com.pacman.ghost.path;
+
+import com.pacman.core.TileMap;
+
+import java.util.Arrays;
+
+/**
+ * Cache of {@link FlowField}s, one per target tile.
+ *
+ * <p>
+ * The first ghost asking for a target tile pays for one BFS over the maze;
+ * every other ghost with the same target reuses it. A field only depends on
+ * the maze and its target tile, so it stays valid across ticks until the maze
+ * changes: a tick costs at most one BFS per target tile that moved, whatever
+ * the number of ghosts. Walkability for a ghost-sized box is derived from the
+ * {@link TileMap} and rebuilt, together with all fields, when the maze version
+ * changes.
+ * </p>
+ *
+ * <pre>
+ * beginTick()                    -> fields handed out from now on stay valid
+ *                                   until the next beginTick()
+ * get(targetX, targetY, version) -> cached field, or BFS into the least
+ *                                   recently used of {@value #MAX_FIELDS} pooled fields
+ * </pre>
+ *
+ * <p>
+ * {@code get} is called from the sequential ghost phase only; fields are
+ * then read concurrently by the decision phase. A field used in the current
+ * tick is never evicted in that tick (the pool grows past
+ * {@value #MAX_FIELDS} instead), so a prepared field cannot change under a
+ * deciding ghost.
+ * </p>
+ */
+public class FlowFieldCache {
+
+    /** Fields kept between ticks (one int array per maze tile each) */
+    public static final int MAX_FIELDS = 32;
+
+    private final TileMap tileMap;
+    private final int cellSize;
+    private final int footprint;
+    private final int columns;
+    private final int rows;
+
+    /** Tiles where the top-left corner of a ghost box fits without touching a wall or door */
+    private boolean[] walkable;
+
+    /** Closest walkable tile of each tile, so off-maze targets still get a field */
+    private int[] nearest;
+    private int builtVersion = Integer.MIN_VALUE;
+
+    /** Pooled fields; the first {@code fieldCount} hold a computed target */
+    private FlowField[] fields = new FlowField[MAX_FIELDS];
+    private long[] lastUsed = new long[MAX_FIELDS];
+    private long[] lastTick = new long[MAX_FIELDS];
+    private int fieldCount = 0;
+    private long useClock = 0;
+    private long tick = 0;
+
+    /** Number of BFS runs since creation */
+    private long computed = 0;
+
+    /**
+     * @param tileMap maze layout
+     * @param cellSize tile size in pixels
+     * @param footprint ghost size in pixels
+     */
+    public FlowFieldCache(TileMap tileMap, int cellSize, int footprint) {
+        this.tileMap = tileMap;
+        this.cellSize = cellSize;
+        this.footprint = footprint;
+        this.columns = tileMap.getColumns();
+        this.rows = tileMap.getRows();
+    }
+
+    /** Starts a new tick; fields from earlier ticks become evictable */
+    public void beginTick() {
+        tick++;
+    }
+
+    /**
+     * Returns the flow field towards a target pixel position, computing it if
+     * that target tile is not cached.
+     * @param mazeVersion current maze version (walkability is rebuilt when it changes)
+     * @return the field, or null if the maze has no walkable tile
+     */
+    public FlowField get(int targetX, int targetY, int mazeVersion) {
+        if (columns == 0 || rows == 0)
+            return null;
+        if (builtVersion != mazeVersion) {
+            buildWalkable();
+            builtVersion = mazeVersion;
+            fieldCount = 0;
+        }
+        int tx = Math.max(0, Math.min(columns - 1, Math.floorDiv(targetX, cellSize)));
+        int ty = Math.max(0, Math.min(rows - 1, Math.floorDiv(targetY, cellSize)));
+        int target = nearest[ty * columns + tx];
+        if (target < 0)
+            return null;
+
+        // A handful of distinct targets: a linear scan beats hashing
+        useClock++;
+        int slot = -1;
+        for (int i = 0; i < fieldCount; i++) {
+            if (fields[i].getTargetTile() == target) {
+                lastUsed[i] = useClock;
+                lastTick[i] = tick;
+                return fields[i];
+            }
+            if (lastTick[i] != tick && (slot < 0 || lastUsed[i] < lastUsed[slot]))
+                slot = i;
+        }
+        if (fieldCount < MAX_FIELDS || slot < 0) {
+            if (fieldCount == fields.length) {
+                fields = Arrays.copyOf(fields, fieldCount * 2);
+                lastUsed = Arrays.copyOf(lastUsed, fieldCount * 2);
+                lastTick = Arrays.copyOf(lastTick, fieldCount * 2);
+            }
+            slot = fieldCount++;
+            if (fields[slot] == null)
+                fields[slot] = new FlowField(columns * rows);
+        }
+        FlowField field = fields[slot];
+        lastUsed[slot] = useClock;
+        lastTick[slot] = tick;
+        field.compute(walkable, columns, target);
+        computed++;
+        return field;
+    }
+
+    /** Returns true if a ghost box can stand with its top-left corner on a tile */
+    public boolean isWalkable(int tx, int ty) {
+        if (tx < 0 || ty < 0 || tx >= columns || ty >= rows)
+            return false;
+        return walkable[ty * columns + tx];
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /** Returns the number of cached fields */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /** Returns the total number of BFS runs */
+    public long getComputedCount() {
+        return computed;
+    }
+
+    private void buildWalkable() {
+        int n = columns * rows;
+        if (walkable == null) {
+            walkable = new boolean[n];
+            nearest = new int[n];
+        }
+        int[] queue = new int[n];
+        int tail = 0;
+        Arrays.fill(nearest, -1);
+        for (int ty = 0; ty < rows; ty++) {
+            for (int tx = 0; tx < columns; tx++) {
+                int t = ty * columns + tx;
+                walkable[t] = !tileMap.intersectsWall(tx * cellSize, ty * cellSize, footprint, footprint, false);
+                if (walkable[t]) {
+                    nearest[t] = t;
+                    queue[tail++] = t;
+                }
+            }
+        }
+        // Multi-source BFS: every tile inherits the walkable tile it was reached from
+        for (int head = 0; head < tail; head++) {
+            int t = queue[head];
+            int tx = t % columns;
+            int ty = t / columns;
+            if (tx > 0 && nearest[t - 1] < 0) { nearest[t - 1] = nearest[t]; queue[tail++] = t - 1; }
+            if (tx < columns - 1 && nearest[t + 1] < 0) { nearest[t + 1] = nearest[t]; queue[tail++] = t + 1; }
+            if (ty > 0 && nearest[t - columns] < 0) { nearest[t - columns] = nearest[t]; queue[tail++] = t - columns; }
+            if (ty < rows - 1 && nearest[t + columns] < 0) { nearest[t + columns] = nearest[t]; queue[tail++] = t + columns; }
+        }
+    }
+}
@@ -24,4 +24,9 @@ public class ChaseMode extends GhostState {
     public int[] getTargetPosition() {
         return ghost.getStrategy().getChaseTargetPosition();
     }
+
+    @Override
+    protected boolean usesSharedTarget() {
+        return true;
+    }
 }
@@ -0,0 +1,147 @@
+package com.pacman.ghost.state;
+
+import java.util.Arrays;
+
+/**
+ * Bounded memo of junction decisions for one ghost.
+ *
+ * <p>
+ * A greedy decision only depends on where the ghost stands, where it is
+ * heading, its speed, its target and whether it may pass the house door, so
+ * it can be replayed the next time the same situation comes up (scatter
+ * corners, the house, a PacMan standing still). Everything is packed into one
+ * {@code long} key; the value is a {@code DIR_*} code.
+ * </p>
+ *
+ * <p>
+ * Storage is 4-way set associative with CLOCK (second chance) eviction inside
+ * each set: a hit sets the entry's reference bit, and the hand clears bits
+ * until it finds an entry that was not used since its last pass. The whole
+ * cache is dropped when the maze version changes.
+ * </p>
+ *
+ * <pre>
+ * Key bits | 63..52 | 51..40 | 39..24  | 23..8   | 7..4     | 3..1 | 0
+ * ---------|--------|--------|---------|---------|----------|------|-----
+ *          | tile x | tile y | target x| target y| incoming | spd  | door
+ * </pre>
+ */
+public class DecisionCache {
+
+    /** Decision codes */
+    public static final byte DIR_NONE = 0;
+    public static final byte DIR_LEFT = 1;
+    public static final byte DIR_RIGHT = 2;
+    public static final byte DIR_UP = 3;
+    public static final byte DIR_DOWN = 4;
+
+    /** Returned by {@link #key} when the situation does not fit in a key */
+    public static final long NO_KEY = -1L;
+
+    private static final int WAYS = 4;
+    private static final int SETS = 16;
+    private static final int TARGET_OFFSET = 1 << 15;
+
+    private final long[] keys = new long[SETS * WAYS];
+    /** Decision of each slot, -1 when empty */
+    private final byte[] values = new byte[SETS * WAYS];
+    private final boolean[] referenced = new boolean[SETS * WAYS];
+    private final byte[] hands = new byte[SETS];
+
+    private int mazeVersion = Integer.MIN_VALUE;
+    private long hits = 0;
+    private long misses = 0;
+
+    public DecisionCache() {
+        clear();
+    }
+
+    /**
+     * Packs a decision situation into a key.
+     * @param tx ghost tile x
+     * @param ty ghost tile y
+     * @param xSpd current horizontal speed (only its sign matters)
+     * @param ySpd current vertical speed (only its sign matters)
+     * @param spd ghost speed
+     * @param targetX target x in pixels
+     * @param targetY target y in pixels
+     * @param passDoors true if the ghost may pass the house door
+     * @return the key, or {@link #NO_KEY} if a value is out of range
+     */
+    public static long key(int tx, int ty, int xSpd, int ySpd, int spd, int targetX, int targetY, boolean passDoors) {
+        int tgx = targetX + TARGET_OFFSET;
+        int tgy = targetY + TARGET_OFFSET;
+        if ((tx >>> 12) != 0 || (ty >>> 12) != 0 || (tgx >>> 16) != 0 || (tgy >>> 16) != 0 || (spd >>> 3) != 0)
+            return NO_KEY;
+        int incoming = (Integer.signum(xSpd) + 1) * 3 + Integer.signum(ySpd) + 1;
+        return ((long) tx << 52) | ((long) ty << 40) | ((long) tgx << 24) | ((long) tgy << 8)
+                | (incoming << 4) | (spd << 1) | (passDoors ? 1 : 0);
+    }
+
+    /**
+     * Looks up a decision.
+     * @param mazeVersion current maze version; a different one empties the cache
+     * @return the cached {@code DIR_*} code, or -1 on a miss
+     */
+    public int get(long key, int mazeVersion) {
+        if (mazeVersion != this.mazeVersion) {
+            clear();
+            this.mazeVersion = mazeVersion;
+        }
+        int base = setOf(key) * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            if (values[i] >= 0 && keys[i] == key) {
+                referenced[i] = true;
+                hits++;
+                return values[i];
+            }
+        }
+        misses++;
+        return -1;
+    }
+
+    /** Stores a decision, evicting with CLOCK if its set is full */
+    public void put(long key, int decision) {
+        int set = setOf(key);
+        int base = set * WAYS;
+        int slot = -1;
+        for (int i = base; i < base + WAYS; i++) {
+            if (values[i] < 0) {
+                slot = i;
+                break;
+            }
+        }
+        while (slot < 0) {
+            int i = base + hands[set];
+            hands[set] = (byte) ((hands[set] + 1) % WAYS);
+            if (referenced[i])
+                referenced[i] = false;
+            else
+                slot = i;
+        }
+        keys[slot] = key;
+        values[slot] = (byte) decision;
+        referenced[slot] = false;
+    }
+
+    /** Drops every entry (statistics are kept) */
+    public void clear() {
+        Arrays.fill(values, (byte) -1);
+        Arrays.fill(referenced, false);
+    }
+
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public int getCapacity() { return SETS * WAYS; }
+
+    /** Returns hits / lookups, or 0 before the first lookup */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private static int setOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 60) & (SETS - 1);
+    }
+}
@@ -1,9 +1,8 @@
 package com.pacman.ghost.state;
 
-import com.pacman.core.Game;
-import com.pacman.entity.PacMan;
+import com.pacman.core.WorldSnapshot;
 import com.pacman.ghost.Ghost;
-import com.pacman.util.Utils;
+import com.pacman.util.RandomStream;
 
 /**
  * Frightened mode - ghost flees from PacMan and can be eaten.
@@ -26,20 +25,21 @@ public class FrightenedMode extends GhostState {
     @Override
     public int[] getTargetPosition() {
         // Flee from PacMan: target the opposite direction
-        PacMan pacman = Game.getPacman();
-        int[] position = new int[2];
-        if (pacman != null) {
+        WorldSnapshot world = ghost.getGame().getWorldSnapshot();
+        int[] position = target;
+        if (ghost.getGame().getPacman() != null) {
             // Vector from PacMan to ghost (flee direction)
-            int dx = ghost.getxPos() - pacman.getxPos();
-            int dy = ghost.getyPos() - pacman.getyPos();
+            int dx = ghost.getxPos() - world.getPacmanX();
+            int dy = ghost.getyPos() - world.getPacmanY();
             // Target a point far away in the flee direction
             position[0] = ghost.getxPos() + dx;
             position[1] = ghost.getyPos() + dy;
         } else {
-            // Fallback to random if PacMan not available
-            boolean randomAxis = Utils.randomBool();
-            position[0] = ghost.getxPos() + (randomAxis ? Utils.randomInt(-1, 1) * 32 : 0);
-            position[1] = ghost.getyPos() + (!randomAxis ? Utils.randomInt(-1, 1) * 32 : 0);
+            // Fallback to random if PacMan not available (ghost's own stream)
+            RandomStream random = ghost.getRandom();
+            boolean randomAxis = random.nextBoolean();
+            position[0] = ghost.getxPos() + (randomAxis ? random.nextInt(-1, 1) * 32 : 0);
+            position[1] = ghost.getyPos() + (!randomAxis ? random.nextInt(-1, 1) * 32 : 0);
         }
         return position;
     }
@@ -1,6 +1,9 @@
 package com.pacman.ghost.state;
 
+import com.pacman.core.Game;
 import com.pacman.ghost.Ghost;
+import com.pacman.ghost.path.FlowField;
+import com.pacman.ghost.path.FlowFieldCache;
 import com.pacman.util.Utils;
 import com.pacman.util.WallCollisionDetector;
 
@@ -43,7 +46,9 @@ import com.pacman.util.WallCollisionDetector;
  * </pre>
  * 
  * <p><b>Pathfinding:</b> The {@link #computeNextDir()} method uses shortest-distance
- * pathfinding to choose the next direction toward the target position.</p>
+ * pathfinding to choose the next direction toward the target position.
+ * In stress mode, Chase and Scatter read the direction from a BFS flow field
+ * shared by every ghost with the same target tile.</p>
  * 
  * @see ChaseMode Pursues PacMan using ghost's strategy
  * @see ScatterMode Moves to corner using ghost's strategy
@@ -56,6 +61,16 @@ public abstract class GhostState {
     /** The ghost this state belongs to */
     protected Ghost ghost;
 
+    /** Reusable target buffer returned by {@link #getTargetPosition()} */
+    protected final int[] target = new int[2];
+
+    /** Decision prepared by {@link #prepareDecision()} for the next {@link #computeNextDir()} */
+    private boolean decisionPrepared = false;
+    private boolean decisionDue = false;
+    private int decisionTargetX;
+    private int decisionTargetY;
+    private FlowField decisionField;
+
     public GhostState(Ghost ghost) {
         this.ghost = ghost;
     }
@@ -85,10 +100,27 @@ public abstract class GhostState {
     /**
      * Returns the target position for pathfinding.
      * Override in subclasses to provide state-specific targets.
+     * The returned array is reused; copy it to keep the values.
      * @return int[2] with {x, y} target coordinates
      */
     public int[] getTargetPosition() {
-        return new int[2];
+        return target;
+    }
+
+    /**
+     * Returns true if ghosts in this state aim at targets shared with other
+     * ghosts (PacMan, corners), so a shared flow field pays off.
+     */
+    protected boolean usesSharedTarget() {
+        return false;
+    }
+
+    /**
+     * Returns true if ghosts in this state may pass the ghost house door
+     * (Eaten and House modes).
+     */
+    protected boolean passesDoors() {
+        return false;
     }
 
     /**
@@ -96,66 +128,164 @@ public abstract class GhostState {
      * 
      * <p>Algorithm: For each valid direction (no wall, not reversing),
      * calculate distance to target and choose the direction with
-     * minimum distance.</p>
+     * minimum distance. Squared integer distances give the same choice
+     * as Euclidean ones without sqrt. Decisions are memoized per ghost in
+     * its {@link DecisionCache}.</p>
      */
     public void computeNextDir() {
-        int new_xSpd = 0;
-        int new_ySpd = 0;
+        if (!decisionPrepared) prepareDecision();
+        decisionPrepared = false;
+        if (!decisionDue) return;
+
+        int targetX = decisionTargetX;
+        int targetY = decisionTargetY;
+        boolean passDoors = passesDoors();
+
+        if (decisionField != null && followFlowField(decisionField)) return;
+
+        DecisionCache cache = ghost.getDecisionCache();
+        long key = DecisionCache.key(ghost.getxPos() / Game.CELL_SIZE, ghost.getyPos() / Game.CELL_SIZE,
+                ghost.getxSpd(), ghost.getySpd(), ghost.getSpd(), targetX, targetY, passDoors);
+        int decision = key == DecisionCache.NO_KEY ? -1 : cache.get(key, ghost.getGame().getMazeVersion());
+        if (decision < 0) {
+            decision = searchDirection(targetX, targetY, passDoors);
+            if (key != DecisionCache.NO_KEY)
+                cache.put(key, decision);
+        }
+        applyDecision(decision);
+    }
 
-        if (!ghost.onTheGrid()) return;
-        if (!ghost.onGameplayWindow()) return;
+    /**
+     * Sequential part of a decision: computes the target once and fetches the
+     * shared flow field, so that {@link #computeNextDir()} only reads this
+     * ghost and immutable data and may run on any thread.
+     */
+    public void prepareDecision() {
+        decisionPrepared = true;
+        decisionField = null;
+        decisionDue = ghost.onTheGrid() && ghost.onGameplayWindow();
+        if (!decisionDue) return;
+
+        // Target is computed once per decision, not once per candidate direction
+        int[] targetPos = getTargetPosition();
+        decisionTargetX = targetPos[0];
+        decisionTargetY = targetPos[1];
+
+        FlowFieldCache cache = ghost.getGame().getFlowFields();
+        if (cache != null && !passesDoors() && usesSharedTarget())
+            decisionField = cache.get(decisionTargetX, decisionTargetY, ghost.getGame().getMazeVersion());
+    }
 
-        double minDist = Double.MAX_VALUE;
+    /**
+     * Greedy search: the allowed direction whose next position is closest to
+     * the target (ties keep the first of left, right, up, down).
+     * @return a {@code DecisionCache.DIR_*} code
+     */
+    private int searchDirection(int targetX, int targetY, boolean passDoors) {
+        int spd = ghost.getSpd();
+        int x = ghost.getxPos();
+        int y = ghost.getyPos();
+        int decision = DecisionCache.DIR_NONE;
+        long minDist = Long.MAX_VALUE;
 
-        if (ghost.getxSpd() <= 0 && !WallCollisionDetector.checkWallCollision(ghost, -ghost.getSpd(), 0)) {
-            double distance = Utils.getDistance(ghost.getxPos() - ghost.getSpd(), ghost.getyPos(), getTargetPosition()[0], getTargetPosition()[1]);
+        if (ghost.getxSpd() <= 0 && !WallCollisionDetector.checkWallCollision(ghost, -spd, 0, passDoors)) {
+            long distance = Utils.getSquaredDistance(x - spd, y, targetX, targetY);
             if (distance < minDist) {
-                new_xSpd = -ghost.getSpd();
-                new_ySpd = 0;
+                decision = DecisionCache.DIR_LEFT;
                 minDist = distance;
             }
         }
 
-        if (ghost.getxSpd() >= 0 && !WallCollisionDetector.checkWallCollision(ghost, ghost.getSpd(), 0)) {
-            double distance = Utils.getDistance(ghost.getxPos() + ghost.getSpd(), ghost.getyPos(), getTargetPosition()[0], getTargetPosition()[1]);
+        if (ghost.getxSpd() >= 0 && !WallCollisionDetector.checkWallCollision(ghost, spd, 0, passDoors)) {
+            long distance = Utils.getSquaredDistance(x + spd, y, targetX, targetY);
             if (distance < minDist) {
-                new_xSpd = ghost.getSpd();
-                new_ySpd = 0;
+                decision = DecisionCache.DIR_RIGHT;
                 minDist = distance;
             }
         }
 
-        if (ghost.getySpd() <= 0 && !WallCollisionDetector.checkWallCollision(ghost, 0, -ghost.getSpd())) {
-            double distance = Utils.getDistance(ghost.getxPos(), ghost.getyPos() - ghost.getSpd(), getTargetPosition()[0], getTargetPosition()[1]);
+        if (ghost.getySpd() <= 0 && !WallCollisionDetector.checkWallCollision(ghost, 0, -spd, passDoors)) {
+            long distance = Utils.getSquaredDistance(x, y - spd, targetX, targetY);
             if (distance < minDist) {
-                new_xSpd = 0;
-                new_ySpd = -ghost.getSpd();
+                decision = DecisionCache.DIR_UP;
                 minDist = distance;
             }
         }
 
-        if (ghost.getySpd() >= 0 && !WallCollisionDetector.checkWallCollision(ghost, 0, ghost.getSpd())) {
-            double distance = Utils.getDistance(ghost.getxPos(), ghost.getyPos() + ghost.getSpd(), getTargetPosition()[0], getTargetPosition()[1]);
+        if (ghost.getySpd() >= 0 && !WallCollisionDetector.checkWallCollision(ghost, 0, spd, passDoors)) {
+            long distance = Utils.getSquaredDistance(x, y + spd, targetX, targetY);
             if (distance < minDist) {
-                new_xSpd = 0;
-                new_ySpd = ghost.getSpd();
+                decision = DecisionCache.DIR_DOWN;
                 minDist = distance;
             }
         }
+        return decision;
+    }
 
-        if (new_xSpd == 0 && new_ySpd == 0) return;
-
-        if (Math.abs(new_xSpd) != Math.abs(new_ySpd)) {
-            ghost.setxSpd(new_xSpd);
-            ghost.setySpd(new_ySpd);
-        } else {
-            if (new_xSpd != 0) {
-                ghost.setxSpd(0);
-                ghost.setySpd(new_ySpd);
-            } else {
-                ghost.setxSpd(new_xSpd);
+    /** Sets the ghost speed for a {@code DecisionCache.DIR_*} code */
+    private void applyDecision(int decision) {
+        int spd = ghost.getSpd();
+        if (spd == 0) return;
+        switch (decision) {
+            case DecisionCache.DIR_LEFT:
+                ghost.setxSpd(-spd);
                 ghost.setySpd(0);
-            }
+                break;
+            case DecisionCache.DIR_RIGHT:
+                ghost.setxSpd(spd);
+                ghost.setySpd(0);
+                break;
+            case DecisionCache.DIR_UP:
+                ghost.setxSpd(0);
+                ghost.setySpd(-spd);
+                break;
+            case DecisionCache.DIR_DOWN:
+                ghost.setxSpd(0);
+                ghost.setySpd(spd);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Steps to the neighbouring tile closest to the target in the shared flow
+     * field (same direction order and no-reverse rule as the greedy search).
+     * @return false if no field applies, so the greedy search runs instead
+     */
+    private boolean followFlowField(FlowField field) {
+        FlowFieldCache cache = ghost.getGame().getFlowFields();
+        if (cache == null) return false;
+
+        int tx = ghost.getxPos() / Game.CELL_SIZE;
+        int ty = ghost.getyPos() / Game.CELL_SIZE;
+        int columns = cache.getColumns();
+        int spd = ghost.getSpd();
+        int best = Integer.MAX_VALUE;
+        int new_xSpd = 0;
+        int new_ySpd = 0;
+
+        if (ghost.getxSpd() <= 0 && cache.isWalkable(tx - 1, ty)) {
+            int d = field.getDistance(ty * columns + tx - 1);
+            if (d >= 0 && d < best) { best = d; new_xSpd = -spd; new_ySpd = 0; }
+        }
+        if (ghost.getxSpd() >= 0 && cache.isWalkable(tx + 1, ty)) {
+            int d = field.getDistance(ty * columns + tx + 1);
+            if (d >= 0 && d < best) { best = d; new_xSpd = spd; new_ySpd = 0; }
+        }
+        if (ghost.getySpd() <= 0 && cache.isWalkable(tx, ty - 1)) {
+            int d = field.getDistance((ty - 1) * columns + tx);
+            if (d >= 0 && d < best) { best = d; new_xSpd = 0; new_ySpd = -spd; }
         }
+        if (ghost.getySpd() >= 0 && cache.isWalkable(tx, ty + 1)) {
+            int d = field.getDistance((ty + 1) * columns + tx);
+            if (d >= 0 && d < best) { best = d; new_xSpd = 0; new_ySpd = spd; }
+        }
+
+        // Target unreachable from here (e.g. other side of a door)
+        if (best == Integer.MAX_VALUE) return false;
+        ghost.setxSpd(new_xSpd);
+        ghost.setySpd(new_ySpd);
+        return true;
     }
 }
@@ -24,4 +24,9 @@ public class ScatterMode extends GhostState {
     public int[] getTargetPosition() {
         return ghost.getStrategy().getScatterTargetPosition();
     }
+
+    @Override
+    protected boolean usesSharedTarget() {
+        return true;
+    }
 }
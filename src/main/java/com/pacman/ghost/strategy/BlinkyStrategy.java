@@ -1,25 +1,33 @@
 package com.pacman.ghost.strategy;
 
 import com.pacman.core.Game;
-import com.pacman.ui.GamePanel;
+import com.pacman.core.WorldSnapshot;
 
 /**
  * Blinky's strategy - directly pursues PacMan.
  * Scatter: top-right corner.
  */
 public class BlinkyStrategy implements IGhostStrategy {
+    private final Game game;
+
+    /** Reusable target buffer */
+    private final int[] position = new int[2];
+
+    public BlinkyStrategy(Game game) {
+        this.game = game;
+    }
+
     @Override
     public int[] getChaseTargetPosition() {
-        int[] position = new int[2];
-        position[0] = Game.getPacman().getxPos();
-        position[1] = Game.getPacman().getyPos();
+        WorldSnapshot world = game.getWorldSnapshot();
+        position[0] = world.getPacmanX();
+        position[1] = world.getPacmanY();
         return position;
     }
 
     @Override
     public int[] getScatterTargetPosition() {
-        int[] position = new int[2];
-        position[0] = GamePanel.width;
+        position[0] = game.getWorldWidth();
         position[1] = 0;
         return position;
     }
@@ -1,8 +1,8 @@
 package com.pacman.ghost.strategy;
 
 import com.pacman.core.Game;
+import com.pacman.core.WorldSnapshot;
 import com.pacman.ghost.Ghost;
-import com.pacman.ui.GamePanel;
 import com.pacman.util.Utils;
 
 /**
@@ -10,30 +10,44 @@ import com.pacman.util.Utils;
  * Scatter: bottom-left corner.
  */
 public class ClydeStrategy implements IGhostStrategy {
+    private final Game game;
     private Ghost ghost;
+
+    /** Clyde chases PacMan only beyond this distance in pixels */
+    private static final int SHY_DISTANCE = 256;
+
+    /** Reusable target buffer */
+    private final int[] position = new int[2];
     
-    public ClydeStrategy(Ghost ghost) {
+    public ClydeStrategy(Game game, Ghost ghost) {
+        this.game = game;
         this.ghost = ghost;
     }
 
     @Override
     public int[] getChaseTargetPosition() {
-        if (Utils.getDistance(ghost.getxPos(), ghost.getyPos(), 
-            Game.getPacman().getxPos(), Game.getPacman().getyPos()) >= 256) {
-            int[] position = new int[2];
-            position[0] = Game.getPacman().getxPos();
-            position[1] = Game.getPacman().getyPos();
+        WorldSnapshot world = game.getWorldSnapshot();
+        if (chases(ghost.getxPos(), ghost.getyPos(), world.getPacmanX(), world.getPacmanY())) {
+            position[0] = world.getPacmanX();
+            position[1] = world.getPacmanY();
             return position;
         } else {
             return getScatterTargetPosition();
         }
     }
 
+    /**
+     * Returns true if Clyde, at the given position, is far enough from PacMan
+     * to chase him (squared distances: exact, see {@code GhostTargetCheck}).
+     */
+    public static boolean chases(int ghostX, int ghostY, int pacmanX, int pacmanY) {
+        return Utils.getSquaredDistance(ghostX, ghostY, pacmanX, pacmanY) >= (long) SHY_DISTANCE * SHY_DISTANCE;
+    }
+
     @Override
     public int[] getScatterTargetPosition() {
-        int[] position = new int[2];
         position[0] = 0;
-        position[1] = GamePanel.height;
+        position[1] = game.getWorldHeight();
         return position;
     }
 }
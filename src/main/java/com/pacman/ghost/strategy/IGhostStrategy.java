@@ -33,6 +33,7 @@ public interface IGhostStrategy {
     
     /**
      * Returns target position when ghost is in Chase mode.
+     * Implementations reuse the returned array between calls.
      * @return int[2] with {x, y} target coordinates
      */
     int[] getChaseTargetPosition();
@@ -1,8 +1,8 @@
 package com.pacman.ghost.strategy;
 
 import com.pacman.core.Game;
+import com.pacman.core.WorldSnapshot;
 import com.pacman.ghost.Ghost;
-import com.pacman.ui.GamePanel;
 import com.pacman.util.Utils;
 
 /**
@@ -10,43 +10,61 @@ import com.pacman.util.Utils;
  * Scatter: bottom-right corner.
  */
 public class InkyStrategy implements IGhostStrategy {
+    private final Game game;
     private Ghost otherGhost;
+
+    /** Distance ahead of PacMan in pixels (4 cells) */
+    private static final int AHEAD = 32;
+
+    /** Reusable target buffer */
+    private final int[] position = new int[2];
     
-    public InkyStrategy(Ghost ghost) {
+    public InkyStrategy(Game game, Ghost ghost) {
+        this.game = game;
         this.otherGhost = ghost;
     }
 
     @Override
     public int[] getChaseTargetPosition() {
-        int[] position = new int[2];
-        int[] pacmanFacingPosition = Utils.getPointDistanceDirection(
-            Game.getPacman().getxPos(), 
-            Game.getPacman().getyPos(), 
-            32d, 
-            Utils.directionConverter(Game.getPacman().getDirection())
-        );
-        double distanceOtherGhost = Utils.getDistance(
-            pacmanFacingPosition[0], pacmanFacingPosition[1], 
-            otherGhost.getxPos(), otherGhost.getyPos()
-        );
-        double directionOtherGhost = Utils.getDirection(
-            otherGhost.getxPos(), otherGhost.getyPos(), 
-            pacmanFacingPosition[0], pacmanFacingPosition[1]
-        );
-        int[] blinkyVectorPosition = Utils.getPointDistanceDirection(
-            pacmanFacingPosition[0], pacmanFacingPosition[1], 
-            distanceOtherGhost, directionOtherGhost
-        );
-        position[0] = blinkyVectorPosition[0];
-        position[1] = blinkyVectorPosition[1];
-        return position;
+        WorldSnapshot world = game.getWorldSnapshot();
+        int otherId = otherGhost.getId();
+        return flank(world.getPacmanX(), world.getPacmanY(), world.getPacmanDirection(),
+                world.getX(otherId), world.getY(otherId), position);
+    }
+
+    /**
+     * Chase target: the point {@link #AHEAD} pixels in front of PacMan, plus
+     * the vector from the other ghost to that point.
+     *
+     * <p>
+     * Along an axis the vector is added as is. Otherwise it goes through the
+     * original polar form (length, angle, then cos/sin truncated toward
+     * zero), which can land a pixel short of the exact sum; ghost behavior
+     * depends on that pixel, so it is kept (see {@code GhostTargetCheck}).
+     * </p>
+     */
+    public static int[] flank(int pacmanX, int pacmanY, int direction, int otherX, int otherY, int[] out) {
+        int facingX = pacmanX + Utils.directionDx(direction) * AHEAD;
+        int facingY = pacmanY + Utils.directionDy(direction) * AHEAD;
+        int dx = facingX - otherX;
+        int dy = facingY - otherY;
+        if (dx == 0 || dy == 0) {
+            // cos/sin are exactly 0 or +-1 here: the polar form gives the exact sum
+            out[0] = facingX + dx;
+            out[1] = facingY + dy;
+        } else {
+            double distance = Math.sqrt((double) dx * dx + (double) dy * dy);
+            double angle = Math.atan2(dy, dx);
+            out[0] = facingX + (int) (Math.cos(angle) * distance);
+            out[1] = facingY + (int) (Math.sin(angle) * distance);
+        }
+        return out;
     }
 
     @Override
     public int[] getScatterTargetPosition() {
-        int[] position = new int[2];
-        position[0] = GamePanel.width;
-        position[1] = GamePanel.height;
+        position[0] = game.getWorldWidth();
+        position[1] = game.getWorldHeight();
         return position;
     }
 }
@@ -1,6 +1,7 @@
 package com.pacman.ghost.strategy;
 
 import com.pacman.core.Game;
+import com.pacman.core.WorldSnapshot;
 import com.pacman.util.Utils;
 
 /**
@@ -8,23 +9,36 @@ import com.pacman.util.Utils;
  * Scatter: top-left corner.
  */
 public class PinkyStrategy implements IGhostStrategy {
+    /** Distance ahead of PacMan in pixels (8 cells) */
+    private static final int AHEAD = 64;
+
+    private final Game game;
+
+    /** Reusable target buffer */
+    private final int[] position = new int[2];
+
+    public PinkyStrategy(Game game) {
+        this.game = game;
+    }
+
     @Override
     public int[] getChaseTargetPosition() {
-        int[] position = new int[2];
-        int[] pacmanFacingPosition = Utils.getPointDistanceDirection(
-            Game.getPacman().getxPos(), 
-            Game.getPacman().getyPos(), 
-            64, 
-            Utils.directionConverter(Game.getPacman().getDirection())
-        );
-        position[0] = pacmanFacingPosition[0];
-        position[1] = pacmanFacingPosition[1];
-        return position;
+        WorldSnapshot world = game.getWorldSnapshot();
+        return aheadOf(world.getPacmanX(), world.getPacmanY(), world.getPacmanDirection(), position);
+    }
+
+    /**
+     * Chase target: {@link #AHEAD} pixels in front of PacMan, along the unit
+     * vector of its direction (see {@code GhostTargetCheck}).
+     */
+    public static int[] aheadOf(int pacmanX, int pacmanY, int direction, int[] out) {
+        out[0] = pacmanX + Utils.directionDx(direction) * AHEAD;
+        out[1] = pacmanY + Utils.directionDy(direction) * AHEAD;
+        return out;
     }
 
     @Override
     public int[] getScatterTargetPosition() {
-        int[] position = new int[2];
         position[0] = 0;
         position[1] = 0;
         return position;
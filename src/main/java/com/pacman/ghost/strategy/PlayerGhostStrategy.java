@@ -0,0 +1,68 @@
+package com.pacman.ghost.strategy;
+
+import com.pacman.ghost.Ghost;
+import com.pacman.util.MaskInput;
+
+/**
+ * Strategy for a ghost steered by a player (versus mode).
+ *
+ * <p>
+ * In Chase and Scatter the target is a point far away in the held
+ * direction, so the usual junction search turns the ghost that way as soon
+ * as the maze allows. With nothing held, the target is far ahead and the
+ * ghost keeps going. Ghost rules still apply: no reversing, and Frightened,
+ * Eaten and House modes ignore the player.
+ * </p>
+ *
+ * <p>
+ * The input is set before every tick ({@link #setInput}) and is not part of
+ * the game state, so a restored snapshot replays the same way given the
+ * same inputs.
+ * </p>
+ */
+public class PlayerGhostStrategy implements IGhostStrategy {
+
+    /** Distance of the target, beyond any maze */
+    private static final int FAR = 1 << 14;
+
+    private final Ghost ghost;
+    private int input;
+
+    /** Reusable target buffer */
+    private final int[] position = new int[2];
+
+    public PlayerGhostStrategy(Ghost ghost) {
+        this.ghost = ghost;
+    }
+
+    /** Sets the held directions for the next tick, as a {@link MaskInput} mask */
+    public void setInput(int mask) {
+        this.input = mask;
+    }
+
+    public int getInput() {
+        return input;
+    }
+
+    @Override
+    public int[] getChaseTargetPosition() {
+        int dx = 0;
+        int dy = 0;
+        if ((input & MaskInput.RIGHT) != 0) dx = 1;
+        else if ((input & MaskInput.LEFT) != 0) dx = -1;
+        else if ((input & MaskInput.UP) != 0) dy = -1;
+        else if ((input & MaskInput.DOWN) != 0) dy = 1;
+        else {
+            dx = Integer.signum(ghost.getxSpd());
+            dy = Integer.signum(ghost.getySpd());
+        }
+        position[0] = ghost.getxPos() + dx * FAR;
+        position[1] = ghost.getyPos() + dy * FAR;
+        return position;
+    }
+
+    @Override
+    public int[] getScatterTargetPosition() {
+        return getChaseTargetPosition();
+    }
+}
@@ -0,0 +1,80 @@
+package com.pacman.net;
+
+import com.pacman.core.Game;
+import com.pacman.core.GameSnapshot;
+import com.pacman.core.StateCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes a game's state after each tick as a full or delta frame, in the
+ * layout described by {@link SpectatorServer}. The state is a
+ * {@link StateCodec} message; a delta is taken against the previously
+ * encoded tick, so a frame that is not delivered must be followed by a full
+ * one ({@link #encode}'s {@code forceFull}).
+ *
+ * <p>
+ * Frames are written into one direct buffer that is reused (and only
+ * replaced when the game gets more ghosts or pellets), so encoding does not
+ * allocate. Not thread-safe: one encoder per game thread (or room).
+ * </p>
+ */
+final class FrameEncoder {
+
+    private final GameSnapshot current = new GameSnapshot();
+    private final GameSnapshot previous = new GameSnapshot();
+    private boolean havePrevious = false;
+    private boolean lastFull = false;
+
+    private StateCodec codec;
+    private int worldWidth;
+    private int worldHeight;
+    private ByteBuffer frame = ByteBuffer.allocateDirect(0);
+
+    /**
+     * Encodes the game's state after its last tick. The frame is full on
+     * request, for the first frame, every {@link SpectatorServer#FULL_FRAME_TICKS}
+     * ticks and when the ghost count changed; otherwise it is a delta.
+     * @return the frame, valid until the next call or {@link #reset()}
+     */
+    ByteBuffer encode(Game game, boolean forceFull) {
+        game.saveSnapshot(current);
+        if (codec == null || game.getWorldWidth() != worldWidth || game.getWorldHeight() != worldHeight) {
+            worldWidth = game.getWorldWidth();
+            worldHeight = game.getWorldHeight();
+            codec = new StateCodec(worldWidth, worldHeight);
+            havePrevious = false;
+        }
+        boolean full = forceFull || !havePrevious
+                || current.getTick() % SpectatorServer.FULL_FRAME_TICKS == 0
+                || current.getGhostCount() != previous.getGhostCount()
+                || current.getPelletWords() != previous.getPelletWords();
+
+        int capacity = SpectatorServer.HEADER_BYTES
+                + codec.maxMessageBytes(current.getGhostCount(), current.getPelletWords());
+        if (frame.capacity() < capacity)
+            frame = ByteBuffer.allocateDirect(capacity);
+        frame.clear();
+        frame.putInt(0);
+        frame.put(full ? SpectatorServer.FRAME_FULL : SpectatorServer.FRAME_DELTA);
+        frame.putLong(current.stateHash());
+        codec.encode(current, full ? null : previous, frame);
+        frame.flip();
+        frame.putInt(0, frame.remaining() - 4);
+
+        previous.copyFrom(current);
+        havePrevious = true;
+        lastFull = full;
+        return frame;
+    }
+
+    /** Returns true if the last encoded frame was a full one */
+    boolean isLastFull() {
+        return lastFull;
+    }
+
+    /** Forgets the previous tick, so the next frame is a full one */
+    void reset() {
+        havePrevious = false;
+    }
+}
@@ -0,0 +1,198 @@
+package com.pacman.net;
+
+import com.pacman.util.RandomStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.PriorityQueue;
+
+/**
+ * UDP relay that adds delay, jitter and loss, for trying {@link VersusSession}
+ * on one machine as if over a real network.
+ *
+ * <p>
+ * One peer sends to the proxy's port instead of the other peer; the proxy
+ * forwards to the target from a second socket and relays the answers back
+ * to whoever sent last. Every packet is held for the one-way delay plus or
+ * minus a uniform jitter (so packets can arrive out of order), and dropped
+ * with the given probability. Run from the project root:
+ * </p>
+ *
+ * <pre>
+ * java -cp build/classes com.pacman.net.LatencyProxy listenPort targetHost:port [delayMs] [jitterMs] [lossPercent]
+ * </pre>
+ *
+ * <p>
+ * {@link #run()} relays until {@link #close()}; the delay is one way, so a
+ * round trip through the proxy takes twice as long.
+ * </p>
+ */
+public class LatencyProxy implements Runnable, Closeable {
+
+    private static final int MAX_PACKET = 2048;
+
+    private final DatagramChannel front;
+    private final DatagramChannel back;
+    private final SocketAddress target;
+    private final Selector selector;
+    private final long delayNanos;
+    private final int jitterMicros;
+    private final int lossPercent;
+    private final RandomStream random;
+
+    /** Last address that sent to the front socket: where answers go */
+    private volatile SocketAddress client;
+    private volatile boolean running = true;
+
+    private final PriorityQueue<Held> held = new PriorityQueue<>();
+    private long sequence = 0;
+    private final ByteBuffer buffer = ByteBuffer.allocate(MAX_PACKET);
+
+    // ==================== Metrics ====================
+    private volatile long relayed = 0;
+    private volatile long dropped = 0;
+
+    /** A packet waiting for its delivery time */
+    private static final class Held implements Comparable<Held> {
+        final long due;
+        final long sequence;
+        final byte[] data;
+        final boolean toTarget;
+
+        Held(long due, long sequence, byte[] data, boolean toTarget) {
+            this.due = due;
+            this.sequence = sequence;
+            this.data = data;
+            this.toTarget = toTarget;
+        }
+
+        @Override
+        public int compareTo(Held o) {
+            int c = Long.compare(due, o.due);
+            return c != 0 ? c : Long.compare(sequence, o.sequence);
+        }
+    }
+
+    /**
+     * Binds the proxy on the loopback interface.
+     * @param listenPort port the first peer sends to (0 for any)
+     * @param target address of the second peer
+     */
+    public LatencyProxy(int listenPort, SocketAddress target, int delayMillis, int jitterMillis,
+                        int lossPercent, long seed) throws IOException {
+        if (jitterMillis > delayMillis)
+            throw new IllegalArgumentException("Jitter " + jitterMillis + " ms exceeds the delay " + delayMillis + " ms");
+        this.target = target;
+        this.delayNanos = delayMillis * 1_000_000L;
+        this.jitterMicros = jitterMillis * 1000;
+        this.lossPercent = lossPercent;
+        this.random = new RandomStream(seed);
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        selector = Selector.open();
+        front = DatagramChannel.open().bind(new InetSocketAddress(loopback, listenPort));
+        back = DatagramChannel.open().bind(new InetSocketAddress(loopback, 0));
+        front.configureBlocking(false).register(selector, SelectionKey.OP_READ);
+        back.configureBlocking(false).register(selector, SelectionKey.OP_READ);
+    }
+
+    /** Returns the address the first peer should send to */
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) front.getLocalAddress();
+    }
+
+    /** Relays packets until closed */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                Held next = held.peek();
+                long wait = next == null ? 0 : next.due - System.nanoTime();
+                if (next == null)
+                    selector.select(100);
+                else if (wait > 0)
+                    selector.select(Math.max(1, wait / 1_000_000));
+                else
+                    selector.selectNow();
+                selector.selectedKeys().clear();
+                receive(front, true);
+                receive(back, false);
+                deliverDue();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running)
+                System.err.println("Latency proxy stopped: " + e.getMessage());
+        }
+    }
+
+    private void receive(DatagramChannel channel, boolean toTarget) throws IOException {
+        while (true) {
+            buffer.clear();
+            SocketAddress from = channel.receive(buffer);
+            if (from == null)
+                return;
+            if (toTarget)
+                client = from;
+            if (lossPercent > 0 && random.nextInt(100) < lossPercent) {
+                dropped++;
+                continue;
+            }
+            buffer.flip();
+            byte[] data = new byte[buffer.remaining()];
+            buffer.get(data);
+            long jitter = jitterMicros == 0 ? 0 : random.nextInt(-jitterMicros, jitterMicros) * 1000L;
+            held.add(new Held(System.nanoTime() + delayNanos + jitter, sequence++, data, toTarget));
+        }
+    }
+
+    private void deliverDue() throws IOException {
+        long now = System.nanoTime();
+        while (!held.isEmpty() && held.peek().due <= now) {
+            Held h = held.poll();
+            SocketAddress to = h.toTarget ? target : client;
+            if (to == null)
+                continue;
+            (h.toTarget ? back : front).send(ByteBuffer.wrap(h.data), to);
+            relayed++;
+        }
+    }
+
+    public long getRelayed() { return relayed; }
+    public long getDropped() { return dropped; }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        front.close();
+        back.close();
+        selector.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: LatencyProxy listenPort targetHost:port [delayMs] [jitterMs] [lossPercent]");
+            System.exit(2);
+        }
+        int listenPort = Integer.parseInt(args[0]);
+        int colon = args[1].lastIndexOf(':');
+        SocketAddress target = new InetSocketAddress(args[1].substring(0, colon),
+                Integer.parseInt(args[1].substring(colon + 1)));
+        int delay = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+        int jitter = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        int loss = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+        try (LatencyProxy proxy = new LatencyProxy(listenPort, target, delay, jitter, loss, System.nanoTime())) {
+            System.out.println("Relaying " + proxy.getAddress() + " -> " + target + " with " + delay + " ms +/- "
+                    + jitter + " ms one way, " + loss + "% loss");
+            proxy.run();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.pacman.net;
+
+import com.pacman.core.Game;
+import com.pacman.util.MaskInput;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One game hosted by a {@link RoomServer}: the game, its remote player's
+ * input queue and its outgoing state stream.
+ *
+ * <p>
+ * The server's reader threads {@link #offerInput offer} input bytes as they
+ * arrive; a worker thread runs {@link #tick} when the room's deadline is
+ * due. A room is ticked by one worker at a time (it is out of the scheduler's
+ * queue while ticking), so the game itself needs no locking. Each tick drains
+ * the queue, plays the latest held input and writes the new state as a
+ * frame (same layout as the {@link SpectatorServer} stream) straight to the
+ * player's socket. Frames that do not fit in the socket are kept in a
+ * bounded buffer; when that is full, frames are skipped and the next one sent
+ * is a full frame.
+ * </p>
+ *
+ * <p>
+ * Metrics are plain fields written by whichever worker ticks the room; other
+ * threads read them without locking (values may be a tick old).
+ * </p>
+ */
+public class Room implements Delayed {
+
+    /** Input byte bit asking for a new game; only honoured once the game is over */
+    public static final int RESTART = 0x10;
+
+    /** Bits of an input byte that are used: directions and {@link #RESTART} */
+    private static final int INPUT_BITS = MaskInput.DIRECTIONS | RESTART;
+
+    /** Input bytes buffered between two ticks before further ones are dropped */
+    static final int INPUT_QUEUE_CAPACITY = 64;
+
+    private final int id;
+    private final SocketChannel channel;
+    private Game game;
+
+    /** Input bytes from the reader thread (values below 128 are boxed without allocating) */
+    private final ArrayBlockingQueue<Integer> inputs = new ArrayBlockingQueue<>(INPUT_QUEUE_CAPACITY);
+    private final MaskInput heldInput = new MaskInput();
+
+    private final FrameEncoder encoder = new FrameEncoder();
+    /** Unsent frame bytes, in write mode; holds whole frames except possibly a partly sent first one */
+    private final ByteBuffer pending = ByteBuffer.allocate(SpectatorServer.MAX_PENDING_BYTES);
+    private boolean needFull = true;
+
+    /** Due time of the next tick, in {@link System#nanoTime()} */
+    private long deadline;
+    private volatile boolean closed = false;
+
+    // ==================== Metrics ====================
+    private long ticks = 0;
+    private long tickNanos = 0;
+    private long maxTickNanos = 0;
+    /** Ticks that finished after the next one was due */
+    private long lateTicks = 0;
+    /** Ticks given up after falling too far behind */
+    private long skippedTicks = 0;
+    private long inputsReceived = 0;
+    private long inputsDropped = 0;
+    private long bytesSent = 0;
+    private long framesSkipped = 0;
+    private int games = 1;
+
+    Room(int id, SocketChannel channel, long seed, long firstDeadline) {
+        this.id = id;
+        this.channel = channel;
+        this.game = new Game(seed);
+        this.deadline = firstDeadline;
+    }
+
+    /**
+     * Queues an input byte from the player: the low 4 bits are the held
+     * directions ({@link MaskInput} mask), plus {@link #RESTART}.
+     * Called by a reader thread.
+     * @return false if the queue was full and the byte was dropped
+     */
+    boolean offerInput(int b) {
+        if (inputs.offer(b & INPUT_BITS)) {
+            inputsReceived++;
+            return true;
+        }
+        inputsDropped++;
+        return false;
+    }
+
+    /**
+     * Plays one tick and sends its frame. Called by a worker thread when the
+     * deadline is due; advances the deadline by one tick.
+     * @return the tick's duration in nanoseconds
+     */
+    long tick(long now) {
+        boolean restart = false;
+        Integer b;
+        while ((b = inputs.poll()) != null) {
+            heldInput.setMask(b & ~RESTART);
+            restart |= (b & RESTART) != 0;
+        }
+        boolean over = game.isGameOver() || game.isGameWon();
+        if (over && restart) {
+            game = new Game(game.getSeed() + 1);
+            needFull = true;
+            games++;
+            over = false;
+        }
+        if (!over)
+            game.input(heldInput);
+        game.update();
+        send();
+
+        long end = System.nanoTime();
+        long duration = end - now;
+        ticks++;
+        tickNanos += duration;
+        if (duration > maxTickNanos)
+            maxTickNanos = duration;
+        if (end > deadline + RoomServer.TICK_NANOS)
+            lateTicks++;
+        deadline += RoomServer.TICK_NANOS;
+        // Too far behind to catch up unnoticed: drop the backlog instead of ticking in a burst
+        long behind = (end - deadline) / RoomServer.TICK_NANOS;
+        if (behind > RoomServer.MAX_CATCH_UP_TICKS) {
+            skippedTicks += behind;
+            deadline += behind * RoomServer.TICK_NANOS;
+        }
+        return duration;
+    }
+
+    /** Encodes the tick's frame and writes it with any unsent bytes, without blocking */
+    private void send() {
+        try {
+            flush();
+            ByteBuffer frame = encoder.encode(game, needFull);
+            if (frame.remaining() > pending.remaining()) {
+                // The player is not keeping up: skip this frame, and resume with a full one
+                framesSkipped++;
+                needFull = true;
+                return;
+            }
+            needFull = false;
+            pending.put(frame);
+            flush();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (pending.position() == 0)
+            return;
+        pending.flip();
+        bytesSent += channel.write(pending);
+        pending.compact();
+    }
+
+    /** Marks the room as closed; the scheduler drops it at its next deadline */
+    void close() {
+        closed = true;
+    }
+
+    /** Closes the player's socket. Called by the worker that drops the room. */
+    void disconnect() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    // ==================== Scheduling ====================
+
+    long getDeadline() {
+        return deadline;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+        return Long.compare(deadline, ((Room) o).deadline);
+    }
+
+    // ==================== Metrics ====================
+
+    public int getId() { return id; }
+    public long getTicks() { return ticks; }
+    /** Returns the average tick duration (game update and send), in nanoseconds */
+    public long getAverageTickNanos() { return ticks == 0 ? 0 : tickNanos / ticks; }
+    public long getMaxTickNanos() { return maxTickNanos; }
+    public long getLateTicks() { return lateTicks; }
+    public long getSkippedTicks() { return skippedTicks; }
+    public long getInputsReceived() { return inputsReceived; }
+    public long getInputsDropped() { return inputsDropped; }
+    public long getBytesSent() { return bytesSent; }
+    /** Returns the frames not sent because the player's socket was full */
+    public long getFramesSkipped() { return framesSkipped; }
+    /** Returns the games played in this room, including the current one */
+    public int getGames() { return games; }
+    public int getScore() { return game.getScoreboard().getScore(); }
+
+    @Override
+    public String toString() {
+        return String.format("room %d: %d ticks, avg %.1f us (max %.1f), %d late, %d skipped, "
+                        + "%d inputs (%d dropped), %d KB sent, %d frames skipped, game %d score %d",
+                id, ticks, getAverageTickNanos() / 1e3, maxTickNanos / 1e3, lateTicks, skippedTicks,
+                inputsReceived, inputsDropped, bytesSent / 1024, framesSkipped, games, getScore());
+    }
+}
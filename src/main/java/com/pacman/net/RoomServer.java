@@ -0,0 +1,355 @@
+package com.pacman.net;
+
+import com.pacman.util.Histograms;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server-authoritative host for many concurrent games ("rooms"), one per
+ * connected player.
+ *
+ * <p>
+ * Every connection gets its own {@link Room}, which runs a fixed
+ * {@link #TICK_HZ} Hz tick on the server and streams the resulting state
+ * back. The player only sends input: one byte per change of the held
+ * directions, as a {@code ReplayInput} mask, optionally with
+ * {@link Room#RESTART} to start a new game once the current one is over.
+ * The state stream uses the {@link SpectatorServer} frame layout, so a
+ * {@link SpectatorClient} can connect as an (idle) player and check it.
+ * </p>
+ *
+ * <pre>
+ *  acceptor ──new room──► reader selectors ──input bytes──► room input queues
+ *                                                                 │
+ *  workers: take the room with the earliest due deadline ◄───────┘
+ *           drain inputs, Game.update(), write frame, deadline += 1 tick
+ * </pre>
+ *
+ * <p>
+ * <b>Threads:</b> one acceptor; a few reader threads, each with its own
+ * selector, that only read input bytes into the rooms' queues; and a small
+ * pool of workers ({@code -Dpacman.roomWorkers}, one per core by default)
+ * sharing a deadline-ordered queue of rooms. A worker takes the room whose
+ * next tick is due first, ticks it once and puts it back with its deadline
+ * one tick later, so rooms are never ticked concurrently and the pool, not
+ * the room count, bounds the threads. A room that falls behind catches up
+ * tick by tick (earliest deadline first), and gives up on its backlog past
+ * {@link #MAX_CATCH_UP_TICKS}.
+ * </p>
+ *
+ * <p>
+ * <b>Metrics:</b> per room (see {@link Room}) and for the whole process:
+ * ticks, busy worker time, late ticks (finished after the next tick of the
+ * room was due), skipped ticks, and a histogram of tick completion lateness
+ * relative to the deadline. {@link #main} runs a server and prints them every
+ * few seconds; {@code RoomLoadBenchmark} drives it with bot players.
+ * </p>
+ */
+public class RoomServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 7475;
+
+    public static final int TICK_HZ = 60;
+    public static final long TICK_NANOS = 1_000_000_000L / TICK_HZ;
+
+    /** Ticks a room may be behind before its backlog is dropped */
+    static final int MAX_CATCH_UP_TICKS = 6;
+
+    /** Width of a lateness histogram bucket, in nanoseconds (0.1 ms) */
+    public static final long LATENESS_BUCKET_NANOS = 100_000;
+    /** Lateness buckets; the last one holds everything from 5 ticks late on */
+    public static final int LATENESS_BUCKETS = (int) (5 * TICK_NANOS / LATENESS_BUCKET_NANOS) + 1;
+
+    private static final int SEND_BUFFER_BYTES = 32 * 1024;
+
+    private final ServerSocketChannel serverChannel;
+    private final Reader[] readers;
+    private final Thread[] workers;
+    private volatile boolean running = true;
+
+    /** Rooms waiting for their next tick, earliest deadline first */
+    private final DelayQueue<Room> due = new DelayQueue<>();
+    private final ConcurrentHashMap<Integer, Room> rooms = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRoomId = new AtomicInteger();
+    private final long seedBase = System.nanoTime();
+
+    // ==================== Metrics ====================
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder lateTicks = new LongAdder();
+    private final LongAdder skippedTicks = new LongAdder();
+    private final AtomicLongArray lateness = new AtomicLongArray(LATENESS_BUCKETS);
+    private final LongAdder roomsOpened = new LongAdder();
+    private final long startNanos = System.nanoTime();
+
+    /** Listens on a loopback port (0 picks a free one) with the default thread counts */
+    public RoomServer(int port) throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                Integer.getInteger("pacman.roomWorkers", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("pacman.roomReaders", Math.max(1, Runtime.getRuntime().availableProcessors() / 4)));
+    }
+
+    /**
+     * @param workerCount threads ticking rooms
+     * @param readerCount threads reading player input
+     */
+    public RoomServer(InetSocketAddress address, int workerCount, int readerCount) throws IOException {
+        if (workerCount <= 0 || readerCount <= 0)
+            throw new IllegalArgumentException("Need at least one worker and one reader thread");
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        readers = new Reader[readerCount];
+        for (int i = 0; i < readerCount; i++) {
+            readers[i] = new Reader();
+        }
+        workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::work, "RoomWorker-" + i);
+            workers[i].setDaemon(true);
+        }
+    }
+
+    /** Starts the acceptor, reader and worker threads */
+    public void start() {
+        for (int i = 0; i < readers.length; i++) {
+            Thread t = new Thread(readers[i], "RoomReader-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        for (Thread t : workers) {
+            t.start();
+        }
+        Thread acceptor = new Thread(this::accept, "RoomAcceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        System.out.println("Room server on " + serverChannel.socket().getLocalSocketAddress() + ", "
+                + workers.length + " worker(s), " + readers.length + " reader(s)");
+    }
+
+    // ==================== Acceptor ====================
+
+    /** Accepts players, builds their room and hands the socket to a reader */
+    private void accept() {
+        int next = 0;
+        try {
+            while (running) {
+                SocketChannel channel = serverChannel.accept();
+                channel.socket().setTcpNoDelay(true);
+                channel.socket().setSendBufferSize(SEND_BUFFER_BYTES);
+                channel.configureBlocking(false);
+                int id = nextRoomId.getAndIncrement();
+                Room room = new Room(id, channel, seedBase + id, System.nanoTime() + TICK_NANOS);
+                rooms.put(id, room);
+                roomsOpened.increment();
+                readers[next++ % readers.length].register(room, channel);
+                due.put(room);
+            }
+        } catch (IOException e) {
+            if (running)
+                System.err.println("Room server stopped accepting: " + e.getMessage());
+        }
+    }
+
+    // ==================== Readers ====================
+
+    /** Reads input bytes of its share of the players into their rooms' queues */
+    private final class Reader implements Runnable {
+        private final Selector selector;
+        private final Queue<Object[]> registrations = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer scratch = ByteBuffer.allocate(512);
+
+        Reader() throws IOException {
+            selector = Selector.open();
+        }
+
+        /** Registration must happen on the selector's thread, so it is queued */
+        void register(Room room, SocketChannel channel) {
+            registrations.add(new Object[] { room, channel });
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    Object[] r;
+                    while ((r = registrations.poll()) != null) {
+                        ((SocketChannel) r[1]).register(selector, SelectionKey.OP_READ, r[0]);
+                    }
+                    for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        if (key.isValid() && key.isReadable())
+                            read(key);
+                    }
+                }
+            } catch (IOException e) {
+                if (running)
+                    System.err.println("Room reader stopped: " + e.getMessage());
+            } finally {
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    // Closing anyway
+                }
+            }
+        }
+
+        private void read(SelectionKey key) {
+            Room room = (Room) key.attachment();
+            SocketChannel channel = (SocketChannel) key.channel();
+            try {
+                scratch.clear();
+                int n = channel.read(scratch);
+                if (n < 0) {
+                    key.cancel();
+                    room.close();
+                    return;
+                }
+                for (int i = 0; i < n; i++) {
+                    room.offerInput(scratch.get(i));
+                }
+            } catch (IOException e) {
+                key.cancel();
+                room.close();
+            }
+        }
+    }
+
+    // ==================== Workers ====================
+
+    /** Ticks due rooms, earliest deadline first */
+    private void work() {
+        try {
+            while (running) {
+                Room room = due.take();
+                if (room.isClosed()) {
+                    rooms.remove(room.getId());
+                    room.disconnect();
+                    continue;
+                }
+                long deadline = room.getDeadline();
+                long skippedBefore = room.getSkippedTicks();
+                long lateBefore = room.getLateTicks();
+                long now = System.nanoTime();
+                long duration = room.tick(now);
+                long end = now + duration;
+
+                ticks.increment();
+                busyNanos.add(duration);
+                if (room.getLateTicks() != lateBefore)
+                    lateTicks.increment();
+                if (room.getSkippedTicks() != skippedBefore)
+                    skippedTicks.add(room.getSkippedTicks() - skippedBefore);
+                lateness.incrementAndGet(Histograms.bucket(end - deadline, LATENESS_BUCKET_NANOS, LATENESS_BUCKETS));
+                due.put(room);
+            }
+        } catch (InterruptedException e) {
+            // Shutting down
+        }
+    }
+
+    /** Stops accepting and ticking; connected players are disconnected */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            System.err.println("Could not close room server: " + e.getMessage());
+        }
+        for (Reader r : readers) {
+            r.selector.wakeup();
+        }
+        for (Thread t : workers) {
+            t.interrupt();
+        }
+        for (Room room : rooms.values()) {
+            room.disconnect();
+        }
+        rooms.clear();
+    }
+
+    // ==================== Metrics ====================
+
+    public int getPort() { return serverChannel.socket().getLocalPort(); }
+    public int getWorkerCount() { return workers.length; }
+    public int getRoomCount() { return rooms.size(); }
+    public long getRoomsOpened() { return roomsOpened.sum(); }
+    /** Returns the ticks played by all rooms */
+    public long getTicks() { return ticks.sum(); }
+    /** Returns the worker time spent ticking rooms, in nanoseconds */
+    public long getBusyNanos() { return busyNanos.sum(); }
+    public long getLateTicks() { return lateTicks.sum(); }
+    public long getSkippedTicks() { return skippedTicks.sum(); }
+
+    /**
+     * Returns a copy of the lateness histogram: how long after its deadline
+     * each tick finished, in buckets of {@link #LATENESS_BUCKET_NANOS}.
+     */
+    public long[] getLatenessHistogram() {
+        long[] h = new long[LATENESS_BUCKETS];
+        for (int i = 0; i < h.length; i++) {
+            h[i] = lateness.get(i);
+        }
+        return h;
+    }
+
+    /** Returns the rooms currently hosted (a snapshot of the set) */
+    public List<Room> getRooms() {
+        return new ArrayList<>(rooms.values());
+    }
+
+    /** Returns a one-line summary of the whole process since start */
+    public String stats() {
+        long n = getTicks();
+        long[] h = getLatenessHistogram();
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return String.format("%d rooms (%d opened), %d ticks (%.0f/s), avg tick %.1f us, workers %.0f%% busy, "
+                        + "%d late (%.2f%%), %d skipped, lateness p50 %.1f ms p99 %.1f ms",
+                getRoomCount(), getRoomsOpened(), n, n / seconds,
+                n == 0 ? 0.0 : getBusyNanos() / 1e3 / n,
+                100.0 * getBusyNanos() / (seconds * 1e9 * workers.length),
+                getLateTicks(), n == 0 ? 0.0 : 100.0 * getLateTicks() / n, getSkippedTicks(),
+                Histograms.percentile(h, LATENESS_BUCKET_NANOS, 0.50) / 1e6,
+                Histograms.percentile(h, LATENESS_BUCKET_NANOS, 0.99) / 1e6);
+    }
+
+    /**
+     * Runs a room server until killed, printing the process metrics and the
+     * slowest rooms every 5 seconds.
+     * Usage: {@code RoomServer [port]}
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        RoomServer server = new RoomServer(port);
+        server.start();
+        while (true) {
+            Thread.sleep(5000);
+            System.out.println(server.stats());
+            List<Room> slowest = server.getRooms();
+            slowest.sort(Comparator.comparingLong(Room::getLateTicks).reversed()
+                    .thenComparing(Comparator.comparingLong(Room::getMaxTickNanos).reversed()));
+            for (int i = 0; i < Math.min(3, slowest.size()); i++) {
+                System.out.println("  " + slowest.get(i));
+            }
+        }
+    }
+}
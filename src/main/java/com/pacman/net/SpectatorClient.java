@@ -0,0 +1,153 @@
+package com.pacman.net;
+
+import com.pacman.core.GameSnapshot;
+import com.pacman.core.StateCodec;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * Headless spectator: follows a {@link SpectatorServer} stream and rebuilds
+ * the game state from its full and delta frames.
+ *
+ * <p>
+ * Every frame carries the state hash of the game after it, so the client
+ * checks each rebuilt state against the server. Run from the project root
+ * while a server is running (e.g. {@code SpectatorServer}'s own main, or the
+ * game with {@code -Dpacman.spectatorPort}):
+ * </p>
+ *
+ * <pre>
+ * java -cp build/classes com.pacman.net.SpectatorClient [host] [port] [seconds] [delayMsPerFrame]
+ * </pre>
+ *
+ * <p>
+ * A delay per frame simulates a slow screen (with a small receive buffer):
+ * the server then drops this client to its next full frame, and the client
+ * keeps matching.
+ * </p>
+ */
+public class SpectatorClient implements Closeable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final StateCodec codec = new StateCodec();
+    private final GameSnapshot state = new GameSnapshot();
+    private boolean haveState = false;
+    private byte[] payload = new byte[4096];
+
+    // ==================== Metrics ====================
+    private long frames = 0;
+    private long fullFrames = 0;
+    private long bytes = 0;
+    private long mismatches = 0;
+    /** Ticks missing between consecutive frames (frames dropped by the server) */
+    private long skippedTicks = 0;
+
+    public SpectatorClient(String host, int port) throws IOException {
+        this(host, port, 0);
+    }
+
+    /**
+     * @param receiveBufferBytes kernel receive buffer size, or 0 for the default
+     *                           (a small one makes a slow client lag sooner)
+     */
+    public SpectatorClient(String host, int port, int receiveBufferBytes) throws IOException {
+        socket = new Socket();
+        if (receiveBufferBytes > 0)
+            socket.setReceiveBufferSize(receiveBufferBytes);
+        socket.connect(new InetSocketAddress(host, port));
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    /**
+     * Reads and applies one frame.
+     * @return false if the server closed the stream
+     * @throws IOException on a broken or malformed stream
+     */
+    public boolean readFrame() throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return false;
+        }
+        if (length < SpectatorServer.HEADER_BYTES - 4)
+            throw new IOException("Bad frame length " + length);
+        byte type = in.readByte();
+        long hash = in.readLong();
+        int size = length - (SpectatorServer.HEADER_BYTES - 4);
+        if (payload.length < size)
+            payload = new byte[Math.max(size, payload.length * 2)];
+        in.readFully(payload, 0, size);
+
+        long lastTick = state.getTick();
+        ByteBuffer frame = ByteBuffer.wrap(payload, 0, size);
+        if (type == SpectatorServer.FRAME_FULL) {
+            codec.decode(frame, state);
+            haveState = true;
+            fullFrames++;
+        } else if (type == SpectatorServer.FRAME_DELTA) {
+            if (!haveState)
+                throw new IOException("Delta frame before any full frame");
+            codec.decode(frame, state);
+        } else {
+            throw new IOException("Unknown frame type " + type);
+        }
+        if (frames > 0 && state.getTick() > lastTick + 1)
+            skippedTicks += state.getTick() - lastTick - 1;
+        if (state.stateHash() != hash)
+            mismatches++;
+        frames++;
+        bytes += 4 + length;
+        return true;
+    }
+
+    /** Returns the rebuilt game state (valid once a full frame was read) */
+    public GameSnapshot getState() { return state; }
+    public long getFrames() { return frames; }
+    public long getFullFrames() { return fullFrames; }
+    public long getBytes() { return bytes; }
+    /** Returns the number of frames whose rebuilt state did not hash like the server's */
+    public long getMismatches() { return mismatches; }
+    public long getSkippedTicks() { return skippedTicks; }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : SpectatorServer.DEFAULT_PORT;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        long delayMs = args.length > 3 ? Long.parseLong(args[3]) : 0;
+
+        try (SpectatorClient client = new SpectatorClient(host, port, delayMs > 0 ? 8 * 1024 : 0)) {
+            long end = System.nanoTime() + seconds * 1_000_000_000L;
+            long nextReport = System.nanoTime() + 1_000_000_000L;
+            while (System.nanoTime() < end && client.readFrame()) {
+                if (delayMs > 0)
+                    Thread.sleep(delayMs);
+                if (System.nanoTime() >= nextReport) {
+                    GameSnapshot s = client.getState();
+                    System.out.printf("tick %d score %d lives %d level %d | %d frames (%d full), %d KB, "
+                                    + "%d ticks skipped, %d mismatches%n",
+                            s.getTick(), s.getScore(), s.getLives(), s.getLevel(), client.getFrames(),
+                            client.getFullFrames(), client.getBytes() / 1024, client.getSkippedTicks(),
+                            client.getMismatches());
+                    nextReport += 1_000_000_000L;
+                }
+            }
+            System.out.printf("Done: %d frames (%d full), %.1f bytes/frame, %d ticks skipped, %d mismatches%n",
+                    client.getFrames(), client.getFullFrames(),
+                    client.getFrames() == 0 ? 0.0 : (double) client.getBytes() / client.getFrames(),
+                    client.getSkippedTicks(), client.getMismatches());
+            if (client.getMismatches() > 0)
+                System.exit(1);
+        }
+    }
+}
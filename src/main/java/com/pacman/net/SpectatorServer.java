@@ -0,0 +1,474 @@
+package com.pacman.net;
+
+import com.pacman.agent.MctsAgent;
+import com.pacman.core.Game;
+import com.pacman.core.GameSnapshot;
+import com.pacman.core.StateCodec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams a live game to any number of spectators over TCP.
+ *
+ * <p>
+ * The game thread calls {@link #publish(Game)} after every tick. It takes a
+ * {@link GameSnapshot} and encodes (with a {@link FrameEncoder}) either a
+ * full frame or a delta against the previous tick
+ * ({@link StateCodec}: moved entities, eaten pellets, ghost state changes,
+ * score). Full frames go out every
+ * {@link #FULL_FRAME_TICKS} ticks and whenever a spectator needs one. Each
+ * frame is encoded once and shared by all spectators.
+ * </p>
+ *
+ * <p>
+ * <b>No allocation per frame:</b> frames are copied into pooled
+ * {@link Slot}s whose buffers are reused. The game thread takes a slot from
+ * a free ring, fills it and hands it over through a second ring; both rings
+ * have one writer and one reader, and a volatile sequence number publishes
+ * each entry. A slot counts its references (the hand-over, then one per
+ * spectator queue holding it) and goes back to the free ring at zero. A new
+ * slot is only allocated while the free ring is empty, i.e. while spectators
+ * lag. If the selector thread falls {@link #RING} frames behind, ticks are
+ * not published: the next delta then covers them.
+ * </p>
+ *
+ * <p>
+ * One selector thread accepts spectators and writes the frames. A spectator
+ * that falls more than {@link #MAX_PENDING_BYTES} (or
+ * {@link #MAX_QUEUED_FRAMES} frames) behind loses its queued frames (the one
+ * being written is finished, so the stream stays aligned) and skips deltas
+ * until the next full frame, which is requested right away.
+ * A slow lobby screen therefore jumps to the present instead of lagging
+ * further, and memory per spectator stays bounded.
+ * </p>
+ *
+ * <pre>
+ * Frame  | Field  | Type  | Notes
+ * -------|--------|-------|----------------------------------------------
+ *        | length | int   | bytes after this field
+ *        | type   | byte  | {@link #FRAME_FULL} or {@link #FRAME_DELTA}
+ *        | hash   | long  | {@link GameSnapshot#stateHash()} after the frame
+ *        | state  | bytes | {@link StateCodec} message (full or delta)
+ * </pre>
+ *
+ * <p>
+ * Spectators send nothing; see {@link SpectatorClient}. The server listens
+ * on the loopback address unless given another one. {@link #main} runs a
+ * headless agent game to watch.
+ * </p>
+ */
+public class SpectatorServer implements Runnable, Closeable {
+
+    public static final int DEFAULT_PORT = 7474;
+
+    public static final byte FRAME_FULL = 1;
+    public static final byte FRAME_DELTA = 2;
+    /** Bytes of a frame before its state: length, type and hash */
+    public static final int HEADER_BYTES = 13;
+
+    /** Ticks between two full frames (one second) */
+    public static final int FULL_FRAME_TICKS = 60;
+
+    /** Unsent bytes after which a spectator is dropped to the next full frame */
+    static final int MAX_PENDING_BYTES = 64 * 1024;
+    /** Kernel send buffer per spectator, so lag shows up in the queue rather than in the OS */
+    private static final int SEND_BUFFER_BYTES = 32 * 1024;
+
+    /** Capacity of the hand-over and free rings */
+    static final int RING = 512;
+    /** Slots allocated up front */
+    private static final int INITIAL_SLOTS = 64;
+    /** Queued frames after which a spectator is dropped to the next full frame */
+    static final int MAX_QUEUED_FRAMES = RING / 2;
+    /** Initial slot buffer size; a slot grows if a frame does not fit */
+    private static final int SLOT_BYTES = 512;
+
+    /**
+     * One encoded frame, shared by all spectators. The game thread fills it
+     * while nobody else holds it; once handed over, only the selector thread
+     * touches {@code refs}.
+     */
+    private static final class Slot {
+        ByteBuffer data = ByteBuffer.allocate(SLOT_BYTES);
+        int length;
+        boolean full;
+        int refs;
+    }
+
+    /** A connected spectator and its unsent frames (oldest first) */
+    private static final class Client {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final Slot[] queue = new Slot[MAX_QUEUED_FRAMES];
+        int head;
+        int count;
+        /** Bytes of the oldest queued frame already written */
+        int headWritten;
+        int pendingBytes;
+        /** True until the spectator gets a full frame; deltas are skipped meanwhile */
+        boolean waitingForFull = true;
+
+        Client(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        Slot at(int i) {
+            return queue[(head + i) % queue.length];
+        }
+    }
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private volatile boolean running = true;
+
+    // ==================== Game Thread ====================
+    private final FrameEncoder encoder = new FrameEncoder();
+
+    // ==================== Shared ====================
+    /** Filled slots, game thread to selector thread; frame n is at n % RING */
+    private final Slot[] handover = new Slot[RING];
+    private volatile long published = 0;
+    private volatile long consumed = 0;
+    /** Released slots, selector thread to game thread */
+    private final Slot[] free = new Slot[RING];
+    private volatile long recycled = 0;
+    private volatile long reused = 0;
+    private final AtomicBoolean fullRequested = new AtomicBoolean(true);
+    private volatile int clientCount = 0;
+
+    // ==================== Selector Thread ====================
+    private final List<Client> clients = new ArrayList<>();
+    private final ByteBuffer readScratch = ByteBuffer.allocate(256);
+
+    // ==================== Metrics ====================
+    private volatile long framesPublished = 0;
+    private volatile long fullFramesPublished = 0;
+    private volatile long bytesPublished = 0;
+    private volatile long fullBytesPublished = 0;
+    private volatile long bytesSent = 0;
+    private volatile long drops = 0;
+    private volatile long skippedTicks = 0;
+    private volatile long slotsAllocated = INITIAL_SLOTS;
+
+    /** Listens on a loopback port (0 picks a free one) */
+    public SpectatorServer(int port) throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public SpectatorServer(InetSocketAddress address) throws IOException {
+        for (int i = 0; i < INITIAL_SLOTS; i++) {
+            free[i] = new Slot();
+        }
+        recycled = INITIAL_SLOTS;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /** Starts the selector thread */
+    public void start() {
+        Thread t = new Thread(this, "SpectatorServer");
+        t.setDaemon(true);
+        t.start();
+        System.out.println("Spectator server on " + serverChannel.socket().getLocalSocketAddress());
+    }
+
+    /**
+     * Encodes the game's state after a tick for the spectators. Called from
+     * the game thread; does nothing while nobody watches.
+     */
+    public void publish(Game game) {
+        if (clientCount == 0) {
+            encoder.reset();
+            return;
+        }
+        long n = published;
+        if (n - consumed >= RING) {
+            // Not encoded, so the next delta is taken against the last frame sent
+            skippedTicks++;
+            return;
+        }
+        Slot slot;
+        long r = reused;
+        if (r < recycled) {
+            slot = free[(int) (r % RING)];
+            reused = r + 1;
+        } else {
+            // Every slot is still queued for a lagging spectator
+            slot = new Slot();
+            slotsAllocated++;
+        }
+        ByteBuffer encoded = encoder.encode(game, fullRequested.getAndSet(false));
+        boolean full = encoder.isLastFull();
+        // The encoder reuses its buffer; the frame is shared by all spectators, so copy it
+        int length = encoded.remaining();
+        if (slot.data.capacity() < length)
+            slot.data = ByteBuffer.allocate(Math.max(length, 2 * slot.data.capacity()));
+        slot.data.clear();
+        slot.data.put(encoded);
+        slot.length = length;
+        slot.full = full;
+        slot.refs = 1; // held by the hand-over until the selector thread takes it
+        handover[(int) (n % RING)] = slot;
+        published = n + 1;
+
+        selector.wakeup();
+        framesPublished++;
+        bytesPublished += length;
+        if (full) {
+            fullFramesPublished++;
+            fullBytesPublished += length;
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Client c = (Client) key.attachment();
+                    if (key.isReadable())
+                        read(c);
+                    if (key.isValid() && key.isWritable())
+                        flush(c);
+                }
+
+                for (long n = consumed, end = published; n < end; n++) {
+                    Slot f = handover[(int) (n % RING)];
+                    for (int i = 0; i < clients.size(); i++) {
+                        enqueue(clients.get(i), f);
+                    }
+                    release(f);
+                    consumed = n + 1;
+                }
+                for (int i = clients.size() - 1; i >= 0; i--) {
+                    Client c = clients.get(i);
+                    if (c.count > 0)
+                        flush(c);
+                }
+            }
+        } catch (IOException e) {
+            if (running)
+                System.err.println("Spectator server stopped: " + e.getMessage());
+        } finally {
+            for (Client c : new ArrayList<>(clients)) {
+                disconnect(c);
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Could not close spectator server: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null)
+            return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.socket().setSendBufferSize(SEND_BUFFER_BYTES);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        Client c = new Client(channel, key);
+        key.attach(c);
+        clients.add(c);
+        clientCount = clients.size();
+        fullRequested.set(true);
+    }
+
+    /** Spectators send nothing; reading only detects disconnects */
+    private void read(Client c) {
+        try {
+            readScratch.clear();
+            if (c.channel.read(readScratch) < 0)
+                disconnect(c);
+        } catch (IOException e) {
+            disconnect(c);
+        }
+    }
+
+    /** Queues a frame for a spectator, or drops the spectator to the next full frame if it lags */
+    private void enqueue(Client c, Slot f) {
+        if (c.waitingForFull && !f.full)
+            return;
+        if (c.pendingBytes + f.length > MAX_PENDING_BYTES || c.count == MAX_QUEUED_FRAMES) {
+            // Keep a partly written frame so the stream stays aligned, drop the rest
+            dropQueue(c, c.headWritten > 0 ? 1 : 0);
+            drops++;
+            if (!f.full) {
+                c.waitingForFull = true;
+                fullRequested.set(true);
+                return;
+            }
+        }
+        c.waitingForFull = false;
+        c.queue[(c.head + c.count) % c.queue.length] = f;
+        c.count++;
+        f.refs++;
+        c.pendingBytes += f.length;
+    }
+
+    /** Releases a spectator's queued frames, except the first {@code keep} */
+    private void dropQueue(Client c, int keep) {
+        for (int i = keep; i < c.count; i++) {
+            release(c.at(i));
+            c.queue[(c.head + i) % c.queue.length] = null;
+        }
+        c.count = Math.min(c.count, keep);
+        if (c.count == 0) {
+            c.headWritten = 0;
+            c.pendingBytes = 0;
+        } else {
+            c.pendingBytes = c.at(0).length - c.headWritten;
+        }
+    }
+
+    /** Drops a reference to a slot, and hands it back to the game thread at zero */
+    private void release(Slot f) {
+        if (--f.refs > 0)
+            return;
+        long n = recycled;
+        if (n - reused < RING) {
+            free[(int) (n % RING)] = f;
+            recycled = n + 1;
+        }
+    }
+
+    /** Writes queued frames until the socket buffer is full */
+    private void flush(Client c) {
+        try {
+            while (c.count > 0) {
+                Slot f = c.queue[c.head];
+                ByteBuffer b = f.data;
+                b.limit(f.length).position(c.headWritten);
+                int n = c.channel.write(b);
+                bytesSent += n;
+                c.pendingBytes -= n;
+                c.headWritten += n;
+                if (b.hasRemaining())
+                    break;
+                c.queue[c.head] = null;
+                c.head = (c.head + 1) % c.queue.length;
+                c.count--;
+                c.headWritten = 0;
+                release(f);
+            }
+            c.key.interestOps(c.count == 0 ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            disconnect(c);
+        }
+    }
+
+    private void disconnect(Client c) {
+        c.key.cancel();
+        try {
+            c.channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+        if (clients.remove(c))
+            dropQueue(c, 0);
+        clientCount = clients.size();
+    }
+
+    /** Stops the server and disconnects all spectators */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    // ==================== Metrics ====================
+
+    public int getPort() { return serverChannel.socket().getLocalPort(); }
+    public int getClientCount() { return clientCount; }
+    public long getFramesPublished() { return framesPublished; }
+    public long getFullFramesPublished() { return fullFramesPublished; }
+    public long getBytesPublished() { return bytesPublished; }
+    public long getBytesSent() { return bytesSent; }
+    /** Returns how many times a lagging spectator was dropped to the next full frame */
+    public long getDrops() { return drops; }
+    /** Returns how many ticks were not published because the selector thread lagged */
+    public long getSkippedTicks() { return skippedTicks; }
+    /** Returns how many frame slots were allocated, the initial ones included */
+    public long getSlotsAllocated() { return slotsAllocated; }
+
+    /** Returns a one-line summary of frame sizes and traffic */
+    public String stats() {
+        long deltas = framesPublished - fullFramesPublished;
+        return String.format("%d spectators, %d frames (%d full, avg %d B; delta avg %d B), %d KB sent, %d drops, "
+                        + "%d ticks skipped, %d slots",
+                clientCount, framesPublished, fullFramesPublished,
+                fullFramesPublished == 0 ? 0 : fullBytesPublished / fullFramesPublished,
+                deltas == 0 ? 0 : (bytesPublished - fullBytesPublished) / deltas,
+                bytesSent / 1024, drops, skippedTicks, slotsAllocated);
+    }
+
+    /**
+     * Runs a headless agent game at 60 ticks per second and streams it.
+     * Usage: {@code SpectatorServer [port] [agentBudgetMs]}
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        long budget = args.length > 1 ? Long.parseLong(args[1]) : 2;
+
+        SpectatorServer server = new SpectatorServer(port);
+        server.start();
+        MctsAgent agent = new MctsAgent(budget, 0, System.nanoTime());
+        Game game = null;
+
+        long tickNanos = 1_000_000_000L / 60;
+        long next = System.nanoTime();
+        long nextReport = next + 5_000_000_000L;
+        int gameOverTicks = 0;
+        while (true) {
+            if (game == null || gameOverTicks > 3 * 60) {
+                game = new Game();
+                gameOverTicks = 0;
+            }
+            if (game.isGameOver() || game.isGameWon()) {
+                gameOverTicks++;
+            } else {
+                agent.think(game);
+                game.input(agent);
+            }
+            game.update();
+            server.publish(game);
+
+            next += tickNanos;
+            long now = System.nanoTime();
+            if (now >= nextReport) {
+                System.out.println(server.stats());
+                nextReport += 5_000_000_000L;
+            }
+            if (next > now) {
+                Thread.sleep((next - now) / 1_000_000, (int) ((next - now) % 1_000_000));
+            } else {
+                next = now;
+            }
+        }
+    }
+}
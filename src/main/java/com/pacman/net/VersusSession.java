@@ -0,0 +1,494 @@
+package com.pacman.net;
+
+import com.pacman.core.Game;
+import com.pacman.core.GameSnapshot;
+import com.pacman.ghost.Ghost;
+import com.pacman.ghost.strategy.PlayerGhostStrategy;
+import com.pacman.util.MaskInput;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Two-player versus game over UDP with rollback netcode: one player drives
+ * PacMan, the other steers Blinky ({@link PlayerGhostStrategy}).
+ *
+ * <p>
+ * Both peers run the whole game. Every tick each sends its input; the
+ * remote input of a tick that has not arrived yet is predicted (the last
+ * one received is held), so local play never waits for the network. A
+ * snapshot is saved before every tick into a ring. When a remote input
+ * arrives that differs from the prediction, the game is restored to the
+ * snapshot before that tick and the ticks since are simulated again with
+ * the corrected inputs, all within the current frame. Local input is
+ * applied {@code inputDelay} ticks late, which hides that much latency
+ * without any rollback. A peer more than {@code maxRollback} ticks ahead
+ * of the inputs it has received waits (stalls) instead of predicting
+ * further.
+ * </p>
+ *
+ * <p>
+ * The peers also keep their clocks together: each sends how far it runs
+ * ahead of the other's inputs, and the one further ahead skips a frame now
+ * and then ({@link #SYNC_SPACING}). Otherwise the peer that started first
+ * would predict (and roll back) a whole round trip while the other never
+ * does.
+ * </p>
+ *
+ * <p>
+ * Each packet repeats every input the peer has not acknowledged yet, so a
+ * lost packet costs nothing but a later correction. Every
+ * {@link #CHECK_TICKS} ticks, once both inputs are final, the peers
+ * exchange the {@link GameSnapshot#stateHash() state hash} and count any
+ * difference as a desync.
+ * </p>
+ *
+ * <pre>
+ * Packet | Field       | Type  | Notes
+ * -------|-------------|-------|-------------------------------------------
+ * Hello  | type        | byte  | {@link #PACKET_HELLO}
+ *        | side        | byte  | sender's {@link Side} ordinal
+ *        | ready       | byte  | 1 once the sender knows the seed
+ *        | seed        | long  | game seed (the PacMan side's wins)
+ * Input  | type        | byte  | {@link #PACKET_INPUT}
+ *        | first tick  | int   | tick of the first input below
+ *        | count       | byte  | number of inputs
+ *        | inputs      | bytes | one {@link MaskInput} mask per tick
+ *        | ack         | int   | next remote tick the sender is missing
+ *        | check tick  | int   | latest checked tick (-1: none yet)
+ *        | check hash  | long  | state hash before that tick
+ *        | advantage   | byte  | sender's tick minus its received remote inputs
+ * </pre>
+ *
+ * <p>
+ * Not thread-safe: the game thread calls {@link #connect}, then
+ * {@link #update} once per frame.
+ * </p>
+ */
+public class VersusSession implements Closeable {
+
+    /** Which character a peer plays */
+    public enum Side { PACMAN, GHOST }
+
+    public static final int DEFAULT_PORT = 7476;
+    public static final int DEFAULT_INPUT_DELAY = 2;
+    public static final int DEFAULT_MAX_ROLLBACK = 10;
+
+    static final byte PACKET_HELLO = 1;
+    static final byte PACKET_INPUT = 2;
+
+    /** Ticks between two state hash checks */
+    public static final int CHECK_TICKS = 60;
+
+    /** Lead over the peer, in ticks, at which the peer ahead skips a frame */
+    public static final int SYNC_THRESHOLD = 2;
+    /** Minimum ticks between two frames skipped for time sync */
+    public static final int SYNC_SPACING = 6;
+
+    /** Ticks of snapshots and inputs kept (more than any rollback plus input delay) */
+    private static final int RING = 64;
+    private static final int HELLO_INTERVAL_MILLIS = 100;
+    private static final int PACKET_BYTES = 1 + 4 + 1 + RING + 4 + 4 + 8 + 1;
+    private static final int CHECK_RING = 8;
+
+    private final Side side;
+    private final DatagramChannel channel;
+    private SocketAddress peer;
+    private final int inputDelay;
+    private final int maxRollback;
+
+    private Game game;
+    private PlayerGhostStrategy ghostControl;
+    private final MaskInput pacmanInput = new MaskInput();
+
+    // ==================== Timeline ====================
+    /** Next tick to simulate */
+    private int tick = 0;
+    /** State before each tick in the ring */
+    private final GameSnapshot[] snapshots = new GameSnapshot[RING];
+    private final byte[] localInputs = new byte[RING];
+    private final byte[] remoteInputs = new byte[RING];
+    /** Remote input each simulated tick was played with (received or predicted) */
+    private final byte[] usedRemote = new byte[RING];
+    /** Send time of each local input, for the round-trip estimate */
+    private final long[] inputSentNanos = new long[RING];
+    /** Ticks below this have a local input */
+    private int localEnd;
+    /** Ticks below this have their remote input */
+    private int remoteEnd = 0;
+    /** Local inputs below this are acknowledged by the peer */
+    private int peerAck = 0;
+    /** Earliest tick played with a wrong prediction, or Integer.MAX_VALUE */
+    private int rollbackFrom = Integer.MAX_VALUE;
+    /** Peer's last reported advantage ({@code tick - remoteEnd} on its side) */
+    private int peerAdvantage = 0;
+    private int lastSyncWait = Integer.MIN_VALUE / 2;
+
+    // ==================== Desync Checks ====================
+    private int nextCheck = CHECK_TICKS;
+    private final int[] checkTicks = new int[CHECK_RING];
+    private final long[] checkHashes = new long[CHECK_RING];
+    private int ownCheckTick = -1;
+    private long ownCheckHash;
+    private int peerCheckTick = -1;
+    private long peerCheckHash;
+    private int lastComparedTick = -1;
+
+    private final ByteBuffer packet = ByteBuffer.allocateDirect(PACKET_BYTES);
+
+    // ==================== Metrics ====================
+    private long rollbacks = 0;
+    private long rolledBackTicks = 0;
+    private int maxRollbackDepth = 0;
+    /** Rollbacks by depth in ticks (last bucket: deeper) */
+    private final long[] depthHistogram;
+    private long resimNanos = 0;
+    private long maxResimNanos = 0;
+    private long stalls = 0;
+    private long syncWaits = 0;
+    private long predictions = 0;
+    private long mispredictions = 0;
+    private long checks = 0;
+    private long desyncs = 0;
+    private long packetsSent = 0;
+    private long packetsReceived = 0;
+    /** Smoothed round-trip time, in nanoseconds (0 until measured) */
+    private long rttNanos = 0;
+
+    /**
+     * Opens the session's UDP socket on all interfaces.
+     * @param port local UDP port (0 for any)
+     * @param peer address of the other peer, or null to wait for it to say hello
+     */
+    public VersusSession(Side side, int port, SocketAddress peer, int inputDelay, int maxRollback) throws IOException {
+        if (inputDelay < 0 || maxRollback < 1 || inputDelay + maxRollback + 2 > RING)
+            throw new IllegalArgumentException("Input delay " + inputDelay + " and max rollback " + maxRollback
+                    + " must fit in " + RING + " ticks");
+        this.side = side;
+        this.peer = peer;
+        this.inputDelay = inputDelay;
+        this.maxRollback = maxRollback;
+        this.depthHistogram = new long[maxRollback + 2];
+        this.localEnd = inputDelay;
+        channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(port));
+        channel.configureBlocking(false);
+        for (int i = 0; i < RING; i++) {
+            snapshots[i] = new GameSnapshot();
+        }
+    }
+
+    // ==================== Connection ====================
+
+    /**
+     * Exchanges hellos with the peer, then builds the game both will play.
+     * Blocks until the peer answers.
+     * @param seed game seed, used if this is the PacMan side
+     * @throws IOException on a socket error, a peer playing the same side,
+     *         or no answer within the timeout
+     */
+    public Game connect(long seed, long timeoutMillis) throws IOException {
+        boolean haveSeed = side == Side.PACMAN;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long nextHello = 0;
+        ByteBuffer in = ByteBuffer.allocate(PACKET_BYTES);
+        while (true) {
+            long now = System.currentTimeMillis();
+            if (now > deadline)
+                throw new IOException("No answer from the other player within " + timeoutMillis / 1000 + " s");
+            if (peer != null && now >= nextHello) {
+                sendHello(haveSeed, seed);
+                nextHello = now + HELLO_INTERVAL_MILLIS;
+            }
+            in.clear();
+            SocketAddress from = channel.receive(in);
+            if (from == null) {
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while connecting");
+                }
+                continue;
+            }
+            in.flip();
+            if (in.remaining() < 11 || in.get() != PACKET_HELLO)
+                continue;
+            Side remoteSide = Side.values()[in.get() % Side.values().length];
+            boolean remoteReady = in.get() != 0;
+            long remoteSeed = in.getLong();
+            if (remoteSide == side)
+                throw new IOException("The other player also plays " + side);
+            if (peer == null)
+                peer = from;
+            if (side == Side.GHOST) {
+                // The seed comes from PacMan's hello; answer it so PacMan can start too
+                seed = remoteSeed;
+                sendHello(true, seed);
+                break;
+            }
+            if (remoteReady)
+                break;
+            sendHello(true, seed);
+        }
+        startGame(seed);
+        return game;
+    }
+
+    private void sendHello(boolean ready, long seed) throws IOException {
+        packet.clear();
+        packet.put(PACKET_HELLO);
+        packet.put((byte) side.ordinal());
+        packet.put((byte) (ready ? 1 : 0));
+        packet.putLong(seed);
+        packet.flip();
+        channel.send(packet, peer);
+    }
+
+    private void startGame(long seed) {
+        game = new Game(seed);
+        Ghost ghost = game.getBlinky();
+        ghostControl = new PlayerGhostStrategy(ghost);
+        ghost.setStrategy(ghostControl);
+    }
+
+    // ==================== Ticking ====================
+
+    /**
+     * Runs one frame: reads the peer's packets, rolls back and re-simulates
+     * if a prediction was wrong, then plays the next tick with the local
+     * input (unless too far ahead of the peer) and sends the inputs.
+     * @param localMask held directions of the local player
+     * @return true if a tick was played, false if waiting for the peer
+     */
+    public boolean update(int localMask) throws IOException {
+        poll();
+        int advantage = tick - remoteEnd;
+        if (advantage >= maxRollback) {
+            stalls++;
+            send();
+            return false;
+        }
+        if (advantage - peerAdvantage >= SYNC_THRESHOLD && tick - lastSyncWait >= SYNC_SPACING) {
+            syncWaits++;
+            lastSyncWait = tick;
+            send();
+            return false;
+        }
+        localInputs[localEnd % RING] = (byte) localMask;
+        inputSentNanos[localEnd % RING] = System.nanoTime();
+        localEnd++;
+        simulate(tick);
+        tick++;
+        checkState();
+        send();
+        return true;
+    }
+
+    /** Reads the peer's packets and applies corrections, without playing a new tick */
+    public void poll() throws IOException {
+        receive();
+        if (rollbackFrom < tick) {
+            long t0 = System.nanoTime();
+            int depth = tick - rollbackFrom;
+            game.restoreSnapshot(snapshots[rollbackFrom % RING]);
+            for (int t = rollbackFrom; t < tick; t++) {
+                simulate(t);
+            }
+            long nanos = System.nanoTime() - t0;
+            rollbacks++;
+            rolledBackTicks += depth;
+            maxRollbackDepth = Math.max(maxRollbackDepth, depth);
+            depthHistogram[Math.min(depth, depthHistogram.length - 1)]++;
+            resimNanos += nanos;
+            maxResimNanos = Math.max(maxResimNanos, nanos);
+        }
+        rollbackFrom = Integer.MAX_VALUE;
+        checkState();
+    }
+
+    /** Sends the unacknowledged local inputs without playing a tick (e.g. once the game is over) */
+    public void flush() throws IOException {
+        send();
+    }
+
+    /** Saves the state before tick {@code t}, then plays it with the best inputs known */
+    private void simulate(int t) {
+        int i = t % RING;
+        game.saveSnapshot(snapshots[i]);
+        int remote = t < remoteEnd ? remoteInputs[i] : predictRemote();
+        usedRemote[i] = (byte) remote;
+        int local = localInputs[i];
+        int pacmanMask = side == Side.PACMAN ? local : remote;
+        int ghostMask = side == Side.GHOST ? local : remote;
+        if (!game.isGameOver() && !game.isGameWon()) {
+            pacmanInput.setMask(pacmanMask);
+            game.input(pacmanInput);
+        }
+        ghostControl.setInput(ghostMask);
+        game.update();
+    }
+
+    /** The remote player is assumed to keep holding what they held last */
+    private int predictRemote() {
+        return remoteEnd == 0 ? 0 : remoteInputs[(remoteEnd - 1) % RING];
+    }
+
+    // ==================== Network ====================
+
+    private void receive() throws IOException {
+        while (true) {
+            packet.clear();
+            SocketAddress from = channel.receive(packet);
+            if (from == null)
+                return;
+            packet.flip();
+            if (!from.equals(peer) || packet.remaining() < 1)
+                continue;
+            byte type = packet.get();
+            if (type == PACKET_HELLO) {
+                // The peer missed our answer and is still connecting
+                if (side == Side.GHOST)
+                    sendHello(true, game.getSeed());
+                continue;
+            }
+            if (type != PACKET_INPUT || packet.remaining() < PACKET_BYTES - RING - 1)
+                continue;
+            packetsReceived++;
+            int first = packet.getInt();
+            int count = packet.get() & 0xff;
+            if (packet.remaining() < count + 17)
+                continue;
+            for (int n = 0; n < count; n++) {
+                int t = first + n;
+                byte mask = packet.get();
+                if (t != remoteEnd)
+                    continue;
+                int i = t % RING;
+                remoteInputs[i] = mask;
+                remoteEnd++;
+                if (t < tick) {
+                    predictions++;
+                    if (usedRemote[i] != mask) {
+                        mispredictions++;
+                        rollbackFrom = Math.min(rollbackFrom, t);
+                    }
+                }
+            }
+            int ack = packet.getInt();
+            if (ack > peerAck && ack <= localEnd) {
+                long sample = System.nanoTime() - inputSentNanos[(ack - 1) % RING];
+                rttNanos = rttNanos == 0 ? sample : (rttNanos * 7 + sample) / 8;
+                peerAck = ack;
+            }
+            int checkTick = packet.getInt();
+            long checkHash = packet.getLong();
+            peerAdvantage = packet.get();
+            if (checkTick > peerCheckTick) {
+                peerCheckTick = checkTick;
+                peerCheckHash = checkHash;
+                compareChecks();
+            }
+        }
+    }
+
+    private void send() throws IOException {
+        if (peer == null)
+            return;
+        int first = Math.max(peerAck, localEnd - RING);
+        int count = Math.min(localEnd - first, RING);
+        packet.clear();
+        packet.put(PACKET_INPUT);
+        packet.putInt(first);
+        packet.put((byte) count);
+        for (int t = first; t < first + count; t++) {
+            packet.put(localInputs[t % RING]);
+        }
+        packet.putInt(remoteEnd);
+        packet.putInt(ownCheckTick);
+        packet.putLong(ownCheckHash);
+        packet.put((byte) Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, tick - remoteEnd)));
+        packet.flip();
+        channel.send(packet, peer);
+        packetsSent++;
+    }
+
+    // ==================== Desync Checks ====================
+
+    /** Hashes the state before each check tick once all inputs before it are final */
+    private void checkState() {
+        int end = Math.min(remoteEnd, tick - 1);
+        while (nextCheck <= end) {
+            if (nextCheck > tick - RING) {
+                long hash = snapshots[nextCheck % RING].stateHash();
+                checkTicks[(nextCheck / CHECK_TICKS) % CHECK_RING] = nextCheck;
+                checkHashes[(nextCheck / CHECK_TICKS) % CHECK_RING] = hash;
+                ownCheckTick = nextCheck;
+                ownCheckHash = hash;
+            }
+            nextCheck += CHECK_TICKS;
+        }
+        compareChecks();
+    }
+
+    private void compareChecks() {
+        if (peerCheckTick <= lastComparedTick)
+            return;
+        int slot = (peerCheckTick / CHECK_TICKS) % CHECK_RING;
+        if (checkTicks[slot] != peerCheckTick)
+            return;
+        checks++;
+        if (checkHashes[slot] != peerCheckHash) {
+            desyncs++;
+            System.err.println("Versus: desync at tick " + peerCheckTick);
+        }
+        lastComparedTick = peerCheckTick;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // ==================== Getters & Metrics ====================
+
+    public Game getGame() { return game; }
+    public Side getSide() { return side; }
+    public int getPort() throws IOException { return ((InetSocketAddress) channel.getLocalAddress()).getPort(); }
+    /** Returns the next tick to play */
+    public int getTick() { return tick; }
+    /** Returns the number of ticks whose inputs from both players are known */
+    public int getConfirmedTicks() { return Math.min(remoteEnd, tick); }
+    public long getRollbacks() { return rollbacks; }
+    public long getRolledBackTicks() { return rolledBackTicks; }
+    public int getMaxRollbackDepth() { return maxRollbackDepth; }
+    /** Returns rollbacks by depth in ticks; the last bucket counts deeper ones */
+    public long[] getDepthHistogram() { return depthHistogram.clone(); }
+    public long getResimNanos() { return resimNanos; }
+    public long getMaxResimNanos() { return maxResimNanos; }
+    /** Returns the frames in which this peer waited for the other's inputs */
+    public long getStalls() { return stalls; }
+    /** Returns the frames skipped to let the peer catch up */
+    public long getSyncWaits() { return syncWaits; }
+    public long getPredictions() { return predictions; }
+    public long getMispredictions() { return mispredictions; }
+    public long getChecks() { return checks; }
+    public long getDesyncs() { return desyncs; }
+    public long getPacketsSent() { return packetsSent; }
+    public long getPacketsReceived() { return packetsReceived; }
+    /** Returns the smoothed input round trip (including the peer's frame wait), in nanoseconds */
+    public long getRttNanos() { return rttNanos; }
+
+    /** One line of metrics */
+    public String stats() {
+        return String.format("%s tick %d: rtt %.0f ms, %d rollbacks (avg depth %.1f, max %d), "
+                        + "resim avg %.0f us max %.0f us, %d/%d predictions wrong, %d stalls, %d sync waits, %d checks %d desyncs",
+                side, tick, rttNanos / 1e6, rollbacks, rollbacks == 0 ? 0.0 : (double) rolledBackTicks / rollbacks,
+                maxRollbackDepth, rollbacks == 0 ? 0.0 : resimNanos / 1e3 / rollbacks, maxResimNanos / 1e3,
+                mispredictions, predictions, stalls, syncWaits, checks, desyncs);
+    }
+}
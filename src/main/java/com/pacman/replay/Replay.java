@@ -0,0 +1,289 @@
+package com.pacman.replay;
+
+import com.pacman.core.GameSnapshot;
+import com.pacman.util.MaskInput;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A recorded game: everything needed to play it again exactly, and to jump
+ * to any point of it.
+ *
+ * <p>
+ * A game is fully determined by its level, its seed and the input given
+ * before each tick, so that is what a replay stores, plus the final score and
+ * state hash to check the playback against. Inputs are run-length encoded:
+ * each run is one varint holding {@code (ticks << 4) | mask}, where the mask
+ * has one bit per direction (see {@link MaskInput}). Held keys and idle
+ * stretches cost a byte or two, and a full game is a few KB of input.
+ * </p>
+ *
+ * <p>
+ * <b>Keyframes:</b> every {@link #getKeyframeInterval()} ticks the recorder
+ * also stores a full {@link GameSnapshot}, and input runs are cut at each
+ * keyframe. The file is a sequence of segments (keyframe, then the input of
+ * the ticks up to the next keyframe) followed by an index of the segments,
+ * so a reader can seek to any tick by restoring the keyframe before it and
+ * simulating at most one interval forward.
+ * </p>
+ *
+ * <pre>
+ * Section  | Field            | Type   | Notes
+ * ---------|------------------|--------|--------------------------------------
+ * Header   | magic            | int    | "PMRP"
+ *          | format version   | short  | {@link #FORMAT_VERSION}
+ *          | engine version   | short  | {@link #ENGINE_VERSION} of the recording game
+ *          | level CRC        | int    | CRC32 of the level file
+ *          | seed             | long   | {@code Game} seed
+ *          | ghost count      | int    | differs from the level's in stress mode
+ *          | tick count       | long   | game updates recorded
+ *          | final score      | int    |
+ *          | final hash       | long   | {@code GameSnapshot.stateHash()} after the last tick
+ *          | keyframe interval| int    | ticks between keyframes
+ * Segment  | keyframe length  | int    | one segment per keyframe
+ *          | keyframe         | bytes  | {@code GameSnapshot.write}
+ *          | input length     | int    |
+ *          | inputs           | bytes  | varint runs up to the next keyframe
+ * Index    | segment count    | int    |
+ *          | tick             | long   | per segment
+ *          | offset           | long   | file offset of the segment
+ * Trailer  | index offset     | long   |
+ *          | index magic      | int    | "PMRI"
+ * </pre>
+ *
+ * <p>
+ * Format 1 files (header without keyframe interval, then all input runs)
+ * are still read; they can only be played from the start.
+ * </p>
+ */
+public class Replay {
+
+    /** "PMRP" */
+    public static final int MAGIC = 0x504d5250;
+    /** "PMRI" */
+    private static final int INDEX_MAGIC = 0x504d5249;
+    public static final int FORMAT_VERSION = 2;
+
+    /** Bump whenever a game logic change makes older replays play differently */
+    public static final int ENGINE_VERSION = 1;
+
+    /** Full game state at the start of a segment */
+    public static class Keyframe {
+        /** Ticks played before this keyframe */
+        public final long tick;
+        /** Offset of the segment's first input run in {@link #getInputs()} */
+        final int inputOffset;
+        /** {@link GameSnapshot#write} output */
+        final byte[] state;
+
+        Keyframe(long tick, int inputOffset, byte[] state) {
+            this.tick = tick;
+            this.inputOffset = inputOffset;
+            this.state = state;
+        }
+
+        /** Decodes the keyframe into a snapshot */
+        public void readInto(GameSnapshot snap) {
+            try {
+                snap.read(new DataInputStream(new ByteArrayInputStream(state)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Corrupt keyframe at tick " + tick, e);
+            }
+        }
+    }
+
+    private final int engineVersion;
+    private final int levelCrc;
+    private final long seed;
+    private final int ghostCount;
+    private final long tickCount;
+    private final int finalScore;
+    private final long finalHash;
+    private final byte[] inputs;
+    private final int inputLength;
+    private final int keyframeInterval;
+    private final List<Keyframe> keyframes;
+
+    public Replay(int engineVersion, int levelCrc, long seed, int ghostCount, long tickCount,
+                  int finalScore, long finalHash, byte[] inputs, int inputLength,
+                  int keyframeInterval, List<Keyframe> keyframes) {
+        this.engineVersion = engineVersion;
+        this.levelCrc = levelCrc;
+        this.seed = seed;
+        this.ghostCount = ghostCount;
+        this.tickCount = tickCount;
+        this.finalScore = finalScore;
+        this.finalHash = finalHash;
+        this.inputs = inputs;
+        this.inputLength = inputLength;
+        this.keyframeInterval = keyframeInterval;
+        this.keyframes = Collections.unmodifiableList(new ArrayList<>(keyframes));
+    }
+
+    /**
+     * Returns the last keyframe at or before a tick, or null if the replay
+     * has none (format 1).
+     */
+    public Keyframe keyframeBefore(long tick) {
+        Keyframe best = null;
+        int lo = 0;
+        int hi = keyframes.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keyframes.get(mid).tick <= tick) {
+                best = keyframes.get(mid);
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return best;
+    }
+
+    // ==================== File Format ====================
+
+    /** Writes the replay to a file */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeShort(engineVersion);
+            out.writeInt(levelCrc);
+            out.writeLong(seed);
+            out.writeInt(ghostCount);
+            out.writeLong(tickCount);
+            out.writeInt(finalScore);
+            out.writeLong(finalHash);
+            out.writeInt(keyframeInterval);
+
+            long[] offsets = new long[keyframes.size()];
+            for (int i = 0; i < keyframes.size(); i++) {
+                Keyframe k = keyframes.get(i);
+                int end = i + 1 < keyframes.size() ? keyframes.get(i + 1).inputOffset : inputLength;
+                offsets[i] = out.size();
+                out.writeInt(k.state.length);
+                out.write(k.state);
+                out.writeInt(end - k.inputOffset);
+                out.write(inputs, k.inputOffset, end - k.inputOffset);
+            }
+
+            long indexOffset = out.size();
+            out.writeInt(keyframes.size());
+            for (int i = 0; i < keyframes.size(); i++) {
+                out.writeLong(keyframes.get(i).tick);
+                out.writeLong(offsets[i]);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(INDEX_MAGIC);
+        }
+    }
+
+    /**
+     * Reads a replay file, finding its segments through the index.
+     * @throws IOException if the file cannot be read or is not a valid replay
+     */
+    public static Replay read(Path file) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (buf.getInt() != MAGIC)
+                throw new IOException("Not a replay file: " + file);
+            int format = buf.getShort() & 0xffff;
+            if (format != 1 && format != FORMAT_VERSION)
+                throw new IOException("Unsupported replay format " + format + ": " + file);
+            int engineVersion = buf.getShort() & 0xffff;
+            int levelCrc = buf.getInt();
+            long seed = buf.getLong();
+            int ghostCount = buf.getInt();
+            long tickCount = buf.getLong();
+            int finalScore = buf.getInt();
+            long finalHash = buf.getLong();
+
+            if (format == 1) {
+                byte[] inputs = new byte[buf.getInt()];
+                buf.get(inputs);
+                return new Replay(engineVersion, levelCrc, seed, ghostCount, tickCount, finalScore, finalHash,
+                        inputs, inputs.length, 0, Collections.emptyList());
+            }
+            int keyframeInterval = buf.getInt();
+
+            // Index, from the trailer
+            buf.position(buf.limit() - 12);
+            long indexOffset = buf.getLong();
+            if (buf.getInt() != INDEX_MAGIC)
+                throw new IOException("Replay index missing (truncated file?): " + file);
+            buf.position(Math.toIntExact(indexOffset));
+            int count = buf.getInt();
+            long[] ticks = new long[count];
+            long[] offsets = new long[count];
+            for (int i = 0; i < count; i++) {
+                ticks[i] = buf.getLong();
+                offsets[i] = buf.getLong();
+            }
+
+            // Segments
+            List<Keyframe> keyframes = new ArrayList<>(count);
+            ByteArrayOutputStream inputs = new ByteArrayOutputStream();
+            for (int i = 0; i < count; i++) {
+                buf.position(Math.toIntExact(offsets[i]));
+                byte[] state = new byte[buf.getInt()];
+                buf.get(state);
+                keyframes.add(new Keyframe(ticks[i], inputs.size(), state));
+                byte[] segment = new byte[buf.getInt()];
+                buf.get(segment);
+                inputs.write(segment);
+            }
+            byte[] allInputs = inputs.toByteArray();
+            return new Replay(engineVersion, levelCrc, seed, ghostCount, tickCount, finalScore, finalHash,
+                    allInputs, allInputs.length, keyframeInterval, keyframes);
+        } catch (BufferUnderflowException | IllegalArgumentException | ArithmeticException e) {
+            throw new IOException("Corrupt replay file: " + file, e);
+        }
+    }
+
+    /**
+     * Returns the CRC32 of a level file, or 0 if it cannot be read.
+     * @param levelFile level file, relative to the working directory
+     */
+    public static int levelCrc(String levelFile) {
+        try {
+            CRC32 crc = new CRC32();
+            crc.update(Files.readAllBytes(Path.of(levelFile)));
+            return (int) crc.getValue();
+        } catch (IOException e) {
+            System.err.println("Could not read " + levelFile + " for its checksum");
+            return 0;
+        }
+    }
+
+    // ==================== Accessors ====================
+
+    public int getEngineVersion() { return engineVersion; }
+    public int getLevelCrc() { return levelCrc; }
+    public long getSeed() { return seed; }
+    public int getGhostCount() { return ghostCount; }
+    public long getTickCount() { return tickCount; }
+    public int getFinalScore() { return finalScore; }
+    public long getFinalHash() { return finalHash; }
+    /** Input runs (read-only); only the first {@link #getInputLength()} bytes are used */
+    byte[] getInputs() { return inputs; }
+    public int getInputLength() { return inputLength; }
+    /** Ticks between keyframes (0 for format 1 replays, which have none) */
+    public int getKeyframeInterval() { return keyframeInterval; }
+    public List<Keyframe> getKeyframes() { return keyframes; }
+
+    @Override
+    public String toString() {
+        return String.format("Replay[engine=%d, level=%08x, seed=%d, ghosts=%d, ticks=%d, score=%d, hash=%016x, "
+                        + "%d input bytes, %d keyframes]",
+                engineVersion, levelCrc, seed, ghostCount, tickCount, finalScore, finalHash, inputLength,
+                keyframes.size());
+    }
+}
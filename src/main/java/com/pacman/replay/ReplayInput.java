@@ -0,0 +1,73 @@
+package com.pacman.replay;
+
+import com.pacman.util.MaskInput;
+import com.pacman.util.PacManInput;
+
+/**
+ * Plays back the input of a {@link Replay}, one tick at a time.
+ *
+ * <p>
+ * Call {@link #next()} once per tick, then pass this object to
+ * {@code Game.input}: PacMan reads it through the same {@link PacManInput}
+ * methods as the keyboard, so the playback takes the exact path the recorded
+ * input took.
+ * </p>
+ */
+public class ReplayInput extends MaskInput {
+
+    /** Bits used by a mask */
+    static final int MASK_BITS = 4;
+
+    private final byte[] inputs;
+    private final int inputLength;
+    private int position = 0;
+
+    /** Ticks left in the current run */
+    private long runLeft = 0;
+
+    public ReplayInput(Replay replay) {
+        this.inputs = replay.getInputs();
+        this.inputLength = replay.getInputLength();
+    }
+
+    /** Starts playing back at a keyframe of the replay, for a game restored from it */
+    public ReplayInput(Replay replay, Replay.Keyframe from) {
+        this(replay);
+        this.position = from.inputOffset;
+    }
+
+    /** Returns true while recorded ticks remain */
+    public boolean hasNext() {
+        return runLeft > 0 || position < inputLength;
+    }
+
+    /**
+     * Moves to the next tick.
+     * @return the input mask of that tick (0 once the replay is over)
+     */
+    public int next() {
+        if (runLeft == 0) {
+            if (position >= inputLength) {
+                setMask(0);
+                return 0;
+            }
+            long run = readVarint();
+            setMask((int) (run & ((1 << MASK_BITS) - 1)));
+            runLeft = run >>> MASK_BITS;
+        }
+        runLeft--;
+        return getMask();
+    }
+
+    private long readVarint() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = inputs[position++];
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
@@ -0,0 +1,133 @@
+package com.pacman.replay;
+
+import com.pacman.core.Game;
+import com.pacman.core.GameSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Plays replays back headless at full speed and checks that they end with
+ * the recorded score and state hash. Run from the project root:
+ *
+ * <pre>
+ * java -Djava.awt.headless=true -cp build/classes com.pacman.replay.ReplayPlayer replays/replay-*.pmr
+ * </pre>
+ *
+ * <p>
+ * To watch a replay at normal speed instead, start the game with
+ * {@code -Dpacman.replay=<file>}, and add {@code -Dpacman.replayStart=<seconds>}
+ * to start watching later in the game.
+ * </p>
+ */
+public class ReplayPlayer {
+
+    /** Outcome of a headless playback */
+    public static class Result {
+        public final long ticks;
+        public final int score;
+        public final long hash;
+        public final boolean matches;
+        /** Why the replay may not play back exactly, or null */
+        public final String warning;
+
+        Result(long ticks, int score, long hash, boolean matches, String warning) {
+            this.ticks = ticks;
+            this.score = score;
+            this.hash = hash;
+            this.matches = matches;
+            this.warning = warning;
+        }
+    }
+
+    /** Creates the game a replay was recorded from, as a fresh game at level 1 */
+    public static Game newGame(Replay replay) {
+        return new Game(replay.getSeed());
+    }
+
+    /**
+     * Returns why a replay will not play back exactly on this build and
+     * level, or null if nothing is known to differ.
+     */
+    public static String checkCompatible(Replay replay, Game game) {
+        if (replay.getEngineVersion() != Replay.ENGINE_VERSION)
+            return "recorded with engine version " + replay.getEngineVersion() + ", this is " + Replay.ENGINE_VERSION;
+        if (replay.getLevelCrc() != Replay.levelCrc(Game.LEVEL_FILE))
+            return Game.LEVEL_FILE + " differs from the recorded level";
+        if (replay.getGhostCount() != game.getGhosts().size())
+            return "recorded with " + replay.getGhostCount() + " ghosts, this game has " + game.getGhosts().size();
+        return null;
+    }
+
+    /**
+     * Moves a game to a tick of its replay: restores the last keyframe at or
+     * before the tick, then simulates the remaining ticks (less than one
+     * keyframe interval).
+     * @param game a game built by {@link #newGame} for this replay, in any state
+     * @return the replay input, positioned to continue from the tick
+     * @throws IllegalStateException if the replay has no keyframes (format 1)
+     */
+    public static ReplayInput seek(Replay replay, Game game, long tick) {
+        Replay.Keyframe keyframe = replay.keyframeBefore(Math.min(tick, replay.getTickCount()));
+        if (keyframe == null)
+            throw new IllegalStateException("Replay has no keyframes; it can only be played from the start");
+        GameSnapshot snap = new GameSnapshot();
+        keyframe.readInto(snap);
+        game.restoreSnapshot(snap);
+
+        ReplayInput input = new ReplayInput(replay, keyframe);
+        for (long t = keyframe.tick; t < tick && input.hasNext(); t++) {
+            input.next();
+            game.input(input);
+            game.update();
+        }
+        return input;
+    }
+
+    /** Plays a replay to its end as fast as possible */
+    public static Result play(Replay replay) {
+        Game game = newGame(replay);
+        String warning = checkCompatible(replay, game);
+
+        ReplayInput input = new ReplayInput(replay);
+        for (long t = 0; t < replay.getTickCount(); t++) {
+            input.next();
+            game.input(input);
+            game.update();
+        }
+        GameSnapshot snap = new GameSnapshot();
+        game.saveSnapshot(snap);
+        long hash = snap.stateHash();
+        boolean matches = snap.getScore() == replay.getFinalScore() && hash == replay.getFinalHash();
+        return new Result(replay.getTickCount(), snap.getScore(), hash, matches, warning);
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: ReplayPlayer <replay.pmr>...");
+            System.exit(2);
+        }
+        int failures = 0;
+        for (String arg : args) {
+            Path file = Paths.get(arg);
+            try {
+                Replay replay = Replay.read(file);
+                long t0 = System.nanoTime();
+                Result r = play(replay);
+                double ms = (System.nanoTime() - t0) / 1e6;
+                System.out.printf("%s: %d ticks in %.0f ms, score %d (recorded %d), hash %016x (recorded %016x): %s%n",
+                        file, r.ticks, ms, r.score, replay.getFinalScore(), r.hash, replay.getFinalHash(),
+                        r.matches ? "OK" : "MISMATCH");
+                if (r.warning != null)
+                    System.out.println("  warning: " + r.warning);
+                if (!r.matches)
+                    failures++;
+            } catch (IOException e) {
+                System.err.println(file + ": " + e.getMessage());
+                failures++;
+            }
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,159 @@
+package com.pacman.replay;
+
+import com.pacman.core.Game;
+import com.pacman.core.GameSnapshot;
+import com.pacman.util.MaskInput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records the input of a game, one mask per tick, as varint runs.
+ *
+ * <p>
+ * Attached with {@code Game.setRecorder}; the game calls {@link #record(int)}
+ * at the end of every update with the input that tick used. A tick costs a
+ * comparison unless the input changes, and the buffer only grows when a run
+ * is written, so recording does not allocate per tick.
+ * </p>
+ *
+ * <p>
+ * Every {@link #KEYFRAME_SECONDS} seconds of game time (override with
+ * {@code -Dpacman.replayKeyframeSeconds}) the recorder also serializes a
+ * snapshot of the game as a keyframe, and starts a new input run so that
+ * playback can begin exactly at the keyframe. Keyframes are taken between
+ * ticks, after one tick's input is recorded and before the next is applied.
+ * A keyframe is under 1 KB, about 10 KB per minute of game at the default
+ * interval, and takes a few microseconds to write.
+ * </p>
+ */
+public class ReplayRecorder {
+
+    /** Default game time between keyframes (at 60 ticks per second) */
+    public static final int KEYFRAME_SECONDS = 5;
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final int levelCrc;
+    private final long seed;
+    private final int ghostCount;
+    private final Game game;
+    private final int keyframeInterval;
+
+    private byte[] buffer = new byte[1024];
+    private int length = 0;
+
+    /** Current run: its input mask (-1 before the first tick) and length in ticks */
+    private int runMask = -1;
+    private long runLength = 0;
+    private long ticks = 0;
+
+    private final List<Replay.Keyframe> keyframes = new ArrayList<>();
+    private final GameSnapshot keyframeSnapshot = new GameSnapshot();
+    private final ByteArrayOutputStream keyframeBytes = new ByteArrayOutputStream(2048);
+
+    /** Starts recording a game that has not been updated yet */
+    public ReplayRecorder(Game game) {
+        this(game, Integer.getInteger("pacman.replayKeyframeSeconds", KEYFRAME_SECONDS) * 60);
+    }
+
+    /**
+     * Starts recording a game that has not been updated yet.
+     * @param keyframeInterval ticks between keyframes
+     */
+    public ReplayRecorder(Game game, int keyframeInterval) {
+        if (keyframeInterval <= 0)
+            throw new IllegalArgumentException("keyframe interval must be positive: " + keyframeInterval);
+        this.levelCrc = Replay.levelCrc(Game.LEVEL_FILE);
+        this.seed = game.getSeed();
+        this.ghostCount = game.getGhosts().size();
+        this.game = game;
+        this.keyframeInterval = keyframeInterval;
+        addKeyframe();
+    }
+
+    /** Records the input mask of one tick (see {@link MaskInput}) */
+    public void record(int mask) {
+        if (mask != runMask) {
+            flushRun();
+            runMask = mask;
+        }
+        runLength++;
+        ticks++;
+        if (ticks % keyframeInterval == 0) {
+            flushRun();
+            runMask = -1;
+            addKeyframe();
+        }
+    }
+
+    /**
+     * Ends the recording and builds the replay.
+     * @param game the recorded game, after its last tick
+     */
+    public Replay finish(Game game) {
+        flushRun();
+        GameSnapshot snap = new GameSnapshot();
+        game.saveSnapshot(snap);
+        return new Replay(Replay.ENGINE_VERSION, levelCrc, seed, ghostCount, ticks,
+                snap.getScore(), snap.stateHash(), Arrays.copyOf(buffer, length), length,
+                keyframeInterval, keyframes);
+    }
+
+    /** Returns the number of ticks recorded so far */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Saves a replay in a directory, named after the current time.
+     * @return the written file
+     */
+    public static Path save(Replay replay, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve("replay-" + LocalDateTime.now().format(FILE_TIME) + ".pmr");
+        for (int n = 2; Files.exists(file); n++) {
+            file = directory.resolve("replay-" + LocalDateTime.now().format(FILE_TIME) + "-" + n + ".pmr");
+        }
+        replay.write(file);
+        return file;
+    }
+
+    private void addKeyframe() {
+        game.saveSnapshot(keyframeSnapshot);
+        keyframeBytes.reset();
+        try {
+            keyframeSnapshot.write(new DataOutputStream(keyframeBytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        keyframes.add(new Replay.Keyframe(ticks, length, keyframeBytes.toByteArray()));
+    }
+
+    private void flushRun() {
+        if (runLength == 0)
+            return;
+        writeVarint((runLength << ReplayInput.MASK_BITS) | runMask);
+        runLength = 0;
+    }
+
+    /** Appends an unsigned LEB128 varint */
+    private void writeVarint(long value) {
+        if (length + 10 > buffer.length)
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        while ((value & ~0x7fL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+}
@@ -0,0 +1,446 @@
+package com.pacman.score;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * High scores of every finished game, kept on disk across runs.
+ *
+ * <p>
+ * Two kinds of file in one directory: an append-only {@link ScoreLog} of
+ * the games (the data, crash-safe), and memory-mapped {@link ScoreIndex}
+ * generations sorting them by score, of which the newest is used. Games added since the index was last written sit in a small
+ * sorted in-memory tail. Queries combine both: {@link #top} merges the two
+ * sorted sequences, {@link #rank} is a binary search in each, so both stay
+ * instant over millions of games.
+ * </p>
+ *
+ * <p>
+ * <b>Threading:</b> {@link #submit} only puts the game in a bounded queue
+ * and never blocks (a full queue drops the game and says so). One
+ * background thread appends queued games to the log in batches, syncs the
+ * log once per batch, then publishes a new tail. Once the tail holds
+ * {@code -Dpacman.scoreCompactEntries} games (default
+ * {@link #DEFAULT_COMPACT_ENTRIES}), or a sixteenth of the index if more,
+ * the same thread compacts: it merges index and tail into the next index
+ * generation and swaps it in. Scaling with the index keeps the total
+ * rewriting linear in the number of games. A failed compaction is retried
+ * once the tail has doubled, not after every batch. Queries read an
+ * immutable view (index and tail) and may run on any thread, including
+ * while a compaction is under way.
+ * </p>
+ *
+ * <p>
+ * On open, log records past the end covered by the index are read back
+ * into the tail, and a torn last record is cut. A missing or damaged index
+ * is rebuilt from the log. Older generations are deleted once swapped out;
+ * where a file still mapped cannot be deleted (Windows), it is tried again
+ * after the next compaction and on the next open.
+ * </p>
+ */
+public class HighScoreStore implements Closeable {
+
+    public static final int DEFAULT_COMPACT_ENTRIES = 4096;
+    public static final String LOG_FILE = "scores.log";
+    /** Matches the index files, {@code scores-<generation>.idx} */
+    public static final String INDEX_GLOB = ScoreIndex.FILE_PREFIX + "*" + ScoreIndex.FILE_SUFFIX;
+
+    private static final int QUEUE_CAPACITY = 1024;
+    /** Marks the end of the queue on close */
+    private static final ScoreEntry CLOSE = new ScoreEntry(0, 0, 0, 0, null);
+
+    /** Sorted entries not yet in the index; never modified once published */
+    private static final class Tail {
+        static final Tail EMPTY = new Tail(new int[0], new int[0], new long[0]);
+
+        final int[] scores;
+        final int[] levels;
+        final long[] offsets;
+
+        Tail(int[] scores, int[] levels, long[] offsets) {
+            this.scores = scores;
+            this.levels = levels;
+            this.offsets = offsets;
+        }
+
+        int size() { return scores.length; }
+
+        int countAbove(int score) {
+            int lo = 0;
+            int hi = scores.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (scores[mid] > score) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        /** Returns a tail with the given sorted entries merged in */
+        Tail merge(int[] s, int[] l, long[] o, int n) {
+            int total = scores.length + n;
+            int[] ms = new int[total];
+            int[] ml = new int[total];
+            long[] mo = new long[total];
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < total; k++) {
+                if (j == n || (i < scores.length && ScoreIndex.before(scores[i], offsets[i], s[j], o[j]))) {
+                    ms[k] = scores[i]; ml[k] = levels[i]; mo[k] = offsets[i]; i++;
+                } else {
+                    ms[k] = s[j]; ml[k] = l[j]; mo[k] = o[j]; j++;
+                }
+            }
+            return new Tail(ms, ml, mo);
+        }
+    }
+
+    /** What queries read: swapped as a whole by the writer */
+    private static final class View {
+        final ScoreIndex index;
+        final Tail tail;
+
+        View(ScoreIndex index, Tail tail) {
+            this.index = index;
+            this.tail = tail;
+        }
+    }
+
+    /** Gathers the records read back from the log, in log order */
+    private static final class Collector implements ScoreLog.RecordVisitor {
+        int[] scores = new int[256];
+        int[] levels = new int[256];
+        long[] offsets = new long[256];
+        int n = 0;
+
+        @Override
+        public void visit(long offset, int score, int level) {
+            if (n == scores.length) {
+                scores = Arrays.copyOf(scores, n * 2);
+                levels = Arrays.copyOf(levels, n * 2);
+                offsets = Arrays.copyOf(offsets, n * 2);
+            }
+            scores[n] = score;
+            levels[n] = level;
+            offsets[n] = offset;
+            n++;
+        }
+    }
+
+    private final Path directory;
+    private final ScoreLog log;
+    private final int compactEntries;
+    private volatile View view;
+
+    // Writer thread only
+    /** Generation of the next index written */
+    private long nextGeneration;
+    /** Index files swapped out but not deleted yet */
+    private final List<Path> staleIndexFiles;
+    /** Tail size before a compaction is tried again after one failed, or 0 */
+    private int compactRetryTail = 0;
+
+    private final BlockingQueue<ScoreEntry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private volatile boolean closed = false;
+
+    // ==================== Metrics ====================
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long processed = 0;
+    private volatile long failed = 0;
+    private volatile long batches = 0;
+    private volatile long compactions = 0;
+    private volatile long compactFailures = 0;
+    private volatile long lastCompactNanos = 0;
+    private volatile long maxCompactNanos = 0;
+
+    private HighScoreStore(Path directory, ScoreLog log, View view, int compactEntries, long nextGeneration,
+                           List<Path> staleIndexFiles) {
+        this.directory = directory;
+        this.log = log;
+        this.view = view;
+        this.compactEntries = compactEntries;
+        this.nextGeneration = nextGeneration;
+        this.staleIndexFiles = staleIndexFiles;
+        writer = new Thread(this::writeLoop, "ScoreWriter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Opens (or creates) the store in a directory, compacting at the default tail size */
+    public static HighScoreStore open(Path directory) throws IOException {
+        return open(directory, Integer.getInteger("pacman.scoreCompactEntries", DEFAULT_COMPACT_ENTRIES));
+    }
+
+    /**
+     * Opens (or creates) the store in a directory and starts its writer thread.
+     * @param compactEntries tail size at which the index is rewritten
+     */
+    public static HighScoreStore open(Path directory, int compactEntries) throws IOException {
+        Files.createDirectories(directory);
+        Path logFile = directory.resolve(LOG_FILE);
+        ScoreLog log = new ScoreLog(logFile);
+        try {
+            // The newest generation that is whole and matches the log
+            long[] generations = ScoreIndex.generations(directory);
+            long logSize = Files.size(logFile);
+            ScoreIndex index = null;
+            for (int i = generations.length - 1; i >= 0 && index == null; i--) {
+                index = ScoreIndex.open(directory, generations[i]);
+                if (index != null && index.logEnd() > logSize)
+                    index = null;
+            }
+            if (index == null) {
+                if (generations.length > 0)
+                    System.err.println("Score index does not match the log, rebuilding it");
+                index = ScoreIndex.empty();
+            }
+            List<Path> stale = new ArrayList<>();
+            for (long generation : generations) {
+                if (generation != index.generation())
+                    stale.add(ScoreIndex.file(directory, generation));
+            }
+            long nextGeneration = generations.length > 0 ? generations[generations.length - 1] + 1 : 1;
+
+            // Records the index does not cover yet
+            Collector recovered = new Collector();
+            log.recover(index.logEnd(), recovered);
+            Tail tail = sorted(recovered.scores, recovered.levels, recovered.offsets, recovered.n);
+            return new HighScoreStore(directory, log, new View(index, tail), compactEntries, nextGeneration, stale);
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    /** Sorts entries given in log order into index order */
+    private static Tail sorted(int[] scores, int[] levels, long[] offsets, int n) {
+        // ~score sorts descending in the high half, log order breaks ties in the low half
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = ((long) ~scores[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] s = new int[n];
+        int[] l = new int[n];
+        long[] o = new long[n];
+        for (int k = 0; k < n; k++) {
+            int i = (int) keys[k];
+            s[k] = scores[i];
+            l[k] = levels[i];
+            o[k] = offsets[i];
+        }
+        return new Tail(s, l, o);
+    }
+
+    // ==================== Writing ====================
+
+    /**
+     * Queues a finished game for writing. Never blocks.
+     * @return false if the store is closed or its queue is full (the game is dropped)
+     */
+    public boolean submit(ScoreEntry entry) {
+        if (closed)
+            return false;
+        if (!queue.offer(entry)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        submitted.incrementAndGet();
+        return true;
+    }
+
+    private void writeLoop() {
+        List<ScoreEntry> batch = new ArrayList<>(QUEUE_CAPACITY);
+        int[] scores = new int[QUEUE_CAPACITY];
+        int[] levels = new int[QUEUE_CAPACITY];
+        long[] offsets = new long[QUEUE_CAPACITY];
+        boolean done = false;
+        deleteStaleIndexFiles();
+        if (needsCompaction())
+            compact();
+        while (!done) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, QUEUE_CAPACITY - 1);
+            int n = 0;
+            try {
+                for (ScoreEntry e : batch) {
+                    if (e == CLOSE) {
+                        done = true;
+                        continue;
+                    }
+                    offsets[n] = log.append(e);
+                    scores[n] = e.getScore();
+                    levels[n] = e.getLevel();
+                    n++;
+                }
+                log.force();
+            } catch (IOException e) {
+                System.err.println("Could not write high scores: " + e.getMessage());
+                failed += batch.size() - n - (done ? 1 : 0);
+            }
+            if (n > 0) {
+                Tail added = sorted(scores, levels, offsets, n);
+                View v = view;
+                view = new View(v.index, v.tail.merge(added.scores, added.levels, added.offsets, n));
+                batches++;
+            }
+            processed += n;
+            batch.clear();
+            if (needsCompaction())
+                compact();
+        }
+    }
+
+    private boolean needsCompaction() {
+        View v = view;
+        int threshold = Math.max(compactEntries, v.index.size() / 16);
+        return v.tail.size() >= Math.max(threshold, compactRetryTail);
+    }
+
+    /** Merges the tail into the next index generation and swaps it in */
+    private void compact() {
+        View v = view;
+        long t0 = System.nanoTime();
+        try {
+            // Taken even if the write fails: a file may have been left under its name
+            long generation = nextGeneration++;
+            ScoreIndex index = ScoreIndex.write(directory, generation, v.index, v.tail.scores, v.tail.levels,
+                    v.tail.offsets, v.tail.size(), log.end());
+            view = new View(index, Tail.EMPTY);
+        } catch (IOException e) {
+            compactRetryTail = v.tail.size() * 2;
+            compactFailures++;
+            System.err.println("Could not compact high scores, retrying at " + compactRetryTail
+                    + " games in the tail: " + e.getMessage());
+            return;
+        }
+        compactRetryTail = 0;
+        if (v.index.generation() > 0)
+            staleIndexFiles.add(ScoreIndex.file(directory, v.index.generation()));
+        deleteStaleIndexFiles();
+        long nanos = System.nanoTime() - t0;
+        lastCompactNanos = nanos;
+        maxCompactNanos = Math.max(maxCompactNanos, nanos);
+        compactions++;
+    }
+
+    /**
+     * Deletes swapped-out index files. Queries may still read an old view:
+     * its mapping outlives the file where deleting a mapped file works, and
+     * where it does not (Windows) the file stays listed for the next try.
+     */
+    private void deleteStaleIndexFiles() {
+        for (Iterator<Path> it = staleIndexFiles.iterator(); it.hasNext(); ) {
+            try {
+                Files.deleteIfExists(it.next());
+                it.remove();
+            } catch (IOException e) {
+                // Still mapped: tried again after the next compaction
+            }
+        }
+    }
+
+    /**
+     * Waits until every submitted game is written (for tools and shutdown).
+     * @return false on timeout
+     */
+    public boolean flush(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (processed + failed < submitted.get()) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /** Writes the queued games, stops the writer and closes the log */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            if (queue.offer(CLOSE, 5, TimeUnit.SECONDS))
+                writer.join(5000);
+            else
+                writer.interrupt();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+
+    // ==================== Queries ====================
+
+    /** Returns the number of games stored (written, not just submitted) */
+    public long size() {
+        View v = view;
+        return (long) v.index.size() + v.tail.size();
+    }
+
+    /** Returns the rank a game with this score would have: 1 plus the games that scored more */
+    public long rank(int score) {
+        View v = view;
+        return 1L + v.index.countAbove(score) + v.tail.countAbove(score);
+    }
+
+    /**
+     * Returns the best games, best first (earlier games first on ties).
+     * @throws UncheckedIOException if the log cannot be read
+     */
+    public List<ScoreEntry> top(int n) {
+        View v = view;
+        ScoreIndex index = v.index;
+        Tail tail = v.tail;
+        List<ScoreEntry> result = new ArrayList<>(Math.min(n, 1024));
+        int i = 0;
+        int j = 0;
+        try {
+            while (result.size() < n && (i < index.size() || j < tail.size())) {
+                long offset;
+                if (j == tail.size() || (i < index.size()
+                        && ScoreIndex.before(index.score(i), index.offset(i), tail.scores[j], tail.offsets[j]))) {
+                    offset = index.offset(i++);
+                } else {
+                    offset = tail.offsets[j++];
+                }
+                result.add(log.read(offset));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    // ==================== Metrics ====================
+
+    /** Returns games submitted but not yet written */
+    public long getPending() { return submitted.get() - processed - failed; }
+    public long getDropped() { return dropped.get(); }
+    public long getFailed() { return failed; }
+    public long getBatches() { return batches; }
+    public long getCompactions() { return compactions; }
+    public long getCompactFailures() { return compactFailures; }
+    public long getLastCompactNanos() { return lastCompactNanos; }
+    public long getMaxCompactNanos() { return maxCompactNanos; }
+    /** Returns the games in the in-memory tail, not yet in the index file */
+    public int getTailSize() { return view.tail.size(); }
+}
@@ -0,0 +1,40 @@
+package com.pacman.score;
+
+/**
+ * One finished game in the {@link HighScoreStore}.
+ */
+public final class ScoreEntry {
+
+    private final int score;
+    private final int level;
+    private final long ticks;
+    private final long timestamp;
+    private final String replay;
+
+    /**
+     * @param level     level reached
+     * @param ticks     game length in ticks (60 per second)
+     * @param timestamp end of the game, in epoch milliseconds
+     * @param replay    replay file of the game, or null if none was saved
+     */
+    public ScoreEntry(int score, int level, long ticks, long timestamp, String replay) {
+        this.score = score;
+        this.level = level;
+        this.ticks = ticks;
+        this.timestamp = timestamp;
+        this.replay = replay == null ? "" : replay;
+    }
+
+    public int getScore() { return score; }
+    public int getLevel() { return level; }
+    public long getTicks() { return ticks; }
+    public long getTimestamp() { return timestamp; }
+    /** Returns the replay file of the game, or an empty string */
+    public String getReplay() { return replay; }
+
+    @Override
+    public String toString() {
+        return String.format("%d (level %d, %.0f s%s)", score, level, ticks / 60.0,
+                replay.isEmpty() ? "" : ", " + replay);
+    }
+}
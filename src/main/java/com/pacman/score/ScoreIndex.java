@@ -0,0 +1,202 @@
+package com.pacman.score;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory-mapped, sorted index of a {@link ScoreLog}: one fixed-size entry per
+ * game, best score first (earlier games first among equal scores).
+ *
+ * <p>
+ * Top-N reads the first N entries and a rank is one binary search, both
+ * straight from the mapping: the OS pages in only what is touched, so
+ * millions of entries cost neither heap nor load time. An index is never
+ * modified; {@link #write} merges it with newer entries into the next
+ * generation, {@code scores-<generation>.idx}, written aside and renamed
+ * to its name once synced. Nothing is ever renamed over a file that may
+ * still be mapped (which Windows refuses), and a crash leaves the newest
+ * whole generation to open. The header records how much of the log the
+ * index covers; records after that are read back from the log on open.
+ * </p>
+ *
+ * <pre>
+ * Section | Field      | Type  | Notes
+ * --------|------------|-------|------------------------------------------
+ * Header  | magic      | int   | "PMHI"
+ *         | version    | int   | {@link #VERSION}
+ *         | count      | long  | entries
+ *         | log end    | long  | log length covered by the entries
+ *         | reserved   | long  |
+ * Entry   | score      | int   | sorted by score descending,
+ *         | level      | int   | then by offset ascending
+ *         | offset     | long  | of the game's record in the log
+ * </pre>
+ */
+final class ScoreIndex {
+
+    /** "PMHI" */
+    static final int MAGIC = 0x504d4849;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int ENTRY_BYTES = 16;
+    /** Entries a single mapping can address */
+    static final int MAX_ENTRIES = (Integer.MAX_VALUE - HEADER_BYTES) / ENTRY_BYTES;
+
+    static final String FILE_PREFIX = "scores-";
+    static final String FILE_SUFFIX = ".idx";
+
+    private final ByteBuffer map;
+    private final int count;
+    private final long logEnd;
+    private final long generation;
+
+    private ScoreIndex(ByteBuffer map, int count, long logEnd, long generation) {
+        this.map = map;
+        this.count = count;
+        this.logEnd = logEnd;
+        this.generation = generation;
+    }
+
+    /** An index of no entries, covering only the log header (generation 0, which has no file) */
+    static ScoreIndex empty() {
+        return new ScoreIndex(null, 0, ScoreLog.HEADER_BYTES, 0);
+    }
+
+    /** Returns the file of an index generation in a directory */
+    static Path file(Path directory, long generation) {
+        return directory.resolve(FILE_PREFIX + generation + FILE_SUFFIX);
+    }
+
+    /** Returns the generations of the index files in a directory, oldest first */
+    static long[] generations(Path directory) throws IOException {
+        long[] found = new long[8];
+        int n = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, HighScoreStore.INDEX_GLOB)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long generation;
+                try {
+                    generation = Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (generation <= 0)
+                    continue;
+                if (n == found.length)
+                    found = Arrays.copyOf(found, n * 2);
+                found[n++] = generation;
+            }
+        }
+        long[] generations = Arrays.copyOf(found, n);
+        Arrays.sort(generations);
+        return generations;
+    }
+
+    /**
+     * Maps an index generation read-only.
+     * @return the index, or null if the file is missing or not a whole index
+     */
+    static ScoreIndex open(Path directory, long generation) throws IOException {
+        Path file = file(directory, generation);
+        if (!Files.exists(file))
+            return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE)
+                return null;
+            // Checked before mapping: a rejected file is not left mapped, so it can be deleted
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            if (channel.read(header, 0) < HEADER_BYTES || header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                return null;
+            long count = header.getLong(8);
+            if (count < 0 || count > MAX_ENTRIES || size != HEADER_BYTES + count * ENTRY_BYTES)
+                return null;
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new ScoreIndex(map, (int) count, header.getLong(16), generation);
+        }
+    }
+
+    int size() { return count; }
+    long generation() { return generation; }
+    /** Returns the log length covered: later records are not in this index */
+    long logEnd() { return logEnd; }
+    int score(int i) { return map.getInt(HEADER_BYTES + i * ENTRY_BYTES); }
+    int level(int i) { return map.getInt(HEADER_BYTES + i * ENTRY_BYTES + 4); }
+    long offset(int i) { return map.getLong(HEADER_BYTES + i * ENTRY_BYTES + 8); }
+
+    /** Returns the number of entries with a score above the given one */
+    int countAbove(int score) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (score(mid) > score) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Writes a new index generation holding the entries of {@code base} and
+     * the given sorted entries, then maps it. The file of {@code base} is
+     * left for the caller to delete.
+     * @param generation a generation with no file yet, newer than every other
+     * @param n          entries to take from the arrays
+     * @param logEnd     log length the new index covers
+     */
+    static ScoreIndex write(Path directory, long generation, ScoreIndex base, int[] scores, int[] levels,
+                            long[] offsets, int n, long logEnd) throws IOException {
+        long count = (long) base.count + n;
+        if (count > MAX_ENTRIES)
+            throw new IOException("Score index full (" + count + " entries)");
+        Path file = file(directory, generation);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(count);
+            out.writeLong(logEnd);
+            out.writeLong(0);
+            int i = 0;
+            int j = 0;
+            while (i < base.count || j < n) {
+                boolean fromBase = j == n || (i < base.count && before(base.score(i), base.offset(i), scores[j], offsets[j]));
+                if (fromBase) {
+                    out.writeInt(base.score(i));
+                    out.writeInt(base.level(i));
+                    out.writeLong(base.offset(i));
+                    i++;
+                } else {
+                    out.writeInt(scores[j]);
+                    out.writeInt(levels[j]);
+                    out.writeLong(offsets[j]);
+                    j++;
+                }
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        ScoreIndex index = open(directory, generation);
+        if (index == null)
+            throw new IOException("Score index unreadable after writing: " + file);
+        return index;
+    }
+
+    /** Index order: higher score first, then earlier in the log */
+    static boolean before(int scoreA, long offsetA, int scoreB, long offsetB) {
+        return scoreA != scoreB ? scoreA > scoreB : offsetA < offsetB;
+    }
+}
@@ -0,0 +1,198 @@
+package com.pacman.score;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of finished games, the {@link HighScoreStore}'s source of
+ * truth.
+ *
+ * <p>
+ * Records are only ever added at the end, each with its length and a CRC32
+ * of its content. A crash can at worst leave a partly written last record:
+ * {@link #recover} finds the end of the valid records and cuts anything
+ * after it, so a torn write loses that one game and nothing else.
+ * </p>
+ *
+ * <pre>
+ * Section  | Field         | Type  | Notes
+ * ---------|---------------|-------|-----------------------------------------
+ * Header   | magic         | int   | "PMHS"
+ *          | version       | short | {@link #VERSION}
+ * Record   | length        | int   | bytes of the fields below
+ *          | CRC           | int   | CRC32 of the fields below
+ *          | score         | int   |
+ *          | level         | int   |
+ *          | ticks         | long  | game length
+ *          | timestamp     | long  | epoch milliseconds
+ *          | replay length | short | UTF-8 bytes of the replay file name
+ *          | replay        | bytes |
+ * </pre>
+ *
+ * <p>
+ * Appends come from one thread; {@link #read} uses positional reads and may
+ * be called from any thread.
+ * </p>
+ */
+final class ScoreLog implements Closeable {
+
+    /** "PMHS" */
+    static final int MAGIC = 0x504d4853;
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 6;
+
+    private static final int FIXED_BYTES = 4 + 4 + 8 + 8 + 2;
+    private static final int MAX_REPLAY_BYTES = 1024;
+    private static final int MAX_RECORD_BYTES = 8 + FIXED_BYTES + MAX_REPLAY_BYTES;
+
+    /** Receives the records found by {@link #recover} */
+    interface RecordVisitor {
+        void visit(long offset, int score, int level);
+    }
+
+    private final FileChannel channel;
+    private long end;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(MAX_RECORD_BYTES);
+    private final CRC32 crc = new CRC32();
+
+    /** Opens the log, creating it if missing (call {@link #recover} before appending) */
+    ScoreLog(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putShort(VERSION).flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            channel.force(true);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            int magic = header.getInt();
+            short version = header.getShort();
+            if (magic != MAGIC || version != VERSION) {
+                channel.close();
+                throw new IOException("Not a score log (or unknown version " + version + "): " + file);
+            }
+        }
+        end = HEADER_BYTES;
+    }
+
+    /**
+     * Walks the records from {@code from} (a record boundary, e.g. the end of
+     * what an index already covers) and truncates the file after the last
+     * valid one. Must be called once, before any append.
+     * @return the number of records visited
+     */
+    long recover(long from, RecordVisitor visitor) throws IOException {
+        long size = channel.size();
+        long pos = Math.max(HEADER_BYTES, Math.min(from, size));
+        ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+        buf.limit(0);
+        long bufStart = pos;
+        long validEnd = pos;
+        long records = 0;
+        while (true) {
+            // Keep at least one whole record in the buffer
+            if (buf.remaining() < MAX_RECORD_BYTES && bufStart + buf.limit() < size) {
+                bufStart += buf.position();
+                buf.compact();
+                while (buf.hasRemaining() && channel.read(buf, bufStart + buf.position()) > 0)
+                    ;
+                buf.flip();
+            }
+            int start = buf.position();
+            if (buf.remaining() < 8)
+                break;
+            int length = buf.getInt();
+            int expectedCrc = buf.getInt();
+            if (length < FIXED_BYTES || length > FIXED_BYTES + MAX_REPLAY_BYTES || buf.remaining() < length)
+                break;
+            crc.reset();
+            crc.update(buf.array(), buf.position(), length);
+            if ((int) crc.getValue() != expectedCrc)
+                break;
+            int score = buf.getInt();
+            int level = buf.getInt();
+            buf.position(start + 8 + length);
+            visitor.visit(bufStart + start, score, level);
+            validEnd = bufStart + buf.position();
+            records++;
+        }
+        end = validEnd;
+        if (end < size) {
+            System.err.println("Score log: dropped " + (size - end) + " bytes of incomplete or damaged records");
+            channel.truncate(end);
+            channel.force(true);
+        }
+        return records;
+    }
+
+    /**
+     * Appends a record (not yet durable: see {@link #force()}).
+     * @return the record's offset
+     */
+    long append(ScoreEntry e) throws IOException {
+        byte[] replay = e.getReplay().getBytes(StandardCharsets.UTF_8);
+        int replayBytes = Math.min(replay.length, MAX_REPLAY_BYTES);
+        writeBuffer.clear();
+        writeBuffer.putInt(FIXED_BYTES + replayBytes);
+        writeBuffer.putInt(0);
+        writeBuffer.putInt(e.getScore());
+        writeBuffer.putInt(e.getLevel());
+        writeBuffer.putLong(e.getTicks());
+        writeBuffer.putLong(e.getTimestamp());
+        writeBuffer.putShort((short) replayBytes);
+        writeBuffer.put(replay, 0, replayBytes);
+        crc.reset();
+        crc.update(writeBuffer.array(), 8, FIXED_BYTES + replayBytes);
+        writeBuffer.putInt(4, (int) crc.getValue());
+        writeBuffer.flip();
+
+        long offset = end;
+        while (writeBuffer.hasRemaining()) {
+            end += channel.write(writeBuffer, end);
+        }
+        return offset;
+    }
+
+    /** Makes all appended records durable */
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    /** Reads the record at an offset returned by {@link #append} or {@link #recover} */
+    ScoreEntry read(long offset) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(MAX_RECORD_BYTES);
+        channel.read(buf, offset);
+        buf.flip();
+        int length = buf.getInt();
+        buf.getInt();
+        if (length < FIXED_BYTES || length > buf.remaining())
+            throw new IOException("Bad score record at " + offset);
+        int score = buf.getInt();
+        int level = buf.getInt();
+        long ticks = buf.getLong();
+        long timestamp = buf.getLong();
+        int replayBytes = buf.getShort();
+        String replay = new String(buf.array(), buf.position(), replayBytes, StandardCharsets.UTF_8);
+        return new ScoreEntry(score, level, ticks, timestamp, replay);
+    }
+
+    /** Returns the end of the last record */
+    long end() {
+        return end;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,251 @@
+package com.pacman.telemetry;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background writer of gameplay telemetry.
+ *
+ * <p>
+ * Games record events into their own {@link TelemetryRing} (see
+ * {@link #newRing}); a single writer thread drains every ring and appends
+ * the events as JSON lines, one object per event:
+ * </p>
+ *
+ * <pre>
+ * {"time":1767225600123,"ring":"game","tick":4210,"event":"ghost_eaten","bonus":400,"streak":2}
+ * </pre>
+ *
+ * <p>
+ * The time is wall-clock milliseconds, derived from the nanosecond stamp
+ * taken when the event was recorded. The writer wakes every
+ * {@link #IDLE_MILLIS} ms and writes whatever arrived in one buffered
+ * batch, flushed when the rings run dry. Files go to a directory as
+ * {@code telemetry-<start time>-<n>.jsonl}. A file that grows past
+ * {@code maxFileBytes} is closed and the next one started; only the newest
+ * {@code maxFiles} are kept. Events a ring had to drop are reported as a
+ * {@code dropped} line. With echo on, each event is also printed to the
+ * console, from this thread.
+ * </p>
+ */
+public class Telemetry implements Closeable {
+
+    public static final long DEFAULT_MAX_FILE_BYTES = 8L << 20;
+    public static final int DEFAULT_MAX_FILES = 8;
+    public static final int DEFAULT_RING_CAPACITY = 4096;
+    static final int IDLE_MILLIS = 10;
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final boolean echo;
+    private final String filePrefix;
+    private final List<TelemetryRing> rings = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /** Wall-clock millis minus nanoTime/1e6, to date events from their stamp */
+    private final long clockOffsetMillis;
+
+    // Writer thread state
+    private Writer out;
+    private long fileBytes;
+    private int fileNumber = 0;
+    private final StringBuilder line = new StringBuilder(160);
+    private String currentRing;
+    private final TelemetryRing.Handler handler = this::write;
+
+    // ==================== Metrics ====================
+    private volatile long written = 0;
+    private volatile long bytes = 0;
+    private volatile long rotations = 0;
+    private volatile long writeErrors = 0;
+
+    /**
+     * Creates the directory and starts the writer thread.
+     * @param echo also print each event to the console
+     */
+    public Telemetry(Path directory, long maxFileBytes, int maxFiles, boolean echo) throws IOException {
+        if (maxFiles < 1)
+            throw new IllegalArgumentException("maxFiles must be at least 1");
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.echo = echo;
+        this.filePrefix = "telemetry-" + LocalDateTime.now().format(FILE_TIME) + "-";
+        this.clockOffsetMillis = System.currentTimeMillis() - System.nanoTime() / 1_000_000;
+        Files.createDirectories(directory);
+        openNextFile();
+        thread = new Thread(this::run, "TelemetryWriter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Creates a ring for one producer (one game) and starts draining it.
+     * @param name tag written with each of the ring's events
+     */
+    public TelemetryRing newRing(String name, int capacity) {
+        TelemetryRing ring = new TelemetryRing(name, capacity);
+        rings.add(ring);
+        return ring;
+    }
+
+    /** Stops draining a ring; events still in it are written first */
+    public void removeRing(TelemetryRing ring) {
+        rings.remove(ring);
+        drain(ring);
+    }
+
+    // ==================== Writer Thread ====================
+
+    private void run() {
+        while (running) {
+            int drained = drainAll();
+            if (drained == 0) {
+                flush();
+                LockSupport.parkNanos(IDLE_MILLIS * 1_000_000L);
+            }
+        }
+        drainAll();
+        flush();
+    }
+
+    private int drainAll() {
+        int n = 0;
+        for (TelemetryRing ring : rings) {
+            n += drain(ring);
+        }
+        return n;
+    }
+
+    private synchronized int drain(TelemetryRing ring) {
+        currentRing = ring.getName();
+        int n = ring.drain(handler);
+        long dropped = ring.takeDropped();
+        if (dropped > 0)
+            write(TelemetryEvent.DROPPED, System.nanoTime(), -1, dropped, 0, 0);
+        return n;
+    }
+
+    private void write(int type, long nanos, long tick, long a, long b, long c) {
+        line.setLength(0);
+        line.append("{\"time\":").append(clockOffsetMillis + nanos / 1_000_000)
+                .append(",\"ring\":\"").append(currentRing).append('"');
+        if (tick >= 0)
+            line.append(",\"tick\":").append(tick);
+        line.append(",\"event\":\"").append(TelemetryEvent.name(type)).append('"');
+        String[] fields = TelemetryEvent.fields(type);
+        for (int i = 0; i < fields.length; i++) {
+            line.append(",\"").append(fields[i]).append("\":").append(i == 0 ? a : i == 1 ? b : c);
+        }
+        line.append("}\n");
+        if (echo)
+            System.out.println(TelemetryEvent.describe(type, a, b, c));
+        if (out == null)
+            return;
+        try {
+            out.append(line);
+            // Lines are ASCII: one byte per char
+            fileBytes += line.length();
+            bytes += line.length();
+            written++;
+            if (fileBytes >= maxFileBytes)
+                openNextFile();
+        } catch (IOException e) {
+            writeErrors++;
+        }
+    }
+
+    private synchronized void flush() {
+        if (out == null)
+            return;
+        try {
+            out.flush();
+        } catch (IOException e) {
+            writeErrors++;
+        }
+    }
+
+    /** Closes the current file, starts the next one and deletes the oldest beyond the limit */
+    private void openNextFile() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+            rotations++;
+        }
+        Path file = directory.resolve(filePrefix + (fileNumber++) + ".jsonl");
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file.toFile()),
+                StandardCharsets.US_ASCII), 1 << 16);
+        fileBytes = 0;
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "telemetry-*.jsonl")) {
+            for (Path p : stream) {
+                files.add(p);
+            }
+        }
+        if (files.size() > maxFiles) {
+            // Names sort by start time, then number: pad numbers so 10 sorts after 9
+            files.sort((x, y) -> sortKey(x).compareTo(sortKey(y)));
+            for (Path p : files.subList(0, files.size() - maxFiles)) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    private static String sortKey(Path file) {
+        String name = file.getFileName().toString();
+        int dash = name.lastIndexOf('-');
+        int dot = name.lastIndexOf('.');
+        if (dash < 0 || dot < dash)
+            return name;
+        String number = name.substring(dash + 1, dot);
+        return name.substring(0, dash + 1) + "0".repeat(Math.max(0, 10 - number.length())) + number;
+    }
+
+    /** Drains every ring, writes the rest and closes the file */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        }
+    }
+
+    // ==================== Metrics ====================
+
+    /** Returns the events written to files */
+    public long getWritten() { return written; }
+    public long getBytes() { return bytes; }
+    public long getRotations() { return rotations; }
+    public long getWriteErrors() { return writeErrors; }
+    /** Returns the rings being drained */
+    public List<TelemetryRing> getRings() { return Collections.unmodifiableList(rings); }
+}
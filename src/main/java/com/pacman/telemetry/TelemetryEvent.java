@@ -0,0 +1,75 @@
+package com.pacman.telemetry;
+
+/**
+ * Gameplay event types and their fields.
+ *
+ * <p>
+ * An event is a type, the game tick and up to {@link TelemetryRing#VALUES}
+ * numbers, whose meaning depends on the type (see {@link #fields}). Keeping
+ * events as plain numbers lets the game thread record them without building
+ * strings; names and text are only produced by the writer thread.
+ * </p>
+ */
+public final class TelemetryEvent {
+
+    /** a: bonus, b: ghosts eaten during this power pellet */
+    public static final int GHOST_EATEN = 1;
+    /** a: lives left */
+    public static final int LIFE_LOST = 2;
+    /** a: final score, b: level */
+    public static final int GAME_OVER = 3;
+    /** a: score, b: level cleared */
+    public static final int LEVEL_CLEARED = 4;
+    /** a: new level, b: ghost speed, c: PacMan speed (both in percent) */
+    public static final int LEVEL_ADVANCED = 5;
+    /** a: cells changed */
+    public static final int LEVEL_RELOADED = 6;
+    /** Written by the writer, not the game: a: events the ring dropped since the last report */
+    public static final int DROPPED = 7;
+
+    private static final String[] NAMES = {
+            null, "ghost_eaten", "life_lost", "game_over", "level_cleared", "level_advanced", "level_reloaded",
+            "dropped"
+    };
+
+    private static final String[][] FIELDS = {
+            {}, {"bonus", "streak"}, {"lives"}, {"score", "level"}, {"score", "level"},
+            {"level", "ghostSpeedPct", "pacmanSpeedPct"}, {"cells"}, {"events"}
+    };
+
+    private TelemetryEvent() {
+    }
+
+    /** Returns the event's name in the telemetry file, or "unknown" */
+    public static String name(int type) {
+        return type > 0 && type < NAMES.length ? NAMES[type] : "unknown";
+    }
+
+    /** Returns the names of the event's values, in order */
+    public static String[] fields(int type) {
+        return type > 0 && type < FIELDS.length ? FIELDS[type] : FIELDS[0];
+    }
+
+    /** Console text of an event, as the game used to print it */
+    public static String describe(int type, long a, long b, long c) {
+        switch (type) {
+            case GHOST_EATEN:
+                return "Ghost eaten! Bonus: " + a + " (" + b + " ghosts this power)";
+            case LIFE_LOST:
+                return "Life lost, " + a + " left";
+            case GAME_OVER:
+                return "Game over! Score: " + a;
+            case LEVEL_CLEARED:
+                return "You win! All pellets cleared.";
+            case LEVEL_ADVANCED:
+                return String.format("Advanced to Level %d - Ghost Speed: %.2fx, PacMan Speed: %.2fx",
+                        a, b / 100.0, c / 100.0);
+            case LEVEL_RELOADED:
+                return "Level reloaded: " + a + " cell(s) changed";
+            case DROPPED:
+                return "Telemetry: " + a + " event(s) dropped";
+            default:
+                return name(type);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.pacman.telemetry;
+
+import com.pacman.core.EventBus;
+import com.pacman.core.Game;
+import com.pacman.core.GameListener;
+import com.pacman.core.LevelConfig;
+import com.pacman.ghost.Ghost;
+
+/**
+ * Records a game's events into its {@link TelemetryRing}.
+ *
+ * <p>
+ * Subscribed by {@code Game.setTelemetry} to the events listed in
+ * {@link #EVENTS}; pellets are not recorded. Runs on the game thread when
+ * the tick's events are dispatched, so every event carries that tick.
+ * </p>
+ */
+public final class TelemetryListener implements GameListener {
+
+    /** Event types recorded */
+    public static final int[] EVENTS = {
+            EventBus.GHOST_EATEN, EventBus.LIFE_LOST, EventBus.GAME_OVER, EventBus.LEVEL_CLEARED,
+            EventBus.LEVEL_ADVANCED, EventBus.LEVEL_RELOADED
+    };
+
+    private final Game game;
+    private final TelemetryRing ring;
+
+    public TelemetryListener(Game game, TelemetryRing ring) {
+        this.game = game;
+        this.ring = ring;
+    }
+
+    public TelemetryRing getRing() {
+        return ring;
+    }
+
+    @Override
+    public void ghostEaten(Ghost ghost, int bonus, int streak) {
+        ring.offer(TelemetryEvent.GHOST_EATEN, game.getTick(), bonus, streak, 0);
+    }
+
+    @Override
+    public void lifeLost(int livesLeft) {
+        ring.offer(TelemetryEvent.LIFE_LOST, game.getTick(), livesLeft, 0, 0);
+    }
+
+    @Override
+    public void gameOver(int score, int level) {
+        ring.offer(TelemetryEvent.GAME_OVER, game.getTick(), score, level, 0);
+    }
+
+    @Override
+    public void levelCleared(int score, int level) {
+        ring.offer(TelemetryEvent.LEVEL_CLEARED, game.getTick(), score, level, 0);
+    }
+
+    @Override
+    public void levelAdvanced(int level) {
+        LevelConfig config = game.getLevelConfig();
+        ring.offer(TelemetryEvent.LEVEL_ADVANCED, game.getTick(), level,
+                Math.round(config.getGhostSpeedMultiplier() * 100),
+                Math.round(config.getPacmanSpeedMultiplier() * 100));
+    }
+
+    @Override
+    public void levelReloaded(int cellsChanged) {
+        ring.offer(TelemetryEvent.LEVEL_RELOADED, game.getTick(), cellsChanged, 0, 0);
+    }
+}
@@ -0,0 +1,107 @@
+package com.pacman.telemetry;
+
+import com.pacman.util.SpscRing;
+
+/**
+ * Telemetry events of one game, on their way from its game thread to the
+ * {@link Telemetry} writer.
+ *
+ * <p>
+ * Events are a type, a tick and {@link #VALUES} numbers, stamped with
+ * {@code nanoTime} when offered, in preallocated arrays whose slots an
+ * {@link SpscRing} hands out. When the writer has fallen a whole ring
+ * behind (a slow disk), an event is dropped and counted instead, and the
+ * writer reports the count.
+ * </p>
+ *
+ * <p>
+ * One producer only: each game gets its own ring (see
+ * {@code Game.setTelemetry}). A game handed between threads, like a room
+ * moving between workers, is fine as long as the hand-off is synchronized.
+ * </p>
+ */
+public final class TelemetryRing {
+
+    /** Values carried per event */
+    public static final int VALUES = 3;
+
+    /** Receives events drained by the consumer */
+    public interface Handler {
+        void event(int type, long nanos, long tick, long a, long b, long c);
+    }
+
+    private final String name;
+    private final SpscRing ring;
+    private final int[] types;
+    private final long[] nanos;
+    private final long[] ticks;
+    private final long[] values;
+
+    // Consumer side
+    private long reportedDropped;
+
+    /**
+     * @param name     tag of this ring's events in the telemetry file
+     * @param capacity events held, rounded up to a power of two
+     */
+    TelemetryRing(String name, int capacity) {
+        if (capacity < 2 || capacity > 1 << 24)
+            throw new IllegalArgumentException("Ring capacity out of range: " + capacity);
+        this.name = name;
+        ring = new SpscRing(capacity);
+        types = new int[ring.getCapacity()];
+        nanos = new long[ring.getCapacity()];
+        ticks = new long[ring.getCapacity()];
+        values = new long[ring.getCapacity() * VALUES];
+    }
+
+    /**
+     * Records an event (producer thread only). Never blocks or allocates.
+     * @return false if the ring was full and the event was dropped
+     */
+    public boolean offer(int type, long tick, long a, long b, long c) {
+        int i = ring.claim();
+        if (i < 0)
+            return false;
+        types[i] = type;
+        nanos[i] = System.nanoTime();
+        ticks[i] = tick;
+        values[i * VALUES] = a;
+        values[i * VALUES + 1] = b;
+        values[i * VALUES + 2] = c;
+        ring.publish();
+        return true;
+    }
+
+    /**
+     * Hands every published event to the handler, oldest first (consumer
+     * thread only), then frees their slots.
+     * @return the number of events drained
+     */
+    int drain(Handler handler) {
+        long tail = ring.tail();
+        long end = ring.head();
+        for (long t = tail; t < end; t++) {
+            int i = ring.slot(t);
+            handler.event(types[i], nanos[i], ticks[i], values[i * VALUES], values[i * VALUES + 1],
+                    values[i * VALUES + 2]);
+        }
+        ring.free(end);
+        return (int) (end - tail);
+    }
+
+    /** Returns the events dropped since the last call (consumer thread only) */
+    long takeDropped() {
+        long d = ring.getDropped();
+        long newly = d - reportedDropped;
+        reportedDropped = d;
+        return newly;
+    }
+
+    public String getName() { return name; }
+    public int getCapacity() { return ring.getCapacity(); }
+    /** Returns the events dropped because the ring was full */
+    public long getDropped() { return ring.getDropped(); }
+    /** Returns the events waiting for the writer */
+    public int size() { return ring.size(); }
+}
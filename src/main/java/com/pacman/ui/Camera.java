@@ -0,0 +1,35 @@
+package com.pacman.ui;
+
+import com.pacman.entity.Entity;
+
+/**
+ * Scrolling camera for mazes larger than the view.
+ * Keeps the followed entity centered, clamped to the maze edges.
+ * On a maze that fits the view (such as level.csv) it stays at (0, 0).
+ */
+public class Camera {
+    private int x = 0;
+    private int y = 0;
+
+    /**
+     * Centers the camera on an entity.
+     * @param target entity to follow (may be null)
+     * @param worldW maze width in pixels
+     * @param worldH maze height in pixels
+     * @param viewW view width in pixels
+     * @param viewH view height in pixels
+     */
+    public void follow(Entity target, int worldW, int worldH, int viewW, int viewH) {
+        if (target == null) return;
+        x = clamp(target.getxPos() + target.getSize() / 2 - viewW / 2, worldW - viewW);
+        y = clamp(target.getyPos() + target.getSize() / 2 - viewH / 2, worldH - viewH);
+    }
+
+    private static int clamp(int v, int max) {
+        if (max <= 0) return 0;
+        return Math.max(0, Math.min(v, max));
+    }
+
+    public int getX() { return x; }
+    public int getY() { return y; }
+}
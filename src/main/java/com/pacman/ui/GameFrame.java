@@ -1,6 +1,7 @@
 package com.pacman.ui;
 
 import com.pacman.core.UIPanel;
+import com.pacman.util.StartupTimer;
 
 import javax.swing.*;
 import java.awt.*;
@@ -68,9 +69,13 @@ public class GameFrame extends JFrame {
     }
 
     public static void main(String[] args) {
+        StartupTimer.begin();
+
         // Run on EDT (Event Dispatch Thread)
         javax.swing.SwingUtilities.invokeLater(() -> {
+            long t0 = StartupTimer.start();
             new GameFrame();
+            StartupTimer.end(StartupTimer.Phase.FRAME_CREATION, t0);
         });
     }
 }
@@ -1,16 +1,35 @@
 package com.pacman.ui;
 
+import com.pacman.agent.MctsAgent;
 import com.pacman.core.Game;
+import com.pacman.core.GameSnapshot;
 import com.pacman.core.LevelConfig;
+import com.pacman.core.LevelWatcher;
+import com.pacman.core.RewindBuffer;
 import com.pacman.core.UIPanel;
+import com.pacman.net.SpectatorServer;
+import com.pacman.net.VersusSession;
+import com.pacman.replay.Replay;
+import com.pacman.replay.ReplayInput;
+import com.pacman.replay.ReplayPlayer;
+import com.pacman.replay.ReplayRecorder;
+import com.pacman.score.HighScoreStore;
+import com.pacman.score.ScoreEntry;
+import com.pacman.telemetry.Telemetry;
+import com.pacman.telemetry.TelemetryRing;
+import com.pacman.util.InputLatency;
 import com.pacman.util.KeyHandler;
+import com.pacman.util.MaskInput;
+import com.pacman.util.StartupTimer;
+import com.pacman.util.Utils;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * Main game panel handling rendering and game loop.
@@ -30,11 +49,73 @@ public class GamePanel extends JPanel implements Runnable {
     private BufferedImage img;
     private Graphics2D g;
     private Image backgroundImage;
-    private Image gameOverImage;
-    private Image youWinImage;
+
+    /** End-of-game overlays, decoded in the background after the first frame */
+    private volatile Image gameOverImage;
+    private volatile Image youWinImage;
 
     private KeyHandler key;
     private Game game;
+
+    /** Key press to drawn frame latency, printed on exit with -Dpacman.inputLatency=true */
+    private static final boolean INPUT_LATENCY = Boolean.parseBoolean(System.getProperty("pacman.inputLatency", "false"));
+    private InputLatency latency;
+
+    /** Plays PacMan instead of the keyboard when started with -Dpacman.agent=mcts */
+    private MctsAgent agent;
+
+    /** Directory of recorded replays; -Dpacman.record=false turns recording off */
+    private static final Path REPLAY_DIR = Paths.get("replays");
+    private static final boolean RECORD = Boolean.parseBoolean(System.getProperty("pacman.record", "true"));
+
+    /** Input recorder of the current game (null when not recording) */
+    private ReplayRecorder recorder;
+
+    /** Replay being watched (-Dpacman.replay=file), or null in normal play */
+    private Replay replay;
+    private ReplayInput replayInput;
+
+    /**
+     * Last ticks of play, for scrubbing while paused. Holds
+     * -Dpacman.rewindSeconds of play (30 in dev mode, off otherwise).
+     */
+    private static final int REWIND_SECONDS = Integer.getInteger("pacman.rewindSeconds", LevelWatcher.DEV_MODE ? 30 : 0);
+    private RewindBuffer rewind;
+    private boolean paused;
+
+    /** High scores kept across runs; -Dpacman.scores=false turns them off */
+    private static final Path SCORE_DIR = Paths.get("scores");
+    private static final boolean SCORES = Boolean.parseBoolean(System.getProperty("pacman.scores", "true"));
+    private HighScoreStore scores;
+    /** Set once the current game's replay and score are saved */
+    private boolean gameFinished;
+    /** Rank of the last finished game, shown on the end screen */
+    private String rankText;
+
+    /**
+     * Gameplay events, written to telemetry/ by a background thread and
+     * echoed to the console; -Dpacman.telemetry=false turns this off,
+     * -Dpacman.telemetryEcho=false keeps the console quiet
+     */
+    private static final Path TELEMETRY_DIR = Paths.get("telemetry");
+    private static final boolean TELEMETRY = Boolean.parseBoolean(System.getProperty("pacman.telemetry", "true"));
+    private Telemetry telemetry;
+    private TelemetryRing telemetryRing;
+
+    /** Streams the game to spectators when started with -Dpacman.spectatorPort */
+    private SpectatorServer spectators;
+
+    /**
+     * Two-player game over the network when started with
+     * -Dpacman.versus=pacman|ghost (see {@link VersusSession}), or null
+     */
+    private VersusSession versus;
+    /** Directions held by the local versus player this frame */
+    private int versusMask;
+    private boolean versusReported;
+
+    /** Follows PacMan on mazes larger than the view */
+    private final Camera camera = new Camera();
     private UIPanel uiPanel;
 
     public GamePanel(UIPanel uiPanel) throws IOException {
@@ -50,34 +131,208 @@ public class GamePanel extends JPanel implements Runnable {
         requestFocus();
 
         try {
-            backgroundImage = ImageIO.read(new File("background.png"));
+            backgroundImage = Utils.readImage("background.png");
         } catch (IOException e) {
             System.err.println("Could not load background.png");
         }
 
+        // Set restart callback on UIPanel
+        uiPanel.setRestartCallback(() -> restartGame());
+    }
+
+    /**
+     * Decodes the game over and win overlays on a background thread.
+     * They are not needed for the first frame; until they are ready the
+     * overlay falls back to text.
+     */
+    private void loadOverlayImagesAsync() {
+        Thread loader = new Thread(() -> {
+            try {
+                gameOverImage = Utils.readImage("GameOver.png");
+            } catch (IOException e) {
+                System.err.println("Could not load GameOver.png");
+            }
+            try {
+                youWinImage = Utils.readImage("youwin.png");
+            } catch (IOException e) {
+                System.err.println("Could not load youwin.png");
+            }
+        }, "OverlayLoader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /** Restarts the game by reinitializing everything */
+    private void restartGame() {
+        saveReplay();
+        if (agent != null) {
+            System.out.printf("Agent: %d decisions, %.0f rollouts/decision, %.0f rollouts/s%n",
+                    agent.getDecisions(), agent.getRolloutsPerDecision(), agent.getRolloutsPerSecond());
+        }
+        game = new Game();
+        uiPanel.setGame(game);
+        attachTelemetry();
+        gameFinished = false;
+        rankText = null;
+        startRecording();
+        startRewind();
+        paused = false;
+    }
+
+    /** Starts keeping the last ticks of the current game, if enabled */
+    private void startRewind() {
+        if (REWIND_SECONDS <= 0 || versus != null)
+            return;
+        if (rewind == null || rewind.capacity() != REWIND_SECONDS * 60)
+            rewind = new RewindBuffer(REWIND_SECONDS * 60, game.getGhosts().size());
+        rewind.clear();
+        rewind.record(game);
+    }
+
+    /** Records the current game's input, unless disabled or watching a replay */
+    private void startRecording() {
+        if (!RECORD || replay != null || versus != null)
+            return;
+        recorder = new ReplayRecorder(game);
+        game.setRecorder(recorder);
+    }
+
+    /**
+     * Ends the recording of the current game and writes its replay.
+     * @return the replay file, or null if none was written
+     */
+    private Path saveReplay() {
+        if (recorder == null)
+            return null;
+        game.setRecorder(null);
+        Replay r = recorder.finish(game);
+        recorder = null;
+        if (r.getTickCount() == 0)
+            return null;
         try {
-            gameOverImage = ImageIO.read(new File("GameOver.png"));
+            Path file = ReplayRecorder.save(r, REPLAY_DIR);
+            System.out.println("Replay saved: " + file + " (" + r.getTickCount() + " ticks, "
+                    + r.getInputLength() + " input bytes)");
+            return file;
         } catch (IOException e) {
-            System.err.println("Could not load GameOver.png");
+            System.err.println("Could not save replay: " + e.getMessage());
+            return null;
         }
+    }
 
+    /** Measures key press to frame latency, if enabled, and prints it on exit */
+    private void startInputLatency() {
+        if (!INPUT_LATENCY)
+            return;
+        latency = new InputLatency();
+        key.setLatency(latency);
+        InputLatency measured = latency;
+        KeyHandler keys = key;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Input latency: " + measured.summary() + ", " + keys.getDropped()
+                    + " key events dropped");
+        }, "InputLatencyReport"));
+    }
+
+    /** Starts the telemetry writer, unless disabled */
+    private void startTelemetry() {
+        if (!TELEMETRY)
+            return;
         try {
-            youWinImage = ImageIO.read(new File("youwin.png"));
+            telemetry = new Telemetry(TELEMETRY_DIR,
+                    Long.getLong("pacman.telemetryMaxFileBytes", Telemetry.DEFAULT_MAX_FILE_BYTES),
+                    Integer.getInteger("pacman.telemetryMaxFiles", Telemetry.DEFAULT_MAX_FILES),
+                    Boolean.parseBoolean(System.getProperty("pacman.telemetryEcho", "true")));
         } catch (IOException e) {
-            System.err.println("Could not load youwin.png");
+            System.err.println("Could not start telemetry: " + e.getMessage());
+            return;
         }
+        telemetryRing = telemetry.newRing("game", Telemetry.DEFAULT_RING_CAPACITY);
+        Telemetry writer = telemetry;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                System.err.println("Could not close telemetry: " + e.getMessage());
+            }
+        }, "TelemetryShutdown"));
+    }
 
-        // Set restart callback on UIPanel
-        uiPanel.setRestartCallback(() -> restartGame());
+    /**
+     * Sends the current game's events to telemetry. Versus games are left
+     * out: their rollbacks replay ticks and would report events twice.
+     */
+    private void attachTelemetry() {
+        if (telemetryRing != null && versus == null)
+            game.setTelemetry(telemetryRing);
     }
 
-    /** Restarts the game by reinitializing everything */
-    private void restartGame() {
-        Game.resetGameOver();
-        LevelConfig.resetToLevel1();
-        uiPanel.reset();
-        game = new Game(uiPanel);
-        uiPanel.repaint();
+    /** Opens the high score store, unless disabled or not playing a normal game */
+    private void startScores() {
+        if (!SCORES || replay != null || versus != null)
+            return;
+        try {
+            scores = HighScoreStore.open(SCORE_DIR);
+        } catch (IOException e) {
+            System.err.println("Could not open high scores: " + e.getMessage());
+            return;
+        }
+        HighScoreStore store = scores;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                store.close();
+            } catch (IOException e) {
+                System.err.println("Could not close high scores: " + e.getMessage());
+            }
+        }, "ScoreShutdown"));
+    }
+
+    /** Saves the replay and the score of a game that just ended (once per game) */
+    private void finishGame() {
+        if (gameFinished)
+            return;
+        gameFinished = true;
+        Path replayFile = saveReplay();
+        if (scores == null)
+            return;
+        int score = game.getScoreboard().getScore();
+        long rank = scores.rank(score);
+        long total = scores.size() + 1;
+        // Queued only: the writer thread appends it to the log
+        scores.submit(new ScoreEntry(score, game.getLevelConfig().getCurrentLevel(), game.getTick(),
+                System.currentTimeMillis(), replayFile != null ? replayFile.toString() : null));
+        rankText = "Rank " + rank + " of " + total;
+        System.out.println("High scores: " + score + " ranks " + rank + " of " + total);
+    }
+
+    /**
+     * Loads the replay given with -Dpacman.replay and builds its game, moved
+     * to -Dpacman.replayStart seconds into the replay if given.
+     */
+    private boolean startReplay(String fileName) {
+        try {
+            replay = Replay.read(Paths.get(fileName));
+        } catch (IOException e) {
+            System.err.println("Could not load replay: " + e.getMessage());
+            return false;
+        }
+        game = ReplayPlayer.newGame(replay);
+        replayInput = new ReplayInput(replay);
+        String warning = ReplayPlayer.checkCompatible(replay, game);
+        System.out.println("Watching " + fileName + ": " + replay.getTickCount() + " ticks"
+                + (warning != null ? " (warning: " + warning + ")" : ""));
+
+        long startTick = Long.getLong("pacman.replayStart", 0) * 60;
+        if (startTick > 0) {
+            if (replay.getKeyframes().isEmpty()) {
+                System.out.println("Replay has no keyframes, watching from the start");
+            } else {
+                long t0 = System.nanoTime();
+                replayInput = ReplayPlayer.seek(replay, game, startTick);
+                System.out.printf("Seeked to tick %d in %.1f ms%n", game.getTick(), (System.nanoTime() - t0) / 1e6);
+            }
+        }
+        return true;
     }
 
     @Override
@@ -96,43 +351,252 @@ public class GamePanel extends JPanel implements Runnable {
         g = (Graphics2D) img.getGraphics();
 
         key = new KeyHandler(this);
-        game = new Game(uiPanel);
+        startInputLatency();
+        startTelemetry();
+        String replayFile = System.getProperty("pacman.replay");
+        String versusSide = System.getProperty("pacman.versus");
+        if (versusSide != null && startVersus(versusSide)) {
+            // The game comes from the session
+        } else if (replayFile == null || !startReplay(replayFile)) {
+            game = new Game();
+            startRecording();
+        }
+        uiPanel.setGame(game);
+        attachTelemetry();
+        startRewind();
+        startScores();
+        if (Integer.getInteger("pacman.stressGhosts", 0) > 0)
+            System.out.println("Stress mode: " + game.getGhosts().size() + " ghosts");
+
+        if ("mcts".equals(System.getProperty("pacman.agent"))) {
+            long budget = Long.getLong("pacman.agentBudgetMs", MctsAgent.DEFAULT_BUDGET_MILLIS);
+            agent = new MctsAgent(budget, 0, System.nanoTime());
+            System.out.println("Agent: MCTS, " + budget + " ms per decision");
+        }
+
+        if (LevelWatcher.DEV_MODE) {
+            LevelWatcher.start(Game.LEVEL_FILE);
+        }
+
+        Integer spectatorPort = Integer.getInteger("pacman.spectatorPort");
+        if (spectatorPort != null) {
+            try {
+                spectators = new SpectatorServer(spectatorPort);
+                spectators.start();
+            } catch (IOException e) {
+                System.err.println("Could not start spectator server: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Connects to the other player: -Dpacman.versusPort is the local UDP
+     * port and -Dpacman.versusPeer=host:port the other player's address
+     * (the ghost side may leave it out and wait to be contacted).
+     * @return false if the session could not start (the game is then played solo)
+     */
+    private boolean startVersus(String sideName) {
+        VersusSession.Side side;
+        try {
+            side = VersusSession.Side.valueOf(sideName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown versus side " + sideName + " (pacman or ghost)");
+            return false;
+        }
+        int port = Integer.getInteger("pacman.versusPort", VersusSession.DEFAULT_PORT);
+        InetSocketAddress peer = null;
+        String peerName = System.getProperty("pacman.versusPeer");
+        if (peerName != null) {
+            int colon = peerName.lastIndexOf(':');
+            peer = colon < 0 ? new InetSocketAddress(peerName, VersusSession.DEFAULT_PORT)
+                    : new InetSocketAddress(peerName.substring(0, colon), Integer.parseInt(peerName.substring(colon + 1)));
+        }
+        int delay = Integer.getInteger("pacman.versusInputDelay", VersusSession.DEFAULT_INPUT_DELAY);
+        int maxRollback = Integer.getInteger("pacman.versusMaxRollback", VersusSession.DEFAULT_MAX_ROLLBACK);
+        try {
+            versus = new VersusSession(side, port, peer, delay, maxRollback);
+            System.out.println("Versus: playing " + side + " on UDP port " + port
+                    + (peer != null ? ", connecting to " + peer : ", waiting for the other player"));
+            game = versus.connect(System.nanoTime(), 120_000);
+            System.out.println("Versus: started, seed " + game.getSeed());
+            return true;
+        } catch (IOException e) {
+            System.err.println("Could not start versus game: " + e.getMessage());
+            if (versus != null) {
+                try {
+                    versus.close();
+                } catch (IOException ignored) {
+                }
+                versus = null;
+            }
+            return false;
+        }
+    }
+
+    /** Plays one tick with both players' inputs (rolling back on late remote input) */
+    private void updateVersus() {
+        try {
+            if (game.isGameOver() || game.isGameWon())
+                versusMask = 0;
+            versus.update(versusMask);
+        } catch (IOException e) {
+            System.err.println("Versus: " + e.getMessage());
+        }
+        if (spectators != null)
+            spectators.publish(game);
+        if ((game.isGameOver() || game.isGameWon()) && !versusReported) {
+            System.out.println("Versus: " + versus.stats());
+            versusReported = true;
+        }
     }
 
     public void update() {
+        if (versus != null) {
+            updateVersus();
+            return;
+        }
+        if (key != null && updatePause())
+            return;
+        if (replayInput != null) {
+            updateReplay();
+            return;
+        }
         // Check for restart key during game over or win
-        if ((Game.isGameOver() || Game.isGameWon()) && key != null && key.k_restart.isPressed) {
+        if ((game.isGameOver() || game.isGameWon()) && key != null && key.k_restart.isPressed) {
             restartGame();
             key.k_restart.toggle(false);
             return;
         }
         game.update();
+        if (rewind != null)
+            rewind.record(game);
+        if (spectators != null)
+            spectators.publish(game);
+        if (game.isGameOver() || game.isGameWon())
+            finishGame();
     }
 
-    public void input(KeyHandler key) {
-        game.input(key);
+    /**
+     * Handles the pause key and, while paused, the step keys.
+     * @return true while the game is paused
+     */
+    private boolean updatePause() {
+        if (key.k_pause.isPressed) {
+            key.k_pause.toggle(false);
+            paused = !paused;
+            // Scrubbing replays ticks: keep their events out of telemetry
+            if (paused) {
+                game.setTelemetry(null);
+            } else {
+                resume();
+                attachTelemetry();
+            }
+        }
+        if (!paused)
+            return false;
+        if (rewind != null && key.k_stepBack.isPressed) {
+            key.k_stepBack.toggle(false);
+            // The recording ends where play left the recorded timeline
+            if (rewind.getOffset() == 0)
+                saveReplay();
+            rewind.stepBack(game);
+        }
+        if (rewind != null && key.k_stepForward.isPressed) {
+            key.k_stepForward.toggle(false);
+            rewind.stepForward(game);
+        }
+        return true;
     }
 
-    public void render() {
-        if (g != null) {
-            // Draw background
-            if (backgroundImage != null) {
-                g.drawImage(backgroundImage, 0, 0, width, height, null);
+    /** Continues from the shown tick; a watched replay continues its input from there */
+    private void resume() {
+        if (rewind == null || rewind.getOffset() == 0)
+            return;
+        if (replayInput != null) {
+            if (replay.getKeyframes().isEmpty()) {
+                // Without keyframes the input cannot be positioned: go back to the newest tick
+                while (rewind.stepForward(game))
+                    ;
             } else {
-                g.setColor(Color.BLACK);
-                g.fillRect(0, 0, width, height);
+                replayInput = ReplayPlayer.seek(replay, game, game.getTick());
             }
+        }
+    }
+
+    /** Plays one recorded tick; at the end, reports whether the game matched */
+    private void updateReplay() {
+        if (!replayInput.hasNext())
+            return;
+        replayInput.next();
+        game.input(replayInput);
+        game.update();
+        if (rewind != null)
+            rewind.record(game);
+        if (spectators != null)
+            spectators.publish(game);
+        if (!replayInput.hasNext()) {
+            GameSnapshot snap = new GameSnapshot();
+            game.saveSnapshot(snap);
+            boolean matches = snap.getScore() == replay.getFinalScore() && snap.stateHash() == replay.getFinalHash();
+            System.out.println("Replay finished: score " + snap.getScore() + " (recorded "
+                    + replay.getFinalScore() + "), " + (matches ? "state matches" : "STATE MISMATCH"));
+        }
+    }
 
+    public void input(KeyHandler key) {
+        if (replayInput != null || paused)
+            return;
+        if (versus != null) {
+            versusMask = MaskInput.maskOf(key);
+        } else if (agent != null) {
+            agent.think(game);
+            game.input(agent);
+        } else {
+            game.input(key);
+        }
+    }
+
+    /**
+     * Draws the maze and, optionally, the entities seen by the camera.
+     * The background image is used when the maze has the size of the view;
+     * larger mazes draw their visible wall chunks instead.
+     */
+    private void renderWorld(boolean withEntities) {
+        camera.follow(game.getPacman(), game.getWorldWidth(), game.getWorldHeight(), width, height);
+        int cx = camera.getX();
+        int cy = camera.getY();
+        g.translate(-cx, -cy);
+
+        // background.png only shows the stock maze: a watched or reloaded level draws its own walls
+        boolean stockMaze = !LevelWatcher.isRunning() && game.getMazeVersion() == 0;
+        if (stockMaze && backgroundImage != null && game.getWorldWidth() == width && game.getWorldHeight() == height) {
+            g.drawImage(backgroundImage, 0, 0, width, height, null);
+        } else {
+            g.setColor(Color.BLACK);
+            g.fillRect(cx, cy, width, height);
+            game.getTileMap().render(g, cx, cy, width, height);
+        }
+
+        if (withEntities) {
+            game.render(g, cx, cy, width, height);
+        }
+        g.translate(cx, cy);
+    }
+
+    public void render() {
+        if (g != null) {
             // Check for game over or win
-            if (Game.isGameOver() || Game.isGameWon()) {
+            if (game.isGameOver() || game.isGameWon()) {
+                renderWorld(false);
+
                 // Semi-transparent overlay
                 g.setColor(new Color(0, 0, 0, 150));
                 g.fillRect(0, 0, width, height);
 
                 // Select which image to show
-                Image displayImage = Game.isGameWon() ? youWinImage : gameOverImage;
-                String fallbackText = Game.isGameWon() ? "YOU WIN!" : "GAME OVER";
-                Color fallbackColor = Game.isGameWon() ? Color.GREEN : Color.RED;
+                Image displayImage = game.isGameWon() ? youWinImage : gameOverImage;
+                String fallbackText = game.isGameWon() ? "YOU WIN!" : "GAME OVER";
+                Color fallbackColor = game.isGameWon() ? Color.GREEN : Color.RED;
 
                 // Draw image scaled to fit
                 if (displayImage != null) {
@@ -162,6 +626,13 @@ public class GamePanel extends JPanel implements Runnable {
                     g.drawString(fallbackText, textX, textY);
                 }
 
+                if (rankText != null) {
+                    g.setColor(Color.WHITE);
+                    g.setFont(new Font("Arial", Font.PLAIN, 16));
+                    FontMetrics fmRank = g.getFontMetrics();
+                    g.drawString(rankText, (width - fmRank.stringWidth(rankText)) / 2, height - 60);
+                }
+
                 // Draw restart prompt
                 g.setColor(Color.YELLOW);
                 g.setFont(new Font("Arial", Font.BOLD, 20));
@@ -169,9 +640,9 @@ public class GamePanel extends JPanel implements Runnable {
                 String restartText = "Press R to Restart";
                 int restartX = (width - fmRestart.stringWidth(restartText)) / 2;
                 g.drawString(restartText, restartX, height - 30);
-            } else if (Game.isLevelStarting()) {
+            } else if (game.isLevelStarting()) {
                 // Level transition card overlay
-                game.render(g); // Render game underneath
+                renderWorld(true); // Render game underneath
 
                 // Semi-transparent dark overlay
                 g.setColor(new Color(0, 0, 0, 200));
@@ -181,7 +652,7 @@ public class GamePanel extends JPanel implements Runnable {
                 g.setColor(Color.YELLOW);
                 g.setFont(new Font("Arial", Font.BOLD, 42));
                 FontMetrics fmLevel = g.getFontMetrics();
-                String lvlText = "Level " + LevelConfig.getCurrentLevel();
+                String lvlText = "Level " + game.getLevelConfig().getCurrentLevel();
                 int lvlX = (width - fmLevel.stringWidth(lvlText)) / 2;
                 g.drawString(lvlText, lvlX, height / 2 - 40);
 
@@ -189,7 +660,7 @@ public class GamePanel extends JPanel implements Runnable {
                 g.setColor(Color.WHITE);
                 g.setFont(new Font("Arial", Font.PLAIN, 22));
                 FontMetrics fmScore = g.getFontMetrics();
-                String scoreText = "Score: " + Game.getLevelStartScore();
+                String scoreText = "Score: " + game.getLevelStartScore();
                 int scoreX = (width - fmScore.stringWidth(scoreText)) / 2;
                 g.drawString(scoreText, scoreX, height / 2 + 10);
 
@@ -197,7 +668,7 @@ public class GamePanel extends JPanel implements Runnable {
                 g.setColor(Color.CYAN);
                 g.setFont(new Font("Arial", Font.PLAIN, 16));
                 FontMetrics fmSpd = g.getFontMetrics();
-                String spdText = "Speed: " + String.format("%.0f%%", LevelConfig.getGhostSpeedMultiplier() * 100);
+                String spdText = "Speed: " + String.format("%.0f%%", game.getLevelConfig().getGhostSpeedMultiplier() * 100);
                 int spdX = (width - fmSpd.stringWidth(spdText)) / 2;
                 g.drawString(spdText, spdX, height / 2 + 40);
 
@@ -209,12 +680,31 @@ public class GamePanel extends JPanel implements Runnable {
                 int readyX = (width - fmReady.stringWidth(readyText)) / 2;
                 g.drawString(readyText, readyX, height / 2 + 80);
             } else {
-                // Normal gameplay: render all entities
-                game.render(g);
+                // Normal gameplay: render the visible entities
+                renderWorld(true);
+            }
+
+            if (paused) {
+                renderPauseBar();
             }
         }
     }
 
+    /** Draws the pause state and, with a rewind buffer, the scrub position */
+    private void renderPauseBar() {
+        g.setColor(new Color(0, 0, 0, 180));
+        g.fillRect(0, 0, width, 24);
+        g.setColor(Color.YELLOW);
+        g.setFont(new Font("Arial", Font.BOLD, 14));
+        String text = "PAUSED  tick " + game.getTick();
+        if (rewind != null) {
+            text += String.format("  -%.2f s  (, . step  P resume)", rewind.getOffset() / 60.0);
+        } else {
+            text += "  (P resume)";
+        }
+        g.drawString(text, 8, 17);
+    }
+
     public void draw() {
         Graphics g2 = this.getGraphics();
         if (g2 != null) {
@@ -247,7 +737,8 @@ public class GamePanel extends JPanel implements Runnable {
             int updateCount = 0;
 
             while ((now - lastUpdateTime) > TBU && (updateCount < MUBR)) {
-                if (!Game.isGameOver() && !Game.isGameWon()) {
+                key.poll(game.getPacman());
+                if (!game.isGameOver() && !game.isGameWon()) {
                     input(key);
                 }
                 update(); // Always call - handles R key restart check
@@ -259,8 +750,20 @@ public class GamePanel extends JPanel implements Runnable {
                 lastUpdateTime = now - TBU;
             }
 
-            render();
-            draw();
+            if (!StartupTimer.isFirstFrameDone()) {
+                long t0 = StartupTimer.start();
+                render();
+                draw();
+                StartupTimer.end(StartupTimer.Phase.FIRST_RENDER, t0);
+                StartupTimer.markFirstFrame();
+                loadOverlayImagesAsync();
+            } else {
+                render();
+                draw();
+            }
+            uiPanel.refresh();
+            if (latency != null)
+                latency.frameShown(System.nanoTime());
             lastRenderTime = now;
             frameCount++;
 
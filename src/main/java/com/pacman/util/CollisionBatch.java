@@ -0,0 +1,69 @@
+package com.pacman.util;
+
+import com.pacman.entity.Entity;
+
+import java.util.Arrays;
+
+/**
+ * Ordered batch of PacMan contacts found in one tick.
+ *
+ * <p>
+ * Filled once per tick by {@link CollisionDetector#collect} and applied by the
+ * game after all entities have moved. Storage is preallocated and reused, and
+ * events are kept sorted by kind (pellets, then power pellets, then ghosts) and
+ * then by position, so the result does not depend on entity list order.
+ * </p>
+ */
+public class CollisionBatch {
+
+    /** Event kinds, in the order they are applied */
+    public static final int PAC_GUM = 0;
+    public static final int SUPER_PAC_GUM = 1;
+    public static final int GHOST = 2;
+
+    private int count = 0;
+    private int[] kinds;
+    private Entity[] entities;
+
+    public CollisionBatch(int initialCapacity) {
+        kinds = new int[Math.max(initialCapacity, 4)];
+        entities = new Entity[kinds.length];
+    }
+
+    /** Empties the batch, keeping its storage */
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            entities[i] = null;
+        }
+        count = 0;
+    }
+
+    /** Adds a contact, keeping the batch sorted */
+    public void add(int kind, Entity e) {
+        if (count == kinds.length) {
+            kinds = Arrays.copyOf(kinds, count * 2);
+            entities = Arrays.copyOf(entities, count * 2);
+        }
+        // Insertion sort: batches hold a handful of contacts
+        int i = count++;
+        while (i > 0 && compare(kind, e, kinds[i - 1], entities[i - 1]) < 0) {
+            kinds[i] = kinds[i - 1];
+            entities[i] = entities[i - 1];
+            i--;
+        }
+        kinds[i] = kind;
+        entities[i] = e;
+    }
+
+    public int size() { return count; }
+    public int getKind(int i) { return kinds[i]; }
+    public Entity getEntity(int i) { return entities[i]; }
+
+    private static int compare(int kindA, Entity a, int kindB, Entity b) {
+        if (kindA != kindB) return Integer.compare(kindA, kindB);
+        if (a.getyPos() != b.getyPos()) return Integer.compare(a.getyPos(), b.getyPos());
+        if (a.getxPos() != b.getxPos()) return Integer.compare(a.getxPos(), b.getxPos());
+        if (a.getSpawnY() != b.getSpawnY()) return Integer.compare(a.getSpawnY(), b.getSpawnY());
+        return Integer.compare(a.getSpawnX(), b.getSpawnX());
+    }
+}
@@ -2,11 +2,23 @@ package com.pacman.util;
 
 import com.pacman.core.Game;
 import com.pacman.entity.Entity;
+import com.pacman.entity.EntityStore;
+import com.pacman.entity.PacGum;
+import com.pacman.entity.PacMan;
+import com.pacman.entity.StaticEntity;
+import com.pacman.entity.SuperPacGum;
+import com.pacman.entity.Wall;
+import com.pacman.entity.GhostHouse;
+import com.pacman.ghost.Ghost;
 
 /**
  * Detects collisions between entities.
+ * Queries scan the primitive arrays of the game's {@link EntityStore}.
  */
 public class CollisionDetector {
+    /** Largest pellet extent from its cell origin, in pixels (power pellet: 16) */
+    private static final int PELLET_REACH = 16;
+
     private Game game;
 
     public CollisionDetector(Game game) {
@@ -14,13 +26,62 @@ public class CollisionDetector {
     }
 
     public Entity checkCollision(Entity obj, Class<? extends Entity> collisionCheck) {
-        for (Entity e : game.getEntities()) {
-            if (!e.isDestroyed() && collisionCheck.isInstance(e) && 
-                e.getHitbox().contains(obj.getxPos() + obj.getSize() / 2, obj.getyPos() + obj.getSize() / 2)) {
-                return e;
+        EntityStore store = game.getStore();
+        int id = store.findContaining(typeMask(collisionCheck),
+                obj.getxPos() + obj.getSize() / 2, obj.getyPos() + obj.getSize() / 2);
+        return id < 0 ? null : store.get(id);
+    }
+
+    /**
+     * Finds every pellet, power pellet and (optionally) ghost touching PacMan
+     * in a single pass, and adds them to the batch. Pellets are looked up in
+     * the few level cells around PacMan's center; ghosts come from the active
+     * entities. The cost does not depend on the maze size.
+     * Uses the same center-point test as {@link #checkCollision}.
+     * @param pacman the player
+     * @param includeGhosts false during the grace period after a reset
+     * @param batch cleared and filled with the contacts found
+     */
+    public void collect(PacMan pacman, boolean includeGhosts, CollisionBatch batch) {
+        batch.clear();
+        EntityStore store = game.getStore();
+        int px = pacman.getxPos() + pacman.getSize() / 2;
+        int py = pacman.getyPos() + pacman.getSize() / 2;
+
+        // Pellets: a pellet of cell t spans at most [t*8, t*8+16), so only cells
+        // between (p-15)/8 and p/8 can contain the point
+        int tx0 = Math.floorDiv(px - (PELLET_REACH - 1), Game.CELL_SIZE);
+        int ty0 = Math.floorDiv(py - (PELLET_REACH - 1), Game.CELL_SIZE);
+        int tx1 = Math.floorDiv(px, Game.CELL_SIZE);
+        int ty1 = Math.floorDiv(py, Game.CELL_SIZE);
+        for (int ty = ty0; ty <= ty1; ty++) {
+            for (int tx = tx0; tx <= tx1; tx++) {
+                StaticEntity e = game.getTileEntity(tx, ty);
+                if (e == null) continue;
+                byte type = store.getType(e.getId());
+                if (type == EntityStore.PAC_GUM && contains(store, e.getId(), px, py)) {
+                    batch.add(CollisionBatch.PAC_GUM, e);
+                } else if (type == EntityStore.SUPER_PAC_GUM && contains(store, e.getId(), px, py)) {
+                    batch.add(CollisionBatch.SUPER_PAC_GUM, e);
+                }
+            }
+        }
+
+        if (!includeGhosts) return;
+        for (int i = 0; i < store.getActiveCount(); i++) {
+            int id = store.getActiveId(i);
+            if (store.getType(id) == EntityStore.GHOST && contains(store, id, px, py)) {
+                batch.add(CollisionBatch.GHOST, store.get(id));
             }
         }
-        return null;
+    }
+
+    private static boolean contains(EntityStore store, int id, int px, int py) {
+        if (store.isDestroyed(id)) return false;
+        int x = store.getX(id);
+        int y = store.getY(id);
+        int size = store.getSize(id);
+        return px >= x && py >= y && px < x + size && py < y + size;
     }
 
     public Entity checkCollisionRect(Entity obj, Class<? extends Entity> collisionCheck) {
@@ -31,4 +92,15 @@ public class CollisionDetector {
         }
         return null;
     }
+
+    /** Converts an entity class to an {@link EntityStore} type mask */
+    private static int typeMask(Class<? extends Entity> c) {
+        if (c == PacGum.class) return 1 << EntityStore.PAC_GUM;
+        if (c == SuperPacGum.class) return 1 << EntityStore.SUPER_PAC_GUM;
+        if (c == GhostHouse.class) return 1 << EntityStore.GHOST_HOUSE;
+        if (c == Wall.class) return EntityStore.MASK_WALLS;
+        if (c == PacMan.class) return 1 << EntityStore.PACMAN;
+        if (Ghost.class.isAssignableFrom(c)) return 1 << EntityStore.GHOST;
+        return -1;
+    }
 }
@@ -0,0 +1,36 @@
+package com.pacman.util;
+
+/**
+ * Fixed-width histograms kept as plain counts per bucket, so recording a
+ * value allocates nothing. The last bucket holds every larger value.
+ * Used for input latency and server tick lateness.
+ */
+public final class Histograms {
+
+    private Histograms() {
+    }
+
+    /** Returns the bucket of a value: {@code value / bucketWidth}, clamped to {@code [0, buckets)} */
+    public static int bucket(long value, long bucketWidth, int buckets) {
+        return (int) Math.min(buckets - 1, Math.max(0, value) / bucketWidth);
+    }
+
+    /**
+     * Returns the value (upper bucket bound) under which a fraction {@code p}
+     * of the counted values fall, or 0 if the histogram is empty.
+     */
+    public static long percentile(long[] histogram, long bucketWidth, double p) {
+        long total = 0;
+        for (long c : histogram) {
+            total += c;
+        }
+        long rank = (long) Math.ceil(total * p);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank && seen > 0)
+                return (i + 1) * bucketWidth;
+        }
+        return 0;
+    }
+}
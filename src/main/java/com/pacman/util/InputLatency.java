@@ -0,0 +1,65 @@
+package com.pacman.util;
+
+/**
+ * Time from a key press to the first frame drawn after the game applied it.
+ *
+ * <p>
+ * The start is when the Swing event thread received the key event; the end
+ * is when the frame that follows the tick consuming it has been drawn to the
+ * window (what the compositor and display add is not seen). Latencies go
+ * into a {@link Histograms histogram} of {@link #BUCKET_NANOS} buckets. Game thread only, apart from reading the summary at exit.
+ * </p>
+ */
+public class InputLatency {
+
+    /** Histogram resolution: 0.25 ms, up to {@link #BUCKETS} buckets (the last one holds the rest) */
+    public static final long BUCKET_NANOS = 250_000;
+    public static final int BUCKETS = 1000;
+
+    private final long[] histogram = new long[BUCKETS];
+    private long count = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    /** Presses applied since the last frame was drawn */
+    private final long[] pending = new long[64];
+    private int pendingCount = 0;
+
+    /** A key press received at {@code eventNanos} was applied to the game */
+    public void applied(long eventNanos) {
+        if (pendingCount < pending.length)
+            pending[pendingCount++] = eventNanos;
+    }
+
+    /** A frame was drawn: ends the latency of every press applied before it */
+    public void frameShown(long nowNanos) {
+        for (int i = 0; i < pendingCount; i++) {
+            long nanos = nowNanos - pending[i];
+            histogram[Histograms.bucket(nanos, BUCKET_NANOS, BUCKETS)]++;
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+        pendingCount = 0;
+    }
+
+    /**
+     * Returns the latency (upper bucket bound, in nanoseconds) under which a
+     * fraction {@code p} of the presses were shown.
+     */
+    public long percentile(double p) {
+        return Histograms.percentile(histogram, BUCKET_NANOS, p);
+    }
+
+    public long getCount() { return count; }
+    public long getMaxNanos() { return maxNanos; }
+
+    /** Returns a one-line summary */
+    public String summary() {
+        if (count == 0)
+            return "no key presses measured";
+        return String.format("%d key presses, avg %.1f ms, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.1f ms",
+                count, totalNanos / 1e6 / count, percentile(0.50) / 1e6, percentile(0.90) / 1e6,
+                percentile(0.99) / 1e6, maxNanos / 1e6);
+    }
+}
@@ -0,0 +1,76 @@
+package com.pacman.util;
+
+/**
+ * Key presses and releases handed from the Swing event thread to the game
+ * thread, each with the {@code nanoTime} at which the event thread saw it.
+ *
+ * <p>
+ * The events sit in preallocated arrays whose slots an {@link SpscRing}
+ * hands out, so the event thread never waits on the game. If the game
+ * thread stalls long enough for the queue to fill, new events are dropped
+ * and counted.
+ * </p>
+ */
+public final class KeyEventQueue {
+
+    /** Receives events taken by the consumer */
+    public interface Handler {
+        /** @return false to leave this event (and the rest) in the queue */
+        boolean event(int keyCode, boolean pressed, long nanos);
+    }
+
+    private final SpscRing ring;
+    private final int[] codes;
+    private final boolean[] pressed;
+    private final long[] nanos;
+
+    /** @param capacity events held, rounded up to a power of two */
+    public KeyEventQueue(int capacity) {
+        if (capacity < 2 || capacity > 1 << 16)
+            throw new IllegalArgumentException("Queue capacity out of range: " + capacity);
+        ring = new SpscRing(capacity);
+        codes = new int[ring.getCapacity()];
+        pressed = new boolean[ring.getCapacity()];
+        nanos = new long[ring.getCapacity()];
+    }
+
+    /**
+     * Adds an event (producer thread only). Never blocks or allocates.
+     * @return false if the queue was full and the event was dropped
+     */
+    public boolean offer(int keyCode, boolean isPressed, long eventNanos) {
+        int i = ring.claim();
+        if (i < 0)
+            return false;
+        codes[i] = keyCode;
+        pressed[i] = isPressed;
+        nanos[i] = eventNanos;
+        ring.publish();
+        return true;
+    }
+
+    /**
+     * Hands published events to the handler, oldest first (consumer thread
+     * only), until it declines one, then frees the slots of those taken.
+     * @return the number of events taken
+     */
+    public int drain(Handler handler) {
+        long tail = ring.tail();
+        long end = ring.head();
+        long t = tail;
+        while (t < end) {
+            int i = ring.slot(t);
+            if (!handler.event(codes[i], pressed[i], nanos[i]))
+                break;
+            t++;
+        }
+        ring.free(t);
+        return (int) (t - tail);
+    }
+
+    public int getCapacity() { return ring.getCapacity(); }
+    /** Returns the events dropped because the queue was full */
+    public long getDropped() { return ring.getDropped(); }
+    /** Returns the events waiting for the consumer */
+    public int size() { return ring.size(); }
+}
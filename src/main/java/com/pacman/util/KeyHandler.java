@@ -1,5 +1,6 @@
 package com.pacman.util;
 
+import com.pacman.entity.MovingEntity;
 import com.pacman.ui.GamePanel;
 
 import java.awt.event.KeyEvent;
@@ -9,14 +10,41 @@ import java.util.ArrayList;
 
 /**
  * Handles keyboard input for game controls.
- * Supports WASD and arrow keys.
+ * Supports WASD and arrow keys, R to restart, P to pause and, while paused,
+ * comma and period to step one tick back or forward.
+ *
+ * <p>
+ * Key events arrive on the Swing event thread, which only stamps them and
+ * puts them in a {@link KeyEventQueue}. The game thread takes them once per
+ * tick with {@link #poll}; the key states below belong to the game thread.
+ * A press is always seen for at least one tick: a release that follows a
+ * press taken in the same poll waits for the next one.
+ * </p>
+ *
+ * <p>
+ * <b>Turn buffering:</b> PacMan only turns when on the grid, so a direction
+ * tapped between two cells used to be lost. The last direction pressed is
+ * kept as the next turn and reported as pressed, even after its key is
+ * released, until PacMan moves that way, another direction is pressed, or
+ * {@link #TURN_BUFFER_TICKS} ticks pass. The game sees it as a held key, so
+ * replays record it like any other input.
+ * </p>
  */
-public class KeyHandler implements KeyListener {
+public class KeyHandler implements KeyListener, PacManInput {
     public static List<Key> keys = new ArrayList<>();
 
+    /** How long a buffered turn waits for a junction: -Dpacman.turnBufferTicks (30, half a second) */
+    public static final int TURN_BUFFER_TICKS = Integer.getInteger("pacman.turnBufferTicks", 30);
+
+    /** Key events that may wait for the game thread */
+    private static final int QUEUE_CAPACITY = 256;
+
     public class Key {
         public boolean isPressed;
 
+        /** Poll in which the key was last pressed */
+        private long pressedInPoll = -1;
+
         public Key() {
             keys.add(this);
         }
@@ -33,27 +61,136 @@ public class KeyHandler implements KeyListener {
     public Key k_left = new Key();
     public Key k_right = new Key();
     public Key k_restart = new Key();
+    public Key k_pause = new Key();
+    public Key k_stepBack = new Key();
+    public Key k_stepForward = new Key();
+
+    private final KeyEventQueue queue = new KeyEventQueue(QUEUE_CAPACITY);
+    private final KeyEventQueue.Handler handler = this::apply;
+    private long polls = 0;
+
+    /** Buffered direction (one of the direction keys), or null */
+    private Key turn;
+    private int turnTicks;
+
+    /** Press-to-frame latency, or null when not measured */
+    private InputLatency latency;
 
     public KeyHandler(GamePanel panel) {
         panel.addKeyListener(this);
     }
 
-    public void toggle(KeyEvent e, boolean pressed) {
-        if (e.getKeyCode() == KeyEvent.VK_LEFT || e.getKeyCode() == KeyEvent.VK_A) {
-            k_left.toggle(pressed);
-        }
-        if (e.getKeyCode() == KeyEvent.VK_RIGHT || e.getKeyCode() == KeyEvent.VK_D) {
-            k_right.toggle(pressed);
-        }
-        if (e.getKeyCode() == KeyEvent.VK_UP || e.getKeyCode() == KeyEvent.VK_W) {
-            k_up.toggle(pressed);
-        }
-        if (e.getKeyCode() == KeyEvent.VK_DOWN || e.getKeyCode() == KeyEvent.VK_S) {
-            k_down.toggle(pressed);
+    /** Returns the game key for a key code, or null */
+    private Key keyFor(int keyCode) {
+        switch (keyCode) {
+            case KeyEvent.VK_LEFT:
+            case KeyEvent.VK_A:
+                return k_left;
+            case KeyEvent.VK_RIGHT:
+            case KeyEvent.VK_D:
+                return k_right;
+            case KeyEvent.VK_UP:
+            case KeyEvent.VK_W:
+                return k_up;
+            case KeyEvent.VK_DOWN:
+            case KeyEvent.VK_S:
+                return k_down;
+            case KeyEvent.VK_R:
+                return k_restart;
+            case KeyEvent.VK_P:
+                return k_pause;
+            case KeyEvent.VK_COMMA:
+                return k_stepBack;
+            case KeyEvent.VK_PERIOD:
+                return k_stepForward;
+            default:
+                return null;
         }
-        if (e.getKeyCode() == KeyEvent.VK_R) {
-            k_restart.toggle(pressed);
+    }
+
+    /** Queues a game key event for the game thread (event thread) */
+    public void toggle(KeyEvent e, boolean pressed) {
+        if (keyFor(e.getKeyCode()) != null)
+            queue.offer(e.getKeyCode(), pressed, System.nanoTime());
+    }
+
+    /**
+     * Applies the key events received since the last call (game thread, once
+     * per tick, before input is read). First drops the buffered turn if
+     * PacMan has taken it or it has waited too long.
+     * @param pacman PacMan of the current game, or null
+     */
+    public void poll(MovingEntity pacman) {
+        if (turn != null && (movingToward(pacman, turn) || --turnTicks <= 0))
+            turn = null;
+        polls++;
+        queue.drain(handler);
+    }
+
+    private boolean apply(int keyCode, boolean pressed, long nanos) {
+        Key k = keyFor(keyCode);
+        if (pressed) {
+            if (!k.isPressed && latency != null && isDirection(k))
+                latency.applied(nanos);
+            k.toggle(true);
+            k.pressedInPoll = polls;
+            if (isDirection(k)) {
+                turn = k;
+                turnTicks = TURN_BUFFER_TICKS;
+            }
+        } else {
+            // Pressed and released between two ticks: release on the next one
+            if (k.pressedInPoll == polls)
+                return false;
+            k.toggle(false);
         }
+        return true;
+    }
+
+    private boolean isDirection(Key k) {
+        return k == k_left || k == k_right || k == k_up || k == k_down;
+    }
+
+    private boolean movingToward(MovingEntity m, Key direction) {
+        if (m == null)
+            return false;
+        if (direction == k_left)
+            return m.getxSpd() < 0;
+        if (direction == k_right)
+            return m.getxSpd() > 0;
+        if (direction == k_up)
+            return m.getySpd() < 0;
+        return m.getySpd() > 0;
+    }
+
+    /** Measures press-to-frame latency into {@code latency}, or stops with null */
+    public void setLatency(InputLatency latency) {
+        this.latency = latency;
+    }
+
+    /** Returns the key events dropped because the game thread fell behind */
+    public long getDropped() {
+        return queue.getDropped();
+    }
+
+    @Override
+    public boolean isLeftPressed() {
+        return k_left.isPressed || turn == k_left;
+    }
+
+    @Override
+    public boolean isRightPressed() {
+        return k_right.isPressed || turn == k_right;
+    }
+
+    @Override
+    public boolean isUpPressed() {
+        return k_up.isPressed || turn == k_up;
+    }
+
+    @Override
+    public boolean isDownPressed() {
+        return k_down.isPressed || turn == k_down;
     }
 
     @Override
@@ -0,0 +1,47 @@
+package com.pacman.util;
+
+/**
+ * Directional input held as a bit mask, one bit per pressed direction.
+ *
+ * <p>
+ * Masks are how input is recorded and sent: replays store one per tick,
+ * rooms and versus sessions receive them from the network, the rewind
+ * buffer keeps them to replay ticks. Setting the mask of one of these
+ * objects turns it back into a {@link PacManInput} PacMan reads like the
+ * keyboard, without allocating.
+ * </p>
+ */
+public class MaskInput implements PacManInput {
+
+    // ==================== Input Mask ====================
+    public static final int RIGHT = 1;
+    public static final int LEFT = 2;
+    public static final int UP = 4;
+    public static final int DOWN = 8;
+    /** Every direction bit */
+    public static final int DIRECTIONS = RIGHT | LEFT | UP | DOWN;
+
+    private int mask;
+
+    /** Returns the input mask of a direction source (one bit per pressed direction) */
+    public static int maskOf(PacManInput k) {
+        int m = 0;
+        if (k.isRightPressed()) m |= RIGHT;
+        if (k.isLeftPressed()) m |= LEFT;
+        if (k.isUpPressed()) m |= UP;
+        if (k.isDownPressed()) m |= DOWN;
+        return m;
+    }
+
+    public int getMask() { return mask; }
+
+    /** Holds the directions of a mask (bits other than {@link #DIRECTIONS} are ignored) */
+    public void setMask(int mask) {
+        this.mask = mask & DIRECTIONS;
+    }
+
+    @Override public boolean isRightPressed() { return (mask & RIGHT) != 0; }
+    @Override public boolean isLeftPressed() { return (mask & LEFT) != 0; }
+    @Override public boolean isUpPressed() { return (mask & UP) != 0; }
+    @Override public boolean isDownPressed() { return (mask & DOWN) != 0; }
+}
@@ -0,0 +1,22 @@
+package com.pacman.util;
+
+/**
+ * Source of PacMan's directional input.
+ *
+ * <p>
+ * Implemented by {@link KeyHandler} for the keyboard and by
+ * {@link com.pacman.agent.MctsAgent} for the built-in bot, so PacMan can be
+ * driven by either without knowing which. A pressed direction is applied when
+ * PacMan is on the grid and the way is free, like a held key.
+ * </p>
+ */
+public interface PacManInput {
+
+    boolean isLeftPressed();
+
+    boolean isRightPressed();
+
+    boolean isUpPressed();
+
+    boolean isDownPressed();
+}
@@ -0,0 +1,102 @@
+package com.pacman.util;
+
+/**
+ * Seeded, splittable random number stream (SplitMix64, the algorithm of
+ * {@link java.util.SplittableRandom}).
+ *
+ * <p>
+ * Each game owns one stream built from its seed and splits it per subsystem
+ * and per ghost, so every ghost draws from its own sequence: results do not
+ * depend on update order or threads, and there is no shared seed to contend
+ * on. Unlike {@code SplittableRandom}, the position in the sequence is
+ * exposed through {@link #getState()} and {@link #setState(long)}, so game
+ * snapshots can save and restore it.
+ * </p>
+ */
+public final class RandomStream {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** Position in the sequence, advanced by {@link #gamma} per draw */
+    private long seed;
+    private final long gamma;
+
+    /** Creates a stream from a seed (same sequence as {@code new SplittableRandom(seed)}) */
+    public RandomStream(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private RandomStream(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /** Returns a new independent stream, advancing this one */
+    public RandomStream split() {
+        return new RandomStream(nextLong(), mixGamma(nextSeed()));
+    }
+
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    /** Returns a value in [0, bound) */
+    public int nextInt(int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("bound must be positive: " + bound);
+        int r = mix32(nextSeed());
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            r &= m;
+        } else {
+            // Reject the top values that would bias the result
+            for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(nextSeed()) >>> 1)
+                ;
+        }
+        return r;
+    }
+
+    /** Returns a value in [min, max] (both inclusive) */
+    public int nextInt(int min, int max) {
+        return nextInt(max - min + 1) + min;
+    }
+
+    public boolean nextBoolean() {
+        return mix32(nextSeed()) < 0;
+    }
+
+    /** Returns the position in the sequence (for snapshots) */
+    public long getState() {
+        return seed;
+    }
+
+    /** Moves to a position returned by {@link #getState()} of this stream */
+    public void setState(long state) {
+        this.seed = state;
+    }
+
+    // ==================== SplitMix64 ====================
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
@@ -0,0 +1,100 @@
+package com.pacman.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Positions of a fixed-size, lock-free ring between one producer thread and
+ * one consumer thread. The owner keeps the slots themselves in preallocated
+ * arrays indexed by {@link #slot}; this class only hands them out.
+ *
+ * <p>
+ * The producer {@link #claim claims} a slot, fills it and {@link #publish
+ * publishes} it by advancing {@code head} with a release store; the consumer
+ * reads up to {@link #head()} (an acquire load, so it sees whole slots) and
+ * frees what it read with {@link #free}, the same way with {@code tail}.
+ * Nothing locks, allocates or waits: when the consumer has fallen a whole
+ * ring behind, {@link #claim} fails and the drop is counted. The two
+ * counters sit a cache line apart, and the producer only re-reads
+ * {@code tail} when the ring looks full.
+ * </p>
+ *
+ * <p>
+ * Used by {@link KeyEventQueue} and the telemetry rings.
+ * </p>
+ */
+public final class SpscRing {
+
+    /** Longs between the two counters, so they sit on different cache lines */
+    private static final int PAD = 16;
+    private static final int HEAD = PAD;
+    private static final int TAIL = 2 * PAD;
+
+    private final int capacity;
+    private final int mask;
+
+    /** head: next slot the producer fills; tail: next slot the consumer reads */
+    private final AtomicLongArray positions = new AtomicLongArray(3 * PAD);
+
+    // Producer side
+    private long head;
+    private long cachedTail;
+    private volatile long dropped;
+
+    /** @param capacity slots, rounded up to a power of two (2 to 2^30) */
+    public SpscRing(int capacity) {
+        if (capacity < 2 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Ring capacity out of range: " + capacity);
+        this.capacity = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+    }
+
+    // ==================== Producer ====================
+
+    /**
+     * Returns the slot to fill next, or -1 if the ring is full (the drop is
+     * counted). The slot is only seen by the consumer once published.
+     */
+    public int claim() {
+        if (head - cachedTail >= capacity) {
+            cachedTail = positions.getAcquire(TAIL);
+            if (head - cachedTail >= capacity) {
+                dropped++;
+                return -1;
+            }
+        }
+        return (int) head & mask;
+    }
+
+    /** Hands the claimed slot, now filled, to the consumer */
+    public void publish() {
+        positions.setRelease(HEAD, ++head);
+    }
+
+    // ==================== Consumer ====================
+
+    /** Returns the position of the oldest slot not yet freed */
+    public long tail() {
+        return positions.getPlain(TAIL);
+    }
+
+    /** Returns the position after the newest published slot */
+    public long head() {
+        return positions.getAcquire(HEAD);
+    }
+
+    /** Frees the slots before {@code position} for the producer */
+    public void free(long position) {
+        positions.setRelease(TAIL, position);
+    }
+
+    /** Returns the slot of a position */
+    public int slot(long position) {
+        return (int) position & mask;
+    }
+
+    public int getCapacity() { return capacity; }
+    /** Returns the offers dropped because the ring was full */
+    public long getDropped() { return dropped; }
+    /** Returns the published slots the consumer has not freed yet */
+    public int size() { return (int) (positions.getAcquire(HEAD) - positions.getAcquire(TAIL)); }
+}
@@ -0,0 +1,100 @@
+package com.pacman.util;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures time-to-first-frame and the startup phases leading to it.
+ *
+ * <p>
+ * Phases are accumulated, so a phase entered several times (such as asset
+ * decode, which happens for every sprite) reports its total. Phases may nest:
+ * entity build includes the sprite decoding done by entity constructors.
+ * Only startup counts: once the first frame is drawn, {@link #end} returns
+ * without taking the lock, so later games and level reloads neither add to
+ * the report nor contend on it. The report is printed when the JVM exits.
+ * </p>
+ *
+ * <pre>
+ * long t0 = StartupTimer.start();
+ * ... work ...
+ * StartupTimer.end(StartupTimer.Phase.LEVEL_PARSE, t0);
+ * </pre>
+ */
+public class StartupTimer {
+
+    /** Startup phases, in the order they first occur */
+    public enum Phase {
+        JVM_START("JVM start to main()"),
+        FRAME_CREATION("Frame creation"),
+        ASSET_DECODE("Asset decode"),
+        LEVEL_PARSE("Level parse"),
+        ENTITY_BUILD("Entity build"),
+        FIRST_RENDER("First render");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final long[] totals = new long[Phase.values().length];
+
+    /** Milliseconds from JVM start to the first frame on screen, or -1 */
+    private static volatile long firstFrameMillis = -1;
+
+    private static boolean reportRegistered = false;
+
+    /** Returns the current timestamp to pass to {@link #end(Phase, long)} */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /** Adds the time elapsed since {@code startNanos} to a phase; ignored after the first frame */
+    public static void end(Phase phase, long startNanos) {
+        if (firstFrameMillis >= 0)
+            return;
+        synchronized (StartupTimer.class) {
+            if (firstFrameMillis < 0)
+                totals[phase.ordinal()] += System.nanoTime() - startNanos;
+        }
+    }
+
+    /**
+     * Records the JVM start phase and registers the exit report.
+     * Call this first thing in main().
+     */
+    public static synchronized void begin() {
+        totals[Phase.JVM_START.ordinal()] = ManagementFactory.getRuntimeMXBean().getUptime() * 1_000_000L;
+        if (!reportRegistered) {
+            reportRegistered = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(StartupTimer::report, "StartupReport"));
+        }
+    }
+
+    /** Records the moment the first frame was drawn. Only the first call counts. */
+    public static void markFirstFrame() {
+        if (firstFrameMillis >= 0)
+            return;
+        synchronized (StartupTimer.class) {
+            if (firstFrameMillis < 0)
+                firstFrameMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        }
+    }
+
+    /** Returns true once the first frame has been drawn */
+    public static boolean isFirstFrameDone() {
+        return firstFrameMillis >= 0;
+    }
+
+    /** Prints the startup report */
+    public static synchronized void report() {
+        System.out.println("=== Startup ===");
+        for (Phase p : Phase.values()) {
+            System.out.println(String.format("  %-20s %8.1f ms", p.label, totals[p.ordinal()] / 1e6));
+        }
+        if (firstFrameMillis >= 0) {
+            System.out.println(String.format("  %-20s %8d ms", "Time to first frame", firstFrameMillis));
+        }
+    }
+}
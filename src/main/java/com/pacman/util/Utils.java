@@ -1,52 +1,105 @@
 package com.pacman.util;
 
-import java.util.HashMap;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Utility functions for math calculations and random number generation.
+ * Utility functions for math calculations and image loading.
+ * Random numbers come from each game's {@link RandomStream}.
  */
 public class Utils {
-    private static Map<Integer, Double> directionConverterMap = new HashMap<>();
+    /** Sprite sheets decoded so far, by file name (see {@link #readSprite}) */
+    private static final Map<String, BufferedImage> sprites = new ConcurrentHashMap<>();
 
-    static {
-        directionConverterMap.put(0, 0d);
-        directionConverterMap.put(1, Math.PI);
-        directionConverterMap.put(2, Math.PI / 2);
-        directionConverterMap.put(3, Math.PI * (3d/2d));
-    }
+    /** Angle in radians for each sprite direction (0=right, 1=left, 2=up, 3=down) */
+    private static final double[] directionAngles = { 0d, Math.PI, Math.PI / 2, Math.PI * (3d/2d) };
+
+    /**
+     * Unit vector of each sprite direction, equal to the rounded-toward-zero
+     * cos/sin of {@link #directionConverter}. Angles are measured in screen
+     * space (y down), so "up" (pi/2) points to +y, as it always has for the
+     * ghost targets.
+     */
+    private static final int[] directionDx = { 1, -1, 0, 0 };
+    private static final int[] directionDy = { 0, 0, 1, -1 };
 
     public static double getDistance(double xA, double yA, double xB, double yB) {
         return Math.sqrt(Math.pow(xB - xA, 2) + Math.pow(yB - yA, 2));
     }
 
+    /** Squared distance between two pixel positions (exact, no sqrt; same ordering as {@link #getDistance}) */
+    public static long getSquaredDistance(int xA, int yA, int xB, int yB) {
+        long dx = xB - xA;
+        long dy = yB - yA;
+        return dx * dx + dy * dy;
+    }
+
     public static double getDirection(double xA, double yA, double xB, double yB) {
         return Math.atan2((yB - yA), (xB - xA));
     }
 
     public static int[] getPointDistanceDirection(int x, int y, double distance, double direction) {
-        int[] point = new int[2];
-        point[0] = x + (int)(Math.cos(direction) * distance);
-        point[1] = y + (int)(Math.sin(direction) * distance);
-        return point;
+        return getPointDistanceDirection(x, y, distance, direction, new int[2]);
+    }
+
+    /** Same as {@link #getPointDistanceDirection(int, int, double, double)}, writing into {@code out} */
+    public static int[] getPointDistanceDirection(int x, int y, double distance, double direction, int[] out) {
+        out[0] = x + (int)(Math.cos(direction) * distance);
+        out[1] = y + (int)(Math.sin(direction) * distance);
+        return out;
     }
 
     public static double directionConverter(int spriteDirection) {
-        return directionConverterMap.getOrDefault(spriteDirection, 0d);
+        if (spriteDirection < 0 || spriteDirection >= directionAngles.length) return 0d;
+        return directionAngles[spriteDirection];
+    }
+
+    /** X component of the unit vector of a sprite direction (right for unknown values) */
+    public static int directionDx(int spriteDirection) {
+        if (spriteDirection < 0 || spriteDirection >= directionDx.length) return 1;
+        return directionDx[spriteDirection];
     }
 
-    public static int randomInt(int n) {
-        Random r = new Random();
-        return r.nextInt(n + 1);
+    /** Y component of the unit vector of a sprite direction */
+    public static int directionDy(int spriteDirection) {
+        if (spriteDirection < 0 || spriteDirection >= directionDy.length) return 0;
+        return directionDy[spriteDirection];
     }
 
-    public static int randomInt(int min, int max) {
-        Random r = new Random();
-        return r.nextInt(max - min + 1) + min;
+    /**
+     * Decodes an image file, counting the time as asset decode in the startup report.
+     * @param fileName image file, relative to the working directory
+     * @return the decoded image
+     * @throws IOException if the file cannot be read
+     */
+    public static BufferedImage readImage(String fileName) throws IOException {
+        long t0 = StartupTimer.start();
+        try {
+            return ImageIO.read(new File(fileName));
+        } finally {
+            StartupTimer.end(StartupTimer.Phase.ASSET_DECODE, t0);
+        }
     }
 
-    public static boolean randomBool() {
-        return (randomInt(1) == 1);
+    /**
+     * Returns a sprite sheet, decoded on first use and then shared by every
+     * entity of every game that uses it. Sprites are only drawn from, never
+     * drawn on, so one copy serves them all.
+     * @param fileName image file, relative to the working directory
+     * @return the decoded image (null if its format is not supported, like {@link #readImage})
+     * @throws IOException if the file cannot be read
+     */
+    public static BufferedImage readSprite(String fileName) throws IOException {
+        BufferedImage sprite = sprites.get(fileName);
+        if (sprite == null) {
+            sprite = readImage(fileName);
+            if (sprite != null)
+                sprites.putIfAbsent(fileName, sprite);
+        }
+        return sprite;
     }
 }
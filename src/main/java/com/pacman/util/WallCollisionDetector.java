@@ -1,29 +1,20 @@
 package com.pacman.util;
 
-import com.pacman.core.Game;
-import com.pacman.entity.Entity;
-import com.pacman.entity.GhostHouse;
-import com.pacman.entity.Wall;
-
-import java.awt.*;
+import com.pacman.entity.MovingEntity;
 
 /**
  * Detects collisions with walls for pathfinding.
+ * Only the tiles under the moved hitbox are checked, in the maze of the
+ * entity's own game (see {@link com.pacman.core.TileMap}).
  */
 public class WallCollisionDetector {
-    public static boolean checkWallCollision(Entity obj, int dx, int dy) {
-        Rectangle r = new Rectangle(obj.getxPos() + dx, obj.getyPos() + dy, obj.getSize(), obj.getSize());
-        for (Wall w : Game.getWalls()) {
-            if (w.getHitbox().intersects(r)) return true;
-        }
-        return false;
+    public static boolean checkWallCollision(MovingEntity obj, int dx, int dy) {
+        return obj.getGame().getTileMap().intersectsWall(
+                obj.getxPos() + dx, obj.getyPos() + dy, obj.getSize(), obj.getSize(), false);
     }
 
-    public static boolean checkWallCollision(Entity obj, int dx, int dy, boolean ignoreGhostHouses) {
-        Rectangle r = new Rectangle(obj.getxPos() + dx, obj.getyPos() + dy, obj.getSize(), obj.getSize());
-        for (Wall w : Game.getWalls()) {
-            if (!(ignoreGhostHouses && w instanceof GhostHouse) && w.getHitbox().intersects(r)) return true;
-        }
-        return false;
+    public static boolean checkWallCollision(MovingEntity obj, int dx, int dy, boolean ignoreGhostHouses) {
+        return obj.getGame().getTileMap().intersectsWall(
+                obj.getxPos() + dx, obj.getyPos() + dy, obj.getSize(), obj.getSize(), ignoreGhostHouses);
     }
 }